@@ -1,8 +1,16 @@
 import chess.*;
+import dataaccess.DataAccess;
+import dataaccess.DatabaseManager;
+import server.Server;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         var piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         System.out.println("♕ 240 Chess Server: " + piece);
+        DataAccess dataAccess = DataAccess.fromSettings();
+        System.out.println("Storage: " + DatabaseManager.setting("db.storage", "memory"));
+        var server = new Server(dataAccess);
+        int port = server.run(args.length > 0 ? Integer.parseInt(args[0]) : 8080);
+        System.out.println("Listening on port " + port + " with " + server.threads().name().toLowerCase() + " threads");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches authorization tokens in front of another {@link AuthDAO}, so checking the token on every request costs a map
+ * lookup instead of a database round trip.
+ * <p>
+ * A token found in the store is remembered for {@link Settings#ttlMillis()}. A token the store does not have is
+ * remembered as bad for the shorter {@link Settings#negativeTtlMillis()}, so a client retrying a stale token does not
+ * reach the database each time either. Logging out removes the token from the cache before the store, so it stops
+ * working here at once. Another server sharing the store would go on accepting it for up to the TTL.
+ * <p>
+ * Once the cache holds more than {@link Settings#maxEntries()} tokens, expired ones are swept out. If it is still
+ * too full, arbitrary ones go until it is back to nine tenths of the limit. Reads never lock.
+ */
+public class AuthCache implements AuthDAO {
+
+    /**
+     * @param maxEntries        how many tokens to remember, good and bad together
+     * @param ttlMillis         how long a good token is trusted before the store is asked again
+     * @param negativeTtlMillis how long a bad token is remembered as bad
+     */
+    public record Settings(int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        public Settings {
+            if (maxEntries < 1 || ttlMillis < 0 || negativeTtlMillis < 0) { throw new IllegalArgumentException("Bad auth cache settings"); }
+        }
+
+        /** Reads the {@code auth.cache.*} properties, using the defaults for any that are missing */
+        public static Settings from(Properties props) {
+            return new Settings(
+                    Integer.parseInt(props.getProperty("auth.cache.maxEntries", "100000")),
+                    Long.parseLong(props.getProperty("auth.cache.ttlMillis", "300000")),
+                    Long.parseLong(props.getProperty("auth.cache.negativeTtlMillis", "5000")));
+        }
+    }
+
+    /**
+     * @param hits         lookups answered with a good token from the cache
+     * @param negativeHits lookups answered from the cache that the token is bad
+     * @param misses       lookups that went to the store
+     * @param evictions    tokens dropped to make room, not counting ones that expired
+     * @param size         tokens in the cache
+     */
+    public record Stats(long hits, long negativeHits, long misses, long evictions, int size) {
+        /** @return the share of lookups answered without the store */
+        public double hitRatio() {
+            long lookups = this.hits + this.negativeHits + this.misses;
+            return lookups == 0 ? 0 : (double) (this.hits + this.negativeHits) / lookups;
+        }
+    }
+
+    /** A token's record, or null if the token is bad, and when to stop trusting that */
+    private record Entry(AuthData auth, long expires) {}
+
+    private final AuthDAO store;
+    private final Settings settings;
+    private final long ttlNanos, negativeTtlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder(), negativeHits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    public AuthCache(AuthDAO store, Settings settings) {
+        this.store = store;
+        this.settings = settings;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(settings.ttlMillis());
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(settings.negativeTtlMillis());
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        this.store.createAuth(auth);
+        this.remember(auth.authToken(), new Entry(auth, System.nanoTime() + this.ttlNanos));
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        long now = System.nanoTime();
+        Entry entry = this.entries.get(authToken);
+        if (entry != null && now - entry.expires < 0) {
+            (entry.auth == null ? this.negativeHits : this.hits).increment();
+            return entry.auth;
+        }
+        this.misses.increment();
+        AuthData auth = this.store.getAuth(authToken);
+        Entry fresh = new Entry(auth, now + (auth == null ? this.negativeTtlNanos : this.ttlNanos));
+        if (entry == null) { this.entries.putIfAbsent(authToken, fresh); } // leave alone anything a login or logout put there meanwhile
+        else { this.entries.replace(authToken, entry, fresh); }
+        this.sweepIfFull();
+        return auth;
+    }
+
+    @Override
+    public boolean deleteAuth(String authToken) throws DataAccessException {
+        this.remember(authToken, new Entry(null, System.nanoTime() + this.negativeTtlNanos)); // refuse it here before the store forgets it
+        return this.store.deleteAuth(authToken);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        this.entries.clear();
+        this.store.clear();
+        this.entries.clear(); // again, in case a lookup cached a token the store was about to drop
+    }
+
+    public Stats stats() {
+        return new Stats(this.hits.sum(), this.negativeHits.sum(), this.misses.sum(), this.evictions.sum(), this.entries.size());
+    }
+
+    private void remember(String authToken, Entry entry) {
+        this.entries.put(authToken, entry);
+        this.sweepIfFull();
+    }
+
+    /** Drops expired tokens once the cache is over its limit, then arbitrary ones if it is still too full */
+    private void sweepIfFull() {
+        if (this.entries.size() <= this.settings.maxEntries() || !this.sweepLock.tryLock()) { return; }
+        try {
+            long now = System.nanoTime();
+            this.entries.values().removeIf(entry -> now - entry.expires >= 0);
+            int target = this.settings.maxEntries() - this.settings.maxEntries() / 10;
+            Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator();
+            while (this.entries.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+                this.evictions.increment();
+            }
+        } finally {
+            this.sweepLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.UUID;
+
+/** Stores the authorization tokens of logged-in users */
+public interface AuthDAO {
+    /** Issues a new token for a user, by default a random one that is stored
+     * @return the token's record
+     */
+    default AuthData issueAuth(String username) throws DataAccessException {
+        var auth = new AuthData(UUID.randomUUID().toString(), username);
+        this.createAuth(auth);
+        return auth;
+    }
+
+    void createAuth(AuthData auth) throws DataAccessException;
+
+    /** @return the token's record, or null if it was never issued or has been deleted */
+    AuthData getAuth(String authToken) throws DataAccessException;
+
+    /** @return whether there was a token to delete */
+    boolean deleteAuth(String authToken) throws DataAccessException;
+
+    void clear() throws DataAccessException;
+}
@@ -0,0 +1,562 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of database connections, so a request borrows a connection that is already open instead of paying
+ * for a new one.
+ * <p>
+ * The pool keeps at least {@link Settings#minSize()} connections open and never more than {@link Settings#maxSize()}.
+ * A borrower waits up to {@link Settings#acquireTimeoutMillis()} for a connection when all of them are in use. The
+ * most recently returned connection is handed out first, so under light load the same few stay warm and the rest
+ * age out after {@link Settings#idleTimeoutMillis()}. A connection that has sat idle for longer than
+ * {@link Settings#validationIntervalMillis()} is pinged before it is handed out, and replaced if the ping fails.
+ * <p>
+ * Borrowed connections are wrappers whose {@code close()} gives the real connection back to the pool, rolling back
+ * anything left uncommitted, undoing any change to its read-only flag, isolation level or catalog and closing the
+ * statements it opened that are not cached. One held for longer than {@link Settings#leakThresholdMillis()} is logged
+ * once. Where it was borrowed is only recorded while this class's logger is at {@code FINE}, since capturing a stack
+ * on every borrow costs more than the rest of borrowing. {@link #stats()} reports how busy the pool is and how long
+ * borrowers waited.
+ * <p>
+ * Each connection keeps up to {@link Settings#statementCacheSize()} of its prepared statements open in a
+ * {@link StatementCache}, so preparing the same SQL again on a later borrow hands back the statement prepared before.
+ * Closing such a statement clears its parameters and keeps it for the next caller.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    /** Opens a new connection to the database */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * How a pool sizes itself and checks its connections
+     *
+     * @param leakThresholdMillis how long a connection may be held before it is reported as leaked, or 0 to never report
+     * @param statementCacheSize  how many prepared statements each connection keeps open, or 0 to keep none
+     * @param housekeepingMillis  how often idle connections are evicted, the pool is topped up and leaks are looked for
+     */
+    public record Settings(int minSize, int maxSize, long acquireTimeoutMillis, long idleTimeoutMillis,
+                           long validationIntervalMillis, int validationTimeoutSeconds, long leakThresholdMillis,
+                           int statementCacheSize, long housekeepingMillis) {
+        public Settings {
+            if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+                throw new IllegalArgumentException("Bad pool size " + minSize + ".." + maxSize);
+            }
+            if (acquireTimeoutMillis < 0 || idleTimeoutMillis < 0 || validationIntervalMillis < 0
+                    || validationTimeoutSeconds < 0 || leakThresholdMillis < 0 || statementCacheSize < 0 || housekeepingMillis < 1) {
+                throw new IllegalArgumentException("Pool timeouts must not be negative");
+            }
+        }
+
+        /** Reads the {@code db.pool.*} properties, using the defaults for any that are missing */
+        public static Settings from(Properties props) {
+            return new Settings(
+                    Integer.parseInt(props.getProperty("db.pool.minSize", "2")),
+                    Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                    Long.parseLong(props.getProperty("db.pool.acquireTimeoutMillis", "5000")),
+                    Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "600000")),
+                    Long.parseLong(props.getProperty("db.pool.validationIntervalMillis", "500")),
+                    Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")),
+                    Long.parseLong(props.getProperty("db.pool.leakThresholdMillis", "30000")),
+                    Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "64")),
+                    Long.parseLong(props.getProperty("db.pool.housekeepingMillis", "5000")));
+        }
+    }
+
+    /**
+     * A snapshot of a pool's usage
+     *
+     * @param open        connections open, whether idle or borrowed
+     * @param borrowed    connections handed out and not yet returned
+     * @param waiting     threads waiting for a connection
+     * @param borrows     connections handed out since the pool started
+     * @param timeouts    borrowers that gave up waiting
+     * @param created     connections opened
+     * @param discarded   connections closed because they failed, went idle too long or could not be reset
+     * @param leaks       borrows reported as leaked
+     * @param totalWaitNanos how long all borrowers together spent waiting
+     * @param maxWaitNanos   the longest any borrower waited
+     * @param statementHits   prepared statements handed back from a connection's cache
+     * @param statementMisses prepared statements that were not in the cache, or were already lent out
+     */
+    public record Stats(int open, int borrowed, int waiting, long borrows, long timeouts, long created,
+                        long discarded, long leaks, long totalWaitNanos, long maxWaitNanos, long statementHits,
+                        long statementMisses) {
+        public int idle() { return this.open - this.borrowed; }
+        public double averageWaitMillis() { return this.borrows == 0 ? 0 : this.totalWaitNanos / 1e6 / this.borrows; }
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = this.lock.newCondition();
+    /** Idle connections, the most recently returned first */
+    private final ArrayDeque<Pooled> idle = new ArrayDeque<>();
+    private final Set<Pooled> borrowed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ScheduledExecutorService housekeeper;
+    /** Connections open or being opened */
+    private int open;
+    private int waiting;
+    private boolean closed;
+    private long borrows, timeouts, created, discarded, leaks, totalWaitNanos, maxWaitNanos;
+    private final LongAdder statementHits = new LongAdder(), statementMisses = new LongAdder();
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, settings.housekeepingMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Settings settings() { return this.settings; }
+
+    /**
+     * Borrows a connection, waiting for one to be returned if the pool is at its maximum size. Closing the connection
+     * gives it back; the easiest way to make sure that happens is a try-with-resources block.
+     *
+     * @throws DataAccessException if no connection could be had within the acquire timeout, or a new one failed to open
+     */
+    public Connection getConnection() throws DataAccessException {
+        long start = System.nanoTime(), deadline = start + TimeUnit.MILLISECONDS.toNanos(this.settings.acquireTimeoutMillis());
+        while (true) {
+            Pooled pooled = null;
+            boolean create = false;
+            this.lock.lock();
+            try {
+                while (!this.closed && this.idle.isEmpty() && this.open >= this.settings.maxSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        this.timeouts++;
+                        throw new DataAccessException("Timed out after " + this.settings.acquireTimeoutMillis()
+                                + " ms waiting for a database connection; all " + this.open + " are in use");
+                    }
+                    this.waiting++;
+                    try {
+                        this.available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DataAccessException("Interrupted waiting for a database connection", e);
+                    } finally {
+                        this.waiting--;
+                    }
+                }
+                if (this.closed) { throw new DataAccessException("The connection pool is closed"); }
+                pooled = this.idle.pollFirst();
+                if (pooled == null) {
+                    this.open++; // reserve the slot, then open the connection without holding the lock
+                    create = true;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+            if (create) {
+                pooled = this.create();
+            } else if (!this.validate(pooled)) {
+                this.discard(pooled);
+                continue;
+            }
+            return this.lend(pooled, System.nanoTime() - start);
+        }
+    }
+
+    /** @return a snapshot of the pool's size and how it has been used */
+    public Stats stats() {
+        this.lock.lock();
+        try {
+            return new Stats(this.open, this.borrowed.size(), this.waiting, this.borrows, this.timeouts, this.created,
+                    this.discarded, this.leaks, this.totalWaitNanos, this.maxWaitNanos, this.statementHits.sum(),
+                    this.statementMisses.sum());
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /** Closes the idle connections and stops lending. Borrowed connections are closed as they are returned. */
+    @Override
+    public void close() {
+        List<Pooled> idle;
+        this.lock.lock();
+        try {
+            if (this.closed) { return; }
+            this.closed = true;
+            idle = new ArrayList<>(this.idle);
+            this.idle.clear();
+            this.open -= idle.size();
+            this.available.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        this.housekeeper.shutdownNow();
+        for (Pooled pooled : idle) { closeQuietly(pooled.connection); }
+    }
+
+    private Pooled create() throws DataAccessException {
+        try {
+            Connection connection = this.factory.open();
+            Pooled pooled = new Pooled(connection, this.settings.statementCacheSize() == 0 ? null
+                    : new StatementCache(this.settings.statementCacheSize(), this.statementHits, this.statementMisses));
+            this.lock.lock();
+            try {
+                this.created++;
+            } finally {
+                this.lock.unlock();
+            }
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            this.lock.lock();
+            try {
+                this.open--;
+                this.available.signal();
+            } finally {
+                this.lock.unlock();
+            }
+            throw new DataAccessException("Unable to open a database connection: " + e.getMessage(), e);
+        }
+    }
+
+    /** @return whether an idle connection still works, pinging it only if it has been idle for a while */
+    private boolean validate(Pooled pooled) {
+        if (System.nanoTime() - pooled.lastUsed < TimeUnit.MILLISECONDS.toNanos(this.settings.validationIntervalMillis())) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(this.settings.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lend(Pooled pooled, long waitNanos) {
+        pooled.borrowedAt = System.nanoTime();
+        pooled.borrower = this.settings.leakThresholdMillis() > 0 && LOG.isLoggable(Level.FINE) ? new Throwable("Connection borrowed here") : null;
+        pooled.leakReported = false;
+        pooled.broken = false;
+        this.lock.lock();
+        try {
+            this.borrowed.add(pooled);
+            this.borrows++;
+            this.totalWaitNanos += waitNanos;
+            this.maxWaitNanos = Math.max(this.maxWaitNanos, waitNanos);
+        } finally {
+            this.lock.unlock();
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Lease(pooled));
+    }
+
+    /** Takes a connection back, resetting it for the next borrower or closing it if it cannot be reused */
+    private void giveBack(Pooled pooled) {
+        boolean reusable = !pooled.broken;
+        if (reusable && pooled.statements != null) { pooled.statements.giveBackAll(); }
+        for (Statement statement : pooled.uncached) { closeQuietly(statement); }
+        pooled.uncached.clear();
+        try {
+            if (reusable && !pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if (reusable) { pooled.restoreSettings(); }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        this.lock.lock();
+        try {
+            this.borrowed.remove(pooled);
+            if (reusable && !this.closed) {
+                pooled.lastUsed = System.nanoTime();
+                this.idle.addFirst(pooled);
+                this.available.signal();
+                return;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        this.discard(pooled);
+    }
+
+    /** Closes a connection that is no longer in the pool, freeing its slot */
+    private void discard(Pooled pooled) {
+        closeQuietly(pooled.connection);
+        this.lock.lock();
+        try {
+            this.open--;
+            this.discarded++;
+            this.available.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /** Evicts connections idle past the timeout, opens connections up to the minimum and reports leaks */
+    private void houseKeep() {
+        try {
+            List<Pooled> evicted = new ArrayList<>();
+            List<Throwable> leaked = new ArrayList<>();
+            int missing;
+            long now = System.nanoTime();
+            this.lock.lock();
+            try {
+                if (this.closed) { return; }
+                long idleTimeout = TimeUnit.MILLISECONDS.toNanos(this.settings.idleTimeoutMillis());
+                while (this.open > this.settings.minSize() && !this.idle.isEmpty() && now - this.idle.peekLast().lastUsed > idleTimeout) {
+                    evicted.add(this.idle.pollLast());
+                    this.open--;
+                    this.discarded++;
+                }
+                long leakThreshold = TimeUnit.MILLISECONDS.toNanos(this.settings.leakThresholdMillis());
+                for (Pooled pooled : this.borrowed) {
+                    if (leakThreshold > 0 && !pooled.leakReported && now - pooled.borrowedAt > leakThreshold) {
+                        pooled.leakReported = true;
+                        this.leaks++;
+                        leaked.add(pooled.borrower);
+                    }
+                }
+                missing = this.settings.minSize() - this.open;
+                this.open += Math.max(missing, 0);
+            } finally {
+                this.lock.unlock();
+            }
+            for (Pooled pooled : evicted) { closeQuietly(pooled.connection); }
+            for (Throwable borrower : leaked) {
+                LOG.log(Level.WARNING, "Database connection held for more than " + this.settings.leakThresholdMillis()
+                        + " ms; it may have been leaked" + (borrower == null ? " (log " + ConnectionPool.class.getName()
+                        + " at FINE to see where it was borrowed)" : ""), borrower);
+            }
+            for (int i = 0; i < missing; i++) {
+                Pooled pooled;
+                try {
+                    pooled = this.create();
+                } catch (DataAccessException e) {
+                    LOG.log(Level.WARNING, "Unable to top up the connection pool", e);
+                    this.lock.lock();
+                    try {
+                        this.open -= missing - i - 1;
+                    } finally {
+                        this.lock.unlock();
+                    }
+                    return;
+                }
+                this.lock.lock();
+                try {
+                    if (!this.closed) {
+                        pooled.lastUsed = System.nanoTime();
+                        this.idle.addLast(pooled);
+                        this.available.signal();
+                        continue;
+                    }
+                } finally {
+                    this.lock.unlock();
+                }
+                this.discard(pooled);
+            }
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Connection pool housekeeping failed", e); // keep the schedule running
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /** A real connection and its bookkeeping */
+    private static final class Pooled {
+        final Connection connection;
+        /** The connection's open prepared statements, or null if they are not cached */
+        final StatementCache statements;
+        volatile long lastUsed = System.nanoTime();
+        volatile long borrowedAt;
+        volatile Throwable borrower;
+        volatile boolean leakReported;
+        /** Set when the connection failed in a way that means it should not be reused */
+        volatile boolean broken;
+        /** Statements the current borrower opened that are not cached, closed when the connection is given back */
+        final List<Statement> uncached = new ArrayList<>();
+        /** The connection's settings before a borrower first changed them, or null while they never have been */
+        private Boolean readOnly;
+        private Integer isolation;
+        private String catalog;
+        /** Set when the current borrower changed a setting, so it is put back when the connection is given back */
+        private boolean changed;
+
+        Pooled(Connection connection, StatementCache statements) {
+            this.connection = connection;
+            this.statements = statements;
+        }
+
+        /** Remembers the setting a borrower's call is about to change, the first time it is changed */
+        void beforeSet(String method) throws SQLException {
+            switch (method) {
+                case "setReadOnly" -> { if (this.readOnly == null) { this.readOnly = this.connection.isReadOnly(); } }
+                case "setTransactionIsolation" -> { if (this.isolation == null) { this.isolation = this.connection.getTransactionIsolation(); } }
+                case "setCatalog" -> { if (this.catalog == null) { this.catalog = this.connection.getCatalog(); } }
+                default -> { return; }
+            }
+            this.changed = true;
+        }
+
+        /** Puts back the settings the last borrower changed */
+        void restoreSettings() throws SQLException {
+            if (!this.changed) { return; }
+            if (this.readOnly != null) { this.connection.setReadOnly(this.readOnly); }
+            if (this.isolation != null) { this.connection.setTransactionIsolation(this.isolation); }
+            if (this.catalog != null) { this.connection.setCatalog(this.catalog); }
+            this.changed = false;
+        }
+    }
+
+    /** The connection a borrower sees, which stops working once it is closed and given back */
+    private final class Lease implements InvocationHandler {
+        private final Pooled pooled;
+        private boolean returned;
+
+        Lease(Pooled pooled) { this.pooled = pooled; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    synchronized (this) {
+                        if (this.returned) { return null; }
+                        this.returned = true;
+                    }
+                    ConnectionPool.this.giveBack(this.pooled);
+                    return null;
+                }
+                case "isClosed" -> {
+                    synchronized (this) {
+                        if (this.returned) { return true; }
+                    }
+                }
+                case "equals" -> { return proxy == args[0]; }
+                case "hashCode" -> { return System.identityHashCode(proxy); }
+                case "toString" -> { return "Pooled " + this.pooled.connection; }
+                default -> {
+                    synchronized (this) {
+                        if (this.returned) { throw new SQLException("Connection has been returned to the pool", "08003"); }
+                    }
+                    if (method.getName().equals("prepareStatement") && this.pooled.statements != null) {
+                        StatementCache.Key key = cacheKey(method, args);
+                        StatementCache.Entry entry = key == null ? null : this.take(key);
+                        if (entry != null) {
+                            return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                    new Class<?>[]{PreparedStatement.class}, new CachedStatement(this.pooled, (Connection) proxy, key, entry));
+                        }
+                    }
+                    if (method.getName().startsWith("set")) { this.pooled.beforeSet(method.getName()); }
+                }
+            }
+            Object result = forward(this.pooled, this.pooled.connection, method, args);
+            if (result instanceof Statement statement) { this.pooled.uncached.add(statement); }
+            return result;
+        }
+
+        private StatementCache.Entry take(StatementCache.Key key) throws SQLException {
+            try {
+                return this.pooled.statements.take(this.pooled.connection, key);
+            } catch (SQLException e) {
+                markIfBroken(this.pooled, e);
+                throw e;
+            }
+        }
+    }
+
+    /** @return the cache key for a call to prepareStatement, or null if that form of it is not cached */
+    private static StatementCache.Key cacheKey(Method method, Object[] args) {
+        Class<?>[] types = method.getParameterTypes();
+        if (types.length == 1) { return new StatementCache.Key((String) args[0], -1); }
+        if (types.length == 2 && types[1] == int.class) { return new StatementCache.Key((String) args[0], (Integer) args[1]); }
+        return null;
+    }
+
+    /** Calls a method on the real connection or statement, noting if it failed in a way that breaks the connection */
+    private static Object forward(Pooled pooled, Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sql) { markIfBroken(pooled, sql); }
+            throw e.getCause();
+        }
+    }
+
+    private static void markIfBroken(Pooled pooled, SQLException e) {
+        if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+            pooled.broken = true; // a connection exception: the link to the server is gone
+        }
+    }
+
+    /** A cached statement as its borrower sees it, which goes back to the cache when closed */
+    private static final class CachedStatement implements InvocationHandler {
+        private final Pooled pooled;
+        private final Connection lease;
+        private final StatementCache.Key key;
+        private final StatementCache.Entry entry;
+        /** Which lending of the entry this is, so the handle stops working once the connection takes it back */
+        private final int lend;
+        private boolean closed;
+
+        CachedStatement(Pooled pooled, Connection lease, StatementCache.Key key, StatementCache.Entry entry) {
+            this.pooled = pooled;
+            this.lease = lease;
+            this.key = key;
+            this.entry = entry;
+            this.lend = entry.lends;
+        }
+
+        /** @return whether this handle was closed, or its statement was taken back and perhaps lent to someone else */
+        private boolean stale() { return this.closed || !this.entry.inUse || this.entry.lends != this.lend; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!this.closed) {
+                        this.closed = true;
+                        this.pooled.statements.giveBack(this.key, this.entry, this.lend);
+                    }
+                    return null;
+                }
+                case "isClosed" -> { return this.stale() || this.entry.statement.isClosed(); }
+                case "getConnection" -> { return this.lease; }
+                case "equals" -> { return proxy == args[0]; }
+                case "hashCode" -> { return System.identityHashCode(proxy); }
+                case "toString" -> { return this.entry.statement.toString(); }
+                default -> {
+                    if (this.stale()) { throw new SQLException("Statement is closed", "S1009"); }
+                }
+            }
+            return forward(this.pooled, this.entry.statement, method, args);
+        }
+    }
+}
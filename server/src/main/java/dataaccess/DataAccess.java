@@ -0,0 +1,61 @@
+package dataaccess;
+
+/**
+ * The DAOs the server runs on, chosen at startup by the {@code db.storage} setting:
+ * <ul>
+ *   <li>{@code memory}, the default: everything in memory, lost when the server stops</li>
+ *   <li>{@code mysql}: every call goes to MySQL</li>
+ *   <li>{@code tiered}: MySQL holds everything, with memory in front of it serving reads, auth tokens cached by an
+ *   {@link AuthCache}, and game moves saved behind the caller's back, as whole games or, with
+ *   {@code db.writeBehind.format=moves}, as a {@link MoveLog}</li>
+ * </ul>
+ * Setting {@code auth.tokens=signed} swaps the auth DAO for a {@link SignedAuthDAO}, whose tokens any server with the
+ * same {@code auth.signingKey} checks without a lookup. Logouts are shared through MySQL unless storage is memory.
+ */
+public record DataAccess(UserDAO users, AuthDAO auths, GameDAO games) {
+
+    /** @return the DAOs named by the {@code db.storage} setting */
+    public static DataAccess fromSettings() throws DataAccessException {
+        String storage = DatabaseManager.setting("db.storage", "memory");
+        String tokens = DatabaseManager.setting("auth.tokens", "opaque");
+        DataAccess dataAccess = create(storage);
+        return switch (tokens) {
+            case "opaque" -> dataAccess;
+            case "signed" -> new DataAccess(dataAccess.users, new SignedAuthDAO(SignedAuthDAO.Settings.from(DatabaseManager.settings()),
+                    storage.equals("memory") ? null : new MySqlRevocationStore()), dataAccess.games);
+            default -> throw new DataAccessException("Unknown auth.tokens '" + tokens + "'; use opaque or signed");
+        };
+    }
+
+    /** @return fresh in-memory DAOs */
+    public static DataAccess memory() { return new DataAccess(new MemoryUserDAO(), new MemoryAuthDAO(), new MemoryGameDAO()); }
+
+    public static DataAccess create(String storage) throws DataAccessException {
+        return switch (storage) {
+            case "memory" -> memory();
+            case "mysql" -> new DataAccess(new MySqlUserDAO(), new MySqlAuthDAO(), new MySqlGameDAO());
+            case "tiered" -> new DataAccess(new TieredUserDAO(new MySqlUserDAO()),
+                    new AuthCache(new MySqlAuthDAO(), AuthCache.Settings.from(DatabaseManager.settings())),
+                    tieredGames());
+            default -> throw new DataAccessException("Unknown storage '" + storage + "'; use memory, mysql or tiered");
+        };
+    }
+
+    /** @return tiered games saved as whole games, or as moves when {@code db.writeBehind.format} is {@code moves} */
+    private static TieredGameDAO tieredGames() throws DataAccessException {
+        GameStateWriter.Settings settings = GameStateWriter.Settings.from(DatabaseManager.settings());
+        String format = DatabaseManager.setting("db.writeBehind.format", "state");
+        return switch (format) {
+            case "state" -> new TieredGameDAO(new MySqlGameDAO(), new GameStateWriter(settings));
+            case "moves" -> new TieredGameDAO(new MySqlGameDAO(),
+                    new MoveLog(Integer.parseInt(DatabaseManager.setting("db.writeBehind.snapshotInterval", "32")), settings));
+            default -> throw new DataAccessException("Unknown db.writeBehind.format '" + format + "'; use state or moves");
+        };
+    }
+
+    public void clear() throws DataAccessException {
+        this.users.clear();
+        this.auths.clear();
+        this.games.clear();
+    }
+}
@@ -0,0 +1,145 @@
+package dataaccess;
+
+import java.sql.*;
+import java.util.Properties;
+
+public class DatabaseManager {
+    private static final String DATABASE_NAME;
+    private static final String USER;
+    private static final String PASSWORD;
+    private static final String CONNECTION_URL;
+    private static final ConnectionPool.Settings POOL_SETTINGS;
+    private static final Properties PROPERTIES;
+    private static volatile ConnectionPool pool;
+
+    /*
+     * Load the database information for the db.properties file.
+     */
+    static {
+        try {
+            try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
+                if (propStream == null) {
+                    throw new Exception("Unable to load db.properties");
+                }
+                Properties props = new Properties();
+                props.load(propStream);
+                DATABASE_NAME = props.getProperty("db.name");
+                USER = props.getProperty("db.user");
+                PASSWORD = props.getProperty("db.password");
+
+                var host = props.getProperty("db.host");
+                var port = Integer.parseInt(props.getProperty("db.port"));
+                // Server-side prepares let the statements each pooled connection keeps open skip parsing on reuse
+                var serverPrepares = Boolean.parseBoolean(props.getProperty("db.useServerPrepStmts", "true"));
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=%b", host, port, serverPrepares);
+                POOL_SETTINGS = ConnectionPool.Settings.from(props);
+                PROPERTIES = props;
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Creates the database if it does not already exist.
+     */
+    static void createDatabase() throws DataAccessException {
+        var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
+        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the database if it does not already exist, then runs statements, normally CREATE TABLE IF NOT EXISTS,
+     * to set up a DAO's tables.
+     */
+    static void configureDatabase(String... statements) throws DataAccessException {
+        createDatabase();
+        try (var conn = getConnection()) {
+            for (var statement : statements) {
+                try (var preparedStatement = conn.prepareStatement(statement)) {
+                    preparedStatement.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to configure database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return a setting from db.properties, or the default if it is not set
+     */
+    public static String setting(String key, String defaultValue) {
+        return PROPERTIES.getProperty(key, defaultValue);
+    }
+
+    /**
+     * @return every setting from db.properties
+     */
+    public static Properties settings() {
+        var copy = new Properties();
+        copy.putAll(PROPERTIES);
+        return copy;
+    }
+
+    /**
+     * Borrows a connection to the database, with the catalog set from db.properties, from a pool sized by the
+     * db.pool.* properties. Closing the connection returns it to the pool, so you must close it when you are done
+     * with it, and should not hold it any longer than one operation needs. The easiest way to do that is with a
+     * try-with-resource block.
+     * <br/>
+     * <code>
+     * try (var conn = DatabaseManager.getConnection()) {
+     * // execute SQL statements.
+     * }
+     * </code>
+     */
+    static Connection getConnection() throws DataAccessException {
+        return pool().getConnection();
+    }
+
+    /**
+     * @return how busy the connection pool is and how long borrowers have waited for it
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return pool().stats();
+    }
+
+    /**
+     * Closes the pooled connections, for when the server shuts down. A later getConnection starts a new pool.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool pool() {
+        var current = pool;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = pool = new ConnectionPool(DatabaseManager::openConnection, POOL_SETTINGS);
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        try {
+            conn.setCatalog(DATABASE_NAME);
+            return conn;
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+    }
+}
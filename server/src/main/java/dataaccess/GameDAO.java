@@ -0,0 +1,35 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+
+import java.util.Collection;
+
+/** Stores games and who is playing them */
+public interface GameDAO {
+    /** Creates a game at the standard starting position with both seats open
+     * @return the new game's ID
+     */
+    int createGame(String gameName) throws DataAccessException;
+
+    /** @return the game, or null if there is none with that ID */
+    GameData getGame(int gameID) throws DataAccessException;
+
+    Collection<GameData> listGames() throws DataAccessException;
+
+    /**
+     * Seats a player, but only if the seat is open, checking and claiming it in one step so two players racing for
+     * the same seat cannot both get it
+     *
+     * @return whether the player got the seat; false if someone already has it
+     * @throws DataAccessException if there is no such game
+     */
+    boolean joinGame(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException;
+
+    /** Replaces a game's state
+     * @throws DataAccessException if there is no such game
+     */
+    void updateGame(int gameID, ChessGame game) throws DataAccessException;
+
+    void clear() throws DataAccessException;
+}
@@ -0,0 +1,187 @@
+package dataaccess;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saves games' serialized state behind the caller's back, so a move can be acknowledged and broadcast as soon as it
+ * is made instead of after its row is rewritten.
+ * <p>
+ * {@link #update} only records the game's latest state. A background thread writes the recorded states out every
+ * {@link Settings#flushIntervalMillis()}, or sooner once {@link Settings#batchSize()} games are waiting, as one JDBC
+ * batch in one transaction. A game updated several times between flushes is written once, with its latest state.
+ * <p>
+ * If writes keep failing, states pile up in memory. Once the oldest unsaved update is older than
+ * {@link Settings#maxLossMillis()}, {@code update} writes everything out itself and throws if that fails, so a crash
+ * never loses more than that window of acknowledged moves. {@link #close()} writes out everything that is left, and
+ * runs from a shutdown hook if the server stops without calling it. The background thread is a {@link WriteBehind}'s.
+ */
+public class GameStateWriter extends WriteBehind {
+    private static final String UPDATE_GAME = "UPDATE game SET game=? WHERE gameID=?";
+
+    /** Writes a batch of game states out, all or none of them */
+    @FunctionalInterface
+    public interface Sink {
+        void write(List<State> states) throws DataAccessException;
+    }
+
+    /** A game's serialized state */
+    public record State(int gameID, String game) {}
+
+    /**
+     * How often a writer flushes and how much it may hold
+     *
+     * @param flushIntervalMillis how long an update may wait to be written when nothing goes wrong
+     * @param batchSize           how many waiting games start a flush without waiting for the interval
+     * @param maxLossMillis       how old the oldest unsaved update may get before updates are refused
+     */
+    public record Settings(long flushIntervalMillis, int batchSize, long maxLossMillis) {
+        public Settings {
+            if (flushIntervalMillis < 1 || batchSize < 1 || maxLossMillis < flushIntervalMillis) {
+                throw new IllegalArgumentException("Need a positive interval and batch size, and a loss window no shorter than the interval");
+            }
+        }
+
+        /** Reads the {@code db.writeBehind.*} properties, using the defaults for any that are missing */
+        public static Settings from(Properties props) {
+            return new Settings(
+                    Long.parseLong(props.getProperty("db.writeBehind.flushIntervalMillis", "200")),
+                    Integer.parseInt(props.getProperty("db.writeBehind.batchSize", "256")),
+                    Long.parseLong(props.getProperty("db.writeBehind.maxLossMillis", "2000")));
+        }
+    }
+
+    /**
+     * @param updates   calls to {@link #update}
+     * @param written   game states written out
+     * @param flushes   batches written
+     * @param failures  batches that failed and were kept for the next flush
+     * @param pending   games waiting to be written
+     */
+    public record Stats(long updates, long written, long flushes, long failures, int pending) {
+        /** @return how many updates were overwritten by a later one before being written */
+        public long coalesced() { return this.updates - this.written - this.pending; }
+    }
+
+    /** A state waiting to be written, and when the game first changed since it was last written */
+    private record Pending(String game, long since) {}
+
+    private final Sink sink;
+    private final ConcurrentHashMap<Integer, Pending> dirty = new ConcurrentHashMap<>();
+    /** States taken out of {@link #dirty} by the flush that is writing them */
+    private final ConcurrentHashMap<Integer, Pending> writing = new ConcurrentHashMap<>();
+    /** When the oldest update not yet written was made, or {@link Long#MAX_VALUE} if there is none */
+    private final AtomicLong oldestPending = new AtomicLong(Long.MAX_VALUE);
+    /** Held while flushing, so only one flush writes at a time */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final LongAdder updates = new LongAdder();
+    private final AtomicLong written = new AtomicLong(), flushes = new AtomicLong(), failures = new AtomicLong();
+
+    /** Creates a writer that updates the game table through {@link DatabaseManager} */
+    public GameStateWriter(Settings settings) { this(GameStateWriter::writeBatch, settings); }
+
+    public GameStateWriter(Sink sink, Settings settings) {
+        super("game-state-writer", "game states", settings);
+        this.sink = sink;
+        this.start();
+    }
+
+    /**
+     * Records a game's latest state to be written soon
+     *
+     * @throws DataAccessException if states have gone unsaved for longer than the loss window and still cannot be
+     *                             written, in which case this one is not recorded and the move should not be acknowledged
+     */
+    public void update(int gameID, String game) throws DataAccessException {
+        if (this.isClosed()) { throw new DataAccessException("Game state writer is closed"); }
+        long now = System.nanoTime();
+        this.flushIfOverdue(now, this.oldestPending.get());
+        this.dirty.merge(gameID, new Pending(game, now), (old, next) -> new Pending(next.game, old.since));
+        this.oldestPending.accumulateAndGet(now, Math::min);
+        this.updates.increment();
+        if (this.dirty.size() >= this.settings.batchSize()) { this.signal(); }
+    }
+
+    /** @return the latest state recorded for a game that may not have been written yet, or null if it has none */
+    public String latest(int gameID) {
+        Pending pending = this.dirty.get(gameID);
+        if (pending == null) { pending = this.writing.get(gameID); }
+        return pending == null ? null : pending.game;
+    }
+
+    @Override
+    public void flush() throws DataAccessException {
+        this.flushLock.lock();
+        try {
+            if (this.dirty.isEmpty()) { return; }
+            this.oldestPending.set(Long.MAX_VALUE); // updates made from here on lower it again
+            List<State> batch = new ArrayList<>(this.dirty.size());
+            long oldest = Long.MAX_VALUE;
+            for (Map.Entry<Integer, Pending> entry : this.dirty.entrySet()) {
+                Pending pending = entry.getValue();
+                this.writing.put(entry.getKey(), pending); // before it leaves dirty, so latest() always finds it
+                if (this.dirty.remove(entry.getKey(), pending)) {
+                    batch.add(new State(entry.getKey(), pending.game));
+                    oldest = Math.min(oldest, pending.since);
+                } else { // a newer state arrived just now, and is left for next time
+                    this.writing.remove(entry.getKey());
+                    Pending newer = this.dirty.get(entry.getKey());
+                    if (newer != null) { this.oldestPending.accumulateAndGet(newer.since, Math::min); }
+                }
+            }
+            try {
+                this.sink.write(batch);
+                this.written.addAndGet(batch.size());
+                this.flushes.incrementAndGet();
+            } catch (DataAccessException | RuntimeException e) {
+                this.failures.incrementAndGet();
+                for (State state : batch) { // put back whatever was not overwritten since, keeping when it first changed
+                    this.dirty.merge(state.gameID(), this.writing.get(state.gameID()), (next, old) -> new Pending(next.game, old.since));
+                }
+                this.oldestPending.accumulateAndGet(oldest, Math::min);
+                throw e instanceof DataAccessException d ? d : new DataAccessException("Unable to save games: " + e.getMessage(), e);
+            } finally {
+                for (State state : batch) { this.writing.remove(state.gameID()); }
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(this.updates.sum(), this.written.get(), this.flushes.get(), this.failures.get(), this.dirty.size());
+    }
+
+    @Override
+    protected int pending() { return this.dirty.size(); }
+
+    /** Updates the game table in one batch and one transaction */
+    private static void writeBatch(List<State> states) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var statement = conn.prepareStatement(UPDATE_GAME)) {
+                for (State state : states) {
+                    statement.setString(1, state.game());
+                    statement.setInt(2, state.gameID());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to save games: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Keeps authorization tokens in memory. Safe for any number of threads without locking beyond the map's own. */
+public class MemoryAuthDAO implements AuthDAO {
+    private final ConcurrentHashMap<String, AuthData> auths = new ConcurrentHashMap<>();
+
+    @Override
+    public void createAuth(AuthData auth) { this.auths.put(auth.authToken(), auth); }
+
+    @Override
+    public AuthData getAuth(String authToken) { return this.auths.get(authToken); }
+
+    @Override
+    public boolean deleteAuth(String authToken) { return this.auths.remove(authToken) != null; }
+
+    @Override
+    public void clear() { this.auths.clear(); }
+}
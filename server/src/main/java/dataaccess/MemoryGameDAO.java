@@ -0,0 +1,63 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps games in memory. Reads never lock. A change to a game is one atomic {@link ConcurrentHashMap#compute} on its
+ * entry, which locks only the map bin the game hashes to, so updates to different games rarely wait on each other
+ * and two players racing for a seat are decided without a lock over the whole table.
+ */
+public class MemoryGameDAO implements GameDAO {
+    private final ConcurrentHashMap<Integer, GameData> games = new ConcurrentHashMap<>();
+    private final AtomicInteger nextID = new AtomicInteger(1);
+
+    @Override
+    public int createGame(String gameName) {
+        int gameID = this.nextID.getAndIncrement();
+        this.games.put(gameID, new GameData(gameID, null, null, gameName, new ChessGame()));
+        return gameID;
+    }
+
+    @Override
+    public GameData getGame(int gameID) { return this.games.get(gameID); }
+
+    @Override
+    public Collection<GameData> listGames() { return List.copyOf(this.games.values()); }
+
+    @Override
+    public boolean joinGame(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        boolean[] joined = new boolean[1];
+        GameData game = this.games.computeIfPresent(gameID, (id, current) -> {
+            if (current.player(color) != null) { return current; }
+            joined[0] = true;
+            return current.withPlayer(color, username);
+        });
+        if (game == null) { throw new DataAccessException("No game with ID " + gameID); }
+        return joined[0];
+    }
+
+    @Override
+    public void updateGame(int gameID, ChessGame game) throws DataAccessException {
+        if (this.games.computeIfPresent(gameID, (id, current) -> current.withGame(game)) == null) {
+            throw new DataAccessException("No game with ID " + gameID);
+        }
+    }
+
+    /** Stores a game as it is, for filling the cache from another store, keeping new IDs past it */
+    void put(GameData game) {
+        this.games.put(game.gameID(), game);
+        this.nextID.accumulateAndGet(game.gameID() + 1, Math::max);
+    }
+
+    @Override
+    public void clear() {
+        this.games.clear();
+        this.nextID.set(1);
+    }
+}
@@ -0,0 +1,24 @@
+package dataaccess;
+
+import model.UserData;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Keeps users in memory. Safe for any number of threads without locking beyond the map's own. */
+public class MemoryUserDAO implements UserDAO {
+    private final ConcurrentHashMap<String, UserData> users = new ConcurrentHashMap<>();
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        if (this.users.putIfAbsent(user.username(), user) != null) { throw new DataAccessException("Username already taken"); }
+    }
+
+    @Override
+    public UserData getUser(String username) { return this.users.get(username); }
+
+    /** Stores a user whether or not the name is taken, for filling the cache from another store */
+    void put(UserData user) { this.users.put(user.username(), user); }
+
+    @Override
+    public void clear() { this.users.clear(); }
+}
@@ -0,0 +1,340 @@
+package dataaccess;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Position;
+import chess.notation.Fen;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saves games as a log of their moves, so making a move appends a row of a few bytes instead of rewriting the whole
+ * serialized game.
+ * <p>
+ * Each move is a row of (gameID, ply, move), with the move packed into 15 bits as its from square, to square and
+ * promotion piece. Every {@link #snapshotInterval()} plies the game's position is also saved as a FEN snapshot, so
+ * {@link #load} rebuilds a game by setting up its latest snapshot and replaying at most that many moves after it.
+ * <p>
+ * Appends are written behind the caller's back like a {@link GameStateWriter}'s updates, by the same kind of
+ * {@link WriteBehind} thread. It writes everything appended since the last flush as one JDBC batch of inserts, with
+ * the snapshots, in one transaction. The same {@link GameStateWriter.Settings} bound how long that waits and how much
+ * may be lost if the database goes away.
+ */
+public class MoveLog extends WriteBehind {
+
+    /** The tables the log lives in */
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS move (
+              gameID INT NOT NULL,
+              ply SMALLINT NOT NULL,
+              move SMALLINT NOT NULL,
+              PRIMARY KEY (gameID, ply)
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS game_snapshot (
+              gameID INT NOT NULL PRIMARY KEY,
+              ply SMALLINT NOT NULL,
+              fen VARCHAR(100) NOT NULL
+            )"""
+    };
+
+    /** One move of one game */
+    public record Move(int gameID, int ply, short move) {}
+
+    /** A game's position after some number of plies */
+    public record Snapshot(int gameID, int ply, String fen) {}
+
+    /** A game rebuilt from the log, and how many plies the log holds for it */
+    public record Replay(ChessGame game, int plies) {}
+
+    /**
+     * @param written  moves written out
+     * @param flushes  batches written
+     * @param failures batches that failed and were kept for the next flush
+     * @param pending  moves waiting to be written
+     */
+    public record Stats(long written, long flushes, long failures, int pending) {}
+
+    /** Where the log is kept */
+    public interface Store {
+        /** Writes moves and snapshots, all or none of them */
+        void write(List<Move> moves, List<Snapshot> snapshots) throws DataAccessException;
+
+        /** @return a game's latest snapshot, or null if it has none */
+        Snapshot snapshot(int gameID) throws DataAccessException;
+
+        /** @return a game's packed moves after a ply, in order */
+        short[] moves(int gameID, int afterPly) throws DataAccessException;
+
+        /** Deletes every game's moves and snapshots */
+        void clear() throws DataAccessException;
+    }
+
+    private final Store store;
+    private final int snapshotInterval;
+    private List<Move> moves = new ArrayList<>();
+    private List<Snapshot> snapshots = new ArrayList<>();
+    /** When the oldest append not yet written was made, or {@link Long#MAX_VALUE} if there is none */
+    private long oldestPending = Long.MAX_VALUE;
+    private final ReentrantLock flushLock = new ReentrantLock(); // not a monitor, so a virtual thread writing unmounts
+    private final AtomicLong written = new AtomicLong(), flushes = new AtomicLong(), failures = new AtomicLong();
+
+    /** Creates a log kept in the move and game_snapshot tables through {@link DatabaseManager}, creating them if needed */
+    public MoveLog(int snapshotInterval, GameStateWriter.Settings settings) throws DataAccessException {
+        this(new JdbcStore(), snapshotInterval, settings);
+    }
+
+    public MoveLog(Store store, int snapshotInterval, GameStateWriter.Settings settings) {
+        super("move-log-writer", "moves", settings);
+        if (snapshotInterval < 1) { throw new IllegalArgumentException("Snapshot interval must be positive"); }
+        this.store = store;
+        this.snapshotInterval = snapshotInterval;
+        this.start();
+    }
+
+    public int snapshotInterval() { return this.snapshotInterval; }
+
+    /**
+     * Records where a game starts, for games that do not start from the standard position
+     */
+    public void start(int gameID, ChessGame game) throws DataAccessException { this.snapshot(gameID, 0, game); }
+
+    /**
+     * Records a game's position after a ply, for a change that is not a move, such as setting up a new position.
+     * Moves appended from here on continue from this position.
+     *
+     * @param ply how many plies the game has had, counting this change as none
+     */
+    public void snapshot(int gameID, int ply, ChessGame game) throws DataAccessException {
+        this.add(null, new Snapshot(gameID, ply, Fen.of(game)));
+    }
+
+    /**
+     * Appends a move, snapshotting the game if the move lands on the snapshot interval
+     *
+     * @param ply   which move of the game this is, counting from 1
+     * @param game  the game after the move, only read if a snapshot is due
+     * @throws DataAccessException if appends have gone unsaved for longer than the loss window and still cannot be
+     *                             written, in which case this one is not recorded
+     */
+    public void append(int gameID, int ply, ChessMove move, ChessGame game) throws DataAccessException {
+        if (ply < 1) { throw new IllegalArgumentException("Plies count from 1"); }
+        this.add(new Move(gameID, ply, pack(move)), ply % this.snapshotInterval == 0 ? new Snapshot(gameID, ply, Fen.of(game)) : null);
+    }
+
+    /**
+     * Rebuilds a game from its latest snapshot and the moves after it, writing out anything still waiting first
+     *
+     * @return the game, or a game at the standard starting position if nothing was logged for it
+     * @throws DataAccessException if the log cannot be read, or holds a move that is not legal where it was played
+     */
+    public ChessGame load(int gameID) throws DataAccessException {
+        Replay replay = this.replay(gameID);
+        return replay == null ? Fen.toGame(Fen.START) : replay.game();
+    }
+
+    /**
+     * Rebuilds a game like {@link #load}, also counting its plies
+     *
+     * @return the game and its plies, or null if nothing was logged for it
+     * @throws DataAccessException if the log cannot be read, or holds a move that is not legal where it was played
+     */
+    public Replay replay(int gameID) throws DataAccessException {
+        this.flush();
+        Snapshot snapshot = this.store.snapshot(gameID);
+        short[] moves = this.store.moves(gameID, snapshot == null ? 0 : snapshot.ply());
+        if (snapshot == null && moves.length == 0) { return null; }
+        Position position = Fen.parse(snapshot == null ? Fen.START : snapshot.fen());
+        int ply = snapshot == null ? 0 : snapshot.ply();
+        int[] legal = new int[Position.MAX_MOVES];
+        for (short packed : moves) {
+            ply++;
+            int move = position.encode(unpack(packed));
+            int count = position.generateLegal(legal, 0), i = 0;
+            while (i < count && legal[i] != move) { i++; }
+            if (i == count) { throw new DataAccessException("Illegal move logged for game " + gameID + " at ply " + ply); }
+            position.make(move);
+        }
+        ChessBoard board = new ChessBoard();
+        position.store(board);
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(position.teamToMove());
+        return new Replay(game, ply);
+    }
+
+    /** Deletes every game's log, after writing out anything still waiting so it cannot land afterwards */
+    public void clear() throws DataAccessException {
+        this.flush();
+        this.store.clear();
+    }
+
+    @Override
+    public void flush() throws DataAccessException {
+        this.flushLock.lock();
+        try {
+            List<Move> moves;
+            List<Snapshot> snapshots;
+            long oldest;
+            synchronized (this) {
+                if (this.moves.isEmpty() && this.snapshots.isEmpty()) { return; }
+                moves = this.moves;
+                snapshots = this.snapshots;
+                oldest = this.oldestPending;
+                this.moves = new ArrayList<>();
+                this.snapshots = new ArrayList<>();
+                this.oldestPending = Long.MAX_VALUE;
+            }
+            try {
+                this.store.write(moves, snapshots);
+                this.written.addAndGet(moves.size());
+                this.flushes.incrementAndGet();
+            } catch (DataAccessException | RuntimeException e) {
+                this.failures.incrementAndGet();
+                synchronized (this) { // put them back ahead of anything appended since
+                    moves.addAll(this.moves);
+                    snapshots.addAll(this.snapshots);
+                    this.moves = moves;
+                    this.snapshots = snapshots;
+                    this.oldestPending = Math.min(this.oldestPending, oldest);
+                }
+                throw e instanceof DataAccessException d ? d : new DataAccessException("Unable to save moves: " + e.getMessage(), e);
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(this.written.get(), this.flushes.get(), this.failures.get(), this.moves.size());
+    }
+
+    @Override
+    protected synchronized int pending() { return this.moves.size() + this.snapshots.size(); }
+
+    /** @return a move packed as from | to << 6 | promotion << 12 */
+    public static short pack(ChessMove move) {
+        int promotion = move.getPromotionPiece() == null ? 0 : Position.code(move.getPromotionPiece());
+        return (short) (Position.square(move.getStartPosition()) | Position.square(move.getEndPosition()) << 6 | promotion << 12);
+    }
+
+    public static ChessMove unpack(short move) { return Position.decode(move); }
+
+    private void add(Move move, Snapshot snapshot) throws DataAccessException {
+        if (this.isClosed()) { throw new DataAccessException("Move log is closed"); }
+        long now = System.nanoTime();
+        long oldest;
+        synchronized (this) { oldest = this.oldestPending; }
+        this.flushIfOverdue(now, oldest);
+        boolean full;
+        synchronized (this) {
+            if (move != null) { this.moves.add(move); }
+            if (snapshot != null) { this.snapshots.add(snapshot); }
+            this.oldestPending = Math.min(this.oldestPending, now);
+            full = this.moves.size() + this.snapshots.size() >= this.settings.batchSize();
+        }
+        if (full) { this.signal(); } // outside the monitor, since the background thread takes it under the wake lock
+    }
+
+    /** Keeps the log in the move and game_snapshot tables */
+    private static final class JdbcStore implements Store {
+        private static final String INSERT_MOVE = "INSERT INTO move (gameID, ply, move) VALUES (?, ?, ?)";
+        private static final String UPSERT_SNAPSHOT = "INSERT INTO game_snapshot (gameID, ply, fen) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE ply=VALUES(ply), fen=VALUES(fen)";
+
+        JdbcStore() throws DataAccessException { DatabaseManager.configureDatabase(SCHEMA); }
+
+        @Override
+        public void write(List<Move> moves, List<Snapshot> snapshots) throws DataAccessException {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    if (!moves.isEmpty()) {
+                        try (var statement = conn.prepareStatement(INSERT_MOVE)) {
+                            for (Move move : moves) {
+                                statement.setInt(1, move.gameID());
+                                statement.setInt(2, move.ply());
+                                statement.setShort(3, move.move());
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+                    if (!snapshots.isEmpty()) {
+                        try (var statement = conn.prepareStatement(UPSERT_SNAPSHOT)) {
+                            for (Snapshot snapshot : snapshots) {
+                                statement.setInt(1, snapshot.gameID());
+                                statement.setInt(2, snapshot.ply());
+                                statement.setString(3, snapshot.fen());
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Unable to save moves: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public Snapshot snapshot(int gameID) throws DataAccessException {
+            try (var conn = DatabaseManager.getConnection();
+                 var statement = conn.prepareStatement("SELECT ply, fen FROM game_snapshot WHERE gameID=?")) {
+                statement.setInt(1, gameID);
+                try (var rs = statement.executeQuery()) {
+                    return rs.next() ? new Snapshot(gameID, rs.getInt("ply"), rs.getString("fen")) : null;
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Unable to read game snapshot: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public short[] moves(int gameID, int afterPly) throws DataAccessException {
+            try (var conn = DatabaseManager.getConnection();
+                 var statement = conn.prepareStatement("SELECT move FROM move WHERE gameID=? AND ply>? ORDER BY ply")) {
+                statement.setInt(1, gameID);
+                statement.setInt(2, afterPly);
+                short[] moves = new short[16];
+                int count = 0;
+                try (var rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        if (count == moves.length) { moves = Arrays.copyOf(moves, count * 2); }
+                        moves[count++] = rs.getShort(1);
+                    }
+                }
+                return Arrays.copyOf(moves, count);
+            } catch (SQLException e) {
+                throw new DataAccessException("Unable to read moves: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void clear() throws DataAccessException {
+            try (var conn = DatabaseManager.getConnection()) {
+                for (String table : new String[]{ "move", "game_snapshot" }) {
+                    try (var statement = conn.prepareStatement("TRUNCATE TABLE " + table)) {
+                        statement.executeUpdate();
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DataAccessException("Unable to clear moves: " + e.getMessage(), e);
+            }
+        }
+    }
+}
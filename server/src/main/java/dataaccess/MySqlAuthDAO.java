@@ -0,0 +1,62 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.sql.SQLException;
+
+/** Keeps authorization tokens in the auth table */
+public class MySqlAuthDAO implements AuthDAO {
+    private static final String SCHEMA = """
+            CREATE TABLE IF NOT EXISTS auth (
+              authToken VARCHAR(255) NOT NULL PRIMARY KEY,
+              username VARCHAR(255) NOT NULL
+            )""";
+
+    public MySqlAuthDAO() throws DataAccessException { DatabaseManager.configureDatabase(SCHEMA); }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("INSERT INTO auth (authToken, username) VALUES (?, ?)")) {
+            statement.setString(1, auth.authToken());
+            statement.setString(2, auth.username());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to create auth: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT username FROM auth WHERE authToken=?")) {
+            statement.setString(1, authToken);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() ? new AuthData(authToken, rs.getString("username")) : null;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to read auth: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean deleteAuth(String authToken) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("DELETE FROM auth WHERE authToken=?")) {
+            statement.setString(1, authToken);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to delete auth: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("TRUNCATE TABLE auth")) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to clear auths: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.json.ChessJson;
+import com.google.gson.Gson;
+import model.GameData;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/** Keeps games in the game table, each game's state as JSON */
+public class MySqlGameDAO implements GameDAO {
+    private static final String SCHEMA = """
+            CREATE TABLE IF NOT EXISTS game (
+              gameID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+              whiteUsername VARCHAR(255),
+              blackUsername VARCHAR(255),
+              gameName VARCHAR(255) NOT NULL,
+              game LONGTEXT NOT NULL
+            )""";
+    private static final String COLUMNS = "gameID, whiteUsername, blackUsername, gameName, game";
+    private static final Gson GSON = ChessJson.gson();
+
+    public MySqlGameDAO() throws DataAccessException { DatabaseManager.configureDatabase(SCHEMA); }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("INSERT INTO game (gameName, game) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, gameName);
+            statement.setString(2, GSON.toJson(new ChessGame()));
+            statement.executeUpdate();
+            try (var keys = statement.getGeneratedKeys()) {
+                if (!keys.next()) { throw new DataAccessException("No ID was generated for the new game"); }
+                return keys.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to create game: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT " + COLUMNS + " FROM game WHERE gameID=?")) {
+            statement.setInt(1, gameID);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() ? readGame(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to read game: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Collection<GameData> listGames() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT " + COLUMNS + " FROM game");
+             var rs = statement.executeQuery()) {
+            var games = new ArrayList<GameData>();
+            while (rs.next()) { games.add(readGame(rs)); }
+            return games;
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to list games: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean joinGame(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        var sql = color == ChessGame.TeamColor.WHITE
+                ? "UPDATE game SET whiteUsername=? WHERE gameID=? AND whiteUsername IS NULL"
+                : "UPDATE game SET blackUsername=? WHERE gameID=? AND blackUsername IS NULL";
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement(sql)) {
+            statement.setString(1, username);
+            statement.setInt(2, gameID);
+            if (statement.executeUpdate() == 1) { return true; }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to join game: " + e.getMessage(), e);
+        }
+        if (this.getGame(gameID) == null) { throw new DataAccessException("No game with ID " + gameID); }
+        return false;
+    }
+
+    @Override
+    public void updateGame(int gameID, ChessGame game) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("UPDATE game SET game=? WHERE gameID=?")) {
+            statement.setString(1, GSON.toJson(game));
+            statement.setInt(2, gameID);
+            if (statement.executeUpdate() == 0) { throw new DataAccessException("No game with ID " + gameID); }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to update game: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("TRUNCATE TABLE game")) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to clear games: " + e.getMessage(), e);
+        }
+    }
+
+    /** Serializes a game's state the way this table stores it */
+    static String toJson(ChessGame game) { return GSON.toJson(game); }
+
+    private static GameData readGame(ResultSet rs) throws SQLException {
+        return new GameData(rs.getInt("gameID"), rs.getString("whiteUsername"), rs.getString("blackUsername"),
+                rs.getString("gameName"), GSON.fromJson(rs.getString("game"), ChessGame.class));
+    }
+}
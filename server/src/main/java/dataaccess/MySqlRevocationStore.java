@@ -0,0 +1,58 @@
+package dataaccess;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Keeps logged-out signed tokens in the revoked_token table until they expire */
+public class MySqlRevocationStore implements RevocationStore {
+    private static final String SCHEMA = """
+            CREATE TABLE IF NOT EXISTS revoked_token (
+              tokenID VARCHAR(64) NOT NULL PRIMARY KEY,
+              expires BIGINT NOT NULL,
+              INDEX (expires)
+            )""";
+
+    public MySqlRevocationStore() throws DataAccessException { DatabaseManager.configureDatabase(SCHEMA); }
+
+    @Override
+    public void revoke(String tokenID, long expiresAtMillis) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("INSERT IGNORE INTO revoked_token (tokenID, expires) VALUES (?, ?)")) {
+            statement.setString(1, tokenID);
+            statement.setLong(2, expiresAtMillis);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to revoke token: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> active(long nowMillis) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var statement = conn.prepareStatement("DELETE FROM revoked_token WHERE expires <= ?")) {
+                statement.setLong(1, nowMillis);
+                statement.executeUpdate();
+            }
+            try (var statement = conn.prepareStatement("SELECT tokenID, expires FROM revoked_token")) {
+                var active = new HashMap<String, Long>();
+                try (var rs = statement.executeQuery()) {
+                    while (rs.next()) { active.put(rs.getString(1), rs.getLong(2)); }
+                }
+                return active;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to read revoked tokens: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("TRUNCATE TABLE revoked_token")) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to clear revoked tokens: " + e.getMessage(), e);
+        }
+    }
+}
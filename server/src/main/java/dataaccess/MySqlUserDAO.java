@@ -0,0 +1,56 @@
+package dataaccess;
+
+import model.UserData;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/** Keeps users in the user table */
+public class MySqlUserDAO implements UserDAO {
+    private static final String SCHEMA = """
+            CREATE TABLE IF NOT EXISTS user (
+              username VARCHAR(255) NOT NULL PRIMARY KEY,
+              password VARCHAR(255) NOT NULL,
+              email VARCHAR(255) NOT NULL
+            )""";
+
+    public MySqlUserDAO() throws DataAccessException { DatabaseManager.configureDatabase(SCHEMA); }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("INSERT INTO user (username, password, email) VALUES (?, ?, ?)")) {
+            statement.setString(1, user.username());
+            statement.setString(2, user.password());
+            statement.setString(3, user.email());
+            statement.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new DataAccessException("Username already taken");
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to create user: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("SELECT password, email FROM user WHERE username=?")) {
+            statement.setString(1, username);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() ? new UserData(username, rs.getString("password"), rs.getString("email")) : null;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to read user: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection();
+             var statement = conn.prepareStatement("TRUNCATE TABLE user")) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to clear users: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dataaccess;
+
+import java.util.Map;
+
+/** Shares the signed tokens that have been logged out between the servers that accept them */
+public interface RevocationStore {
+    /** Records that a token was logged out, until the time it would have expired anyway */
+    void revoke(String tokenID, long expiresAtMillis) throws DataAccessException;
+
+    /** @return every logged-out token that has not yet expired, with when it expires */
+    Map<String, Long> active(long nowMillis) throws DataAccessException;
+
+    void clear() throws DataAccessException;
+}
@@ -0,0 +1,206 @@
+package dataaccess;
+
+import model.AuthData;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Issues self-contained, signed, expiring tokens that any server holding the signing key can check on its own, so
+ * checking a token never touches the database.
+ * <p>
+ * A token is five dot-separated fields: the username in base64url, when it was issued and when it expires in
+ * milliseconds written in base 36, a random nonce, and an HMAC-SHA256 signature over the rest. Nothing is stored when
+ * a token is issued. Logging out adds the token's signature to a revocation set, which holds only tokens that have
+ * not expired yet and so stays small. When a {@link RevocationStore} is given, logouts are written to it and every
+ * server reloads it every {@link Settings#refreshMillis()}, so a logout on one server reaches the others within that
+ * time.
+ */
+public class SignedAuthDAO implements AuthDAO, AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(SignedAuthDAO.class.getName());
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * @param key           the signing key, which every server accepting the same tokens must share
+     * @param ttlMillis     how long a token works after it is issued
+     * @param refreshMillis how often the revocation set is reloaded from the store
+     */
+    public record Settings(byte[] key, long ttlMillis, long refreshMillis) {
+        public Settings {
+            if (key.length < 32) { throw new IllegalArgumentException("The signing key needs at least 32 bytes"); }
+            if (ttlMillis < 1 || refreshMillis < 1) { throw new IllegalArgumentException("Token times must be positive"); }
+        }
+
+        /** Reads the {@code auth.*} properties. Without a signing key, a random one is made that only this server knows. */
+        public static Settings from(Properties props) {
+            String key = props.getProperty("auth.signingKey", "");
+            byte[] bytes;
+            if (key.isBlank()) {
+                LOG.warning("No auth.signingKey set; signing with a random key, so tokens will not work on other servers or after a restart");
+                bytes = new byte[32];
+                RANDOM.nextBytes(bytes);
+            } else {
+                bytes = Base64.getDecoder().decode(key.trim());
+            }
+            return new Settings(bytes,
+                    Long.parseLong(props.getProperty("auth.tokenTtlMillis", "86400000")),
+                    Long.parseLong(props.getProperty("auth.revocationRefreshMillis", "5000")));
+        }
+    }
+
+    /** A token's fields, once its signature has been checked */
+    private record Token(String username, long issued, long expires, String signature) {}
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final Settings settings;
+    private final RevocationStore store;
+    /** Signatures of logged-out tokens, with when each expires */
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+    /** The current time in milliseconds */
+    private final LongSupplier clock;
+    /** Tokens issued before this are refused here, so clearing the data logs everyone out of this server */
+    private volatile long notBefore;
+
+    /** Creates a DAO whose logouts only this server knows about */
+    public SignedAuthDAO(Settings settings) { this(settings, null); }
+
+    public SignedAuthDAO(Settings settings, RevocationStore store) { this(settings, store, System::currentTimeMillis); }
+
+    /** Creates a DAO that reads the time from the given clock, so tests can move it past a token's expiry */
+    SignedAuthDAO(Settings settings, RevocationStore store, LongSupplier clock) {
+        this.settings = settings;
+        this.store = store;
+        this.clock = clock;
+        this.key = new SecretKeySpec(settings.key(), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(this.key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        if (store == null) {
+            this.refresher = null;
+        } else {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "revocation-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.refresher.scheduleWithFixedDelay(this::refresh, 0, settings.refreshMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public AuthData issueAuth(String username) {
+        long issued = Math.max(this.clock.getAsLong(), this.notBefore);
+        byte[] nonce = new byte[9];
+        RANDOM.nextBytes(nonce);
+        String payload = ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + '.' + Long.toString(issued, 36)
+                + '.' + Long.toString(issued + this.settings.ttlMillis(), 36) + '.' + ENCODER.encodeToString(nonce);
+        return new AuthData(payload + '.' + ENCODER.encodeToString(this.sign(payload)), username);
+    }
+
+    /** Accepts only a token this DAO issued, since a signed token is never stored
+     * @throws DataAccessException if the token is not a valid one for the user
+     */
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        AuthData valid = this.getAuth(auth.authToken());
+        if (valid == null || !valid.username().equals(auth.username())) {
+            throw new DataAccessException("Signed token mode only accepts tokens it issued");
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) {
+        Token token = this.verify(authToken);
+        return token == null ? null : new AuthData(authToken, token.username);
+    }
+
+    @Override
+    public boolean deleteAuth(String authToken) throws DataAccessException {
+        Token token = this.verify(authToken);
+        if (token == null) { return false; }
+        if (this.revoked.size() > 1024 && this.store == null) { this.prune(this.clock.getAsLong()); }
+        this.revoked.put(token.signature, token.expires);
+        if (this.store != null) { this.store.revoke(token.signature, token.expires); }
+        return true;
+    }
+
+    /** Invalidates every token issued so far, on this server only.
+     * <p>
+     * The cutoff is not shared through the store, so other servers keep accepting tokens issued before it until they
+     * expire. Clearing is meant for tests and single-server setups.
+     */
+    @Override
+    public void clear() throws DataAccessException {
+        this.notBefore = this.clock.getAsLong() + 1; // tokens issued from here on are stamped no earlier than this
+        this.revoked.clear();
+        if (this.store != null) { this.store.clear(); }
+    }
+
+    @Override
+    public void close() {
+        if (this.refresher != null) { this.refresher.shutdownNow(); }
+    }
+
+    /** @return the token's fields, or null if it is malformed, forged, expired, from before a clear, or logged out */
+    private Token verify(String authToken) {
+        if (authToken == null) { return null; }
+        int[] dots = new int[4];
+        for (int i = 0, from = 0; i < 4; i++) {
+            dots[i] = authToken.indexOf('.', from);
+            if (dots[i] < 0) { return null; }
+            from = dots[i] + 1;
+        }
+        if (authToken.indexOf('.', dots[3] + 1) >= 0) { return null; }
+        try {
+            String signature = authToken.substring(dots[3] + 1);
+            byte[] mac = DECODER.decode(signature);
+            // The decoder also takes padding and stray low bits, so accept only the spelling the revocation set holds
+            if (!ENCODER.encodeToString(mac).equals(signature) || !MessageDigest.isEqual(this.sign(authToken.substring(0, dots[3])), mac)) { return null; }
+            long issued = Long.parseLong(authToken, dots[0] + 1, dots[1], 36), expires = Long.parseLong(authToken, dots[1] + 1, dots[2], 36);
+            if (this.clock.getAsLong() >= expires || issued < this.notBefore || this.revoked.containsKey(signature)) { return null; }
+            String username = new String(DECODER.decode(authToken.substring(0, dots[0])), StandardCharsets.UTF_8);
+            return new Token(username, issued, expires, signature);
+        } catch (IllegalArgumentException e) { // bad base64 or number
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) { return this.macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8)); }
+
+    /** Reloads the revocation set from the store, keeping local logouts that have not reached it */
+    private void refresh() {
+        try {
+            long now = this.clock.getAsLong();
+            this.revoked.putAll(this.store.active(now));
+            this.prune(now);
+        } catch (DataAccessException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to refresh revoked tokens", e);
+        }
+    }
+
+    private void prune(long now) { this.revoked.values().removeIf(expires -> expires <= now); }
+}
@@ -0,0 +1,115 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The prepared statements kept open on one pooled connection, keyed by their SQL, so a DAO that prepares the same SQL
+ * on every call only pays for parsing and planning it the first time. The least recently used statement is closed
+ * once there are more than the cache's capacity.
+ * <p>
+ * A statement is lent to one caller at a time. Asking for SQL whose statement is already lent out, say by a nested
+ * query, gets nothing, and the caller prepares a statement of its own that is not cached. Like the connection it
+ * belongs to, a cache is only used by the thread that borrowed the connection.
+ */
+final class StatementCache {
+    /** What a statement was prepared from. Statements asked for in any other way are not cached. */
+    record Key(String sql, int autoGeneratedKeys) {}
+
+    /** A cached statement and whether it is lent out */
+    static final class Entry {
+        final PreparedStatement statement;
+        boolean inUse;
+        /** Counts the times the statement has been lent, so an earlier borrower's handle stops working */
+        int lends;
+        /** Set when the statement was pushed out of the cache while lent out, so it is closed when given back */
+        boolean evicted;
+
+        Entry(PreparedStatement statement) { this.statement = statement; }
+    }
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final LongAdder hits, misses;
+
+    StatementCache(int capacity, LongAdder hits, LongAdder misses) {
+        this.hits = hits;
+        this.misses = misses;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (this.size() <= capacity) { return false; }
+                Entry entry = eldest.getValue();
+                if (entry.inUse) { entry.evicted = true; }
+                else { closeQuietly(entry.statement); }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Lends the cached statement for a key, preparing and caching it on the connection if there is none
+     *
+     * @return the statement's entry, or null if the cached statement is already lent out
+     */
+    Entry take(Connection connection, Key key) throws SQLException {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            this.misses.increment();
+            entry = new Entry(key.autoGeneratedKeys() < 0 ? connection.prepareStatement(key.sql())
+                    : connection.prepareStatement(key.sql(), key.autoGeneratedKeys()));
+            this.entries.put(key, entry);
+        } else if (entry.inUse) {
+            this.misses.increment();
+            return null;
+        } else {
+            this.hits.increment();
+        }
+        entry.inUse = true;
+        entry.lends++;
+        return entry;
+    }
+
+    /** Takes back a lent statement, clearing what the borrower set on it. A statement that fails to clear is dropped.
+     *
+     * @param lend which lending of the entry is being given back; a stale one, already taken back, is ignored
+     */
+    void giveBack(Key key, Entry entry, int lend) {
+        if (!entry.inUse || entry.lends != lend) { return; }
+        entry.inUse = false;
+        try {
+            if (!entry.evicted) {
+                entry.statement.clearParameters();
+                entry.statement.clearBatch();
+                entry.statement.clearWarnings();
+                return;
+            }
+        } catch (SQLException e) {
+            this.entries.remove(key, entry);
+        }
+        closeQuietly(entry.statement);
+    }
+
+    /** Takes back every statement still lent out, for when the connection returns to the pool */
+    void giveBackAll() {
+        List<Map.Entry<Key, Entry>> lent = new ArrayList<>();
+        for (Map.Entry<Key, Entry> entry : this.entries.entrySet()) {
+            if (entry.getValue().inUse) { lent.add(entry); }
+        }
+        for (Map.Entry<Key, Entry> entry : lent) { this.giveBack(entry.getKey(), entry.getValue(), entry.getValue().lends); }
+    }
+
+    int size() { return this.entries.size(); }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.Position;
+import chess.notation.Fen;
+import model.GameData;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves games from memory in front of a slower store. Every game is loaded at startup and kept in memory, so reads
+ * never reach the store. Creating and joining games go through the store first, since it hands out IDs and settles
+ * races for seats. Moves only change the game in memory and are saved behind the caller's back, either as the whole
+ * game by a {@link GameStateWriter} or as one row per move by a {@link MoveLog}.
+ * <p>
+ * With a move log, each update is matched against the legal moves from the game's last logged position, and only
+ * that move is appended. An update that is no single legal move, such as a new position being set up, is logged as a
+ * snapshot instead. Games are rebuilt from the log at startup, and the game column of the store is left as it was
+ * when the game was created.
+ */
+public class TieredGameDAO implements GameDAO {
+    private final MemoryGameDAO memory = new MemoryGameDAO();
+    private final GameDAO backing;
+    private final GameStateWriter writer;
+    private final MoveLog log;
+    /** Each game's lock, and its position and ply as last logged when saving to a move log */
+    private final ConcurrentHashMap<Integer, Logged> logged = new ConcurrentHashMap<>();
+
+    /** A game's last logged position, locked while an update is applied in memory and saved, so that memory and the
+     * store see concurrent updates to one game in the same order and plies stay in order
+     */
+    private static final class Logged {
+        final ReentrantLock lock = new ReentrantLock(); // not a monitor, so a virtual thread flushing unmounts
+        final Position position = new Position();
+        final int[] legal = new int[Position.MAX_MOVES];
+        int ply;
+    }
+
+    /** Creates a DAO that saves each update as the whole game */
+    public TieredGameDAO(GameDAO backing, GameStateWriter writer) throws DataAccessException {
+        this.backing = backing;
+        this.writer = writer;
+        this.log = null;
+        for (GameData game : backing.listGames()) {
+            this.memory.put(game);
+            this.logged(game.gameID(), null, 0);
+        }
+    }
+
+    /** Creates a DAO that saves each update as a move appended to a log */
+    public TieredGameDAO(GameDAO backing, MoveLog log) throws DataAccessException {
+        this.backing = backing;
+        this.writer = null;
+        this.log = log;
+        for (GameData game : backing.listGames()) {
+            MoveLog.Replay replay = log.replay(game.gameID());
+            boolean custom = game.game() != null && !Fen.of(game.game()).equals(Fen.of(new ChessGame()));
+            if (replay == null && custom) { // never logged, so the log starts from the game as the store has it
+                log.start(game.gameID(), game.game());
+            } else if (replay != null) {
+                game = game.withGame(replay.game());
+            }
+            this.memory.put(game);
+            this.logged(game.gameID(), game.game(), replay == null ? 0 : replay.plies());
+        }
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        int gameID = this.backing.createGame(gameName);
+        ChessGame game = new ChessGame();
+        this.memory.put(new GameData(gameID, null, null, gameName, game));
+        this.logged(gameID, this.log == null ? null : game, 0);
+        return gameID;
+    }
+
+    @Override
+    public GameData getGame(int gameID) { return this.memory.getGame(gameID); }
+
+    @Override
+    public Collection<GameData> listGames() { return this.memory.listGames(); }
+
+    @Override
+    public boolean joinGame(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        if (!this.backing.joinGame(gameID, color, username)) { return false; }
+        this.memory.joinGame(gameID, color, username);
+        return true;
+    }
+
+    @Override
+    public void updateGame(int gameID, ChessGame game) throws DataAccessException {
+        Logged logged = this.logged.get(gameID);
+        if (logged == null) { throw new DataAccessException("No game with ID " + gameID); }
+        logged.lock.lock();
+        try {
+            this.memory.updateGame(gameID, game);
+            if (this.log == null) {
+                this.writer.update(gameID, MySqlGameDAO.toJson(game));
+                return;
+            }
+            Position position = logged.position;
+            long target = new Position().load(game.getBoard(), game.getTeamTurn()).hash();
+            int count = position.generateLegal(logged.legal, 0), move = 0;
+            for (int i = 0; i < count && move == 0; i++) {
+                if (position.hashAfter(logged.legal[i]) == target) { move = logged.legal[i]; }
+            }
+            if (move != 0) {
+                this.log.append(gameID, logged.ply + 1, Position.decode(move), game);
+                position.make(move);
+                logged.ply++;
+            } else if (position.hash() != target) {
+                this.log.snapshot(gameID, logged.ply, game);
+                position.load(game.getBoard(), game.getTeamTurn());
+            }
+        } finally {
+            logged.lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        if (this.log == null) {
+            this.writer.flush();
+        } else {
+            this.log.clear();
+        }
+        this.logged.clear();
+        this.backing.clear();
+        this.memory.clear();
+    }
+
+    private void logged(int gameID, ChessGame game, int ply) {
+        Logged logged = new Logged();
+        if (game != null) { logged.position.load(game.getBoard(), game.getTeamTurn()); }
+        logged.ply = ply;
+        this.logged.put(gameID, logged);
+    }
+}
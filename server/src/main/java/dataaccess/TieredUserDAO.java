@@ -0,0 +1,33 @@
+package dataaccess;
+
+import model.UserData;
+
+/** Serves users from memory in front of a slower store, which every write goes through first */
+public class TieredUserDAO implements UserDAO {
+    private final MemoryUserDAO memory = new MemoryUserDAO();
+    private final UserDAO backing;
+
+    public TieredUserDAO(UserDAO backing) { this.backing = backing; }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        this.backing.createUser(user);
+        this.memory.put(user);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        UserData user = this.memory.getUser(username);
+        if (user == null) {
+            user = this.backing.getUser(username);
+            if (user != null) { this.memory.put(user); }
+        }
+        return user;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        this.backing.clear();
+        this.memory.clear();
+    }
+}
@@ -0,0 +1,14 @@
+package dataaccess;
+
+import model.UserData;
+
+/** Stores registered users */
+public interface UserDAO {
+    /** @throws DataAccessException if the username is taken */
+    void createUser(UserData user) throws DataAccessException;
+
+    /** @return the user, or null if there is none by that name */
+    UserData getUser(String username) throws DataAccessException;
+
+    void clear() throws DataAccessException;
+}
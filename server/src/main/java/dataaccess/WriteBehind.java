@@ -0,0 +1,140 @@
+package dataaccess;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The background writing shared by {@link GameStateWriter} and {@link MoveLog}, which record changes in memory and
+ * write them out in {@link #flush()}.
+ * <p>
+ * A background thread flushes every {@link GameStateWriter.Settings#flushIntervalMillis()}, or sooner when a subclass
+ * calls {@link #signal()} because a batch is full. A store that keeps failing is logged as a warning once and then
+ * quietly until it recovers. {@link #close()} stops the thread and keeps flushing until the loss window runs out, and
+ * runs from a shutdown hook if the server stops without calling it.
+ */
+abstract class WriteBehind implements AutoCloseable {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    protected final GameStateWriter.Settings settings;
+    /** What is being saved, for log messages */
+    private final String what;
+    private final ReentrantLock wakeLock = new ReentrantLock();
+    private final Condition wake = this.wakeLock.newCondition();
+    private final Thread flusher;
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+
+    /**
+     * @param thread the name of the background thread
+     * @param what   what is being saved, such as "moves", for log messages
+     */
+    WriteBehind(String thread, String what, GameStateWriter.Settings settings) {
+        this.settings = settings;
+        this.what = what;
+        this.flusher = new Thread(this::run, thread);
+        this.flusher.setDaemon(true);
+        this.shutdownHook = new Thread(this::close, thread + "-shutdown");
+    }
+
+    /** Starts the background thread, which the subclass constructor calls once its own fields are set */
+    protected final void start() {
+        this.flusher.start();
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * Writes out everything recorded so far
+     *
+     * @throws DataAccessException if the write failed, in which case the changes are kept for the next try
+     */
+    public abstract void flush() throws DataAccessException;
+
+    /** @return how many changes are waiting to be written */
+    protected abstract int pending();
+
+    protected final boolean isClosed() { return this.closed; }
+
+    /**
+     * Writes everything out now if the oldest unsaved change is older than the loss window
+     *
+     * @param now           the current {@link System#nanoTime()}
+     * @param oldestPending when the oldest unsaved change was made, or {@link Long#MAX_VALUE} if there is none
+     * @throws DataAccessException if it is overdue and still cannot be written
+     */
+    protected final void flushIfOverdue(long now, long oldestPending) throws DataAccessException {
+        if (now - oldestPending > TimeUnit.MILLISECONDS.toNanos(this.settings.maxLossMillis())) { this.flush(); }
+    }
+
+    /** Wakes the background thread to flush without waiting out the interval */
+    protected final void signal() {
+        this.wakeLock.lock();
+        try {
+            this.wake.signal();
+        } finally {
+            this.wakeLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background thread and writes out everything that is left, trying until the loss window runs out
+     */
+    @Override
+    public void close() {
+        if (this.closed) { return; }
+        this.closed = true;
+        this.signal();
+        try {
+            this.flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.settings.maxLossMillis());
+        while (true) {
+            try {
+                this.flush();
+                break;
+            } catch (DataAccessException e) {
+                if (System.nanoTime() > deadline || Thread.currentThread().isInterrupted()) {
+                    this.log.log(Level.SEVERE, "Lost " + this.pending() + " unsaved " + this.what + " at shutdown", e);
+                    break;
+                }
+                try {
+                    Thread.sleep(this.settings.flushIntervalMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            // already shutting down, which is how we got here
+        }
+    }
+
+    private void run() {
+        boolean failing = false;
+        while (!this.closed) {
+            this.wakeLock.lock();
+            try {
+                if (this.pending() < this.settings.batchSize() && !this.closed) {
+                    this.wake.await(this.settings.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                this.wakeLock.unlock();
+            }
+            try {
+                this.flush();
+                if (failing) { this.log.info("Saving " + this.what + " again"); }
+                failing = false;
+            } catch (DataAccessException e) {
+                this.log.log(failing ? Level.FINE : Level.WARNING, "Unable to save " + this.pending() + " " + this.what + "; will retry", e);
+                failing = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package server;
+
+import dataaccess.DataAccess;
+import dataaccess.DatabaseManager;
+import service.ServiceUnavailableException;
+import spark.*;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+public class Server {
+
+    /** Which threads handle requests and WebSocket messages */
+    public enum Threads {
+        /** Spark's default Jetty pool of platform threads */
+        PLATFORM,
+        /** A new virtual thread for each task, see {@link VirtualThreadPool} */
+        VIRTUAL
+    }
+
+    private final DataAccess dataAccess;
+    private final Threads threads;
+
+    /** Creates a server on in-memory storage */
+    public Server() { this(DataAccess.memory()); }
+
+    /** Creates a server using the threads named by the {@code server.threads} setting, platform by default */
+    public Server(DataAccess dataAccess) {
+        this(dataAccess, Threads.valueOf(DatabaseManager.setting("server.threads", "platform").trim().toUpperCase()));
+    }
+
+    public Server(DataAccess dataAccess, Threads threads) {
+        this.dataAccess = dataAccess;
+        this.threads = threads;
+    }
+
+    public int run(int desiredPort) {
+        // Replaced every time, since Spark keeps the factory between runs in the same JVM
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, this.threads == Threads.VIRTUAL
+                ? new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool())
+                : new EmbeddedJettyFactory());
+        Spark.port(desiredPort);
+
+        Spark.staticFiles.location("web");
+
+        // Register your endpoints and handle exceptions here.
+        Spark.exception(ServiceUnavailableException.class, (e, req, res) -> {
+            res.status(503);
+            res.header("Retry-After", "1");
+            res.type("application/json");
+            res.body("{\"message\": \"Error: " + e.getMessage() + "\"}");
+        });
+
+        //This line initializes the server and can be removed once you have a functioning endpoint
+        Spark.init();
+
+        Spark.awaitInitialization();
+        return Spark.port();
+    }
+
+    public DataAccess dataAccess() { return this.dataAccess; }
+
+    public Threads threads() { return this.threads; }
+
+    public void stop() {
+        Spark.stop();
+        Spark.awaitStop();
+    }
+}
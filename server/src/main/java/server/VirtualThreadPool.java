@@ -0,0 +1,71 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives Jetty a fresh virtual thread for every task instead of a thread from a fixed pool.
+ * <p>
+ * A request waiting on JDBC or bcrypt then parks its virtual thread and frees the carrier thread under it, so a few
+ * slow requests cannot use up the pool and leave the rest queued. WebSocket messages run on Jetty's executor too, so
+ * game commands get the same treatment. The pool is never low on threads, and it has no maximum: limits belong to the
+ * resources the requests wait on, such as the connection pool and the password hasher.
+ * <p>
+ * The pool is deliberately not a {@link org.eclipse.jetty.util.thread.TryExecutor}. Given one that accepts, Jetty's
+ * selector hands its own selecting over to a new thread and runs each request on the thread it was selecting on, so
+ * the selector moves to a fresh virtual thread on every request. Without one, the selector stays on its thread and
+ * dispatches each request to a new virtual thread, which keeps the latency tail short under load.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    @Override
+    protected void doStart() {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("spark-virtual-", 0).factory());
+    }
+
+    @Override
+    protected void doStop() throws InterruptedException {
+        this.executor.shutdown();
+        if (!this.executor.awaitTermination(5, TimeUnit.SECONDS)) { this.executor.shutdownNow(); }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        this.running.incrementAndGet();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    this.running.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            this.running.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        ExecutorService executor = this.executor;
+        if (executor != null) { executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS); }
+    }
+
+    /** @return how many tasks are running now */
+    @Override
+    public int getThreads() { return this.running.get(); }
+
+    @Override
+    public int getIdleThreads() { return 0; }
+
+    @Override
+    public boolean isLowOnThreads() { return false; }
+}
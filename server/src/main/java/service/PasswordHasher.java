@@ -0,0 +1,165 @@
+package service;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashes and checks passwords with bcrypt on a small pool of its own threads, so a burst of logins cannot use up the
+ * request threads and slow every other endpoint.
+ * <p>
+ * Each hash costs tens of milliseconds of CPU, so the pool has only {@link Settings#threads()} threads, and at most
+ * {@link Settings#queueLimit()} passwords wait their turn. Past that, a call fails at once with a
+ * {@link ServiceUnavailableException} instead of queueing behind work that would take too long anyway. The caller
+ * still waits for its own hash, but waiting costs no CPU.
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    /** The hash function, which tests replace to control timing */
+    interface Algorithm {
+        String hash(String password, int workFactor);
+
+        boolean check(String password, String hash);
+    }
+
+    private static final Algorithm BCRYPT = new Algorithm() {
+        public String hash(String password, int workFactor) { return BCrypt.hashpw(password, BCrypt.gensalt(workFactor)); }
+
+        public boolean check(String password, String hash) {
+            try {
+                return BCrypt.checkpw(password, hash);
+            } catch (IllegalArgumentException e) { // not a bcrypt hash
+                return false;
+            }
+        }
+    };
+
+    /**
+     * @param threads    how many passwords are hashed at once
+     * @param queueLimit how many more may wait before calls are turned away
+     * @param workFactor the bcrypt cost; each step up doubles the time a hash takes
+     */
+    public record Settings(int threads, int queueLimit, int workFactor) {
+        public Settings {
+            if (threads < 1 || queueLimit < 1) { throw new IllegalArgumentException("Need at least one thread and one queue slot"); }
+            if (workFactor < 4 || workFactor > 31) { throw new IllegalArgumentException("The bcrypt work factor must be from 4 to 31"); }
+        }
+
+        /** Reads the {@code auth.bcrypt.*} properties, using the defaults for any that are missing */
+        public static Settings from(Properties props) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            return new Settings(
+                    Integer.parseInt(props.getProperty("auth.bcrypt.threads", Integer.toString(Math.max(1, cores / 2)))),
+                    Integer.parseInt(props.getProperty("auth.bcrypt.queueLimit", "64")),
+                    Integer.parseInt(props.getProperty("auth.bcrypt.workFactor", "10")));
+        }
+    }
+
+    /**
+     * @param hashes         passwords hashed
+     * @param checks         passwords checked against a hash
+     * @param rejected       calls turned away because the queue was full
+     * @param meanHashMillis how long a hash or check took on average, once it started
+     * @param maxHashMillis  the longest a hash or check took
+     * @param meanWaitMillis how long a call waited in the queue on average
+     * @param queued         calls waiting now
+     * @param peakQueued     the most calls ever waiting at once
+     * @param active         calls being hashed now
+     */
+    public record Stats(long hashes, long checks, long rejected, double meanHashMillis, double maxHashMillis,
+                        double meanWaitMillis, int queued, int peakQueued, int active) {}
+
+    private final Algorithm algorithm;
+    private final Settings settings;
+    private final ThreadPoolExecutor pool;
+    private final LongAdder hashes = new LongAdder(), checks = new LongAdder(), rejected = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder(), waitNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+
+    public PasswordHasher(Settings settings) { this(BCRYPT, settings); }
+
+    PasswordHasher(Algorithm algorithm, Settings settings) {
+        this.algorithm = algorithm;
+        this.settings = settings;
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(settings.threads(), settings.threads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.queueLimit()), runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @return the password's bcrypt hash, salted and at the configured work factor
+     * @throws ServiceUnavailableException if too many passwords are already waiting
+     */
+    public String hash(String password) throws ServiceUnavailableException {
+        String hash = this.run(() -> this.algorithm.hash(password, this.settings.workFactor()));
+        this.hashes.increment();
+        return hash;
+    }
+
+    /**
+     * @return whether the password is the one the hash was made from
+     * @throws ServiceUnavailableException if too many passwords are already waiting
+     */
+    public boolean matches(String password, String hash) throws ServiceUnavailableException {
+        boolean matches = this.run(() -> this.algorithm.check(password, hash));
+        this.checks.increment();
+        return matches;
+    }
+
+    public Stats stats() {
+        long done = this.hashes.sum() + this.checks.sum();
+        return new Stats(this.hashes.sum(), this.checks.sum(), this.rejected.sum(),
+                done == 0 ? 0 : this.hashNanos.sum() / 1e6 / done, this.maxHashNanos.get() / 1e6,
+                done == 0 ? 0 : this.waitNanos.sum() / 1e6 / done,
+                this.pool.getQueue().size(), this.peakQueued.get(), this.pool.getActiveCount());
+    }
+
+    @Override
+    public void close() { this.pool.shutdown(); }
+
+    private <T> T run(Callable<T> work) throws ServiceUnavailableException {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = this.pool.submit(() -> {
+                long started = System.nanoTime();
+                this.waitNanos.add(started - submitted);
+                try {
+                    return work.call();
+                } finally {
+                    long took = System.nanoTime() - started;
+                    this.hashNanos.add(took);
+                    this.maxHashNanos.accumulateAndGet(took, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            throw new ServiceUnavailableException("Too many logins at once; try again shortly");
+        }
+        this.peakQueued.accumulateAndGet(this.pool.getQueue().size(), Math::max);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while hashing a password");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException r ? r : new IllegalStateException(e.getCause());
+        }
+    }
+}
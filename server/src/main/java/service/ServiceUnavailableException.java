@@ -0,0 +1,11 @@
+package service;
+
+/**
+ * Indicates the server is too busy to handle a request right now, which should be answered with a 503 so the client
+ * retries later
+ */
+public class ServiceUnavailableException extends Exception {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
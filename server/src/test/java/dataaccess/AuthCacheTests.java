@@ -0,0 +1,82 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AuthCacheTests {
+
+    /** Counts how often the store behind the cache is asked for a token */
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final MemoryAuthDAO table = new MemoryAuthDAO();
+    private final AuthDAO store = new AuthDAO() {
+        public void createAuth(AuthData auth) { table.createAuth(auth); }
+        public AuthData getAuth(String authToken) { lookups.incrementAndGet(); return table.getAuth(authToken); }
+        public boolean deleteAuth(String authToken) { return table.deleteAuth(authToken); }
+        public void clear() { table.clear(); }
+    };
+
+    @Test
+    @DisplayName("Good Tokens Are Served From The Cache")
+    public void hits() throws Exception {
+        AuthCache cache = new AuthCache(this.store, new AuthCache.Settings(100, 60_000, 60_000));
+        this.table.createAuth(new AuthData("token", "alice"));
+        for (int i = 0; i < 10; i++) { Assertions.assertEquals("alice", cache.getAuth("token").username()); }
+        Assertions.assertEquals(1, this.lookups.get());
+        Assertions.assertEquals(0.9, cache.stats().hitRatio(), 1e-9);
+
+        cache.createAuth(new AuthData("fresh", "bob"));
+        Assertions.assertEquals("bob", cache.getAuth("fresh").username());
+        Assertions.assertEquals(1, this.lookups.get(), "A token issued through the cache should already be in it");
+    }
+
+    @Test
+    @DisplayName("Bad Tokens Are Remembered")
+    public void negative() throws Exception {
+        AuthCache cache = new AuthCache(this.store, new AuthCache.Settings(100, 60_000, 60_000));
+        for (int i = 0; i < 5; i++) { Assertions.assertNull(cache.getAuth("bad")); }
+        Assertions.assertEquals(1, this.lookups.get());
+        Assertions.assertEquals(4, cache.stats().negativeHits());
+    }
+
+    @Test
+    @DisplayName("Logging Out Takes Effect At Once")
+    public void logout() throws Exception {
+        AuthCache cache = new AuthCache(this.store, new AuthCache.Settings(100, 60_000, 60_000));
+        cache.createAuth(new AuthData("token", "alice"));
+        Assertions.assertNotNull(cache.getAuth("token"));
+        Assertions.assertTrue(cache.deleteAuth("token"));
+        Assertions.assertNull(cache.getAuth("token"));
+        Assertions.assertNull(this.table.getAuth("token"));
+        Assertions.assertFalse(cache.deleteAuth("token"));
+    }
+
+    @Test
+    @DisplayName("Entries Expire")
+    public void expiry() throws Exception {
+        AuthCache cache = new AuthCache(this.store, new AuthCache.Settings(100, 20, 20));
+        this.table.createAuth(new AuthData("token", "alice"));
+        cache.getAuth("token");
+        cache.getAuth("bad");
+        Thread.sleep(40);
+        this.table.deleteAuth("token"); // as if another server logged it out
+        this.table.createAuth(new AuthData("bad", "bob"));
+        Assertions.assertNull(cache.getAuth("token"), "An expired token should be checked with the store again");
+        Assertions.assertEquals("bob", cache.getAuth("bad").username(), "A token remembered as bad should be checked again once expired");
+        Assertions.assertEquals(4, this.lookups.get());
+    }
+
+    @Test
+    @DisplayName("The Cache Stays Within Its Size")
+    public void bounded() throws Exception {
+        AuthCache cache = new AuthCache(this.store, new AuthCache.Settings(50, 60_000, 60_000));
+        for (int i = 0; i < 1000; i++) {
+            cache.createAuth(new AuthData("token" + i, "user" + i));
+            cache.getAuth("missing" + i);
+        }
+        Assertions.assertTrue(cache.stats().size() <= 50, "Size " + cache.stats().size());
+        Assertions.assertTrue(cache.stats().evictions() > 0);
+        Assertions.assertEquals("user7", cache.getAuth("token7").username(), "Evicted tokens should still be found in the store");
+    }
+}
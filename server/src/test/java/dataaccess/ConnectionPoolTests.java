@@ -0,0 +1,292 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConnectionPoolTests {
+
+    /** A stand-in for a database connection that records what was done to it */
+    private static class FakeConnection {
+        boolean closed, valid = true, autoCommit = true, readOnly;
+        int rollbacks, isolation = Connection.TRANSACTION_REPEATABLE_READ;
+        String catalog = "chess";
+        final List<FakeStatement> prepared = new ArrayList<>();
+        final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> { this.closed = true; yield null; }
+                    case "isClosed" -> this.closed;
+                    case "isValid" -> this.valid && !this.closed;
+                    case "getAutoCommit" -> this.autoCommit;
+                    case "setAutoCommit" -> { this.autoCommit = (Boolean) args[0]; yield null; }
+                    case "rollback" -> { this.rollbacks++; yield null; }
+                    case "isReadOnly" -> this.readOnly;
+                    case "setReadOnly" -> { this.readOnly = (Boolean) args[0]; yield null; }
+                    case "getTransactionIsolation" -> this.isolation;
+                    case "setTransactionIsolation" -> { this.isolation = (Integer) args[0]; yield null; }
+                    case "getCatalog" -> this.catalog;
+                    case "setCatalog" -> { this.catalog = (String) args[0]; yield null; }
+                    case "createStatement" -> {
+                        FakeStatement statement = new FakeStatement(null);
+                        this.prepared.add(statement);
+                        yield statement.statement;
+                    }
+                    case "prepareStatement" -> {
+                        FakeStatement statement = new FakeStatement((String) args[0]);
+                        this.prepared.add(statement);
+                        yield statement.statement;
+                    }
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+    }
+
+    private static class FakeStatement {
+        final String sql;
+        boolean closed;
+        int clears;
+        final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> { this.closed = true; yield null; }
+                    case "isClosed" -> this.closed;
+                    case "clearParameters" -> { this.clears++; yield null; }
+                    case "executeUpdate" -> 1;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+
+        FakeStatement(String sql) { this.sql = sql; }
+    }
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    private ConnectionPool pool(int minSize, int maxSize, long validationIntervalMillis, long leakThresholdMillis,
+                                long idleTimeoutMillis) {
+        return pool(minSize, maxSize, validationIntervalMillis, leakThresholdMillis, idleTimeoutMillis, 4);
+    }
+
+    private ConnectionPool pool(int minSize, int maxSize, long validationIntervalMillis, long leakThresholdMillis,
+                                long idleTimeoutMillis, int statementCacheSize) {
+        this.pool = new ConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            synchronized (this.opened) { this.opened.add(fake); }
+            return fake.connection;
+        }, new ConnectionPool.Settings(minSize, maxSize, 100, idleTimeoutMillis, validationIntervalMillis, 1,
+                leakThresholdMillis, statementCacheSize, 10));
+        return this.pool;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (this.pool != null) { this.pool.close(); }
+    }
+
+    @Test
+    @DisplayName("Returned Connections Are Reused")
+    public void reuse() throws Exception {
+        ConnectionPool pool = pool(0, 4, 500, 0, 60_000);
+        for (int i = 0; i < 5; i++) {
+            try (Connection connection = pool.getConnection()) {
+                Assertions.assertEquals("chess", connection.getCatalog());
+            }
+        }
+        ConnectionPool.Stats stats = pool.stats();
+        Assertions.assertEquals(1, stats.created(), "Should open one connection and keep reusing it");
+        Assertions.assertEquals(5, stats.borrows());
+        Assertions.assertEquals(0, stats.borrowed());
+        Assertions.assertFalse(this.opened.get(0).closed, "Returning a connection should not close it");
+    }
+
+    @Test
+    @DisplayName("Borrowing Times Out When Exhausted")
+    public void timeout() throws Exception {
+        ConnectionPool pool = pool(0, 2, 500, 0, 60_000);
+        Connection first = pool.getConnection(), second = pool.getConnection();
+        Assertions.assertThrows(DataAccessException.class, pool::getConnection);
+        Assertions.assertEquals(1, pool.stats().timeouts());
+        Assertions.assertEquals(2, pool.stats().open(), "Should never open more than the maximum");
+
+        Thread returner = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+                first.close();
+            } catch (Exception ignored) {
+            }
+        });
+        returner.start();
+        try (Connection third = pool.getConnection()) {
+            Assertions.assertNotNull(third, "A waiting borrower should get the connection returned to the pool");
+        }
+        returner.join();
+        second.close();
+        Assertions.assertTrue(pool.stats().maxWaitNanos() > 0);
+    }
+
+    @Test
+    @DisplayName("Dead Connections Are Replaced On Borrow")
+    public void validation() throws Exception {
+        ConnectionPool pool = pool(0, 2, 0, 0, 60_000);
+        pool.getConnection().close();
+        this.opened.get(0).valid = false;
+        try (Connection connection = pool.getConnection()) {
+            Assertions.assertNotNull(connection);
+        }
+        Assertions.assertEquals(2, this.opened.size(), "Should open a new connection in place of the dead one");
+        Assertions.assertTrue(this.opened.get(0).closed, "The dead connection should be closed");
+        Assertions.assertEquals(1, pool.stats().discarded());
+    }
+
+    @Test
+    @DisplayName("Uncommitted Work Is Rolled Back On Return")
+    public void rollback() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 0, 60_000);
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+        }
+        Assertions.assertEquals(1, this.opened.get(0).rollbacks);
+        Assertions.assertTrue(this.opened.get(0).autoCommit, "The next borrower should get an auto-commit connection");
+    }
+
+    @Test
+    @DisplayName("Closed Connections Cannot Be Used")
+    public void closedLease() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 0, 60_000);
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.close();
+        Assertions.assertTrue(connection.isClosed());
+        Assertions.assertThrows(SQLException.class, connection::getCatalog);
+        try (Connection next = pool.getConnection()) {
+            Assertions.assertFalse(next.isClosed(), "Closing twice should return the connection only once");
+        }
+    }
+
+    @Test
+    @DisplayName("Leaked Connections Are Reported")
+    public void leak() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 20, 60_000);
+        try (Connection connection = pool.getConnection()) {
+            for (int i = 0; i < 100 && pool.stats().leaks() == 0; i++) { Thread.sleep(10); }
+            Assertions.assertNotNull(connection);
+        }
+        Assertions.assertEquals(1, pool.stats().leaks(), "A held connection should be reported once");
+    }
+
+    @Test
+    @DisplayName("Idle Connections Are Evicted Down To The Minimum")
+    public void eviction() throws Exception {
+        ConnectionPool pool = pool(1, 3, 500, 0, 20);
+        Connection a = pool.getConnection(), b = pool.getConnection(), c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+        for (int i = 0; i < 100 && pool.stats().open() > 1; i++) { Thread.sleep(10); }
+        Assertions.assertEquals(1, pool.stats().open());
+        Assertions.assertEquals(this.opened.size() - 1, this.opened.stream().filter(fake -> fake.closed).count());
+    }
+
+    @Test
+    @DisplayName("Prepared Statements Are Reused Across Borrows")
+    public void statementReuse() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 0, 60_000);
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT username FROM auth WHERE token=?")) {
+                Assertions.assertEquals(1, statement.executeUpdate());
+                Assertions.assertSame(connection, statement.getConnection(), "A statement should belong to the borrowed connection");
+            }
+        }
+        FakeConnection fake = this.opened.get(0);
+        Assertions.assertEquals(1, fake.prepared.size(), "The SQL should only be prepared once");
+        Assertions.assertFalse(fake.prepared.get(0).closed, "Closing a cached statement should keep it open");
+        Assertions.assertEquals(3, fake.prepared.get(0).clears, "Each close should clear the parameters");
+        Assertions.assertEquals(2, pool.stats().statementHits());
+        Assertions.assertEquals(1, pool.stats().statementMisses());
+    }
+
+    @Test
+    @DisplayName("Statements In Use Are Not Shared")
+    public void statementInUse() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 0, 60_000);
+        try (Connection connection = pool.getConnection()) {
+            PreparedStatement outer = connection.prepareStatement("SELECT 1");
+            try (PreparedStatement inner = connection.prepareStatement("SELECT 1")) {
+                Assertions.assertNotSame(outer, inner);
+            }
+            Assertions.assertTrue(this.opened.get(0).prepared.get(1).closed, "A statement that was not cached should really close");
+            outer.close();
+            Assertions.assertTrue(outer.isClosed());
+            Assertions.assertThrows(SQLException.class, outer::executeUpdate);
+        }
+    }
+
+    @Test
+    @DisplayName("Least Recently Used Statements Are Closed")
+    public void statementEviction() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 0, 60_000, 2);
+        try (Connection connection = pool.getConnection()) {
+            for (String sql : new String[]{"SELECT 1", "SELECT 2", "SELECT 1", "SELECT 3"}) {
+                connection.prepareStatement(sql).close();
+            }
+        }
+        List<FakeStatement> prepared = this.opened.get(0).prepared;
+        Assertions.assertEquals(3, prepared.size());
+        Assertions.assertFalse(prepared.get(0).closed, "SELECT 1 was used more recently than SELECT 2");
+        Assertions.assertTrue(prepared.get(1).closed, "SELECT 2 should be pushed out of the cache");
+        Assertions.assertFalse(prepared.get(2).closed);
+    }
+
+    @Test
+    @DisplayName("Statements Left Open Stop Working When The Connection Is Returned")
+    public void staleStatement() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 0, 60_000);
+        PreparedStatement stale;
+        try (Connection connection = pool.getConnection()) {
+            stale = connection.prepareStatement("SELECT 1"); // never closed
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement current = connection.prepareStatement("SELECT 1")) {
+            Assertions.assertEquals(1, this.opened.get(0).prepared.size(), "The next borrower should get the cached statement");
+            Assertions.assertTrue(stale.isClosed());
+            Assertions.assertThrows(SQLException.class, stale::executeUpdate, "The earlier borrower should not reach the statement");
+            int clears = this.opened.get(0).prepared.get(0).clears;
+            stale.close();
+            Assertions.assertEquals(clears, this.opened.get(0).prepared.get(0).clears, "Closing the old handle should not clear the new borrower's statement");
+            Assertions.assertFalse(current.isClosed());
+            Assertions.assertEquals(1, current.executeUpdate());
+        }
+    }
+
+    @Test
+    @DisplayName("Settings And Uncached Statements Are Reset On Return")
+    public void resetOnReturn() throws Exception {
+        ConnectionPool pool = pool(0, 1, 500, 0, 60_000);
+        try (Connection connection = pool.getConnection()) {
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setCatalog("other");
+            connection.createStatement(); // left open
+            connection.prepareStatement("SELECT 1");
+            connection.prepareStatement("SELECT 1"); // nested, so not cached, and left open
+        }
+        FakeConnection fake = this.opened.get(0);
+        Assertions.assertFalse(fake.readOnly);
+        Assertions.assertEquals(Connection.TRANSACTION_REPEATABLE_READ, fake.isolation);
+        Assertions.assertEquals("chess", fake.catalog);
+        Assertions.assertTrue(fake.prepared.get(0).closed, "A plain statement should be closed on return");
+        Assertions.assertFalse(fake.prepared.get(1).closed, "The cached statement stays open");
+        Assertions.assertTrue(fake.prepared.get(2).closed, "An uncached prepared statement should be closed on return");
+        try (Connection connection = pool.getConnection()) {
+            Assertions.assertEquals("chess", connection.getCatalog());
+        }
+        Assertions.assertEquals(1, this.opened.size(), "The reset connection should be reused");
+    }
+}
@@ -0,0 +1,114 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.AuthData;
+import model.UserData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Hammers the in-memory DAOs from many threads with a server-like mix of calls, and does the same to copies of them
+ * behind one global lock, to show what the lock-free maps buy.
+ * <p>
+ * The mix per call: 60% auth lookups, 15% game reads, 10% game updates, 5% game lists, 4% logins (a user read and a
+ * new token), 4% logouts, 1% seat claims and 1% new games.
+ * <p>
+ * Usage: {@code DaoStressBenchmark [threads] [seconds]}.
+ */
+public class DaoStressBenchmark {
+    private static final int USERS = 1000, GAMES = 500;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        for (boolean locked : new boolean[]{ true, false }) {
+            DataAccess dao = locked ? globallyLocked() : DataAccess.create("memory");
+            run(null, dao, threads, seconds / 3); // warm-up, not reported
+            dao.clear();
+            run(locked ? "one global lock" : "striped memory", dao, threads, seconds);
+        }
+    }
+
+    private static void run(String name, DataAccess dao, int threads, double seconds) throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            dao.users().createUser(new UserData("user" + i, "hash", "user" + i + "@mail.com"));
+            String token = "token" + i;
+            dao.auths().createAuth(new AuthData(token, "user" + i));
+            tokens.add(token);
+        }
+        for (int i = 0; i < GAMES; i++) { dao.games().createGame("game" + i); }
+        LongAdder calls = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ChessGame game = new ChessGame();
+                long done = 0;
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        int roll = random.nextInt(100), user = random.nextInt(USERS), gameID = random.nextInt(GAMES) + 1;
+                        if (roll < 60) { dao.auths().getAuth(tokens.get(user)); }
+                        else if (roll < 75) { dao.games().getGame(gameID); }
+                        else if (roll < 85) { dao.games().updateGame(gameID, game); }
+                        else if (roll < 90) { dao.games().listGames(); }
+                        else if (roll < 94) {
+                            dao.users().getUser("user" + user);
+                            dao.auths().createAuth(new AuthData(Long.toHexString(random.nextLong()), "user" + user));
+                        }
+                        else if (roll < 98) { dao.auths().deleteAuth(Long.toHexString(random.nextLong())); }
+                        else if (roll < 99) { dao.games().joinGame(gameID, random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK, "user" + user); }
+                        else { dao.games().createGame("extra"); }
+                        done++;
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    calls.add(done);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep((long) (seconds * 1000));
+        stop.set(true);
+        for (Thread worker : workers) { worker.join(); }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        if (name != null) { System.out.printf("%-16s %3d threads: %,12.0f calls/s%n", name, threads, calls.sum() / elapsed); }
+        dao.clear();
+    }
+
+    /** @return the memory DAOs with every call made under one lock, as a naive implementation would */
+    private static DataAccess globallyLocked() {
+        Object lock = new Object();
+        UserDAO users = new MemoryUserDAO();
+        AuthDAO auths = new MemoryAuthDAO();
+        GameDAO games = new MemoryGameDAO();
+        return new DataAccess(new UserDAO() {
+            public void createUser(UserData user) throws DataAccessException { synchronized (lock) { users.createUser(user); } }
+            public UserData getUser(String username) throws DataAccessException { synchronized (lock) { return users.getUser(username); } }
+            public void clear() throws DataAccessException { synchronized (lock) { users.clear(); } }
+        }, new AuthDAO() {
+            public void createAuth(AuthData auth) throws DataAccessException { synchronized (lock) { auths.createAuth(auth); } }
+            public AuthData getAuth(String authToken) throws DataAccessException { synchronized (lock) { return auths.getAuth(authToken); } }
+            public boolean deleteAuth(String authToken) throws DataAccessException { synchronized (lock) { return auths.deleteAuth(authToken); } }
+            public void clear() throws DataAccessException { synchronized (lock) { auths.clear(); } }
+        }, new GameDAO() {
+            public int createGame(String gameName) throws DataAccessException { synchronized (lock) { return games.createGame(gameName); } }
+            public model.GameData getGame(int gameID) throws DataAccessException { synchronized (lock) { return games.getGame(gameID); } }
+            public java.util.Collection<model.GameData> listGames() throws DataAccessException { synchronized (lock) { return games.listGames(); } }
+            public boolean joinGame(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException { synchronized (lock) { return games.joinGame(gameID, color, username); } }
+            public void updateGame(int gameID, ChessGame game) throws DataAccessException { synchronized (lock) { games.updateGame(gameID, game); } }
+            public void clear() throws DataAccessException { synchronized (lock) { games.clear(); } }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class GameStateWriterTests {
+
+    /** Stands in for the game table, failing while told to */
+    private final Map<Integer, String> table = new ConcurrentHashMap<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private volatile boolean failing;
+    private GameStateWriter writer;
+
+    private GameStateWriter writer(long flushIntervalMillis, int batchSize, long maxLossMillis) {
+        this.writer = new GameStateWriter(states -> {
+            if (this.failing) { throw new DataAccessException("Database is down"); }
+            synchronized (this.batchSizes) { this.batchSizes.add(states.size()); }
+            for (GameStateWriter.State state : states) { this.table.put(state.gameID(), state.game()); }
+        }, new GameStateWriter.Settings(flushIntervalMillis, batchSize, maxLossMillis));
+        return this.writer;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.failing = false;
+        if (this.writer != null) { this.writer.close(); }
+    }
+
+    @Test
+    @DisplayName("Updates To A Game Are Coalesced")
+    public void coalesce() throws Exception {
+        GameStateWriter writer = writer(60_000, 1000, 120_000);
+        for (int move = 0; move < 100; move++) {
+            for (int game = 1; game <= 3; game++) { writer.update(game, "game " + game + " move " + move); }
+        }
+        Assertions.assertEquals("game 2 move 99", writer.latest(2), "The latest state should be readable before it is written");
+        Assertions.assertTrue(this.table.isEmpty(), "Nothing should be written before a flush");
+        writer.flush();
+        Assertions.assertEquals(List.of(3), this.batchSizes, "Each game should be written once, in one batch");
+        Assertions.assertEquals("game 3 move 99", this.table.get(3));
+        Assertions.assertNull(writer.latest(3));
+        Assertions.assertEquals(297, writer.stats().coalesced());
+    }
+
+    @Test
+    @DisplayName("Updates Are Written In The Background")
+    public void background() throws Exception {
+        GameStateWriter writer = writer(10, 1000, 1000);
+        writer.update(7, "state");
+        for (int i = 0; i < 200 && !this.table.containsKey(7); i++) { Thread.sleep(5); }
+        Assertions.assertEquals("state", this.table.get(7));
+    }
+
+    @Test
+    @DisplayName("A Full Batch Is Written Without Waiting")
+    public void batchSize() throws Exception {
+        GameStateWriter writer = writer(60_000, 4, 120_000);
+        for (int game = 0; game < 4; game++) { writer.update(game, "state"); }
+        for (int i = 0; i < 200 && this.table.size() < 4; i++) { Thread.sleep(5); }
+        Assertions.assertEquals(4, this.table.size());
+    }
+
+    @Test
+    @DisplayName("Updates Are Refused Past The Loss Window")
+    public void lossWindow() throws Exception {
+        GameStateWriter writer = writer(10, 1000, 50);
+        this.failing = true;
+        writer.update(1, "first");
+        Thread.sleep(100);
+        Assertions.assertThrows(DataAccessException.class, () -> writer.update(1, "second"));
+        Assertions.assertEquals("first", writer.latest(1), "A refused update should not be recorded");
+        Assertions.assertTrue(writer.stats().failures() > 0);
+
+        this.failing = false;
+        writer.update(1, "third");
+        writer.flush();
+        Assertions.assertEquals("third", this.table.get(1));
+    }
+
+    @Test
+    @DisplayName("Closing Writes Everything Out")
+    public void close() throws Exception {
+        GameStateWriter writer = writer(60_000, 1000, 120_000);
+        writer.update(1, "a");
+        writer.update(2, "b");
+        writer.close();
+        Assertions.assertEquals(Map.of(1, "a", 2, "b"), this.table);
+        Assertions.assertThrows(DataAccessException.class, () -> writer.update(3, "c"));
+    }
+}
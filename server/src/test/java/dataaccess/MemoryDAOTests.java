@@ -0,0 +1,162 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MemoryDAOTests {
+
+    @Test
+    @DisplayName("Users Are Unique")
+    public void users() throws Exception {
+        UserDAO users = new MemoryUserDAO();
+        users.createUser(new UserData("alice", "hash", "a@mail.com"));
+        Assertions.assertThrows(DataAccessException.class, () -> users.createUser(new UserData("alice", "other", "b@mail.com")));
+        Assertions.assertEquals("a@mail.com", users.getUser("alice").email());
+        Assertions.assertNull(users.getUser("bob"));
+        users.clear();
+        Assertions.assertNull(users.getUser("alice"));
+    }
+
+    @Test
+    @DisplayName("Auth Tokens Come And Go")
+    public void auths() throws Exception {
+        AuthDAO auths = new MemoryAuthDAO();
+        auths.createAuth(new AuthData("token", "alice"));
+        Assertions.assertEquals("alice", auths.getAuth("token").username());
+        Assertions.assertTrue(auths.deleteAuth("token"));
+        Assertions.assertFalse(auths.deleteAuth("token"));
+        Assertions.assertNull(auths.getAuth("token"));
+    }
+
+    @Test
+    @DisplayName("Games Are Created, Joined And Updated")
+    public void games() throws Exception {
+        GameDAO games = new MemoryGameDAO();
+        int first = games.createGame("first"), second = games.createGame("second");
+        Assertions.assertNotEquals(first, second);
+        Assertions.assertEquals(2, games.listGames().size());
+        Assertions.assertTrue(games.joinGame(first, ChessGame.TeamColor.WHITE, "alice"));
+        Assertions.assertFalse(games.joinGame(first, ChessGame.TeamColor.WHITE, "bob"), "A taken seat should stay taken");
+        Assertions.assertTrue(games.joinGame(first, ChessGame.TeamColor.BLACK, "bob"));
+        Assertions.assertThrows(DataAccessException.class, () -> games.joinGame(99, ChessGame.TeamColor.WHITE, "carol"));
+
+        ChessGame game = new ChessGame();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        games.updateGame(first, game);
+        GameData stored = games.getGame(first);
+        Assertions.assertEquals("alice", stored.whiteUsername());
+        Assertions.assertEquals("bob", stored.blackUsername());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, stored.game().getTeamTurn());
+        Assertions.assertThrows(DataAccessException.class, () -> games.updateGame(99, game));
+    }
+
+    @Test
+    @DisplayName("One Player Wins A Race For A Seat")
+    public void seatRace() throws Exception {
+        GameDAO games = new MemoryGameDAO();
+        int gameID = games.createGame("race");
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String username = "player" + i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    if (games.joinGame(gameID, ChessGame.TeamColor.WHITE, username)) { winners.incrementAndGet(); }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) { thread.join(); }
+        Assertions.assertEquals(1, winners.get());
+        Assertions.assertNotNull(games.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    @DisplayName("The Tiered DAOs Write Through And Read From Memory")
+    public void tiered() throws Exception {
+        AtomicInteger backingReads = new AtomicInteger();
+        MemoryUserDAO store = new MemoryUserDAO();
+        UserDAO backing = new UserDAO() {
+            public void createUser(UserData user) throws DataAccessException { store.createUser(user); }
+            public UserData getUser(String username) { backingReads.incrementAndGet(); return store.getUser(username); }
+            public void clear() { store.clear(); }
+        };
+        store.createUser(new UserData("alice", "hash", "a@mail.com"));
+        UserDAO users = new TieredUserDAO(backing);
+        for (int i = 0; i < 3; i++) { Assertions.assertEquals("hash", users.getUser("alice").password()); }
+        Assertions.assertEquals(1, backingReads.get(), "A user should be read from the store once and then from memory");
+        users.createUser(new UserData("bob", "hash", "b@mail.com"));
+        Assertions.assertNotNull(store.getUser("bob"), "Writes should reach the store");
+        Assertions.assertThrows(DataAccessException.class, () -> users.createUser(new UserData("alice", "x", "x")));
+
+        MemoryGameDAO gameStore = new MemoryGameDAO();
+        int existing = gameStore.createGame("existing");
+        List<GameStateWriter.State> saved = new ArrayList<>();
+        try (GameStateWriter writer = new GameStateWriter(states -> { synchronized (saved) { saved.addAll(states); } },
+                new GameStateWriter.Settings(60_000, 1000, 120_000))) {
+            GameDAO games = new TieredGameDAO(gameStore, writer);
+            Assertions.assertEquals("existing", games.getGame(existing).gameName(), "Games should be loaded at startup");
+            int created = games.createGame("created");
+            Assertions.assertNotNull(gameStore.getGame(created));
+            Assertions.assertTrue(games.joinGame(created, ChessGame.TeamColor.BLACK, "bob"));
+            Assertions.assertEquals("bob", gameStore.getGame(created).blackUsername());
+            games.updateGame(created, new ChessGame());
+            writer.flush();
+            Assertions.assertEquals(1, saved.size(), "Moves should be saved through the writer");
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent Updates Reach Memory And The Store In One Order")
+    public void tieredOrder() throws Exception {
+        MemoryGameDAO gameStore = new MemoryGameDAO();
+        Map<Integer, String> saved = new ConcurrentHashMap<>();
+        CountDownLatch entered = new CountDownLatch(1), secondDone = new CountDownLatch(1);
+        GameStateWriter.Settings settings = new GameStateWriter.Settings(60_000, 1000, 120_000);
+        try (GameStateWriter writer = new GameStateWriter(states -> { for (GameStateWriter.State state : states) { saved.put(state.gameID(), state.game()); } }, settings) {
+            @Override
+            public void update(int gameID, String game) throws DataAccessException {
+                if (Thread.currentThread().getName().equals("first")) { // stall between the memory update and this one
+                    entered.countDown();
+                    try { secondDone.await(500, TimeUnit.MILLISECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                }
+                super.update(gameID, game);
+            }
+        }) {
+            GameDAO games = new TieredGameDAO(gameStore, writer);
+            int gameID = games.createGame("race");
+            Assertions.assertThrows(DataAccessException.class, () -> games.updateGame(gameID + 1, new ChessGame()));
+            ChessGame white = new ChessGame(), black = new ChessGame();
+            black.setTeamTurn(ChessGame.TeamColor.BLACK);
+            Thread first = Thread.ofPlatform().name("first").start(() -> {
+                try { games.updateGame(gameID, white); } catch (DataAccessException e) { throw new RuntimeException(e); }
+            });
+            Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Thread second = Thread.ofPlatform().name("second").start(() -> {
+                try { games.updateGame(gameID, black); } catch (DataAccessException e) { throw new RuntimeException(e); }
+                secondDone.countDown();
+            });
+            first.join();
+            second.join();
+            writer.flush();
+            Assertions.assertEquals(MySqlGameDAO.toJson(games.getGame(gameID).game()), saved.get(gameID), "The store should end with the game memory serves");
+        }
+    }
+}
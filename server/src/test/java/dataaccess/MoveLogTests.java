@@ -0,0 +1,158 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MoveLogTests {
+
+    /** Keeps the log in memory, counting what is written */
+    private static class MemoryStore implements MoveLog.Store {
+        final List<MoveLog.Move> moves = new ArrayList<>();
+        final Map<Integer, MoveLog.Snapshot> snapshots = new HashMap<>();
+        int snapshotWrites;
+
+        @Override
+        public synchronized void write(List<MoveLog.Move> moves, List<MoveLog.Snapshot> snapshots) {
+            this.moves.addAll(moves);
+            for (MoveLog.Snapshot snapshot : snapshots) { this.snapshots.put(snapshot.gameID(), snapshot); }
+            this.snapshotWrites += snapshots.size();
+        }
+
+        @Override
+        public synchronized MoveLog.Snapshot snapshot(int gameID) { return this.snapshots.get(gameID); }
+
+        @Override
+        public synchronized short[] moves(int gameID, int afterPly) {
+            List<MoveLog.Move> after = new ArrayList<>();
+            for (MoveLog.Move move : this.moves) {
+                if (move.gameID() == gameID && move.ply() > afterPly) { after.add(move); }
+            }
+            after.sort((a, b) -> a.ply() - b.ply());
+            short[] moves = new short[after.size()];
+            for (int i = 0; i < moves.length; i++) { moves[i] = after.get(i).move(); }
+            return moves;
+        }
+
+        @Override
+        public synchronized void clear() {
+            this.moves.clear();
+            this.snapshots.clear();
+        }
+    }
+
+    private final MemoryStore store = new MemoryStore();
+    private MoveLog log;
+
+    @BeforeEach
+    public void setUp() {
+        this.log = new MoveLog(this.store, 4, new GameStateWriter.Settings(60_000, 1000, 120_000));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.log.close();
+    }
+
+    /** Plays moves in a game, logging each one */
+    private ChessGame play(int gameID, ChessGame game, String san) throws Exception {
+        int ply = 0;
+        for (String text : san.split(" ")) {
+            ChessMove move = game.parseSan(text);
+            game.makeMove(move);
+            this.log.append(gameID, ++ply, move, game);
+        }
+        return game;
+    }
+
+    @Test
+    @DisplayName("Games Are Rebuilt From Snapshots And Moves")
+    public void rebuild() throws Exception {
+        ChessGame played = play(1, Fen.toGame(Fen.START), "e4 e5 Nf3 Nc6 Bb5 a6 Ba4 Nf6 Qe2");
+        play(2, Fen.toGame(Fen.START), "d4 d5");
+        Assertions.assertTrue(this.store.moves.isEmpty(), "Nothing should be written before a flush");
+
+        ChessGame loaded = this.log.load(1);
+        Assertions.assertEquals(Fen.of(played), Fen.of(loaded));
+        Assertions.assertEquals(played.getTeamTurn(), loaded.getTeamTurn());
+        Assertions.assertEquals(11, this.store.moves.size(), "Every move should be a row");
+        Assertions.assertEquals(8, this.store.snapshot(1).ply(), "The game should be snapshotted every 4 plies");
+        Assertions.assertEquals(2, this.store.snapshotWrites);
+        Assertions.assertNull(this.store.snapshot(2));
+        Assertions.assertEquals(Fen.of(Fen.toGame("rnbqkbnr/ppp1pppp/8/3p4/3P4/8/PPP1PPPP/RNBQKBNR w - - 0 2")), Fen.of(this.log.load(2)));
+    }
+
+    @Test
+    @DisplayName("Games Starting Elsewhere Replay From Their Start")
+    public void otherStart() throws Exception {
+        String start = "4k3/P7/8/8/8/8/8/4K3 w - - 0 1";
+        this.log.start(3, Fen.toGame(start));
+        ChessGame played = play(3, Fen.toGame(start), "a8=Q+ Kd7");
+        Assertions.assertEquals(Fen.of(played), Fen.of(this.log.load(3)));
+    }
+
+    @Test
+    @DisplayName("Unknown Games Load At The Start")
+    public void unknown() throws Exception {
+        Assertions.assertEquals(Fen.of(Fen.toGame(Fen.START)), Fen.of(this.log.load(99)));
+    }
+
+    @Test
+    @DisplayName("Illegal Logged Moves Are Rejected")
+    public void illegal() throws Exception {
+        this.store.write(List.of(new MoveLog.Move(5, 1, MoveLog.pack(new ChessMove(new ChessPosition(2, 5), new ChessPosition(5, 5), null)))), List.of());
+        Assertions.assertThrows(DataAccessException.class, () -> this.log.load(5));
+    }
+
+    @Test
+    @DisplayName("Tiered Games Are Saved As Moves")
+    public void tiered() throws Exception {
+        MemoryGameDAO backing = new MemoryGameDAO();
+        TieredGameDAO games = new TieredGameDAO(backing, this.log);
+        int gameID = games.createGame("logged");
+        ChessGame game = games.getGame(gameID).game();
+        for (String text : "e4 e5 Nf3 Nc6 Bb5".split(" ")) {
+            game.makeMove(game.parseSan(text));
+            games.updateGame(gameID, game);
+        }
+        games.updateGame(gameID, game); // no change, so nothing is logged
+        this.log.flush();
+        Assertions.assertEquals(5, this.store.moves.size(), "Each update should append one move");
+        Assertions.assertEquals(4, this.store.snapshot(gameID).ply());
+
+        ChessGame setUp = Fen.toGame("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        games.updateGame(gameID, setUp);
+        setUp.makeMove(setUp.parseSan("Ra8+"));
+        games.updateGame(gameID, setUp);
+        this.log.flush();
+        Assertions.assertEquals(5, this.store.snapshot(gameID).ply(), "A change that is not a move should be snapshotted");
+        Assertions.assertEquals(6, this.store.moves.size());
+
+        this.log.close();
+        this.log = new MoveLog(this.store, 4, new GameStateWriter.Settings(60_000, 1000, 120_000));
+        TieredGameDAO restarted = new TieredGameDAO(backing, this.log);
+        Assertions.assertEquals(Fen.of(setUp), Fen.of(restarted.getGame(gameID).game()), "Games should be rebuilt from the log at startup");
+        restarted.clear();
+        Assertions.assertTrue(this.store.moves.isEmpty());
+        Assertions.assertNull(this.store.snapshot(gameID));
+    }
+
+    @Test
+    @DisplayName("Moves Pack Into 15 Bits")
+    public void pack() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT);
+        short packed = MoveLog.pack(promotion);
+        Assertions.assertTrue(packed >= 0);
+        Assertions.assertEquals(promotion, MoveLog.unpack(packed));
+        ChessMove quiet = new ChessMove(new ChessPosition(8, 8), new ChessPosition(1, 1), null);
+        Assertions.assertEquals(quiet, MoveLog.unpack(MoveLog.pack(quiet)));
+    }
+}
@@ -0,0 +1,138 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SignedAuthDAOTests {
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes();
+
+    /** Stands in for the revoked_token table shared by several servers */
+    private final Map<String, Long> table = new ConcurrentHashMap<>();
+    private final RevocationStore shared = new RevocationStore() {
+        public void revoke(String tokenID, long expiresAtMillis) { table.putIfAbsent(tokenID, expiresAtMillis); }
+        public Map<String, Long> active(long nowMillis) {
+            table.values().removeIf(expires -> expires <= nowMillis);
+            return Map.copyOf(table);
+        }
+        public void clear() { table.clear(); }
+    };
+
+    @Test
+    @DisplayName("Issued Tokens Verify Without A Store")
+    public void roundTrip() throws Exception {
+        SignedAuthDAO auths = new SignedAuthDAO(new SignedAuthDAO.Settings(KEY, 60_000, 1000));
+        AuthData auth = auths.issueAuth("alice");
+        Assertions.assertEquals(auth, auths.getAuth(auth.authToken()));
+        Assertions.assertNotEquals(auth.authToken(), auths.issueAuth("alice").authToken());
+        auths.createAuth(auth);
+        Assertions.assertThrows(DataAccessException.class, () -> auths.createAuth(new AuthData("made-up", "alice")));
+        Assertions.assertThrows(DataAccessException.class, () -> auths.createAuth(new AuthData(auth.authToken(), "bob")));
+    }
+
+    @Test
+    @DisplayName("Altered Or Foreign Tokens Are Refused")
+    public void tampered() throws Exception {
+        SignedAuthDAO auths = new SignedAuthDAO(new SignedAuthDAO.Settings(KEY, 60_000, 1000));
+        String token = auths.issueAuth("alice").authToken();
+        String asBob = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString("bob".getBytes()) + token.substring(token.indexOf('.'));
+        Assertions.assertNull(auths.getAuth(asBob));
+        Assertions.assertNull(auths.getAuth(token.substring(0, token.length() - 2) + "AA"));
+        Assertions.assertNull(auths.getAuth(token + ".extra"));
+        Assertions.assertNull(auths.getAuth("not a token"));
+        Assertions.assertNull(auths.getAuth("a.b.c.d.e"));
+        Assertions.assertNull(auths.getAuth(null));
+
+        SignedAuthDAO other = new SignedAuthDAO(new SignedAuthDAO.Settings("another key, also 32 bytes long!".getBytes(), 60_000, 1000));
+        Assertions.assertNull(other.getAuth(token), "A token signed with another key should not verify");
+    }
+
+    @Test
+    @DisplayName("Tokens Expire")
+    public void expiry() throws Exception {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        SignedAuthDAO auths = new SignedAuthDAO(new SignedAuthDAO.Settings(KEY, 60_000, 1000), null, now::get);
+        String token = auths.issueAuth("alice").authToken();
+        Assertions.assertNotNull(auths.getAuth(token));
+        now.addAndGet(59_999);
+        Assertions.assertNotNull(auths.getAuth(token));
+        now.incrementAndGet();
+        Assertions.assertNull(auths.getAuth(token));
+        Assertions.assertFalse(auths.deleteAuth(token));
+    }
+
+    @Test
+    @DisplayName("Logging Out Reaches Every Server")
+    public void logout() throws Exception {
+        try (SignedAuthDAO one = new SignedAuthDAO(new SignedAuthDAO.Settings(KEY, 60_000, 10), this.shared);
+             SignedAuthDAO two = new SignedAuthDAO(new SignedAuthDAO.Settings(KEY, 60_000, 10), this.shared)) {
+            String token = one.issueAuth("alice").authToken();
+            Assertions.assertEquals("alice", two.getAuth(token).username(), "Any server with the key should accept the token");
+            Assertions.assertTrue(two.deleteAuth(token));
+            Assertions.assertNull(two.getAuth(token));
+            Assertions.assertFalse(two.deleteAuth(token));
+            Assertions.assertEquals(1, this.table.size());
+            long deadline = System.currentTimeMillis() + 2000;
+            while (one.getAuth(token) != null && System.currentTimeMillis() < deadline) { Thread.sleep(5); }
+            Assertions.assertNull(one.getAuth(token), "The other server should pick up the logout within its refresh interval");
+        }
+    }
+
+    @Test
+    @DisplayName("Respelled Signatures Do Not Undo A Logout")
+    public void respelled() throws Exception {
+        SignedAuthDAO auths = new SignedAuthDAO(new SignedAuthDAO.Settings(KEY, 60_000, 1000));
+        String token = auths.issueAuth("alice").authToken();
+        String padded = token + "=";
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        int last = alphabet.indexOf(token.charAt(token.length() - 1));
+        String lowBits = token.substring(0, token.length() - 1) + alphabet.charAt(last ^ 1); // the last character's lowest bit is unused
+        Assertions.assertArrayEquals(java.util.Base64.getUrlDecoder().decode(token.substring(token.lastIndexOf('.') + 1)),
+                java.util.Base64.getUrlDecoder().decode(lowBits.substring(lowBits.lastIndexOf('.') + 1)), "Both spellings decode alike");
+        Assertions.assertNull(auths.getAuth(padded));
+        Assertions.assertNull(auths.getAuth(lowBits));
+        Assertions.assertTrue(auths.deleteAuth(token));
+        Assertions.assertNull(auths.getAuth(token));
+        Assertions.assertNull(auths.getAuth(padded), "A padded signature should not get past the logout");
+        Assertions.assertNull(auths.getAuth(lowBits), "Changed unused bits should not get past the logout");
+        Assertions.assertFalse(auths.deleteAuth(lowBits));
+    }
+
+    @Test
+    @DisplayName("Clearing Logs Everyone Out")
+    public void clear() throws Exception {
+        SignedAuthDAO auths = new SignedAuthDAO(new SignedAuthDAO.Settings(KEY, 60_000, 1000));
+        String before = auths.issueAuth("alice").authToken();
+        auths.clear();
+        String after = auths.issueAuth("alice").authToken();
+        Assertions.assertNull(auths.getAuth(before));
+        Assertions.assertNotNull(auths.getAuth(after));
+    }
+
+    @Test
+    @DisplayName("Settings Come From Properties")
+    public void settings() {
+        Properties props = new Properties();
+        props.setProperty("auth.signingKey", java.util.Base64.getEncoder().encodeToString(KEY));
+        props.setProperty("auth.tokenTtlMillis", "1234");
+        SignedAuthDAO.Settings settings = SignedAuthDAO.Settings.from(props);
+        Assertions.assertArrayEquals(KEY, settings.key());
+        Assertions.assertEquals(1234, settings.ttlMillis());
+        Assertions.assertEquals(32, SignedAuthDAO.Settings.from(new Properties()).key().length);
+        props.setProperty("auth.signingKey", "c2hvcnQ=");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SignedAuthDAO.Settings.from(props));
+    }
+
+    @Test
+    @DisplayName("Opaque Tokens Are Still Issued By Default")
+    public void opaque() throws Exception {
+        MemoryAuthDAO auths = new MemoryAuthDAO();
+        AuthData auth = auths.issueAuth("alice");
+        Assertions.assertEquals(auth, auths.getAuth(auth.authToken()));
+        Assertions.assertEquals(-1, auth.authToken().indexOf('.'));
+    }
+}
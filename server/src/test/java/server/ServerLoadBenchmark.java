@@ -0,0 +1,104 @@
+package server;
+
+import dataaccess.DataAccess;
+import spark.Spark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Loads the server with many clients whose requests each block on a database-like wait, once with Spark's
+ * platform thread pool and once with virtual threads, and reports throughput and latency for each.
+ * <p>
+ * Each request sleeps for the given wait, standing in for a JDBC round trip. With more clients than Jetty's 200 platform
+ * threads, requests queue for a thread in platform mode. In virtual mode they only queue for whatever they actually
+ * wait on.
+ * <p>
+ * The clients run on platform threads. On virtual threads they would share carrier threads with the server's virtual
+ * threads in the second run only, and the time they spend waiting for a carrier would be counted as server latency.
+ * <p>
+ * Usage: {@code ServerLoadBenchmark [clients] [seconds] [waitMillis]}.
+ */
+public class ServerLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        long waitMillis = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        for (Server.Threads threads : Server.Threads.values()) {
+            Server server = new Server(DataAccess.memory(), threads);
+            int port = server.run(0);
+            Spark.get("/bench/query", (req, res) -> {
+                Thread.sleep(waitMillis);
+                return Long.toString(System.nanoTime() % 997);
+            });
+            try {
+                run(null, port, clients, seconds / 3); // warm-up, not reported
+                run(threads.name().toLowerCase(), port, clients, seconds);
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    private static void run(String name, int port, int clients, double seconds) throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bench/query")).build();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder errors = new LongAdder();
+        long[][] latencies = new long[clients][];
+        List<Thread> workers = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            workers.add(Thread.ofPlatform().start(() -> {
+                long[] times = new long[1024];
+                int count = 0;
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        long begin = System.nanoTime();
+                        try {
+                            if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                errors.increment();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                            continue;
+                        }
+                        if (count == times.length) { times = Arrays.copyOf(times, count * 2); }
+                        times[count++] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latencies[client] = Arrays.copyOf(times, count);
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep((long) (seconds * 1000));
+        stop.set(true);
+        for (Thread worker : workers) { worker.join(); }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (name != null && all.length > 0) {
+            System.out.printf("%-8s %5d clients: %,9.0f req/s  p50 %6.1f ms  p99 %7.1f ms  max %7.1f ms  errors %d%n",
+                    name, clients, all.length / elapsed, percentile(all, 0.50), percentile(all, 0.99), all[all.length - 1] / 1e6, errors.sum());
+        }
+        http.close();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+    }
+}
@@ -0,0 +1,61 @@
+package server;
+
+import org.eclipse.jetty.util.thread.TryExecutor;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class VirtualThreadPoolTests {
+
+    @Test
+    @DisplayName("Tasks Run On Virtual Threads")
+    public void virtual() throws Exception {
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.start();
+        try {
+            AtomicBoolean virtual = new AtomicBoolean();
+            CountDownLatch done = new CountDownLatch(1);
+            pool.execute(() -> {
+                virtual.set(Thread.currentThread().isVirtual());
+                done.countDown();
+            });
+            Assertions.assertTrue(done.await(2, TimeUnit.SECONDS));
+            Assertions.assertTrue(virtual.get());
+            Assertions.assertFalse(TryExecutor.asTryExecutor(pool).tryExecute(() -> {}), "Jetty's selector should keep its thread");
+        } finally {
+            pool.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Blocked Tasks Do Not Hold Up Others")
+    public void manyBlocked() throws Exception {
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.start();
+        try {
+            int tasks = 10_000;
+            CountDownLatch release = new CountDownLatch(1), started = new CountDownLatch(tasks);
+            for (int i = 0; i < tasks; i++) {
+                pool.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            Assertions.assertTrue(started.await(10, TimeUnit.SECONDS), "Every task should start while the others wait");
+            Assertions.assertEquals(tasks, pool.getThreads());
+            Assertions.assertFalse(pool.isLowOnThreads());
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getThreads() > 0 && System.currentTimeMillis() < deadline) { Thread.sleep(5); }
+            Assertions.assertEquals(0, pool.getThreads());
+        } finally {
+            pool.stop();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PasswordHasherTests {
+
+    /** Blocks every hash until released, so the test decides when the pool is busy */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final PasswordHasher.Algorithm blocking = new PasswordHasher.Algorithm() {
+        public String hash(String password, int workFactor) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + workFactor + ":" + password;
+        }
+
+        public boolean check(String password, String hash) { return hash.endsWith(":" + password); }
+    };
+
+    @Test
+    @DisplayName("Hashes Match Their Passwords")
+    public void roundTrip() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(1, 4, 4))) {
+            String hash = hasher.hash("secret");
+            Assertions.assertNotEquals("secret", hash);
+            Assertions.assertTrue(hasher.matches("secret", hash));
+            Assertions.assertFalse(hasher.matches("guess", hash));
+            Assertions.assertFalse(hasher.matches("secret", "not a hash"));
+            PasswordHasher.Stats stats = hasher.stats();
+            Assertions.assertEquals(1, stats.hashes());
+            Assertions.assertEquals(3, stats.checks());
+            Assertions.assertTrue(stats.maxHashMillis() >= stats.meanHashMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("A Full Queue Is Turned Away At Once")
+    public void rejects() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(this.blocking, new PasswordHasher.Settings(1, 2, 4))) {
+            AtomicInteger done = new AtomicInteger();
+            List<Thread> callers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) { // one hashing, two waiting
+                Thread caller = new Thread(() -> {
+                    try {
+                        hasher.hash("password");
+                        done.incrementAndGet();
+                    } catch (ServiceUnavailableException e) {
+                        Assertions.fail("Should have fit in the queue");
+                    }
+                });
+                caller.start();
+                callers.add(caller);
+            }
+            long deadline = System.currentTimeMillis() + 2000;
+            while (hasher.stats().queued() < 2 && System.currentTimeMillis() < deadline) { Thread.sleep(5); }
+            Assertions.assertEquals(2, hasher.stats().queued());
+            Assertions.assertEquals(1, hasher.stats().active());
+
+            long start = System.nanoTime();
+            Assertions.assertThrows(ServiceUnavailableException.class, () -> hasher.hash("password"));
+            Assertions.assertTrue(System.nanoTime() - start < 100_000_000L, "Rejection should not wait for the pool");
+            Assertions.assertEquals(1, hasher.stats().rejected());
+
+            this.release.countDown();
+            for (Thread caller : callers) { caller.join(); }
+            Assertions.assertEquals(3, done.get());
+            Assertions.assertEquals(2, hasher.stats().peakQueued());
+            Assertions.assertTrue(hasher.stats().meanWaitMillis() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("The Work Factor Is Passed Along")
+    public void workFactor() throws Exception {
+        this.release.countDown();
+        try (PasswordHasher hasher = new PasswordHasher(this.blocking, new PasswordHasher.Settings(1, 1, 12))) {
+            Assertions.assertEquals("hash:12:pw", hasher.hash("pw"));
+        }
+    }
+
+    @Test
+    @DisplayName("Settings Come From Properties")
+    public void settings() {
+        Properties props = new Properties();
+        props.setProperty("auth.bcrypt.threads", "3");
+        props.setProperty("auth.bcrypt.workFactor", "11");
+        Assertions.assertEquals(new PasswordHasher.Settings(3, 64, 11), PasswordHasher.Settings.from(props));
+        props.setProperty("auth.bcrypt.workFactor", "3");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PasswordHasher.Settings.from(props));
+    }
+}
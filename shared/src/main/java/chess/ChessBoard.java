@@ -21,6 +21,14 @@ public class ChessBoard {
      */
     public ChessPiece getPiece(ChessPosition position) { if (position.isValid()) { return this.Board[position.getRow()-1][position.getColumn()-1]; } return null; }
 
+    /** Gets a chess piece on the chessboard without building a ChessPosition
+     *
+     * @param row    the row to look in, from 1 to 8
+     * @param column the column to look in, from 1 to 8
+     * @return Either the piece at the square, or null if no piece is there
+     */
+    ChessPiece getPiece(int row, int column) { return this.Board[row-1][column-1]; }
+
     /** Removes a chess piece from the chessboard
      * @param position The position to remove the piece from
      */
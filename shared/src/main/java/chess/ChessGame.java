@@ -1,4 +1,7 @@
 package chess;
+import chess.eval.LinearEvaluator;
+import chess.notation.San;
+import chess.search.CaptureResolver;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -6,6 +9,11 @@ import java.util.Collection;
 public class ChessGame {
     private TeamColor teamTurn;
     private ChessBoard board;
+    private transient Position position;
+    private transient CaptureResolver captureResolver;
+    private transient int[] legalMoves;
+    private transient int legalCount;
+    private transient long legalHash;
     public ChessGame() {
         this.teamTurn = TeamColor.WHITE;
         this.board = new ChessBoard();
@@ -141,6 +149,95 @@ public class ChessGame {
         return !this.isInCheck(teamColor) && isFutureInviable(teamColor, stalemate);
     }
 
+    /** Works out the material balance of the capture sequence a move starts, with both sides recapturing on the
+     * target square using their least valuable attacker first and stopping once recapturing would lose material
+     *
+     * @param move the capture (or quiet move) to evaluate
+     * @return centipawns won by the moving team, negative if the move hangs material, or 0 if there is no piece at the start
+     */
+    public int staticExchange(ChessMove move) {
+        ChessPiece movingPiece = this.board.getPiece(move.getStartPosition());
+        if (movingPiece == null) { return 0; }
+        Position position = this.loadPosition(movingPiece.getTeamColor());
+        return position.staticExchange(position.encode(move));
+    }
+
+    /** Plays out every profitable capture in the current position, letting either side stop capturing when that is
+     * better for it, and reports the resulting material balance
+     *
+     * @return centipawns the team whose turn it is will be ahead by once the captures are resolved
+     */
+    public int resolveCaptures() {
+        if (this.captureResolver == null) { this.captureResolver = new CaptureResolver(); }
+        return this.captureResolver.resolve(this.loadPosition(this.teamTurn));
+    }
+
+    /** Scores the current position with the tuned evaluation, without looking at any moves
+     *
+     * @return centipawns in favor of the team whose turn it is
+     */
+    public int evaluate() { return LinearEvaluator.builtIn().evaluate(this.loadPosition(this.teamTurn)); }
+
+    /** Writes a move in Standard Algebraic Notation, such as "Nbd7", "exd5" or "Qh4#"
+     *
+     * @param move the move to write, which must be legal for the team whose turn it is
+     * @param text where to write it
+     * @throws InvalidMoveException if the move is not legal
+     */
+    public void appendSan(ChessMove move, StringBuilder text) throws InvalidMoveException {
+        Position position = this.loadLegalMoves();
+        int packed = position.encode(move);
+        if (!this.isLegal(packed)) { throw new InvalidMoveException("Not a legal move: " + move); }
+        San.append(text, position, packed, this.legalMoves, this.legalCount);
+    }
+
+    /** Writes a move in Standard Algebraic Notation
+     *
+     * @param move the move to write, which must be legal for the team whose turn it is
+     * @return the move's text
+     * @throws InvalidMoveException if the move is not legal
+     */
+    public String toSan(ChessMove move) throws InvalidMoveException {
+        StringBuilder text = new StringBuilder(8);
+        this.appendSan(move, text);
+        return text.toString();
+    }
+
+    /** Reads a move in Standard Algebraic Notation for the team whose turn it is
+     *
+     * @param text the move, such as "Nf3" or "e8=Q+"
+     * @return the move it names
+     * @throws InvalidMoveException if the text names no legal move, or more than one
+     */
+    public ChessMove parseSan(CharSequence text) throws InvalidMoveException {
+        this.loadLegalMoves();
+        int move = San.parse(text, this.legalMoves, this.legalCount);
+        if (move == 0) { throw new InvalidMoveException("Not a legal move: " + text); }
+        return Position.decode(move);
+    }
+
+    /** Loads the board and works out its legal moves, reusing the last list if the board has not changed since */
+    private Position loadLegalMoves() {
+        Position position = this.loadPosition(this.teamTurn);
+        if (this.legalMoves == null) { this.legalMoves = new int[2 * Position.MAX_MOVES]; }
+        else if (position.hash() == this.legalHash) { return position; }
+        this.legalCount = position.generateLegal(this.legalMoves, 0);
+        this.legalHash = position.hash();
+        return position;
+    }
+
+    private boolean isLegal(int move) {
+        for (int i = 0; i < this.legalCount; i++) {
+            if (this.legalMoves[i] == move) { return true; }
+        }
+        return false;
+    }
+
+    private Position loadPosition(TeamColor turn) {
+        if (this.position == null) { this.position = new Position(); }
+        return this.position.load(this.board, turn);
+    }
+
     /** Sets this game's chessboard with a given board
      * @param board the new board to use
      */
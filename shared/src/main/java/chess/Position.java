@@ -0,0 +1,506 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/** A compact mailbox copy of a chessboard used for fast move generation, exchange evaluation and search.
+ * <p>
+ * Squares are indexed 0-63 as (row-1)*8 + (column-1). Pieces are small integer codes: a piece type from
+ * {@link #PAWN} to {@link #KING}, with {@link #BLACK_BIT} set for black pieces and 0 for an empty square.
+ * Moves are packed into a single int (see {@link #move}) so that generating, making and unmaking them allocates nothing.
+ * The rules match {@link ChessGame}: no castling and no en passant.
+ */
+public final class Position {
+    public static final int PAWN = 1, KNIGHT = 2, BISHOP = 3, ROOK = 4, QUEEN = 5, KING = 6;
+    public static final int BLACK_BIT = 8;
+    public static final int WHITE = 0, BLACK = 1;
+    public static final int MAX_MOVES = 256;
+
+    /** Centipawn value of each piece type, indexed by type */
+    public static final int[] VALUE = { 0, 100, 320, 330, 500, 900, 20000 };
+
+    static final int[][] KNIGHT_TARGETS = new int[64][];
+    static final int[][] KING_TARGETS = new int[64][];
+    /** Squares along each ray, indexed [square][direction]; directions 0-3 are orthogonal and 4-7 diagonal */
+    static final int[][][] RAYS = new int[64][8][];
+    private static final int[] DIRECTION_ROW = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] DIRECTION_COL = { 0, 0, 1, -1, 1, -1, 1, -1 };
+    private static final int[] PROMOTIONS = { QUEEN, ROOK, BISHOP, KNIGHT };
+
+    static final long[][] ZOBRIST = new long[16][64];
+    static final long ZOBRIST_BLACK_TO_MOVE;
+
+    static {
+        int[][] knightSteps = { {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2} };
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >> 3, col = sq & 7;
+            KNIGHT_TARGETS[sq] = targets(row, col, knightSteps);
+            int[][] kingSteps = new int[8][];
+            for (int d = 0; d < 8; d++) { kingSteps[d] = new int[] { DIRECTION_ROW[d], DIRECTION_COL[d] }; }
+            KING_TARGETS[sq] = targets(row, col, kingSteps);
+            for (int d = 0; d < 8; d++) {
+                int length = 0;
+                for (int r = row + DIRECTION_ROW[d], c = col + DIRECTION_COL[d]; r >= 0 && r < 8 && c >= 0 && c < 8; r += DIRECTION_ROW[d], c += DIRECTION_COL[d]) { length++; }
+                RAYS[sq][d] = new int[length];
+                for (int i = 0; i < length; i++) { RAYS[sq][d][i] = (row + DIRECTION_ROW[d] * (i + 1)) * 8 + col + DIRECTION_COL[d] * (i + 1); }
+            }
+        }
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (long[] keys : ZOBRIST) { for (int sq = 0; sq < 64; sq++) { keys[sq] = random.nextLong(); } }
+        ZOBRIST_BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private static int[] targets(int row, int col, int[][] steps) {
+        int[] buffer = new int[steps.length];
+        int count = 0;
+        for (int[] step : steps) {
+            int r = row + step[0], c = col + step[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) { buffer[count++] = r * 8 + c; }
+        }
+        return java.util.Arrays.copyOf(buffer, count);
+    }
+
+    private final int[] squares = new int[64];
+    private final int[] kingSquare = new int[2];
+    private final int[] material = new int[2];
+    private final int[] exchangeGain = new int[40];
+    private int sideToMove;
+    private long hash;
+    private Listener listener;
+
+    /** Told about every piece placed on or taken off the board, such as to keep an evaluator's state in step */
+    public interface Listener {
+        void added(int sq, int piece);
+        void removed(int sq, int piece);
+        /** Called after the whole board is replaced at once, by {@link #clear} or {@link #copyFrom} */
+        void reset(Position position);
+    }
+
+    public Position() { this.clear(); }
+
+    /** @param listener told about every change to the pieces from now on, or null for none */
+    public void setListener(Listener listener) { this.listener = listener; }
+    public Listener listener() { return this.listener; }
+
+    /** Copies the pieces of a chessboard into this position
+     *
+     * @param board the board to copy
+     * @param turn  the team to move
+     * @return this position
+     */
+    public Position load(ChessBoard board, ChessGame.TeamColor turn) {
+        this.clear();
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPiece piece = board.getPiece((sq >> 3) + 1, (sq & 7) + 1);
+            if (piece != null) { this.put(sq, code(piece)); }
+        }
+        if (turn == ChessGame.TeamColor.BLACK) { this.sideToMove = BLACK; this.hash ^= ZOBRIST_BLACK_TO_MOVE; }
+        return this;
+    }
+
+    /** Copies another position into this one
+     * @return this position
+     */
+    public Position copyFrom(Position other) {
+        System.arraycopy(other.squares, 0, this.squares, 0, 64);
+        this.kingSquare[WHITE] = other.kingSquare[WHITE];
+        this.kingSquare[BLACK] = other.kingSquare[BLACK];
+        this.material[WHITE] = other.material[WHITE];
+        this.material[BLACK] = other.material[BLACK];
+        this.sideToMove = other.sideToMove;
+        this.hash = other.hash;
+        if (this.listener != null) { this.listener.reset(this); }
+        return this;
+    }
+
+    /** Removes every piece and gives white the move */
+    public void clear() {
+        java.util.Arrays.fill(this.squares, 0);
+        this.kingSquare[WHITE] = -1;
+        this.kingSquare[BLACK] = -1;
+        this.material[WHITE] = 0;
+        this.material[BLACK] = 0;
+        this.sideToMove = WHITE;
+        this.hash = 0;
+        if (this.listener != null) { this.listener.reset(this); }
+    }
+
+    /** Places a piece code on an empty square */
+    public void put(int sq, int piece) {
+        this.squares[sq] = piece;
+        this.hash ^= ZOBRIST[piece][sq];
+        if (type(piece) == KING) { this.kingSquare[color(piece)] = sq; }
+        else { this.material[color(piece)] += VALUE[type(piece)]; }
+        if (this.listener != null) { this.listener.added(sq, piece); }
+    }
+
+    /** Removes whatever piece is on a square */
+    public void remove(int sq) {
+        int piece = this.squares[sq];
+        if (piece == 0) { return; }
+        this.squares[sq] = 0;
+        this.hash ^= ZOBRIST[piece][sq];
+        if (type(piece) == KING) { this.kingSquare[color(piece)] = -1; }
+        else { this.material[color(piece)] -= VALUE[type(piece)]; }
+        if (this.listener != null) { this.listener.removed(sq, piece); }
+    }
+
+    /** Writes this position's pieces onto a chessboard, replacing whatever was there */
+    public void store(ChessBoard board) {
+        for (int sq = 0; sq < 64; sq++) {
+            ChessPosition position = new ChessPosition((sq >> 3) + 1, (sq & 7) + 1);
+            if (this.squares[sq] == 0) { board.removePiece(position); }
+            else { board.addPiece(position, new ChessPiece(teamColor(color(this.squares[sq])), pieceType(type(this.squares[sq])))); }
+        }
+    }
+
+    public int pieceAt(int sq) { return this.squares[sq]; }
+    public int sideToMove() { return this.sideToMove; }
+    public ChessGame.TeamColor teamToMove() { return teamColor(this.sideToMove); }
+    public long hash() { return this.hash; }
+    /** @return the hash of where the pieces stand, the same whichever side is to move */
+    public long boardHash() { return this.sideToMove == BLACK ? this.hash ^ ZOBRIST_BLACK_TO_MOVE : this.hash; }
+    public int kingSquare(int color) { return this.kingSquare[color]; }
+    /** @return the total value of a side's pieces other than its king */
+    public int material(int color) { return this.material[color]; }
+
+    /** Passes the move to the other side without moving a piece */
+    public void flipSideToMove() { this.sideToMove ^= 1; this.hash ^= ZOBRIST_BLACK_TO_MOVE; }
+
+    /** Makes a move generated for this position. The move must be undone with {@link #unmake} before any earlier move is. */
+    public void make(int move) {
+        int from = from(move), to = to(move), piece = piece(move), captured = captured(move);
+        int placed = promotion(move) == 0 ? piece : promotion(move) | (piece & BLACK_BIT);
+        int us = this.sideToMove;
+        if (captured != 0) {
+            this.hash ^= ZOBRIST[captured][to];
+            if (type(captured) == KING) { this.kingSquare[us ^ 1] = -1; }
+            else { this.material[us ^ 1] -= VALUE[type(captured)]; }
+        }
+        this.squares[from] = 0;
+        this.squares[to] = placed;
+        this.hash ^= ZOBRIST[piece][from] ^ ZOBRIST[placed][to] ^ ZOBRIST_BLACK_TO_MOVE;
+        if (type(piece) == KING) { this.kingSquare[us] = to; }
+        if (placed != piece) { this.material[us] += VALUE[type(placed)] - VALUE[PAWN]; }
+        this.sideToMove = us ^ 1;
+        if (this.listener != null) {
+            if (captured != 0) { this.listener.removed(to, captured); }
+            this.listener.removed(from, piece);
+            this.listener.added(to, placed);
+        }
+    }
+
+    /** @return the hash this position would have after a move, without making it */
+    public long hashAfter(int move) {
+        int piece = piece(move), captured = captured(move);
+        int placed = promotion(move) == 0 ? piece : promotion(move) | (piece & BLACK_BIT);
+        long hash = this.hash ^ ZOBRIST[piece][from(move)] ^ ZOBRIST[placed][to(move)] ^ ZOBRIST_BLACK_TO_MOVE;
+        return captured == 0 ? hash : hash ^ ZOBRIST[captured][to(move)];
+    }
+
+    /** Takes back a move made with {@link #make} */
+    public void unmake(int move) {
+        int from = from(move), to = to(move), piece = piece(move), captured = captured(move);
+        int placed = promotion(move) == 0 ? piece : promotion(move) | (piece & BLACK_BIT);
+        int us = this.sideToMove ^ 1;
+        this.squares[from] = piece;
+        this.squares[to] = captured;
+        this.hash ^= ZOBRIST[piece][from] ^ ZOBRIST[placed][to] ^ ZOBRIST_BLACK_TO_MOVE;
+        if (captured != 0) {
+            this.hash ^= ZOBRIST[captured][to];
+            if (type(captured) == KING) { this.kingSquare[us ^ 1] = to; }
+            else { this.material[us ^ 1] += VALUE[type(captured)]; }
+        }
+        if (type(piece) == KING) { this.kingSquare[us] = from; }
+        if (placed != piece) { this.material[us] -= VALUE[type(placed)] - VALUE[PAWN]; }
+        this.sideToMove = us;
+        if (this.listener != null) {
+            this.listener.removed(to, placed);
+            this.listener.added(from, piece);
+            if (captured != 0) { this.listener.added(to, captured); }
+        }
+    }
+
+    /** Writes every pseudo-legal move for the side to move into a buffer
+     *
+     * @param moves        buffer to write into, which must have room for {@link #MAX_MOVES} moves past offset
+     * @param offset       index of the first move to write
+     * @param capturesOnly whether to generate only captures and promotions
+     * @return the index just past the last move written
+     */
+    public int generate(int[] moves, int offset, boolean capturesOnly) {
+        int us = this.sideToMove;
+        int n = offset;
+        for (int from = 0; from < 64; from++) {
+            int piece = this.squares[from];
+            if (piece == 0 || color(piece) != us) { continue; }
+            switch (type(piece)) {
+                case PAWN -> n = this.generatePawn(moves, n, from, piece, capturesOnly);
+                case KNIGHT -> n = this.generateSteps(moves, n, from, piece, KNIGHT_TARGETS[from], capturesOnly);
+                case KING -> n = this.generateSteps(moves, n, from, piece, KING_TARGETS[from], capturesOnly);
+                case BISHOP -> n = this.generateRays(moves, n, from, piece, 4, 8, capturesOnly);
+                case ROOK -> n = this.generateRays(moves, n, from, piece, 0, 4, capturesOnly);
+                case QUEEN -> n = this.generateRays(moves, n, from, piece, 0, 8, capturesOnly);
+            }
+        }
+        return n;
+    }
+
+    private int generatePawn(int[] moves, int n, int from, int piece, boolean capturesOnly) {
+        int forward = color(piece) == WHITE ? 8 : -8;
+        int row = from >> 3, col = from & 7;
+        int startRow = color(piece) == WHITE ? 1 : 6;
+        int lastRow = color(piece) == WHITE ? 6 : 1;
+        if (row == (color(piece) == WHITE ? 7 : 0)) { return n; } // a loaded board may have a pawn on the far rank, which cannot move
+        int to = from + forward;
+        if (this.squares[to] == 0) {
+            if (row == lastRow) { n = promotions(moves, n, from, to, piece, 0); }
+            else if (!capturesOnly) {
+                moves[n++] = move(from, to, piece, 0, 0);
+                if (row == startRow && this.squares[to + forward] == 0) { moves[n++] = move(from, to + forward, piece, 0, 0); }
+            }
+        }
+        for (int side = -1; side <= 1; side += 2) {
+            if (col + side < 0 || col + side > 7) { continue; }
+            int target = to + side;
+            int captured = this.squares[target];
+            if (captured == 0 || color(captured) == color(piece)) { continue; }
+            if (row == lastRow) { n = promotions(moves, n, from, target, piece, captured); }
+            else { moves[n++] = move(from, target, piece, captured, 0); }
+        }
+        return n;
+    }
+
+    private static int promotions(int[] moves, int n, int from, int to, int piece, int captured) {
+        for (int promotion : PROMOTIONS) { moves[n++] = move(from, to, piece, captured, promotion); }
+        return n;
+    }
+
+    private int generateSteps(int[] moves, int n, int from, int piece, int[] targets, boolean capturesOnly) {
+        for (int to : targets) {
+            int captured = this.squares[to];
+            if (captured == 0 ? !capturesOnly : color(captured) != color(piece)) { moves[n++] = move(from, to, piece, captured, 0); }
+        }
+        return n;
+    }
+
+    private int generateRays(int[] moves, int n, int from, int piece, int firstDirection, int lastDirection, boolean capturesOnly) {
+        for (int d = firstDirection; d < lastDirection; d++) {
+            for (int to : RAYS[from][d]) {
+                int captured = this.squares[to];
+                if (captured == 0) {
+                    if (!capturesOnly) { moves[n++] = move(from, to, piece, 0, 0); }
+                    continue;
+                }
+                if (color(captured) != color(piece)) { moves[n++] = move(from, to, piece, captured, 0); }
+                break;
+            }
+        }
+        return n;
+    }
+
+    /** Counts the squares the piece on a square attacks that are not occupied by its own side's pieces
+     * @return the count, or 0 for an empty square or a pawn
+     */
+    public int mobility(int sq) {
+        int piece = this.squares[sq];
+        return switch (type(piece)) {
+            case KNIGHT -> this.countSteps(piece, KNIGHT_TARGETS[sq]);
+            case KING -> this.countSteps(piece, KING_TARGETS[sq]);
+            case BISHOP -> this.countRays(sq, piece, 4, 8);
+            case ROOK -> this.countRays(sq, piece, 0, 4);
+            case QUEEN -> this.countRays(sq, piece, 0, 8);
+            default -> 0;
+        };
+    }
+
+    private int countSteps(int piece, int[] targets) {
+        int count = 0;
+        for (int to : targets) { if (this.squares[to] == 0 || color(this.squares[to]) != color(piece)) { count++; } }
+        return count;
+    }
+
+    private int countRays(int from, int piece, int firstDirection, int lastDirection) {
+        int count = 0;
+        for (int d = firstDirection; d < lastDirection; d++) {
+            for (int to : RAYS[from][d]) {
+                int occupant = this.squares[to];
+                if (occupant == 0) { count++; continue; }
+                if (color(occupant) != color(piece)) { count++; }
+                break;
+            }
+        }
+        return count;
+    }
+
+    /** @return true if the side that just moved did not leave its own king attacked */
+    public boolean wasLegal() {
+        int king = this.kingSquare[this.sideToMove ^ 1];
+        return king < 0 || !this.isAttacked(king, this.sideToMove);
+    }
+
+    /** @return true if the side to move has its king attacked */
+    public boolean inCheck() {
+        int king = this.kingSquare[this.sideToMove];
+        return king < 0 ? false : this.isAttacked(king, this.sideToMove ^ 1);
+    }
+
+    /** Writes every legal move for the side to move into a buffer
+     * @return the index just past the last move written
+     */
+    public int generateLegal(int[] moves, int offset) {
+        int end = this.generate(moves, offset, false);
+        int n = offset;
+        for (int i = offset; i < end; i++) {
+            this.make(moves[i]);
+            if (this.wasLegal()) { moves[n++] = moves[i]; }
+            this.unmake(moves[i]);
+        }
+        return n;
+    }
+
+    /** @return true if the side to move has at least one legal move */
+    public boolean hasLegalMove(int[] scratch, int offset) {
+        int end = this.generate(scratch, offset, false);
+        for (int i = offset; i < end; i++) {
+            this.make(scratch[i]);
+            boolean legal = this.wasLegal();
+            this.unmake(scratch[i]);
+            if (legal) { return true; }
+        }
+        return false;
+    }
+
+    /** Determines if a square is attacked by a side
+     *
+     * @param sq    the square to look at
+     * @param color the attacking side
+     * @return true if any piece of that color could capture on the square
+     */
+    public boolean isAttacked(int sq, int color) {
+        return this.leastValuableAttacker(sq, color, 0L) >= 0;
+    }
+
+    /** Finds the cheapest piece of a side attacking a square, treating pieces on removed squares as gone so that
+     * sliders behind them are revealed.
+     *
+     * @return the square of the attacker, or -1 if there is none
+     */
+    private int leastValuableAttacker(int sq, int color, long removed) {
+        int colorBit = color == WHITE ? 0 : BLACK_BIT;
+        int row = sq >> 3, col = sq & 7;
+        int pawnRow = color == WHITE ? row - 1 : row + 1;
+        if (pawnRow >= 0 && pawnRow < 8) {
+            for (int side = -1; side <= 1; side += 2) {
+                if (col + side < 0 || col + side > 7) { continue; }
+                int from = pawnRow * 8 + col + side;
+                if (this.squares[from] == (PAWN | colorBit) && (removed & (1L << from)) == 0) { return from; }
+            }
+        }
+        for (int from : KNIGHT_TARGETS[sq]) {
+            if (this.squares[from] == (KNIGHT | colorBit) && (removed & (1L << from)) == 0) { return from; }
+        }
+        int best = -1, bestValue = Integer.MAX_VALUE;
+        for (int d = 0; d < 8; d++) {
+            for (int from : RAYS[sq][d]) {
+                int piece = this.squares[from];
+                if (piece == 0 || (removed & (1L << from)) != 0) { continue; }
+                int type = type(piece);
+                boolean slides = type == QUEEN || (d < 4 ? type == ROOK : type == BISHOP);
+                if (slides && (piece & BLACK_BIT) == colorBit && VALUE[type] < bestValue) { best = from; bestValue = VALUE[type]; }
+                break;
+            }
+        }
+        if (best >= 0) { return best; }
+        for (int from : KING_TARGETS[sq]) {
+            if (this.squares[from] == (KING | colorBit) && (removed & (1L << from)) == 0) { return from; }
+        }
+        return -1;
+    }
+
+    /** Statically evaluates the capture sequence a move starts on its target square. Both sides keep recapturing
+     * with their least valuable attacker, and either may stop as soon as continuing would lose material.
+     *
+     * @param move a move for the side to move
+     * @return centipawns gained by the side making the move, negative if the exchange loses material
+     */
+    public int staticExchange(int move) {
+        int to = to(move);
+        int[] gain = this.exchangeGain;
+        int attackerValue = promotion(move) == 0 ? VALUE[type(piece(move))] : VALUE[promotion(move)];
+        gain[0] = VALUE[type(captured(move))] + (promotion(move) == 0 ? 0 : VALUE[promotion(move)] - VALUE[PAWN]);
+        long removed = 1L << from(move);
+        int side = color(piece(move)) ^ 1;
+        int depth = 0;
+        while (depth < gain.length - 1) {
+            int from = this.leastValuableAttacker(to, side, removed);
+            if (from < 0) { break; }
+            if (type(this.squares[from]) == KING && this.leastValuableAttacker(to, side ^ 1, removed | (1L << from)) >= 0) { break; } // the king may not recapture into an attack
+            depth++;
+            gain[depth] = attackerValue - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) { break; }
+            removed |= 1L << from;
+            attackerValue = VALUE[type(this.squares[from])];
+            side ^= 1;
+        }
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    /** Packs a ChessMove into this position's move format without checking that it is legal
+     * @return the packed move, or 0 if there is no piece on the starting square
+     */
+    public int encode(ChessMove move) {
+        int from = square(move.getStartPosition()), to = square(move.getEndPosition());
+        if (from < 0 || to < 0 || this.squares[from] == 0) { return 0; }
+        int promotion = move.getPromotionPiece() == null ? 0 : code(move.getPromotionPiece());
+        return move(from, to, this.squares[from], this.squares[to], promotion);
+    }
+
+    /** @return the ChessMove matching a packed move */
+    public static ChessMove decode(int move) {
+        return new ChessMove(position(from(move)), position(to(move)), promotion(move) == 0 ? null : pieceType(promotion(move)));
+    }
+
+    public static int move(int from, int to, int piece, int captured, int promotion) {
+        return from | to << 6 | promotion << 12 | captured << 15 | piece << 19;
+    }
+    public static int from(int move) { return move & 63; }
+    public static int to(int move) { return (move >>> 6) & 63; }
+    public static int promotion(int move) { return (move >>> 12) & 7; }
+    public static int captured(int move) { return (move >>> 15) & 15; }
+    public static int piece(int move) { return (move >>> 19) & 15; }
+
+    public static int type(int piece) { return piece & 7; }
+    public static int color(int piece) { return piece >>> 3; }
+
+    /** @return the square index of a position, or -1 if it is off the board */
+    public static int square(ChessPosition position) { return position.isValid() ? (position.getRow() - 1) * 8 + position.getColumn() - 1 : -1; }
+    public static ChessPosition position(int sq) { return new ChessPosition((sq >> 3) + 1, (sq & 7) + 1); }
+
+    /** @return the piece code for a ChessPiece */
+    public static int code(ChessPiece piece) { return code(piece.getPieceType()) | (piece.getTeamColor() == ChessGame.TeamColor.BLACK ? BLACK_BIT : 0); }
+    public static int code(ChessPiece.PieceType type) {
+        return switch (type) {
+            case PAWN -> PAWN;
+            case KNIGHT -> KNIGHT;
+            case BISHOP -> BISHOP;
+            case ROOK -> ROOK;
+            case QUEEN -> QUEEN;
+            case KING -> KING;
+        };
+    }
+    public static ChessPiece.PieceType pieceType(int type) {
+        return switch (type) {
+            case PAWN -> ChessPiece.PieceType.PAWN;
+            case KNIGHT -> ChessPiece.PieceType.KNIGHT;
+            case BISHOP -> ChessPiece.PieceType.BISHOP;
+            case ROOK -> ChessPiece.PieceType.ROOK;
+            case QUEEN -> ChessPiece.PieceType.QUEEN;
+            default -> ChessPiece.PieceType.KING;
+        };
+    }
+    public static ChessGame.TeamColor teamColor(int color) { return color == WHITE ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK; }
+}
@@ -0,0 +1,339 @@
+package chess.archive;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Position;
+import chess.notation.Fen;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/** An inverted index from positions to the IDs of the stored games that reached them, for finding every game that
+ * passed through a board.
+ * <p>
+ * Positions are keyed by {@link Position#boardHash()}, so a board matches whichever side was to move. Finished games
+ * are added one at a time into a table in memory, which holds at most a set number of postings. When the table is
+ * full it is written out as a new {@link Segment} file, and the newest segments are merged whenever the one before
+ * them is no more than {@link #MERGE_RATIO} times their size together. Segment sizes so grow geometrically from the
+ * newest to the oldest, so memory stays bounded however many games are added, a query reads a number of files that
+ * grows with the log of the index's size, and each posting is rewritten a logarithmic number of times rather than on
+ * every merge. Posting lists on disk are delta-encoded varints, so a game ID usually costs one or two bytes.
+ * <p>
+ * Queries may run on any number of threads alongside one adding thread. Games added since the last {@link #flush()}
+ * are only in memory, so a caller that cannot lose them flushes after adding, or re-adds them after a restart.
+ */
+public class PositionIndex implements Closeable {
+    /** How many times larger than the newer segments together a segment must be to be left out of their merge */
+    static final int MERGE_RATIO = 2;
+    private static final String PREFIX = "positions-", SUFFIX = ".seg";
+    private static final Position START = Fen.parse(Fen.START);
+    private final Path directory;
+    private final int maxPostings;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile List<Segment> segments = List.of();
+    private long nextSegment;
+    private MemoryTable memory;
+    private final Position position = new Position();
+    private long[] gameKeys = new long[256];
+    private final int[] legal = new int[Position.MAX_MOVES];
+
+    /** Opens the index kept in a directory, creating an empty one if there is none
+     *
+     * @param directory   where the segment files live
+     * @param maxPostings how many game and position pairs to hold in memory before writing them out, each taking
+     *                    about 20 bytes
+     * @throws IOException if the directory holds a segment that cannot be read
+     */
+    public PositionIndex(Path directory, int maxPostings) throws IOException {
+        if (maxPostings < 1) { throw new IllegalArgumentException("Need room for at least one posting"); }
+        this.directory = directory;
+        this.maxPostings = maxPostings;
+        this.memory = new MemoryTable(maxPostings);
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX + ".*")) {
+            for (Path file : files) { Files.delete(file); } // left by a crash while a segment was being written
+        }
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        numbers.sort(null);
+        List<Segment> segments = new ArrayList<>();
+        try {
+            for (long number : numbers) { segments.add(new Segment(this.segmentFile(number))); }
+        } catch (IOException e) {
+            for (Segment segment : segments) { segment.close(); }
+            throw e;
+        }
+        this.segments = List.copyOf(segments);
+        this.nextSegment = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1) + 1;
+    }
+
+    /** Adds a finished game played from the standard starting position
+     *
+     * @param gameId the game's ID, which must not be negative
+     * @param moves  the moves played
+     * @throws InvalidMoveException if a move is not legal where it is played
+     */
+    public void add(int gameId, List<ChessMove> moves) throws InvalidMoveException, IOException { this.add(gameId, START, moves); }
+
+    /** Adds a finished game, indexing every position it reached including the first and the last
+     *
+     * @param gameId the game's ID, which must not be negative
+     * @param start  the position the game started from, which is not changed
+     * @param moves  the moves played
+     * @throws InvalidMoveException if a move is not legal where it is played
+     */
+    public void add(int gameId, Position start, List<ChessMove> moves) throws InvalidMoveException, IOException {
+        if (gameId < 0) { throw new IllegalArgumentException("Negative game ID " + gameId); }
+        synchronized (this.position) { // one adder at a time, without holding up queries
+            Position position = this.position.copyFrom(start);
+            long[] keys = this.gameKeys;
+            if (keys.length <= moves.size()) { keys = this.gameKeys = new long[moves.size() * 2 + 1]; }
+            int count = 0;
+            keys[count++] = position.boardHash();
+            int[] legal = this.legal;
+            for (ChessMove chessMove : moves) {
+                int move = position.encode(chessMove);
+                if (!contains(legal, position.generateLegal(legal, 0), move)) { throw new InvalidMoveException("Not a legal move: " + chessMove); }
+                position.make(move);
+                keys[count++] = position.boardHash();
+            }
+            Arrays.sort(keys, 0, count); // a game may pass through a position more than once, but is listed once
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || keys[unique - 1] != keys[i]) { keys[unique++] = keys[i]; }
+            }
+            for (int i = 0; i < unique; ) {
+                if (this.memory.postings == this.maxPostings) { this.flush(); }
+                int end = Math.min(unique, i + this.maxPostings - this.memory.postings);
+                this.lock.writeLock().lock();
+                try {
+                    for (; i < end; i++) { this.memory.add(keys[i], gameId); }
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /** Finds every game that reached a board, with either side to move
+     *
+     * @return the games' IDs in ascending order
+     */
+    public int[] find(ChessBoard board) throws IOException { return this.find(new Position().load(board, ChessGame.TeamColor.WHITE).boardHash()); }
+
+    /** Finds every game that reached a position's board, with either side to move
+     *
+     * @return the games' IDs in ascending order
+     */
+    public int[] find(Position position) throws IOException { return this.find(position.boardHash()); }
+
+    private int[] find(long key) throws IOException {
+        Segment.IdList ids = new Segment.IdList();
+        this.lock.readLock().lock();
+        try {
+            for (Segment segment : this.segments) {
+                long index = segment.find(key);
+                if (index >= 0) { segment.read(index, ids); }
+            }
+            this.memory.read(key, ids);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        ids.sortUnique();
+        return Arrays.copyOf(ids.ids, ids.size);
+    }
+
+    /** Writes the games held in memory out to a new segment, merging it with the newest segments if they are close to
+     * the size of the one before them
+     */
+    public void flush() throws IOException {
+        synchronized (this.position) {
+            if (this.memory.postings == 0) { return; }
+            Path file = this.segmentFile(this.nextSegment++);
+            try (Segment.Writer writer = new Segment.Writer(file)) {
+                this.memory.write(writer);
+                writer.finish();
+            }
+            Segment segment = new Segment(file);
+            this.lock.writeLock().lock();
+            try {
+                List<Segment> segments = new ArrayList<>(this.segments);
+                segments.add(segment);
+                this.segments = List.copyOf(segments);
+                this.memory = new MemoryTable(this.maxPostings);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            List<Segment> all = this.segments;
+            long[] sizes = new long[all.size()];
+            for (int i = 0; i < sizes.length; i++) { sizes[i] = all.get(i).size(); }
+            int run = mergeRun(sizes);
+            if (run > 1) { this.replace(all.subList(all.size() - run, all.size())); }
+        }
+    }
+
+    /** Merges every segment into one. Queries carry on against the old segments until the new one is ready. */
+    public void compact() throws IOException {
+        synchronized (this.position) {
+            if (this.segments.size() > 1) { this.replace(this.segments); }
+        }
+    }
+
+    /** Replaces the newest segments with one holding all their postings. Until the old files are deleted the new one
+     * repeats their postings, which queries drop as duplicates, so a crash in between loses nothing.
+     */
+    private void replace(List<Segment> old) throws IOException {
+        Path file = this.segmentFile(this.nextSegment++);
+        try (Segment.Writer writer = new Segment.Writer(file)) {
+            merge(old, writer);
+            writer.finish();
+        }
+        Segment merged = new Segment(file);
+        this.lock.writeLock().lock();
+        try {
+            List<Segment> segments = new ArrayList<>(this.segments);
+            segments.removeAll(old);
+            segments.add(merged);
+            this.segments = List.copyOf(segments);
+            for (Segment segment : old) { segment.close(); }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        for (Segment segment : old) { Files.deleteIfExists(segment.file); }
+    }
+
+    /** Picks the segments to merge after a flush: the longest run, counting back from the newest, in which each segment
+     * is at most {@link #MERGE_RATIO} times the size of the newer ones together
+     *
+     * @param sizes the segments' sizes, oldest first
+     * @return how many of the newest segments to merge, where 1 means none
+     */
+    static int mergeRun(long[] sizes) {
+        int run = 1;
+        long newer = sizes[sizes.length - 1];
+        for (int i = sizes.length - 2; i >= 0 && sizes[i] <= MERGE_RATIO * newer; i--) {
+            newer += sizes[i];
+            run++;
+        }
+        return run;
+    }
+
+    /** @return how many segment files the index is spread over */
+    public int segmentCount() { return this.segments.size(); }
+
+    /** Flushes the games held in memory and closes the segments */
+    @Override
+    public void close() throws IOException {
+        this.flush();
+        this.lock.writeLock().lock();
+        try {
+            for (Segment segment : this.segments) { segment.close(); }
+            this.segments = List.of();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private Path segmentFile(long number) { return this.directory.resolve(PREFIX + number + SUFFIX); }
+
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) { return true; }
+        }
+        return false;
+    }
+
+    /** Streams the union of several segments' posting lists, key by key, into a writer */
+    private static void merge(List<Segment> segments, Segment.Writer writer) throws IOException {
+        record Cursor(Segment segment, long[] index) {
+            long key() { return this.segment.key(this.index[0]); }
+        }
+        PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> Long.compareUnsigned(a.key(), b.key()));
+        for (Segment segment : segments) {
+            if (segment.keys() > 0) { queue.add(new Cursor(segment, new long[1])); }
+        }
+        Segment.IdList ids = new Segment.IdList();
+        while (!queue.isEmpty()) {
+            long key = queue.peek().key();
+            ids.size = 0;
+            while (!queue.isEmpty() && queue.peek().key() == key) {
+                Cursor cursor = queue.poll();
+                cursor.segment.read(cursor.index[0], ids);
+                if (++cursor.index[0] < cursor.segment.keys()) { queue.add(cursor); }
+            }
+            ids.sortUnique();
+            writer.add(key, ids.ids, ids.size);
+        }
+    }
+
+    /** Posting lists not yet written to a segment, as linked lists of game IDs in an open-addressed table of keys */
+    private static final class MemoryTable {
+        private final long[] keys;
+        private final int[] last; // the newest posting for each key, or -1 for an empty slot
+        private final int[] ids;
+        private final int[] previous;
+        int postings;
+
+        MemoryTable(int maxPostings) {
+            int slots = Integer.highestOneBit(Math.max(maxPostings, 8)) * 4;
+            this.keys = new long[slots];
+            this.last = new int[slots];
+            Arrays.fill(this.last, -1);
+            this.ids = new int[maxPostings];
+            this.previous = new int[maxPostings];
+        }
+
+        void add(long key, int gameId) {
+            int slot = this.slot(key);
+            this.keys[slot] = key;
+            this.ids[this.postings] = gameId;
+            this.previous[this.postings] = this.last[slot];
+            this.last[slot] = this.postings++;
+        }
+
+        void read(long key, Segment.IdList out) {
+            for (int posting = this.last[this.slot(key)]; posting >= 0; posting = this.previous[posting]) { out.add(this.ids[posting]); }
+        }
+
+        /** Writes every posting list, in key order, to a segment */
+        void write(Segment.Writer writer) throws IOException {
+            int count = 0;
+            long[] keys = new long[this.postings];
+            for (int slot = 0; slot < this.keys.length; slot++) {
+                if (this.last[slot] >= 0) { keys[count++] = this.keys[slot] ^ Long.MIN_VALUE; } // flipping the sign bit makes a signed sort unsigned
+            }
+            Arrays.sort(keys, 0, count);
+            Segment.IdList ids = new Segment.IdList();
+            for (int i = 0; i < count; i++) {
+                long key = keys[i] ^ Long.MIN_VALUE;
+                ids.size = 0;
+                this.read(key, ids);
+                ids.sortUnique();
+                writer.add(key, ids.ids, ids.size);
+            }
+        }
+
+        /** @return the slot holding a key, or the empty slot where it would go */
+        private int slot(long key) {
+            int mask = this.keys.length - 1;
+            int slot = (int) (key ^ key >>> 32) & mask;
+            while (this.last[slot] >= 0 && this.keys[slot] != key) { slot = (slot + 1) & mask; }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package chess.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/** One immutable file of a {@link PositionIndex}: posting lists for a set of position keys.
+ * <p>
+ * The file holds every posting list, then a directory of 16-byte entries sorted by key as an unsigned number, then a
+ * footer:
+ * <pre>
+ *   posting list: the list's ascending game IDs as varints, the first one whole and each later one as the gap to the one before
+ *   directory:    long key, long offset of its posting list
+ *   footer:       long directory offset, long key count, int version, int magic
+ * </pre>
+ * A list ends where the next key's list starts, or at the directory. The directory is memory-mapped, and each list
+ * is read with one positional read, so one segment can be searched by every thread at once.
+ * <p>
+ * A segment is written under a temporary name, synced, and then moved to its own name, so a file with a segment's
+ * name is always complete. A crash part way through leaves only a temporary file, which the next open deletes.
+ */
+final class Segment implements Closeable {
+    static final int MAGIC = 0x504F5349; // "POSI"
+    static final int VERSION = 1;
+    /** What is added to a segment's file name while it is being written */
+    static final String TEMPORARY = ".tmp";
+    private static final int ENTRY_SIZE = 16, FOOTER_SIZE = 24;
+    /** Directory entries per mapped part, since one mapping cannot pass 2 GB */
+    private static final long PART_ENTRIES = 1L << 26;
+    final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] directory;
+    private final long directoryOffset;
+    private final long keys;
+    private final long size;
+
+    Segment(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = this.size = this.channel.size();
+            if (size < FOOTER_SIZE) { throw new IOException("Not a position index segment: " + file); }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            while (footer.hasRemaining() && this.channel.read(footer, size - FOOTER_SIZE + footer.position()) > 0) {}
+            if (footer.getInt(20) != MAGIC || footer.getInt(16) != VERSION) { throw new IOException("Not a position index segment: " + file); }
+            this.directoryOffset = footer.getLong(0);
+            this.keys = footer.getLong(8);
+            if (this.directoryOffset + this.keys * ENTRY_SIZE + FOOTER_SIZE != size) { throw new IOException("Truncated position index segment: " + file); }
+            this.directory = new MappedByteBuffer[(int) ((this.keys + PART_ENTRIES - 1) / PART_ENTRIES)];
+            for (int i = 0; i < this.directory.length; i++) {
+                long first = i * PART_ENTRIES, count = Math.min(PART_ENTRIES, this.keys - first);
+                this.directory[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, this.directoryOffset + first * ENTRY_SIZE, count * ENTRY_SIZE);
+                this.directory[i].order(ByteOrder.BIG_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    long keys() { return this.keys; }
+    /** @return the file's length in bytes */
+    long size() { return this.size; }
+    long key(long index) { return this.directory[(int) (index / PART_ENTRIES)].getLong((int) (index % PART_ENTRIES) * ENTRY_SIZE); }
+    private long offset(long index) { return index == this.keys ? this.directoryOffset : this.directory[(int) (index / PART_ENTRIES)].getLong((int) (index % PART_ENTRIES) * ENTRY_SIZE + 8); }
+
+    /** @return the directory index of a key, or -1 if the segment does not have it */
+    long find(long key) {
+        long low = 0, high = this.keys;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            int order = Long.compareUnsigned(this.key(middle), key);
+            if (order == 0) { return middle; }
+            if (order < 0) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return -1;
+    }
+
+    /** Decodes the posting list at a directory index onto the end of a list */
+    void read(long index, IdList ids) throws IOException {
+        long start = this.offset(index), end = this.offset(index + 1);
+        ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(end - start));
+        while (bytes.hasRemaining()) {
+            if (this.channel.read(bytes, start + bytes.position()) < 0) { throw new IOException("Truncated position index segment: " + this.file); }
+        }
+        byte[] data = bytes.array();
+        int id = 0;
+        for (int i = 0; i < data.length; ) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[i++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) { break; }
+            }
+            id += value;
+            ids.add(id);
+        }
+    }
+
+    @Override
+    public void close() throws IOException { this.channel.close(); }
+
+    /** Writes a segment one key at a time, in ascending unsigned key order. Nothing appears under the segment's name
+     * until {@link #finish()} succeeds, and closing an unfinished writer deletes what it wrote.
+     */
+    static final class Writer implements Closeable {
+        private final Path file;
+        private final Path temporary;
+        private final Path directoryFile;
+        private final FileChannel channel;
+        private final CountingOutputStream postings;
+        private final DataOutputStream directory;
+        private long keys;
+        private boolean finished;
+
+        Writer(Path file) throws IOException {
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + TEMPORARY);
+            this.directoryFile = file.resolveSibling(file.getFileName() + ".dir");
+            this.channel = FileChannel.open(this.temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.postings = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(this.channel), 1 << 16));
+            try {
+                this.directory = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.directoryFile), 1 << 16));
+            } catch (IOException e) {
+                this.channel.close();
+                Files.deleteIfExists(this.temporary);
+                throw e;
+            }
+        }
+
+        /** Writes a key's posting list
+         * @param ids the game IDs, ascending and without repeats
+         */
+        void add(long key, int[] ids, int count) throws IOException {
+            this.directory.writeLong(key);
+            this.directory.writeLong(this.postings.count);
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                int gap = ids[i] - previous;
+                previous = ids[i];
+                while ((gap & ~0x7F) != 0) {
+                    this.postings.write((gap & 0x7F) | 0x80);
+                    gap >>>= 7;
+                }
+                this.postings.write(gap);
+            }
+            this.keys++;
+        }
+
+        /** Appends the directory and footer, syncs the file and moves it to the segment's name */
+        void finish() throws IOException {
+            this.directory.close();
+            long directoryOffset = this.postings.count;
+            try (FileChannel in = FileChannel.open(this.directoryFile, StandardOpenOption.READ)) {
+                this.postings.flush();
+                long size = in.size();
+                byte[] buffer = new byte[1 << 16];
+                ByteBuffer chunk = ByteBuffer.wrap(buffer);
+                for (long position = 0; position < size; ) {
+                    chunk.clear();
+                    int read = in.read(chunk, position);
+                    this.postings.write(buffer, 0, read);
+                    position += read;
+                }
+            }
+            DataOutputStream footer = new DataOutputStream(this.postings);
+            footer.writeLong(directoryOffset);
+            footer.writeLong(this.keys);
+            footer.writeInt(VERSION);
+            footer.writeInt(MAGIC);
+            footer.flush();
+            this.channel.force(true);
+            this.postings.close();
+            Files.move(this.temporary, this.file, StandardCopyOption.ATOMIC_MOVE);
+            this.finished = true;
+            try (FileChannel folder = FileChannel.open(this.file.getParent(), StandardOpenOption.READ)) {
+                folder.force(true); // so the new name survives a crash too
+            } catch (IOException e) {
+                // not every platform can open a directory to sync it
+            }
+            this.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                this.directory.close();
+                this.postings.close();
+            } finally {
+                Files.deleteIfExists(this.directoryFile);
+                if (!this.finished) { Files.deleteIfExists(this.temporary); }
+            }
+        }
+
+        Path file() { return this.file; }
+    }
+
+    /** A growable list of game IDs */
+    static final class IdList {
+        int[] ids = new int[16];
+        int size;
+
+        void add(int id) {
+            if (this.size == this.ids.length) { this.ids = Arrays.copyOf(this.ids, this.size * 2); }
+            this.ids[this.size++] = id;
+        }
+
+        /** Sorts the list and drops repeats */
+        void sortUnique() {
+            boolean sorted = true;
+            for (int i = 1; i < this.size && sorted; i++) { sorted = this.ids[i - 1] < this.ids[i]; }
+            if (sorted) { return; }
+            Arrays.sort(this.ids, 0, this.size);
+            int n = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (n == 0 || this.ids[n - 1] != this.ids[i]) { this.ids[n++] = this.ids[i]; }
+            }
+            this.size = n;
+        }
+    }
+
+    private static final class CountingOutputStream extends java.io.FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) { super(out); }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
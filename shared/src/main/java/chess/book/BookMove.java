@@ -0,0 +1,10 @@
+package chess.book;
+
+import chess.ChessMove;
+
+/** A move found in an opening book, with the relative weight the book gives it
+ *
+ * @param move   the book move
+ * @param weight how often the book recommends this move relative to the other moves for the same position
+ */
+public record BookMove(ChessMove move, int weight) {}
@@ -0,0 +1,126 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.Position;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/** A read-only opening explorer index, answering "what was played here, and how did it go" for positions from
+ * imported games. {@link ExplorerIndexBuilder} writes it.
+ * <p>
+ * The file is a header followed by 24-byte entries sorted by position key, as an unsigned number, then by move:
+ * <pre>
+ *   header: int magic, int version, long entry count, long[65537] index of the first entry for each top 16 key bits
+ *   entry:  long key, int move (from | to &lt;&lt; 6 | promotion &lt;&lt; 12), int white wins, int draws, int black wins
+ * </pre>
+ * The key is {@link Position#hash()}. Like {@link PolyglotBook} the entries are memory-mapped rather than read onto
+ * the heap and looked up with absolute reads only, so one index can be shared by every thread. The header's table
+ * narrows each lookup to the few entries sharing the key's top bits before the binary search.
+ */
+public class ExplorerIndex implements Closeable {
+    static final int MAGIC = 0x4558504C; // "EXPL"
+    static final int VERSION = 1;
+    static final int ENTRY_SIZE = 24;
+    static final int BUCKET_BITS = 16;
+    static final int HEADER_SIZE = 16 + 8 * ((1 << BUCKET_BITS) + 1);
+    /** Entries per mapped segment, since one mapping cannot pass 2 GB */
+    private static final long SEGMENT_ENTRIES = 1L << 26;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long[] bucketStart = new long[(1 << BUCKET_BITS) + 1];
+    private final long size;
+
+    /** Maps an index file into memory
+     *
+     * @param file the index to open
+     * @throws IOException if the file cannot be read or is not an explorer index
+     */
+    public ExplorerIndex(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && this.channel.read(header) >= 0) {}
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) { throw new IOException("Not an explorer index: " + file); }
+            this.size = header.getLong();
+            for (int i = 0; i < this.bucketStart.length; i++) { this.bucketStart[i] = header.getLong(); }
+            if (this.channel.size() != HEADER_SIZE + this.size * ENTRY_SIZE || this.bucketStart[this.bucketStart.length - 1] != this.size) { throw new IOException("Truncated explorer index: " + file); }
+            this.segments = new MappedByteBuffer[(int) ((this.size + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long first = i * SEGMENT_ENTRIES, count = Math.min(SEGMENT_ENTRIES, this.size - first);
+                this.segments[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * ENTRY_SIZE, count * ENTRY_SIZE);
+                this.segments[i].order(ByteOrder.BIG_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /** @return how many position and move pairs the index holds */
+    public long size() { return this.size; }
+
+    /** Finds the moves played from a game's current position
+     *
+     * @param game the game to look up
+     * @return the moves, most played first, or empty if the position is not in the index
+     */
+    public List<ExplorerMove> lookup(ChessGame game) { return this.lookup(new Position().load(game.getBoard(), game.getTeamTurn())); }
+
+    /** Finds the moves played from a position, leaving out any that are not legal in it
+     *
+     * @param position the position to look up, which is not changed
+     * @return the moves, most played first, or empty if the position is not in the index
+     */
+    public List<ExplorerMove> lookup(Position position) {
+        long key = position.hash();
+        List<ExplorerMove> moves = new ArrayList<>();
+        long index = this.firstEntry(key);
+        if (index >= this.size || this.key(index) != key) { return moves; }
+        int[] legalMoves = new int[Position.MAX_MOVES];
+        int legalCount = position.generateLegal(legalMoves, 0);
+        for (; index < this.size && this.key(index) == key; index++) {
+            ByteBuffer segment = this.segments[(int) (index / SEGMENT_ENTRIES)];
+            int offset = (int) (index % SEGMENT_ENTRIES) * ENTRY_SIZE;
+            int stored = segment.getInt(offset + 8);
+            for (int i = 0; i < legalCount; i++) {
+                if (compact(legalMoves[i]) == stored) {
+                    moves.add(new ExplorerMove(Position.decode(legalMoves[i]), segment.getInt(offset + 12), segment.getInt(offset + 16), segment.getInt(offset + 20)));
+                    break;
+                }
+            }
+        }
+        moves.sort(Comparator.comparingInt(ExplorerMove::games).reversed());
+        return moves;
+    }
+
+    /** @return the part of a packed move the index stores: its squares and promotion */
+    static int compact(int move) { return move & 0x7FFF; }
+
+    /** @return the index of the first entry whose key is not less than the given key */
+    private long firstEntry(long key) {
+        int bucket = (int) (key >>> (64 - BUCKET_BITS));
+        long low = this.bucketStart[bucket], high = this.bucketStart[bucket + 1];
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(this.key(middle), key) < 0) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return low;
+    }
+
+    private long key(long index) { return this.segments[(int) (index / SEGMENT_ENTRIES)].getLong((int) (index % SEGMENT_ENTRIES) * ENTRY_SIZE); }
+
+    @Override
+    public void close() throws IOException { this.channel.close(); }
+}
@@ -0,0 +1,405 @@
+package chess.book;
+
+import chess.ChessMove;
+import chess.Position;
+import chess.notation.Fen;
+import chess.notation.PgnGame;
+import chess.notation.PgnImporter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Builds an {@link ExplorerIndex} from PGN files with a parallel external sort, so the games never need to fit in
+ * memory.
+ * <p>
+ * Each import thread counts results per position and move in a fixed-size hash table of its own. When the table
+ * fills up, the thread sorts it and writes it out as a sorted run. Once every game is read, the key space is cut into
+ * ranges along the index's buckets, and each range of every run is merged on its own thread into a part file, adding
+ * up the counts of equal entries. The parts are then joined behind the header. Only the first plies of each game are
+ * indexed, since past the opening nearly every position is unique. Games without a result are left out, and games
+ * {@link chess.notation.PgnReader} skips count up to the move it stopped at.
+ * <p>
+ * Usage: {@code ExplorerIndexBuilder <index file> <max plies> <pgn file>...}
+ */
+public class ExplorerIndexBuilder {
+    /** Slots in each thread's table, about 24 MB, which is written out as a run once it is half full */
+    private static final int RUN_SLOTS = 1 << 20;
+    private final int maxPlies;
+    private final int threads;
+    private final Path workDirectory;
+    private final AtomicInteger runCount = new AtomicInteger();
+    private final List<Path> runs = Collections.synchronizedList(new ArrayList<>());
+    private final List<Run> tables = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Run> table = new ThreadLocal<>();
+
+    /**
+     * @param maxPlies      how many plies of each game to index
+     * @param threads       how many threads read games and merge runs
+     * @param workDirectory where to write the sorted runs, which are deleted once the index is built
+     */
+    public ExplorerIndexBuilder(int maxPlies, int threads, Path workDirectory) {
+        this.maxPlies = maxPlies;
+        this.threads = threads;
+        this.workDirectory = workDirectory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: ExplorerIndexBuilder <index file> <max plies> <pgn file>...");
+            return;
+        }
+        Path output = Path.of(args[0]).toAbsolutePath();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path work = Files.createTempDirectory(output.getParent(), "explorer");
+        try {
+            ExplorerIndexBuilder builder = new ExplorerIndexBuilder(Integer.parseInt(args[1]), threads, work);
+            long start = System.nanoTime();
+            long games = 0;
+            for (int i = 2; i < args.length; i++) { games += builder.add(Path.of(args[i])); }
+            long read = System.nanoTime();
+            long entries = builder.write(output);
+            System.out.printf("%,d games read in %.1f s, %,d entries in %,d runs merged in %.1f s%n",
+                    games, (read - start) / 1e9, entries, builder.runCount.get(), (System.nanoTime() - read) / 1e9);
+        } finally {
+            Files.deleteIfExists(work);
+        }
+    }
+
+    /** Reads every game of a PGN file into the index
+     * @return how many games were read
+     */
+    public long add(Path pgn) throws IOException, InterruptedException {
+        PgnImporter importer = new PgnImporter(this.threads);
+        importer.read(pgn, this::add);
+        this.spillAll(); // the importer's threads are gone, so free their tables
+        return importer.games();
+    }
+
+    /** Adds the first plies of one game, and may be called from several threads at once */
+    public void add(PgnGame game) {
+        int result = switch (game.result()) {
+            case "1-0" -> 0;
+            case "1/2-1/2" -> 1;
+            case "0-1" -> 2;
+            default -> -1;
+        };
+        if (result < 0 || game.moves().isEmpty()) { return; }
+        Run run = this.table.get();
+        if (run == null || run.retired) {
+            run = new Run();
+            this.tables.add(run);
+            this.table.set(run);
+        }
+        Position position = run.position;
+        String fen = game.tag("FEN");
+        position.copyFrom(fen == null ? Run.START : Fen.parse(fen));
+        List<ChessMove> moves = game.moves();
+        for (int ply = 0; ply < this.maxPlies && ply < moves.size(); ply++) {
+            int move = position.encode(moves.get(ply));
+            if (!run.add(position.hash(), ExplorerIndex.compact(move), result)) {
+                this.spill(run);
+                run.add(position.hash(), ExplorerIndex.compact(move), result);
+            }
+            position.make(move);
+        }
+    }
+
+    /** Writes out what is left in memory, merges every run into the index and deletes the runs
+     * @return how many entries the index holds
+     */
+    public long write(Path output) throws IOException, InterruptedException {
+        this.spillAll();
+        List<FileChannel> channels = new ArrayList<>();
+        List<ByteBuffer> mapped = new ArrayList<>();
+        int partitions = Math.min(this.threads * 4, 1 << ExplorerIndex.BUCKET_BITS);
+        long[] bucketCounts = new long[1 << ExplorerIndex.BUCKET_BITS];
+        List<Path> parts = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        try {
+            for (Path run : this.runs) {
+                FileChannel channel = FileChannel.open(run, StandardOpenOption.READ);
+                channels.add(channel);
+                mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN));
+            }
+            List<Future<?>> merges = new ArrayList<>();
+            for (int p = 0; p < partitions; p++) {
+                int firstBucket = (int) ((long) p * bucketCounts.length / partitions), endBucket = (int) ((long) (p + 1) * bucketCounts.length / partitions);
+                Path part = this.workDirectory.resolve("part-" + p + ".bin");
+                parts.add(part);
+                merges.add(executor.submit(() -> { merge(mapped, firstBucket, endBucket, part, bucketCounts); return null; }));
+            }
+            for (Future<?> merge : merges) { merge.get(); }
+            return join(parts, bucketCounts, output);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) { throw io; }
+            throw new IOException("Failed to merge runs", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (FileChannel channel : channels) { channel.close(); }
+            for (Path run : this.runs) { Files.deleteIfExists(run); }
+            for (Path part : parts) { Files.deleteIfExists(part); }
+            this.runs.clear();
+        }
+    }
+
+    private void spillAll() {
+        synchronized (this.tables) {
+            for (Run run : this.tables) {
+                if (run.count > 0) { this.spill(run); }
+                run.retired = true;
+            }
+            this.tables.clear();
+        }
+    }
+
+    /** Sorts a full table, writes it out as a run and empties it */
+    private void spill(Run run) {
+        Path file = this.workDirectory.resolve("run-" + this.runCount.getAndIncrement() + ".bin");
+        try {
+            run.writeSorted(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.runs.add(file);
+    }
+
+    /** Merges the entries of every run whose keys fall in a range of buckets into a part file, counting the merged
+     * entries of each bucket
+     */
+    private static void merge(List<ByteBuffer> runs, int firstBucket, int endBucket, Path part, long[] bucketCounts) throws IOException {
+        long low = (long) firstBucket << (64 - ExplorerIndex.BUCKET_BITS);
+        PriorityQueue<Cursor> queue = new PriorityQueue<>();
+        for (ByteBuffer run : runs) {
+            Cursor cursor = new Cursor(run.duplicate().order(ByteOrder.BIG_ENDIAN), endBucket);
+            cursor.seek(low);
+            if (cursor.valid()) { queue.add(cursor); }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part), 1 << 16))) {
+            while (!queue.isEmpty()) {
+                Cursor first = queue.poll();
+                long key = first.key;
+                int move = first.move, white = first.white, draws = first.draws, black = first.black;
+                if (first.next()) { queue.add(first); }
+                while (!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move) {
+                    Cursor same = queue.poll();
+                    white += same.white;
+                    draws += same.draws;
+                    black += same.black;
+                    if (same.next()) { queue.add(same); }
+                }
+                out.writeLong(key);
+                out.writeInt(move);
+                out.writeInt(white);
+                out.writeInt(draws);
+                out.writeInt(black);
+                bucketCounts[(int) (key >>> (64 - ExplorerIndex.BUCKET_BITS))]++;
+            }
+        }
+    }
+
+    /** Writes the header and copies the parts after it
+     * @return how many entries the index holds
+     */
+    private static long join(List<Path> parts, long[] bucketCounts, Path output) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ExplorerIndex.HEADER_SIZE);
+        long total = 0;
+        for (long count : bucketCounts) { total += count; }
+        header.putInt(ExplorerIndex.MAGIC).putInt(ExplorerIndex.VERSION).putLong(total);
+        long start = 0;
+        for (long count : bucketCounts) {
+            header.putLong(start);
+            start += count;
+        }
+        header.putLong(start).flip();
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) { out.write(header); }
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = 0, size = in.size();
+                    while (position < size) { position += in.transferTo(position, size - position, out); }
+                }
+            }
+        }
+        return total;
+    }
+
+    /** One thread's table of result counts by position key and move, kept by open addressing */
+    private static final class Run {
+        static final Position START = Fen.parse(Fen.START);
+        final Position position = new Position();
+        final long[] keys = new long[RUN_SLOTS];
+        final int[] moves = new int[RUN_SLOTS];
+        final int[][] results = new int[3][RUN_SLOTS];
+        int count;
+        /** Set once the table has been written out for good, after which its thread starts a new one */
+        boolean retired;
+
+        Run() { java.util.Arrays.fill(this.moves, -1); }
+
+        /** Counts a result for a position and move
+         * @return false if the table is too full to take a new entry
+         */
+        boolean add(long key, int move, int result) {
+            int mask = RUN_SLOTS - 1;
+            int slot = (int) ((key ^ key >>> 29) * 31 + move) & mask;
+            while (this.moves[slot] >= 0) {
+                if (this.keys[slot] == key && this.moves[slot] == move) {
+                    this.results[result][slot]++;
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (this.count >= RUN_SLOTS / 2) { return false; }
+            this.keys[slot] = key;
+            this.moves[slot] = move;
+            this.results[result][slot] = 1;
+            this.count++;
+            return true;
+        }
+
+        /** Packs the entries to the front of the table, sorts them, writes them to a file and empties the table */
+        void writeSorted(Path file) throws IOException {
+            int n = 0;
+            for (int slot = 0; slot < RUN_SLOTS; slot++) {
+                if (this.moves[slot] < 0) { continue; }
+                this.move(slot, n++);
+            }
+            this.sort(0, n - 1);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                for (int i = 0; i < n; i++) {
+                    out.writeLong(this.keys[i]);
+                    out.writeInt(this.moves[i]);
+                    for (int[] counts : this.results) { out.writeInt(counts[i]); }
+                }
+            }
+            java.util.Arrays.fill(this.moves, -1);
+            for (int[] counts : this.results) { java.util.Arrays.fill(counts, 0); }
+            this.count = 0;
+        }
+
+        /** Quicksorts entries by unsigned key and then move */
+        private void sort(int low, int high) {
+            while (high - low > 16) {
+                int middle = (low + high) >>> 1;
+                long pivotKey = this.keys[middle];
+                int pivotMove = this.moves[middle];
+                int i = low, j = high;
+                while (i <= j) {
+                    while (this.compare(i, pivotKey, pivotMove) < 0) { i++; }
+                    while (this.compare(j, pivotKey, pivotMove) > 0) { j--; }
+                    if (i <= j) { this.swap(i++, j--); }
+                }
+                if (j - low < high - i) { // recurse into the smaller side to bound the stack
+                    this.sort(low, j);
+                    low = i;
+                } else {
+                    this.sort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && this.compare(j, this.keys[j - 1], this.moves[j - 1]) < 0; j--) { this.swap(j, j - 1); }
+            }
+        }
+
+        private int compare(int i, long key, int move) {
+            int order = Long.compareUnsigned(this.keys[i], key);
+            return order != 0 ? order : Integer.compare(this.moves[i], move);
+        }
+
+        private void move(int from, int to) {
+            if (from == to) { return; }
+            this.keys[to] = this.keys[from];
+            this.moves[to] = this.moves[from];
+            this.moves[from] = -1;
+            for (int[] counts : this.results) {
+                counts[to] = counts[from];
+                counts[from] = 0;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long key = this.keys[i];
+            this.keys[i] = this.keys[j];
+            this.keys[j] = key;
+            int move = this.moves[i];
+            this.moves[i] = this.moves[j];
+            this.moves[j] = move;
+            for (int[] counts : this.results) {
+                int count = counts[i];
+                counts[i] = counts[j];
+                counts[j] = count;
+            }
+        }
+    }
+
+    /** Reads one run's entries in order, up to the end of a range of buckets */
+    private static final class Cursor implements Comparable<Cursor> {
+        private final ByteBuffer run;
+        private final int endBucket;
+        private final int entries;
+        private int index;
+        long key;
+        int move, white, draws, black;
+
+        Cursor(ByteBuffer run, int endBucket) {
+            this.run = run;
+            this.endBucket = endBucket;
+            this.entries = run.capacity() / ExplorerIndex.ENTRY_SIZE;
+        }
+
+        /** Moves to the first entry whose key is not less than the given key */
+        void seek(long key) {
+            int low = 0, high = this.entries;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (Long.compareUnsigned(this.run.getLong(middle * ExplorerIndex.ENTRY_SIZE), key) < 0) { low = middle + 1; }
+                else { high = middle; }
+            }
+            this.index = low - 1;
+            this.next();
+        }
+
+        boolean valid() { return this.index < this.entries; }
+
+        /** @return true if there is another entry in range, which is then loaded */
+        boolean next() {
+            this.index++;
+            if (this.index >= this.entries) { return false; }
+            int offset = this.index * ExplorerIndex.ENTRY_SIZE;
+            this.key = this.run.getLong(offset);
+            if ((this.key >>> (64 - ExplorerIndex.BUCKET_BITS)) >= this.endBucket) {
+                this.index = this.entries;
+                return false;
+            }
+            this.move = this.run.getInt(offset + 8);
+            this.white = this.run.getInt(offset + 12);
+            this.draws = this.run.getInt(offset + 16);
+            this.black = this.run.getInt(offset + 20);
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int order = Long.compareUnsigned(this.key, other.key);
+            return order != 0 ? order : Integer.compare(this.move, other.move);
+        }
+    }
+}
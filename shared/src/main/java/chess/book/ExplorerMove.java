@@ -0,0 +1,15 @@
+package chess.book;
+
+import chess.ChessMove;
+
+/** A move played from a position in an {@link ExplorerIndex}, with how the games that played it ended
+ *
+ * @param move      the move played
+ * @param whiteWins how many of those games white won
+ * @param draws     how many were drawn
+ * @param blackWins how many black won
+ */
+public record ExplorerMove(ChessMove move, int whiteWins, int draws, int blackWins) {
+    /** @return how many games played the move */
+    public int games() { return this.whiteWins + this.draws + this.blackWins; }
+}
@@ -0,0 +1,109 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Position;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/** A read-only Polyglot ({@code .bin}) opening book.
+ * <p>
+ * The book file is memory-mapped rather than read onto the heap, and looked up by binary search over its sorted
+ * 16-byte entries. Lookups only use absolute reads of the mapping, so one book can be shared by every thread.
+ */
+public class PolyglotBook implements Closeable {
+    private static final int ENTRY_SIZE = 16;
+    private static final ChessPiece.PieceType[] PROMOTIONS = { null, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN };
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final int size;
+
+    /** Maps a Polyglot book file into memory
+     *
+     * @param file the {@code .bin} file to open
+     * @throws IOException if the file cannot be read or is not a whole number of entries
+     */
+    public PolyglotBook(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        long length = this.channel.size();
+        if (length % ENTRY_SIZE != 0 || length > Integer.MAX_VALUE) {
+            this.channel.close();
+            throw new IOException("Not a Polyglot book: " + file);
+        }
+        this.entries = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        this.entries.order(ByteOrder.BIG_ENDIAN);
+        this.size = (int) (length / ENTRY_SIZE);
+    }
+
+    /** @return how many entries the book holds */
+    public int size() { return this.size; }
+
+    /** Finds the book moves for a game's current position, leaving out any that are illegal under this game's rules
+     *
+     * @param game the game to look up
+     * @return the book moves, empty if the position is not in the book
+     */
+    public List<BookMove> lookup(ChessGame game) {
+        Position position = new Position().load(game.getBoard(), game.getTeamTurn());
+        int[] legalMoves = new int[Position.MAX_MOVES];
+        int legalCount = position.generateLegal(legalMoves, 0);
+        List<BookMove> moves = new ArrayList<>();
+        long key = PolyglotKey.of(position);
+        for (int i = this.firstEntry(key); i < this.size && this.entries.getLong(i * ENTRY_SIZE) == key; i++) {
+            int encoded = Short.toUnsignedInt(this.entries.getShort(i * ENTRY_SIZE + 8));
+            int weight = Short.toUnsignedInt(this.entries.getShort(i * ENTRY_SIZE + 10));
+            int from = (encoded >>> 6) & 63, to = encoded & 63;
+            ChessPiece.PieceType promotion = PROMOTIONS[Math.min((encoded >>> 12) & 7, 4)];
+            for (int j = 0; j < legalCount; j++) {
+                int move = legalMoves[j];
+                if (Position.from(move) == from && Position.to(move) == to && Position.decode(move).getPromotionPiece() == promotion) {
+                    moves.add(new BookMove(Position.decode(move), weight));
+                    break;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /** Picks one of the book moves for a game's position at random, in proportion to the book's weights
+     *
+     * @param game   the game to look up
+     * @param random the source of randomness
+     * @return the chosen book move, or null if the position is not in the book
+     */
+    public BookMove pick(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = this.lookup(game);
+        int total = 0;
+        for (BookMove move : moves) { total += move.weight(); }
+        if (total == 0) { return moves.isEmpty() ? null : moves.get(0); }
+        int choice = random.nextInt(total);
+        for (BookMove move : moves) {
+            choice -= move.weight();
+            if (choice < 0) { return move; }
+        }
+        return null;
+    }
+
+    /** @return the index of the first entry whose key is not less than the given key */
+    private int firstEntry(long key) {
+        int low = 0, high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(this.entries.getLong(middle * ENTRY_SIZE), key) < 0) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() throws IOException { this.channel.close(); }
+}
@@ -0,0 +1,268 @@
+package chess.codec;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Position;
+import chess.notation.Fen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Packs whole games into a few bits per move by writing each move as its rank among the legal moves, ordered by how
+ * likely a player is to choose them, and range coding the ranks.
+ * <p>
+ * Moves are ordered by a handful of cheap signals: the material the move wins or loses on its target square, how
+ * much better the piece stands on its new square, and whether it captures, escapes an attack or gives check. Ties
+ * keep the move generator's order, so both ends of the codec agree on the order without storing it. Good moves
+ * mostly rank near the top, where a rank costs one or two bits. A game is a {@link #VERSION} byte, a varint move
+ * count and the coded ranks, and starts from the position the caller gives, the standard one unless said otherwise.
+ * <p>
+ * The order moves are ranked in is part of the format, so the piece-square tables it uses are frozen here rather
+ * than read from the tunable evaluation. Any change to them, or to the scoring below, needs a new version, with the
+ * old one kept for decoding.
+ * <p>
+ * A codec reuses its buffers, so each thread needs its own.
+ */
+public class GameCodec {
+    private static final Position START = Fen.parse(Fen.START);
+    /** The format written by this codec, stored as the first byte of every game */
+    public static final int VERSION = 1;
+    /** How much each piece type likes each square in version 1, for pawn through king, each listing the eighth rank
+     * first from white's point of view, as {@link chess.eval.Weights} does
+     */
+    private static final short[] SQUARES = {
+            // pawn
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0,
+            // knight
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            // bishop
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            // rook
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0,
+            // queen
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            // king
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20
+    };
+    /** Ranks below this are coded one yes/no decision at a time, and the rest as an Elias gamma code */
+    private static final int DIRECT_RANKS = 8;
+    private static final int GAMMA_BUCKETS = 8;
+    /** Starting probabilities, out of {@link RangeEncoder#ONE}, that a move ranked at least i is ranked exactly i,
+     * measured on engine games
+     */
+    private static final short[] DIRECT_START = { 725, 503, 392, 332, 281, 250, 236, 223 };
+    /** Starting probabilities that a rank past the direct ones is in gamma bucket i, given that it is in no earlier one */
+    private static final short[] GAMMA_START = { 209, 397, 717, 1316, 1900, 1900, 1900 };
+    private final Position position = new Position();
+    private final int[] moves = new int[Position.MAX_MOVES];
+    private final int[] scores = new int[Position.MAX_MOVES];
+    private final short[] directProbabilities = new short[DIRECT_RANKS];
+    private final short[] gammaProbabilities = new short[GAMMA_BUCKETS - 1];
+    private final RangeEncoder encoder = new RangeEncoder();
+
+    /** Encodes a game played from the standard starting position
+     * @throws InvalidMoveException if a move is not legal where it is played
+     */
+    public byte[] encode(List<ChessMove> moves) throws InvalidMoveException { return this.encode(START, moves); }
+
+    /** Encodes a game played from a given position
+     *
+     * @param start the position the game starts from, which is not changed
+     * @param moves the moves played
+     * @return the encoded game
+     * @throws InvalidMoveException if a move is not legal where it is played
+     */
+    public byte[] encode(Position start, List<ChessMove> moves) throws InvalidMoveException {
+        Position position = this.position.copyFrom(start);
+        RangeEncoder encoder = this.encoder;
+        encoder.reset();
+        this.resetModel();
+        encoder.writeHeader(VERSION);
+        for (int count = moves.size(); ; count >>>= 7) { // the number of moves, as a varint
+            encoder.writeHeader(count < 0x80 ? count : (count & 0x7F) | 0x80);
+            if (count < 0x80) { break; }
+        }
+        for (ChessMove chessMove : moves) {
+            int move = position.encode(chessMove);
+            int count = this.order(position);
+            int rank = -1;
+            for (int i = 0; i < count && rank < 0; i++) {
+                if (this.moves[i] == move) { rank = this.rank(i, count); }
+            }
+            if (rank < 0) { throw new InvalidMoveException("Not a legal move: " + chessMove); }
+            this.writeRank(rank);
+            position.make(move);
+        }
+        return encoder.finish();
+    }
+
+    /** Decodes a game and replays it through a {@link ChessGame} from the standard starting position
+     *
+     * @return the game after its last move
+     * @throws InvalidMoveException if the data is not an encoded game
+     */
+    public ChessGame decode(byte[] data) throws InvalidMoveException {
+        ChessGame game = Fen.toGame(Fen.START);
+        for (ChessMove move : this.decodeMoves(START, data)) { game.makeMove(move); }
+        return game;
+    }
+
+    /** Decodes a game's moves without replaying them through a {@link ChessGame}
+     *
+     * @param start the position the game starts from, which is not changed
+     * @param data  the encoded game
+     * @return the moves played
+     * @throws InvalidMoveException if the data is not an encoded game
+     */
+    public List<ChessMove> decodeMoves(Position start, byte[] data) throws InvalidMoveException {
+        Position position = this.position.copyFrom(start);
+        RangeDecoder decoder = new RangeDecoder(data);
+        this.resetModel();
+        int version = decoder.readHeader();
+        if (version != VERSION) { throw new InvalidMoveException("Unsupported game format version " + version); }
+        int plies = 0;
+        for (int shift = 0, b = 0x80; (b & 0x80) != 0; shift += 7) {
+            if (shift > 21) { throw new InvalidMoveException("Bad move count"); }
+            b = decoder.readHeader();
+            plies |= (b & 0x7F) << shift;
+        }
+        decoder.start();
+        List<ChessMove> moves = new ArrayList<>(Math.min(plies, 1024));
+        for (int ply = 0; ply < plies; ply++) {
+            int count = this.order(position);
+            int rank = this.readRank(decoder);
+            if (rank >= count || decoder.overrun()) { throw new InvalidMoveException("Corrupt game at move " + (ply + 1)); }
+            int move = this.moveAt(rank, count);
+            moves.add(Position.decode(move));
+            position.make(move);
+        }
+        return moves;
+    }
+
+    /** Writes the legal moves and their scores into the buffers
+     * @return how many legal moves there are
+     */
+    private int order(Position position) {
+        int[] moves = this.moves, scores = this.scores;
+        int end = position.generate(moves, 0, false), count = 0;
+        for (int i = 0; i < end; i++) {
+            int move = moves[i];
+            position.make(move);
+            boolean legal = position.wasLegal(), check = legal && position.inCheck();
+            position.unmake(move);
+            if (!legal) { continue; }
+            moves[count] = move;
+            scores[count++] = this.score(position, move) + (check ? 60 : 0);
+        }
+        return count;
+    }
+
+    /** @return how likely a move is to be played, higher first, apart from the bonus for giving check */
+    private int score(Position position, int move) {
+        int piece = Position.piece(move), white = Position.color(piece) == Position.WHITE ? 56 : 0;
+        int before = Position.type(piece), after = Position.promotion(move) == 0 ? before : Position.promotion(move);
+        int score = SQUARES[(after - 1) * 64 + (Position.to(move) ^ white)] - SQUARES[(before - 1) * 64 + (Position.from(move) ^ white)];
+        int exchange = position.staticExchange(move);
+        score += exchange < 0 ? exchange * 4 : exchange * 2; // losing material is rarer than winning it is common
+        if (Position.captured(move) != 0) { score += 30; }
+        if (exchange >= 0 && position.isAttacked(Position.from(move), Position.color(piece) ^ 1)) { score += 40; } // moving a piece out of an attack
+        return score;
+    }
+
+    /** @return the rank of the move at an index, counting the moves ordered before it */
+    private int rank(int index, int count) {
+        int score = this.scores[index], rank = 0;
+        for (int i = 0; i < count; i++) {
+            if (this.scores[i] > score || (this.scores[i] == score && i < index)) { rank++; }
+        }
+        return rank;
+    }
+
+    /** @return the move with a rank, found by sorting just far enough */
+    private int moveAt(int rank, int count) {
+        int[] moves = this.moves, scores = this.scores;
+        for (int first = 0; first <= rank; first++) {
+            int best = first;
+            for (int i = first + 1; i < count; i++) {
+                if (scores[i] > scores[best]) { best = i; }
+            }
+            int move = moves[best], score = scores[best]; // shift rather than swap so equal scores keep their order
+            System.arraycopy(moves, first, moves, first + 1, best - first);
+            System.arraycopy(scores, first, scores, first + 1, best - first);
+            moves[first] = move;
+            scores[first] = score;
+        }
+        return moves[rank];
+    }
+
+    private void resetModel() {
+        System.arraycopy(DIRECT_START, 0, this.directProbabilities, 0, DIRECT_RANKS);
+        System.arraycopy(GAMMA_START, 0, this.gammaProbabilities, 0, GAMMA_BUCKETS - 1);
+    }
+
+    private void writeRank(int rank) {
+        for (int i = 0; i < DIRECT_RANKS; i++) {
+            this.encoder.encodeBit(this.directProbabilities, i, rank == i ? 0 : 1);
+            if (rank == i) { return; }
+        }
+        int value = rank - DIRECT_RANKS + 1;
+        int bucket = 31 - Integer.numberOfLeadingZeros(value);
+        for (int i = 0; i < GAMMA_BUCKETS - 1; i++) {
+            this.encoder.encodeBit(this.gammaProbabilities, i, bucket == i ? 0 : 1);
+            if (bucket == i) { break; }
+        }
+        this.encoder.encodeDirect(value, bucket); // the bits below the leading one
+    }
+
+    private int readRank(RangeDecoder decoder) {
+        for (int i = 0; i < DIRECT_RANKS; i++) {
+            if (decoder.decodeBit(this.directProbabilities, i) == 0) { return i; }
+        }
+        int bucket = 0;
+        while (bucket < GAMMA_BUCKETS - 1 && decoder.decodeBit(this.gammaProbabilities, bucket) == 1) { bucket++; }
+        return DIRECT_RANKS + ((1 << bucket) | decoder.decodeDirect(bucket)) - 1;
+    }
+}
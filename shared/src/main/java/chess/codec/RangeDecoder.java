@@ -0,0 +1,64 @@
+package chess.codec;
+
+/** Reads bits written by a {@link RangeEncoder}, treating bytes past the end of the data as zeros */
+final class RangeDecoder {
+    private final byte[] data;
+    private int index;
+    private int range = -1;
+    private int code;
+
+    RangeDecoder(byte[] data) { this.data = data; }
+
+    /** Reads a raw byte written before the first coded bit, or 0 past the end */
+    int readHeader() { return this.next(); }
+
+    /** Starts decoding bits after the header */
+    void start() {
+        for (int i = 0; i < 4; i++) { this.code = this.code << 8 | this.next(); }
+    }
+
+    int decodeBit(short[] probabilities, int index) {
+        int probability = probabilities[index];
+        int bound = (this.range >>> RangeEncoder.BITS) * probability;
+        int bit;
+        if (Integer.compareUnsigned(this.code, bound) < 0) {
+            this.range = bound;
+            probabilities[index] = (short) (probability + ((RangeEncoder.ONE - probability) >>> RangeEncoder.SHIFT));
+            bit = 0;
+        } else {
+            this.code -= bound;
+            this.range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> RangeEncoder.SHIFT));
+            bit = 1;
+        }
+        while (Integer.compareUnsigned(this.range, 1 << 24) < 0) {
+            this.range <<= 8;
+            this.code = this.code << 8 | this.next();
+        }
+        return bit;
+    }
+
+    int decodeDirect(int bits) {
+        int value = 0;
+        for (int i = 0; i < bits; i++) {
+            this.range >>>= 1;
+            int bit = Integer.compareUnsigned(this.code, this.range) >= 0 ? 1 : 0;
+            if (bit == 1) { this.code -= this.range; }
+            value = value << 1 | bit;
+            while (Integer.compareUnsigned(this.range, 1 << 24) < 0) {
+                this.range <<= 8;
+                this.code = this.code << 8 | this.next();
+            }
+        }
+        return value;
+    }
+
+    /** @return true if decoding has read further past the end than the encoder could have dropped, which only corrupt data makes it do */
+    boolean overrun() { return this.index > this.data.length + RangeEncoder.FLUSH_BYTES; }
+
+    private int next() {
+        int index = this.index;
+        if (index <= this.data.length + RangeEncoder.FLUSH_BYTES) { this.index = index + 1; } // count padding, but only as far as overrun() needs
+        return index < this.data.length ? this.data[index] & 0xFF : 0;
+    }
+}
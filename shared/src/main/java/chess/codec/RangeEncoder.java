@@ -0,0 +1,106 @@
+package chess.codec;
+
+import java.util.Arrays;
+
+/** A binary range coder in the style of LZMA's: each bit is coded with an adaptive probability that it is 0, kept by
+ * the caller as an 11-bit number in a {@code short[]} and nudged toward each bit it sees.
+ * <p>
+ * The always-zero first byte of the classic coder is left out, and the flush picks the value in the final range with
+ * the most trailing zero bits and then drops up to four zero bytes it ends with, which {@link RangeDecoder} reads
+ * back as padding. This saves several bytes a game, which matters when a whole game fits in a few dozen.
+ */
+final class RangeEncoder {
+    static final int BITS = 11;
+    static final int ONE = 1 << BITS;
+    /** How fast probabilities adapt: each bit moves them 1/32 of the way toward it */
+    static final int SHIFT = 5;
+    /** How many trailing zero bytes {@link #finish()} may drop */
+    static final int FLUSH_BYTES = 4;
+    private static final int TOP = 1 << 24;
+
+    private byte[] out = new byte[64];
+    private int length;
+    private long low;
+    private int range;
+    private int cache;
+    private long cacheSize;
+    private boolean first;
+
+    void reset() {
+        this.length = 0;
+        this.low = 0;
+        this.range = -1;
+        this.cache = 0;
+        this.cacheSize = 1;
+        this.first = true;
+    }
+
+    /** Writes a raw byte, which may only come before the first coded bit */
+    void writeHeader(int b) { this.write(b); }
+
+    void encodeBit(short[] probabilities, int index, int bit) {
+        int probability = probabilities[index];
+        int bound = (this.range >>> BITS) * probability;
+        if (bit == 0) {
+            this.range = bound;
+            probabilities[index] = (short) (probability + ((ONE - probability) >>> SHIFT));
+        } else {
+            this.low += bound & 0xFFFFFFFFL;
+            this.range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> SHIFT));
+        }
+        while (Integer.compareUnsigned(this.range, TOP) < 0) {
+            this.range <<= 8;
+            this.shiftLow();
+        }
+    }
+
+    /** Codes the low bits of a value, each as likely to be 0 as 1 */
+    void encodeDirect(int value, int bits) {
+        for (int bit = bits - 1; bit >= 0; bit--) {
+            this.range >>>= 1;
+            if (((value >>> bit) & 1) != 0) { this.low += this.range & 0xFFFFFFFFL; }
+            while (Integer.compareUnsigned(this.range, TOP) < 0) {
+                this.range <<= 8;
+                this.shiftLow();
+            }
+        }
+    }
+
+    /** @return the coded bytes, after which the encoder must be reset before it is used again */
+    byte[] finish() {
+        long high = this.low + (this.range & 0xFFFFFFFFL); // exclusive
+        for (int bits = 32; bits > 0; bits--) { // any value in [low, high) decodes the same, so pick the roundest
+            long mask = (1L << bits) - 1;
+            long rounded = (this.low + mask) & ~mask;
+            if (rounded < high) {
+                this.low = rounded;
+                break;
+            }
+        }
+        for (int i = 0; i < 5; i++) { this.shiftLow(); }
+        int end = this.length;
+        while (end > 0 && end > this.length - FLUSH_BYTES && this.out[end - 1] == 0) { end--; }
+        return Arrays.copyOf(this.out, end);
+    }
+
+    private void shiftLow() {
+        if (this.low < 0xFF000000L || this.low > 0xFFFFFFFFL) {
+            int carry = (int) (this.low >>> 32);
+            int temp = this.cache;
+            do {
+                if (this.first) { this.first = false; } // the leading byte is always zero
+                else { this.write(temp + carry); }
+                temp = 0xFF;
+            } while (--this.cacheSize != 0);
+            this.cache = (int) (this.low >>> 24) & 0xFF;
+        }
+        this.cacheSize++;
+        this.low = (this.low & 0x00FFFFFFL) << 8;
+    }
+
+    private void write(int b) {
+        if (this.length == this.out.length) { this.out = Arrays.copyOf(this.out, this.length * 2); }
+        this.out[this.length++] = (byte) b;
+    }
+}
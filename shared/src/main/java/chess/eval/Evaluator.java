@@ -0,0 +1,12 @@
+package chess.eval;
+
+import chess.Position;
+
+/** Statically scores positions for the search, which resolves captures before asking */
+public interface Evaluator {
+    /** Only counts material, the evaluation searches used before tuned weights existed */
+    Evaluator MATERIAL = position -> position.material(position.sideToMove()) - position.material(position.sideToMove() ^ 1);
+
+    /** @return the score of a position in centipawns from the side to move's point of view */
+    int evaluate(Position position);
+}
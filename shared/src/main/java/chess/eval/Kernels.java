@@ -0,0 +1,27 @@
+package chess.eval;
+
+/** The inner loops of {@link NnueEvaluator}, with a scalar version that always works and a vectorized one. The vector
+ * kernels are only compiled by the {@code vector} Maven profile, and only used when the JVM was also started with
+ * {@code --add-modules jdk.incubator.vector}. Every length is a multiple of 16.
+ */
+interface Kernels {
+    /** The fastest kernels this JVM can run */
+    Kernels BEST = best();
+
+    /** Adds {@code length} weights starting at {@code offset} to the accumulator entries starting at {@code start} */
+    void add(short[] accumulator, int start, short[] weights, int offset, int length);
+
+    void subtract(short[] accumulator, int start, short[] weights, int offset, int length);
+
+    /** @return the sum over {@code length} units of each accumulator entry, clipped to {@code [0, clip]}, times its weight */
+    int clippedDot(short[] accumulator, int start, short[] weights, int offset, int length, int clip);
+
+    private static Kernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) { return new ScalarKernels(); }
+        try {
+            return (Kernels) Class.forName("chess.eval.VectorKernels").getDeclaredMethod("create").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) { // built without the vector profile
+            return new ScalarKernels();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package chess.eval;
+
+import chess.Position;
+
+/** Scores a position as a weighted sum of features: material, where each piece stands, and how many squares each
+ * piece attacks. Because the score is linear in its {@link Weights}, {@link Tuner} can fit the weights to game results
+ * by gradient descent.
+ */
+public class LinearEvaluator implements Evaluator {
+    private static volatile LinearEvaluator builtIn;
+    private final int[] weights;
+
+    public LinearEvaluator(Weights weights) { this.weights = weights.values(); }
+
+    /** @return an evaluator using the weights built into the jar */
+    public static LinearEvaluator builtIn() {
+        LinearEvaluator evaluator = builtIn;
+        if (evaluator == null) { builtIn = evaluator = new LinearEvaluator(Weights.builtIn()); }
+        return evaluator;
+    }
+
+    @Override
+    public int evaluate(Position position) {
+        int[] weights = this.weights;
+        int score = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = position.pieceAt(sq);
+            if (piece == 0) { continue; }
+            int type = Position.type(piece);
+            int value = weights[Weights.square(type, Position.color(piece) == Position.WHITE ? sq ^ 56 : sq)];
+            if (type != Position.KING) { value += weights[Weights.material(type)]; }
+            if (type != Position.PAWN) { value += weights[Weights.mobility(type)] * position.mobility(sq); }
+            score += Position.color(piece) == Position.WHITE ? value : -value;
+        }
+        return position.sideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /** Lists the features of a position as the sparse gradient of its score from white's point of view, so that the
+     * score is the sum of {@code weights[indices[i]] * coefficients[i]}. Features that cancel out may be listed twice.
+     *
+     * @param indices      receives weight indices, and must have room for 96 entries
+     * @param coefficients receives the matching coefficients
+     * @return how many features were written
+     */
+    public static int features(Position position, int[] indices, int[] coefficients) {
+        int n = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = position.pieceAt(sq);
+            if (piece == 0) { continue; }
+            int type = Position.type(piece);
+            boolean white = Position.color(piece) == Position.WHITE;
+            int sign = white ? 1 : -1;
+            indices[n] = Weights.square(type, white ? sq ^ 56 : sq);
+            coefficients[n++] = sign;
+            if (type != Position.KING) {
+                indices[n] = Weights.material(type);
+                coefficients[n++] = sign;
+            }
+            if (type != Position.PAWN) {
+                indices[n] = Weights.mobility(type);
+                coefficients[n++] = sign * position.mobility(sq);
+            }
+        }
+        return n;
+    }
+}
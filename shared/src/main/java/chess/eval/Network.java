@@ -0,0 +1,127 @@
+package chess.eval;
+
+import chess.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** The quantized weights of an NNUE-style network for {@link NnueEvaluator}, loaded from a file.
+ * <p>
+ * The network has {@value #INPUTS} inputs, one per piece and square, seen from one side's perspective: the inputs
+ * are the same for both sides once the board is flipped so that side plays up the board. Each perspective's inputs
+ * feed the same hidden layer, whose sums are kept in an accumulator. The output is a weighted sum of the side to
+ * move's clipped hidden layer followed by the other side's, plus a bias, divided to give centipawns.
+ * <p>
+ * A file is little-endian: the magic number, a format version, the hidden layer size, the clipping limit and the
+ * output divisor as ints, then the input weights as shorts (one row of hidden-size entries per input), the hidden
+ * biases as shorts, the output weights as shorts (the side to move's first) and the output bias as an int.
+ */
+public final class Network {
+    public static final int MAGIC = 0x4E4E5545; // "NNUE"
+    public static final int VERSION = 1;
+    public static final int INPUTS = 768;
+    private static final int HEADER_SIZE = 20;
+    final int hidden;
+    final int clip;
+    final int divisor;
+    final short[] inputWeights;
+    final short[] hiddenBias;
+    final short[] outputWeights;
+    final int outputBias;
+
+    /** Builds a network from its weights, which it keeps rather than copies
+     *
+     * @param hidden        the hidden layer size, a multiple of 16 so vector loops need no tail
+     * @param clip          the most a hidden unit passes on
+     * @param divisor       what the output sum is divided by to give centipawns
+     * @param inputWeights  {@value #INPUTS} rows of hidden-size weights
+     * @param hiddenBias    hidden-size biases
+     * @param outputWeights twice hidden-size weights, the side to move's first
+     * @param outputBias    added to the output sum
+     */
+    public Network(int hidden, int clip, int divisor, short[] inputWeights, short[] hiddenBias, short[] outputWeights, int outputBias) {
+        if (hidden <= 0 || hidden % 16 != 0) { throw new IllegalArgumentException("Hidden layer size must be a positive multiple of 16: " + hidden); }
+        if (inputWeights.length != INPUTS * hidden || hiddenBias.length != hidden || outputWeights.length != 2 * hidden) { throw new IllegalArgumentException("Weights do not match the hidden layer size " + hidden); }
+        if (clip <= 0 || divisor <= 0) { throw new IllegalArgumentException("Clip and divisor must be positive"); }
+        this.hidden = hidden;
+        this.clip = clip;
+        this.divisor = divisor;
+        this.inputWeights = inputWeights;
+        this.hiddenBias = hiddenBias;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public int hidden() { return this.hidden; }
+
+    /** @return the input a piece on a square activates, seen from one side's perspective */
+    public static int input(int perspective, int sq, int piece) {
+        int relative = Position.color(piece) == perspective ? 0 : 1;
+        return relative * 384 + (Position.type(piece) - 1) * 64 + (perspective == Position.WHITE ? sq : sq ^ 56);
+    }
+
+    public static Network load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, channel.size())).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+            buffer.flip();
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) { throw new IOException("Not a network file: " + file); }
+            int hidden = buffer.getInt(), clip = buffer.getInt(), divisor = buffer.getInt();
+            if (hidden <= 0 || hidden % 16 != 0 || buffer.remaining() != (INPUTS * hidden + 3 * hidden) * 2L + 4) { throw new IOException("Truncated or corrupt network file: " + file); }
+            short[] inputWeights = new short[INPUTS * hidden], hiddenBias = new short[hidden], outputWeights = new short[2 * hidden];
+            buffer.asShortBuffer().get(inputWeights).get(hiddenBias).get(outputWeights);
+            buffer.position(buffer.position() + (inputWeights.length + hiddenBias.length + outputWeights.length) * 2);
+            return new Network(hidden, clip, divisor, inputWeights, hiddenBias, outputWeights, buffer.getInt());
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (INPUTS * this.hidden + 3 * this.hidden) * 2 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(this.hidden).putInt(this.clip).putInt(this.divisor);
+        buffer.asShortBuffer().put(this.inputWeights).put(this.hiddenBias).put(this.outputWeights);
+        buffer.position(buffer.position() + (this.inputWeights.length + this.hiddenBias.length + this.outputWeights.length) * 2);
+        buffer.putInt(this.outputBias).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) { channel.write(buffer); }
+        }
+    }
+
+    /** Builds a network that reproduces the material and square tables of handcrafted weights, to within a few
+     * centipawns, as a starting point until a trained network exists. Hidden unit s holds the value of the
+     * perspective's own piece on square s, so only the first 64 units are used and the rest are left at zero.
+     *
+     * @param hidden the hidden layer size, at least 64
+     */
+    public static Network fromWeights(Weights weights, int hidden) {
+        if (hidden < 64) { throw new IllegalArgumentException("Hidden layer size must be at least 64"); }
+        int step = 4, offset = 15; // piece values in steps of 4 centipawns, offset so the king's negative squares stay above 0
+        short[] inputWeights = new short[INPUTS * hidden], hiddenBias = new short[hidden], outputWeights = new short[2 * hidden];
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            for (int sq = 0; sq < 64; sq++) {
+                int value = weights.get(Weights.square(type, sq ^ 56)) + (type == Position.KING ? 0 : weights.get(Weights.material(type)));
+                inputWeights[input(Position.WHITE, sq, type) * hidden + sq] = (short) Math.round(value / (double) step);
+            }
+        }
+        for (int unit = 0; unit < 64; unit++) {
+            hiddenBias[unit] = (short) offset;
+            outputWeights[unit] = (short) step;
+            outputWeights[hidden + unit] = (short) -step;
+        }
+        return new Network(hidden, 255, 1, inputWeights, hiddenBias, outputWeights, 0);
+    }
+
+    /** Writes a network converted from the weights built into the jar, see {@link #fromWeights}.
+     * Usage: {@code Network <network file to write> [hidden layer size]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Network <network file to write> [hidden layer size]");
+            return;
+        }
+        fromWeights(Weights.builtIn(), args.length > 1 ? Integer.parseInt(args[1]) : 256).write(Path.of(args[0]));
+    }
+}
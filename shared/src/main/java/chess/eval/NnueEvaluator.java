@@ -0,0 +1,73 @@
+package chess.eval;
+
+import chess.Position;
+
+/** Scores positions with a {@link Network}, keeping both perspectives' hidden layer sums in an accumulator that is
+ * updated piece by piece as the position changes rather than recomputed for every evaluation.
+ * <p>
+ * An evaluator follows one position at a time by listening to it: evaluating a position it does not follow attaches
+ * the evaluator to it, and from then on every make, unmake, put and remove adds or subtracts one row of input weights.
+ * The accumulator holds shorts, whose wrapping arithmetic makes every update exactly reversible. Since it keeps this
+ * state, each searching thread needs its own evaluator, though they may share a network.
+ */
+public class NnueEvaluator implements Evaluator, Position.Listener {
+    private final Network network;
+    private final Kernels kernels;
+    /** White's perspective's hidden sums followed by black's */
+    private final short[] accumulator;
+    private Position attached;
+
+    public NnueEvaluator(Network network) { this(network, Kernels.BEST); }
+
+    NnueEvaluator(Network network, Kernels kernels) {
+        this.network = network;
+        this.kernels = kernels;
+        this.accumulator = new short[2 * network.hidden];
+    }
+
+    /** @return true if the inner loops run on vector instructions */
+    public boolean vectorized() { return !(this.kernels instanceof ScalarKernels); }
+
+    @Override
+    public int evaluate(Position position) {
+        if (position != this.attached || position.listener() != this) { this.attach(position); }
+        Network network = this.network;
+        int hidden = network.hidden;
+        int us = position.sideToMove() * hidden, them = (position.sideToMove() ^ 1) * hidden;
+        int sum = network.outputBias
+                + this.kernels.clippedDot(this.accumulator, us, network.outputWeights, 0, hidden, network.clip)
+                + this.kernels.clippedDot(this.accumulator, them, network.outputWeights, hidden, hidden, network.clip);
+        return sum / network.divisor;
+    }
+
+    /** Follows a position from now on, taking over from whatever listened to it before */
+    public void attach(Position position) {
+        if (this.attached != null && this.attached.listener() == this) { this.attached.setListener(null); }
+        this.attached = position;
+        position.setListener(this);
+        this.reset(position);
+    }
+
+    @Override
+    public void added(int sq, int piece) {
+        int hidden = this.network.hidden;
+        this.kernels.add(this.accumulator, 0, this.network.inputWeights, Network.input(Position.WHITE, sq, piece) * hidden, hidden);
+        this.kernels.add(this.accumulator, hidden, this.network.inputWeights, Network.input(Position.BLACK, sq, piece) * hidden, hidden);
+    }
+
+    @Override
+    public void removed(int sq, int piece) {
+        int hidden = this.network.hidden;
+        this.kernels.subtract(this.accumulator, 0, this.network.inputWeights, Network.input(Position.WHITE, sq, piece) * hidden, hidden);
+        this.kernels.subtract(this.accumulator, hidden, this.network.inputWeights, Network.input(Position.BLACK, sq, piece) * hidden, hidden);
+    }
+
+    /** Recomputes the accumulator from scratch */
+    @Override
+    public void reset(Position position) {
+        int hidden = this.network.hidden;
+        System.arraycopy(this.network.hiddenBias, 0, this.accumulator, 0, hidden);
+        System.arraycopy(this.network.hiddenBias, 0, this.accumulator, hidden, hidden);
+        for (int sq = 0; sq < 64; sq++) { if (position.pieceAt(sq) != 0) { this.added(sq, position.pieceAt(sq)); } }
+    }
+}
@@ -0,0 +1,21 @@
+package chess.eval;
+
+/** Plain loops for JVMs without the vector module */
+final class ScalarKernels implements Kernels {
+    @Override
+    public void add(short[] accumulator, int start, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i++) { accumulator[start + i] += weights[offset + i]; }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, int start, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i++) { accumulator[start + i] -= weights[offset + i]; }
+    }
+
+    @Override
+    public int clippedDot(short[] accumulator, int start, short[] weights, int offset, int length, int clip) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) { sum += Math.max(0, Math.min(clip, accumulator[start + i])) * weights[offset + i]; }
+        return sum;
+    }
+}
@@ -0,0 +1,195 @@
+package chess.eval;
+
+import chess.Position;
+import chess.selfplay.PositionRecord;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Fits {@link Weights} to game results by Texel's method: each position's score is mapped to an expected result
+ * with a sigmoid, and the weights are moved by gradient descent to minimize the mean squared difference between the
+ * expected and actual results.
+ * <p>
+ * The positions come from a memory-mapped file of {@link PositionRecord}s, such as self-play output, and every pass
+ * over them is split into chunks on a fork/join pool, each chunk summing its share of the loss and gradient. Positions
+ * where the side to move has a capture that wins material are skipped, since their static score is misleading.
+ * <p>
+ * Usage: {@code Tuner <records file> <weights file to write> [iterations] [threads]}. Writing the result over
+ * {@code shared/src/main/resources/chess/eval/weights.txt} makes it the evaluation built into the jar.
+ */
+public class Tuner {
+    private static final int RECORDS_PER_SEGMENT = (1 << 30) / PositionRecord.SIZE;
+    private static final int RECORDS_PER_TASK = 1 << 14;
+    private static final double LEARNING_RATE = 1.0, BETA1 = 0.9, BETA2 = 0.999, EPSILON = 1e-8;
+    /** Where a pass's sums follow the gradient in its result array */
+    private static final int LOSS = Weights.COUNT, POSITIONS = Weights.COUNT + 1;
+    private final MappedByteBuffer[] segments;
+    private final long records;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /** The buffers one pool thread reuses for every position it scores */
+    private static final class Scratch {
+        final Position position = new Position();
+        final int[] moves = new int[Position.MAX_MOVES];
+        final int[] indices = new int[96];
+        final int[] coefficients = new int[96];
+    }
+
+    /** Maps a record file, which must stay unchanged while the tuner uses it */
+    public Tuner(Path file, ForkJoinPool pool) throws IOException {
+        this.pool = pool;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.records = channel.size() / PositionRecord.SIZE;
+            this.segments = new MappedByteBuffer[(int) ((this.records + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long first = (long) i * RECORDS_PER_SEGMENT;
+                long count = Math.min(RECORDS_PER_SEGMENT, this.records - first);
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * PositionRecord.SIZE, count * PositionRecord.SIZE);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Tuner <records file> <weights file to write> [iterations] [threads]");
+            return;
+        }
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Tuner tuner = new Tuner(Path.of(args[0]), pool);
+        Weights weights = tuner.tune(Weights.builtIn(), iterations, System.out);
+        pool.shutdown();
+        try (Writer out = Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            out.write("# Tuned by chess.eval.Tuner from " + Path.of(args[0]).getFileName() + "\n");
+            weights.write(out);
+        }
+    }
+
+    /** Tunes weights, first fitting the sigmoid's scale to the starting weights
+     *
+     * @param start      the weights to start from
+     * @param iterations how many gradient steps to take, each a full pass over the positions
+     * @param report     where to print progress
+     * @return the tuned weights
+     */
+    public Weights tune(Weights start, int iterations, PrintStream report) {
+        double[] weights = new double[Weights.COUNT];
+        for (int i = 0; i < weights.length; i++) { weights[i] = start.get(i); }
+        double scale = this.fitScale(weights);
+        double[] sums = this.pass(weights, scale, false);
+        report.printf("%,d positions used of %,d, scale %.3f, starting loss %.6f%n", (long) sums[POSITIONS], this.records, scale, sums[LOSS] / sums[POSITIONS]);
+        long startNanos = System.nanoTime();
+        double[] moment = new double[Weights.COUNT], velocity = new double[Weights.COUNT];
+        for (int step = 1; step <= iterations; step++) {
+            sums = this.pass(weights, scale, true);
+            double positions = Math.max(1, sums[POSITIONS]);
+            for (int i = 0; i < Weights.COUNT; i++) { // Adam, so rarely seen features still move at a useful rate
+                double gradient = sums[i] / positions;
+                moment[i] = BETA1 * moment[i] + (1 - BETA1) * gradient;
+                velocity[i] = BETA2 * velocity[i] + (1 - BETA2) * gradient * gradient;
+                double correctedMoment = moment[i] / (1 - Math.pow(BETA1, step));
+                double correctedVelocity = velocity[i] / (1 - Math.pow(BETA2, step));
+                weights[i] -= LEARNING_RATE * correctedMoment / (Math.sqrt(correctedVelocity) + EPSILON);
+            }
+            if (step % 10 == 0 || step == iterations) {
+                double seconds = (System.nanoTime() - startNanos) / 1e9;
+                report.printf("Iteration %d: loss %.6f, %,.0f positions/s%n", step, sums[LOSS] / positions, this.records * (double) step / seconds);
+            }
+        }
+        int[] rounded = new int[Weights.COUNT];
+        for (int i = 0; i < rounded.length; i++) { rounded[i] = (int) Math.round(weights[i]); }
+        return new Weights(rounded);
+    }
+
+    /** @return the mean squared error of weights over the positions used, at the sigmoid scale that suits them best */
+    double error(Weights weights) {
+        double[] values = new double[Weights.COUNT];
+        for (int i = 0; i < values.length; i++) { values[i] = weights.get(i); }
+        double[] sums = this.pass(values, this.fitScale(values), false);
+        return sums[LOSS] / Math.max(1, sums[POSITIONS]);
+    }
+
+    /** Finds the sigmoid scale that best predicts the results from the given weights, by golden section search */
+    private double fitScale(double[] weights) {
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = 0.1, high = 3;
+        for (int i = 0; i < 24; i++) {
+            double left = high - ratio * (high - low), right = low + ratio * (high - low);
+            if (this.pass(weights, left, false)[LOSS] < this.pass(weights, right, false)[LOSS]) { high = right; } else { low = left; }
+        }
+        return (low + high) / 2;
+    }
+
+    /** @return the summed loss and position count, and the summed gradient if asked for */
+    private double[] pass(double[] weights, double scale, boolean gradient) {
+        return this.pool.invoke(new Pass(weights, scale, gradient, 0, this.records));
+    }
+
+    /** A range of records, split in half until it is small enough to score directly */
+    private final class Pass extends RecursiveTask<double[]> {
+        private final double[] weights;
+        private final double scale;
+        private final boolean gradient;
+        private final long first, end;
+
+        Pass(double[] weights, double scale, boolean gradient, long first, long end) {
+            this.weights = weights;
+            this.scale = scale;
+            this.gradient = gradient;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (this.end - this.first > RECORDS_PER_TASK) {
+                long middle = (this.first + this.end) >>> 1;
+                Pass right = new Pass(this.weights, this.scale, this.gradient, middle, this.end);
+                right.fork();
+                double[] sums = new Pass(this.weights, this.scale, this.gradient, this.first, middle).compute();
+                double[] rightSums = right.join();
+                for (int i = 0; i < sums.length; i++) { sums[i] += rightSums[i]; }
+                return sums;
+            }
+            Scratch scratch = Tuner.this.scratch.get();
+            double[] sums = new double[Weights.COUNT + 2];
+            double k = this.scale * Math.log(10) / 400;
+            for (long record = this.first; record < this.end; record++) {
+                MappedByteBuffer segment = Tuner.this.segments[(int) (record / RECORDS_PER_SEGMENT)];
+                int offset = (int) (record % RECORDS_PER_SEGMENT) * PositionRecord.SIZE;
+                double result = PositionRecord.read(segment, offset, scratch.position) / 2.0;
+                if (!quiet(scratch.position, scratch.moves)) { continue; }
+                int count = LinearEvaluator.features(scratch.position, scratch.indices, scratch.coefficients);
+                double score = 0;
+                for (int i = 0; i < count; i++) { score += this.weights[scratch.indices[i]] * scratch.coefficients[i]; }
+                double expected = 1 / (1 + Math.exp(-k * score));
+                double error = expected - result;
+                sums[LOSS] += error * error;
+                sums[POSITIONS]++;
+                if (this.gradient) {
+                    double slope = 2 * error * expected * (1 - expected) * k;
+                    for (int i = 0; i < count; i++) { sums[scratch.indices[i]] += slope * scratch.coefficients[i]; }
+                }
+            }
+            return sums;
+        }
+    }
+
+    /** @return true if the side to move has no capture that wins material */
+    private static boolean quiet(Position position, int[] moves) {
+        int end = position.generate(moves, 0, true);
+        for (int i = 0; i < end; i++) { if (position.staticExchange(moves[i]) > 0) { return false; } }
+        return true;
+    }
+}
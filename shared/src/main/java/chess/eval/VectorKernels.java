@@ -0,0 +1,50 @@
+package chess.eval;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** Loops over the CPU's short vectors, up to 16 lanes wide. This class is only compiled by the {@code vector} Maven
+ * profile, and {@link Kernels#BEST} loads it by name once it has checked the vector module is present, since loading
+ * it otherwise fails.
+ */
+final class VectorKernels implements Kernels {
+    /** At most 16 lanes, so that every length, a multiple of 16, fills whole vectors */
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED.length() > 16 ? ShortVector.SPECIES_256 : ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, SHORTS.vectorShape());
+
+    private VectorKernels() {}
+
+    /** Called reflectively by {@link Kernels#BEST} */
+    static Kernels create() { return new VectorKernels(); }
+
+    @Override
+    public void add(short[] accumulator, int start, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, start + i).add(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(accumulator, start + i);
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, int start, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, start + i).sub(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(accumulator, start + i);
+        }
+    }
+
+    @Override
+    public int clippedDot(short[] accumulator, int start, short[] weights, int offset, int length, int clip) {
+        IntVector sum = IntVector.zero(INTS);
+        for (int i = 0; i < length; i += SHORTS.length()) {
+            ShortVector clipped = ShortVector.fromArray(SHORTS, accumulator, start + i).max((short) 0).min((short) clip);
+            ShortVector weight = ShortVector.fromArray(SHORTS, weights, offset + i);
+            for (int part = 0; part < 2; part++) { // widen each half to ints, since the products overflow shorts
+                IntVector a = (IntVector) clipped.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector b = (IntVector) weight.convertShape(VectorOperators.S2I, INTS, part);
+                sum = sum.add(a.mul(b));
+            }
+        }
+        return sum.reduceLanes(VectorOperators.ADD);
+    }
+}
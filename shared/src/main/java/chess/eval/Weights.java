@@ -0,0 +1,102 @@
+package chess.eval;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/** The tunable weights of {@link LinearEvaluator}, all in centipawns, laid out in one array.
+ * <p>
+ * The layout is the material value of each piece type but the king, then a 64-square table for each piece type, then
+ * a value per attacked square for knights, bishops, rooks, queens and kings. Square tables are from white's point of
+ * view and, like a printed board, list the eighth rank first, so white's table index for a square is
+ * {@code square ^ 56} and black uses its own square directly.
+ * <p>
+ * The text form names each section ({@code material}, {@code pawn} through {@code king}, {@code mobility}) followed
+ * by its numbers. Lines starting with {@code #} are comments. The weights built into the jar live in the
+ * {@value #RESOURCE} resource, which {@link chess.eval.Tuner} writes.
+ */
+public final class Weights {
+    public static final String RESOURCE = "/chess/eval/weights.txt";
+    private static final String[] SECTIONS = { "material", "pawn", "knight", "bishop", "rook", "queen", "king", "mobility" };
+    /** Where each section starts in the array, with the length of the whole array last */
+    private static final int[] SECTION_START = { 0, 5, 69, 133, 197, 261, 325, 389, 394 };
+    public static final int COUNT = SECTION_START[SECTION_START.length - 1];
+    private static volatile Weights builtIn;
+
+    private final int[] values;
+
+    public Weights(int[] values) {
+        if (values.length != COUNT) { throw new IllegalArgumentException("Expected " + COUNT + " weights but got " + values.length); }
+        this.values = values.clone();
+    }
+
+    /** @return index of the material weight of a piece type from pawn to queen */
+    public static int material(int type) { return type - 1; }
+    /** @param table a square already flipped to the table's orientation, see the class description */
+    public static int square(int type, int table) { return SECTION_START[type] + table; }
+    /** @return index of the weight per attacked square of a piece type from knight to king */
+    public static int mobility(int type) { return SECTION_START[7] + type - 2; }
+
+    public int get(int index) { return this.values[index]; }
+    /** @return a copy of every weight */
+    public int[] values() { return this.values.clone(); }
+
+    /** @return the weights built into the jar, loaded once on first use */
+    public static Weights builtIn() {
+        Weights weights = builtIn;
+        if (weights == null) {
+            try (InputStream in = Weights.class.getResourceAsStream(RESOURCE)) {
+                if (in == null) { throw new IllegalStateException("Missing resource " + RESOURCE); }
+                weights = read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            builtIn = weights;
+        }
+        return weights;
+    }
+
+    /** Reads weights in the text form described above */
+    public static Weights read(InputStream in) throws IOException {
+        int[] values = new int[COUNT];
+        int index = 0, end = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) { continue; }
+            for (String word : line.split("\\s+")) {
+                int section = java.util.Arrays.asList(SECTIONS).indexOf(word);
+                if (section >= 0) {
+                    if (index != end) { throw new IOException("Section before " + word + " has the wrong number of weights"); }
+                    index = SECTION_START[section];
+                    end = SECTION_START[section + 1];
+                    continue;
+                }
+                if (index >= end) { throw new IOException("Unexpected weight " + word); }
+                try { values[index++] = Integer.parseInt(word); }
+                catch (NumberFormatException e) { throw new IOException("Bad weight " + word, e); }
+            }
+        }
+        if (index != end) { throw new IOException("Last section has the wrong number of weights"); }
+        return new Weights(values);
+    }
+
+    /** Writes the weights in the text form {@link #read} accepts */
+    public void write(Writer out) throws IOException {
+        for (int section = 0; section < SECTIONS.length; section++) {
+            out.write(SECTIONS[section]);
+            int start = SECTION_START[section], end = SECTION_START[section + 1];
+            boolean board = end - start == 64;
+            for (int i = start; i < end; i++) {
+                out.write(board && (i - start) % 8 == 0 ? "\n   " : " ");
+                out.write(String.format(board ? "%4d" : "%d", this.values[i]));
+            }
+            out.write("\n");
+        }
+    }
+}
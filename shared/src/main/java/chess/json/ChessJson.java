@@ -0,0 +1,136 @@
+package chess.json;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.notation.Fen;
+import chess.uci.UciMove;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/** Builds the Gson that the server and client share for chess objects, which writes them compactly instead of
+ * reflectively.
+ * <p>
+ * A board is written as the piece placement field of its FEN, and a move as UCI text such as "e7e8q". A game is an
+ * object with its {@code teamTurn} and {@code board}, so the start position takes 74 bytes instead of about 1,250.
+ * Boards and moves in the old reflective form can still be read, so games saved before this change still load.
+ */
+public final class ChessJson {
+    private static final Gson GSON = builder().create();
+
+    private ChessJson() {}
+
+    /** @return a builder that already knows the chess adapters, for callers that need more settings of their own */
+    public static GsonBuilder builder() { return new GsonBuilder().registerTypeAdapterFactory(new Factory()); }
+
+    /** @return a shared Gson with the chess adapters, which is safe to use from any thread */
+    public static Gson gson() { return GSON; }
+
+    /** Hands out the chess adapters, each given Gson's reflective adapter for reading the old form */
+    private static final class Factory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> raw = type.getRawType();
+            if (raw == ChessBoard.class) {
+                return (TypeAdapter<T>) new BoardAdapter(gson.getDelegateAdapter(this, TypeToken.get(ChessBoard.class))).nullSafe();
+            }
+            if (raw == ChessMove.class) {
+                return (TypeAdapter<T>) new MoveAdapter(gson.getDelegateAdapter(this, TypeToken.get(ChessMove.class))).nullSafe();
+            }
+            if (raw == ChessGame.class) { return (TypeAdapter<T>) new GameAdapter(gson.getAdapter(ChessBoard.class)).nullSafe(); }
+            return null;
+        }
+    }
+
+    private static final class BoardAdapter extends TypeAdapter<ChessBoard> {
+        private final TypeAdapter<ChessBoard> reflective;
+
+        BoardAdapter(TypeAdapter<ChessBoard> reflective) { this.reflective = reflective; }
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException { out.value(Fen.placement(board)); }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.STRING) { return this.reflective.read(in); }
+            String placement = in.nextString();
+            try {
+                return Fen.toBoard(placement);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException("Invalid board '" + placement + "' at " + in.getPath(), e);
+            }
+        }
+    }
+
+    private static final class MoveAdapter extends TypeAdapter<ChessMove> {
+        private final TypeAdapter<ChessMove> reflective;
+
+        MoveAdapter(TypeAdapter<ChessMove> reflective) { this.reflective = reflective; }
+
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException { out.value(UciMove.format(move)); }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.STRING) { return this.reflective.read(in); }
+            String text = in.nextString();
+            try {
+                return UciMove.toMove(text);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException("Invalid move '" + text + "' at " + in.getPath(), e);
+            }
+        }
+    }
+
+    private static final class GameAdapter extends TypeAdapter<ChessGame> {
+        private final TypeAdapter<ChessBoard> boards;
+
+        GameAdapter(TypeAdapter<ChessBoard> boards) { this.boards = boards; }
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            out.beginObject();
+            if (game.getTeamTurn() != null) { out.name("teamTurn").value(game.getTeamTurn().name()); }
+            if (game.getBoard() != null) { out.name("board"); this.boards.write(out, game.getBoard()); }
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            ChessGame game = new ChessGame();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "teamTurn" -> game.setTeamTurn(readTeam(in));
+                    case "board" -> game.setBoard(this.boards.read(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return game;
+        }
+
+        private static ChessGame.TeamColor readTeam(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String team = in.nextString();
+            try {
+                return ChessGame.TeamColor.valueOf(team);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException("Invalid team '" + team + "' at " + in.getPath(), e);
+            }
+        }
+    }
+}
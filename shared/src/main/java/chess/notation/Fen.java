@@ -0,0 +1,93 @@
+package chess.notation;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Position;
+
+/** Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * Only the piece placement and side to move are used. The castling, en passant and move counter fields are accepted
+ * but ignored when reading, and written as "- - 0 1", because {@link ChessGame} does not track them.
+ */
+public final class Fen {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+    private static final String LETTERS = " pnbrqk";
+
+    private Fen() {}
+
+    /** Parses a FEN string
+     *
+     * @param fen the text to parse
+     * @return the position it describes
+     * @throws IllegalArgumentException if the text is not a valid FEN placement
+     */
+    public static Position parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        Position position = new Position();
+        int row = 7, col = 0;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') { row--; col = 0; }
+            else if (c >= '1' && c <= '8') { col += c - '0'; }
+            else {
+                int type = LETTERS.indexOf(Character.toLowerCase(c));
+                if (type <= 0 || row < 0 || col > 7) { throw new IllegalArgumentException("Invalid FEN: " + fen); }
+                position.put(row * 8 + col, type | (Character.isLowerCase(c) ? Position.BLACK_BIT : 0));
+                col++;
+            }
+        }
+        if (row != 0) { throw new IllegalArgumentException("Invalid FEN: " + fen); }
+        if (fields.length > 1 && fields[1].equals("b")) { position.flipSideToMove(); }
+        return position;
+    }
+
+    /** @return the FEN string of a position */
+    public static String format(Position position) {
+        StringBuilder fen = new StringBuilder(80);
+        appendPlacement(position, fen);
+        return fen.append(position.sideToMove() == Position.WHITE ? " w" : " b").append(" - - 0 1").toString();
+    }
+
+    /** Writes only the piece placement field of a position's FEN */
+    public static void appendPlacement(Position position, StringBuilder fen) {
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = position.pieceAt(row * 8 + col);
+                if (piece == 0) { empty++; continue; }
+                if (empty > 0) { fen.append(empty); empty = 0; }
+                char letter = LETTERS.charAt(Position.type(piece));
+                fen.append(Position.color(piece) == Position.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) { fen.append(empty); }
+            if (row > 0) { fen.append('/'); }
+        }
+    }
+
+    /** @return the piece placement field of a board's FEN, such as "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR" */
+    public static String placement(ChessBoard board) {
+        StringBuilder fen = new StringBuilder(72);
+        appendPlacement(new Position().load(board, ChessGame.TeamColor.WHITE), fen);
+        return fen.toString();
+    }
+
+    /** @return a new board holding the pieces of a FEN, of which only the placement field is needed */
+    public static ChessBoard toBoard(String fen) {
+        ChessBoard board = new ChessBoard();
+        parse(fen).store(board);
+        return board;
+    }
+
+    /** @return a new game set up at a FEN position */
+    public static ChessGame toGame(String fen) {
+        Position position = parse(fen);
+        ChessBoard board = new ChessBoard();
+        position.store(board);
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(position.teamToMove());
+        return game;
+    }
+
+    /** @return the FEN string of a game's current position */
+    public static String of(ChessGame game) { return format(new Position().load(game.getBoard(), game.getTeamTurn())); }
+}
@@ -0,0 +1,52 @@
+package chess.notation;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** One game read by {@link PgnReader}: its tags, its main line and its result.
+ * <p>
+ * A game the reader could not follow, such as one that castles or captures en passant, which {@link ChessGame}
+ * does not allow, is marked skipped with the reason, and holds only the moves read before the problem.
+ */
+public final class PgnGame {
+    private final Map<String, String> tags;
+    private final List<ChessMove> moves;
+    private final String result;
+    private final String skipReason;
+
+    PgnGame(Map<String, String> tags, List<ChessMove> moves, String result, String skipReason) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moves = Collections.unmodifiableList(moves);
+        this.result = result;
+        this.skipReason = skipReason;
+    }
+
+    /** @return the tag pairs in the order they appeared */
+    public Map<String, String> tags() { return this.tags; }
+    /** @return a tag's value, or null if the game does not have it */
+    public String tag(String name) { return this.tags.get(name); }
+    /** @return the main line's moves, without variations */
+    public List<ChessMove> moves() { return this.moves; }
+    /** @return "1-0", "0-1", "1/2-1/2" or "*" */
+    public String result() { return this.result; }
+    public boolean skipped() { return this.skipReason != null; }
+    /** @return why the game could not be read in full, or null if it was */
+    public String skipReason() { return this.skipReason; }
+
+    /** Plays the game's moves from its starting position
+     *
+     * @return a game in the final position
+     * @throws InvalidMoveException if a move is not legal, which the reader never lets happen
+     */
+    public ChessGame toGame() throws InvalidMoveException {
+        String fen = this.tags.get("FEN");
+        ChessGame game = Fen.toGame(fen == null ? Fen.START : fen);
+        for (ChessMove move : this.moves) { game.makeMove(move); }
+        return game;
+    }
+}
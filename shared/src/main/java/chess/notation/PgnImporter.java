@@ -0,0 +1,127 @@
+package chess.notation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/** Reads a large PGN file on several threads by splitting it into chunks at game boundaries, memory-mapping each
+ * chunk and running a {@link PgnReader} over it. A game boundary is a line starting with {@code [Event }, the tag
+ * every PGN game begins with.
+ * <p>
+ * Usage: {@code PgnImporter <pgn file> [threads]}, which reads every game and reports the throughput.
+ */
+public class PgnImporter {
+    private static final long CHUNK_SIZE = 64L << 20;
+    private static final byte[] GAME_START = "\n[Event ".getBytes(StandardCharsets.US_ASCII);
+    private final int threads;
+    private final LongAdder games = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final Map<String, Integer> skipped = new TreeMap<>();
+
+    public PgnImporter(int threads) { this.threads = threads; }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: PgnImporter <pgn file> [threads]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PgnImporter importer = new PgnImporter(threads);
+        long start = System.nanoTime();
+        long bytes = importer.read(Path.of(args[0]), game -> {});
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d games (%,d moves) in %.1f s on %d threads: %,.0f games/s, %.1f MB/s%n",
+                importer.games(), importer.moves(), seconds, threads, importer.games() / seconds, bytes / seconds / (1 << 20));
+        importer.skipped().forEach((reason, count) -> System.out.printf("  skipped for %s: %,d%n", reason, count));
+    }
+
+    /** Reads every game in a file, handing each to a consumer that may be called from several threads at once
+     * @return the size of the file in bytes
+     */
+    public long read(Path file, Consumer<PgnGame> consumer) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Long> boundaries = boundaries(channel);
+            ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                long start = boundaries.get(i), end = boundaries.get(i + 1);
+                chunks.add(executor.submit(() -> { this.readChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), consumer); return null; }));
+            }
+            executor.shutdown();
+            try {
+                for (Future<?> chunk : chunks) { chunk.get(); }
+            } catch (java.util.concurrent.ExecutionException e) {
+                executor.shutdownNow();
+                if (e.getCause() instanceof IOException io) { throw io; }
+                throw new IOException("Failed to read " + file, e.getCause());
+            }
+            return channel.size();
+        }
+    }
+
+    public long games() { return this.games.sum(); }
+    public long moves() { return this.moves.sum(); }
+    /** @return how many games were skipped for each reason, with unresolved moves counted together */
+    public Map<String, Integer> skipped() { synchronized (this.skipped) { return new TreeMap<>(this.skipped); } }
+
+    private void readChunk(ByteBuffer chunk, Consumer<PgnGame> consumer) throws IOException {
+        PgnReader reader = new PgnReader(chunk);
+        PgnGame game;
+        while ((game = reader.next()) != null) {
+            this.games.increment();
+            this.moves.add(game.moves().size());
+            if (game.skipped()) {
+                String reason = game.skipReason().startsWith("unresolved") ? "unresolved move" : game.skipReason();
+                synchronized (this.skipped) { this.skipped.merge(reason, 1, Integer::sum); }
+            }
+            consumer.accept(game);
+        }
+    }
+
+    /** @return offsets that split the file into chunks of about {@link #CHUNK_SIZE} bytes at game boundaries, starting with 0 and ending with the file's size */
+    private List<Long> boundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(this.threads * 4L, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        for (int i = 1; i < count; i++) {
+            long boundary = nextGame(channel, Math.max(size * i / count, boundaries.get(boundaries.size() - 1)));
+            if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) { boundaries.add(boundary); }
+        }
+        boundaries.add(size);
+        for (int i = 1; i < boundaries.size(); i++) {
+            if (boundaries.get(i) - boundaries.get(i - 1) > Integer.MAX_VALUE) { throw new IOException("No game boundary within 2 GB at offset " + boundaries.get(i - 1)); }
+        }
+        return boundaries;
+    }
+
+    /** @return the offset of the first game start after an offset, or the file's size if there is none */
+    private static long nextGame(FileChannel channel, long offset) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(1 << 16);
+        while (offset < channel.size()) {
+            window.clear();
+            int read = channel.read(window, offset);
+            if (read <= 0) { break; }
+            for (int i = 0; i + GAME_START.length <= read; i++) {
+                int j = 0;
+                while (j < GAME_START.length && window.get(i + j) == GAME_START[j]) { j++; }
+                if (j == GAME_START.length) { return offset + i + 1; }
+            }
+            if (read < GAME_START.length) { break; }
+            offset += read - GAME_START.length + 1; // overlap so a match across windows is found
+        }
+        return channel.size();
+    }
+}
@@ -0,0 +1,189 @@
+package chess.notation;
+
+import chess.ChessMove;
+import chess.Position;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Reads games one at a time from Portable Game Notation text, either streamed from an {@link InputStream} or held in
+ * a {@link ByteBuffer} such as a memory-mapped slice of a file, using the same few buffers for every game.
+ * <p>
+ * Comments, variations, numeric annotation glyphs, move numbers and escaped lines are skipped, and the main line's
+ * SAN moves are resolved against the position as they are read. A game that starts from a {@code FEN} tag starts
+ * from that position. Games that castle, capture en passant or contain a move that cannot be resolved are returned
+ * skipped, see {@link PgnGame#skipReason()}. A game with no result before the next tag section ends there.
+ */
+public class PgnReader {
+    private static final Position START = Fen.parse(Fen.START);
+    private final InputStream in;
+    private final ByteBuffer source;
+    private final byte[] buffer;
+    private int index, length;
+    private int pending = -1;
+    private byte[] text = new byte[256];
+    private int textLength;
+    private final StringBuilder token = new StringBuilder(16);
+    private final Position position = new Position();
+    private final int[] scratch = new int[Position.MAX_MOVES];
+
+    /** Reads from a stream, which the caller closes */
+    public PgnReader(InputStream in) {
+        this.in = in;
+        this.source = null;
+        this.buffer = new byte[1 << 16];
+    }
+
+    /** Reads from a buffer's position to its limit */
+    public PgnReader(ByteBuffer source) {
+        this.in = null;
+        this.source = source;
+        this.buffer = null;
+    }
+
+    /** @return the next game, or null once there are no more */
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        int c = this.skipSpace();
+        while (c == '[' || c == '%' || c == ';') {
+            if (c == '[') { this.readTag(tags); }
+            else { this.skipLine(); }
+            c = this.skipSpace();
+        }
+        if (c < 0 && tags.isEmpty()) { return null; }
+        String skipReason = null;
+        String fen = tags.get("FEN");
+        if (fen == null) { this.position.copyFrom(START); }
+        else {
+            try { this.position.copyFrom(Fen.parse(fen)); }
+            catch (IllegalArgumentException e) { skipReason = "invalid FEN"; }
+        }
+        List<ChessMove> moves = new ArrayList<>();
+        String result = "*";
+        int depth = 0; // nesting of the variation being skipped
+        while (c >= 0) {
+            if (c == '{') { this.skipPast('}'); }
+            else if (c == ';') { this.skipLine(); }
+            else if (c == '(') { depth++; }
+            else if (c == ')') { depth = Math.max(0, depth - 1); }
+            else if (c == '$') { this.readToken(c); }
+            else if (c == '[' && depth == 0) { // the next game's tags, so this game never gave its result
+                this.pending = c;
+                break;
+            }
+            else {
+                this.readToken(c);
+                if (depth == 0) {
+                    String gameResult = result(this.token);
+                    if (gameResult != null) {
+                        result = gameResult;
+                        break;
+                    }
+                    if (skipReason == null) { skipReason = this.play(moves); }
+                }
+            }
+            c = this.skipSpace();
+        }
+        return new PgnGame(tags, moves, result, skipReason);
+    }
+
+    /** Plays the move in the current token, if it holds one
+     * @return why the game must be skipped, or null if it can go on
+     */
+    private String play(List<ChessMove> moves) {
+        StringBuilder token = this.token;
+        int start = 0;
+        while (start < token.length() && (Character.isDigit(token.charAt(start)) || token.charAt(start) == '.')) { start++; } // a move number, possibly run into its move
+        if (start == token.length()) { return null; }
+        if (start > 0) { token.delete(0, start); }
+        if (San.isCastling(token)) { return "castling"; }
+        int move = San.parse(this.position, token, this.scratch);
+        if (move == 0) { return isEnPassant(this.position, token) ? "en passant" : "unresolved move " + token; }
+        this.position.make(move);
+        moves.add(Position.decode(move));
+        return null;
+    }
+
+    /** @return true if the text is a pawn capture onto an empty square */
+    private static boolean isEnPassant(Position position, CharSequence text) {
+        if (text.length() < 4 || text.charAt(0) < 'a' || text.charAt(0) > 'h' || text.charAt(1) != 'x') { return false; }
+        int col = text.charAt(2) - 'a', row = text.charAt(3) - '1';
+        return col >= 0 && col < 8 && (row == 2 || row == 5) && position.pieceAt(row * 8 + col) == 0;
+    }
+
+    /** @return the result a token gives, or null if it is not a result */
+    private static String result(CharSequence token) {
+        String text = token.length() == 1 || token.length() == 3 || token.length() == 7 ? token.toString() : "";
+        return switch (text) {
+            case "1-0", "0-1", "1/2-1/2", "*" -> text;
+            default -> null;
+        };
+    }
+
+    /** Reads a tag pair after its opening bracket */
+    private void readTag(Map<String, String> tags) throws IOException {
+        int c = this.skipSpace();
+        StringBuilder name = new StringBuilder();
+        while (c > ' ' && c != '"' && c != ']') { name.append((char) c); c = this.read(); }
+        while (c >= 0 && c != '"' && c != ']') { c = this.read(); }
+        this.textLength = 0;
+        if (c == '"') {
+            for (c = this.read(); c >= 0 && c != '"' && c != '\n'; c = this.read()) {
+                if (c == '\\') { c = this.read(); }
+                if (this.textLength == this.text.length) { this.text = java.util.Arrays.copyOf(this.text, this.text.length * 2); }
+                this.text[this.textLength++] = (byte) c;
+            }
+            this.skipPast(']');
+        }
+        tags.put(name.toString(), new String(this.text, 0, this.textLength, StandardCharsets.UTF_8));
+    }
+
+    /** Reads a token that starts with a character already read */
+    private void readToken(int first) throws IOException {
+        StringBuilder token = this.token;
+        token.setLength(0);
+        token.append((char) first);
+        int c;
+        while ((c = this.read()) > ' ' && c != '{' && c != '}' && c != '(' && c != ')' && c != '[' && c != ';' && c != '$') { token.append((char) c); }
+        this.pending = c;
+    }
+
+    /** @return the next character that is not white space, or -1 at the end */
+    private int skipSpace() throws IOException {
+        int c;
+        do { c = this.read(); } while (c >= 0 && c <= ' ');
+        return c;
+    }
+
+    private void skipLine() throws IOException { this.skipPast('\n'); }
+
+    private void skipPast(int end) throws IOException {
+        int c;
+        do { c = this.read(); } while (c >= 0 && c != end);
+    }
+
+    /** @return the next byte, or -1 at the end */
+    private int read() throws IOException {
+        if (this.pending != -1) {
+            int c = this.pending;
+            this.pending = -1;
+            return c;
+        }
+        if (this.source != null) { return this.source.hasRemaining() ? this.source.get() & 0xFF : -1; }
+        if (this.index == this.length) {
+            this.length = this.in.read(this.buffer);
+            this.index = 0;
+            if (this.length <= 0) {
+                this.length = 0;
+                return -1;
+            }
+        }
+        return this.buffer[this.index++] & 0xFF;
+    }
+}
@@ -0,0 +1,130 @@
+package chess.notation;
+
+import chess.Position;
+
+/** Reads and writes moves in Standard Algebraic Notation, such as "Nf3", "exd5", "R1e2" or "e8=Q+".
+ * <p>
+ * A move is matched against the position's moves by piece type, target square, promotion and any disambiguating
+ * file or rank, and only the candidates that match are checked for legality. Check, mate and annotation marks are
+ * ignored. Castling is not a legal move under these rules, so "O-O" never resolves.
+ * <p>
+ * Writing a move disambiguates it against the position's legal move list, which the caller works out once and can
+ * reuse for every move it writes or reads in that position.
+ */
+public final class San {
+    private static final String PIECES = "  NBRQK";
+
+    private San() {}
+
+    /** @return true if the text is a castling move, which {@link chess.ChessGame} does not allow */
+    public static boolean isCastling(CharSequence text) {
+        return text.length() >= 3 && (text.charAt(0) == 'O' || text.charAt(0) == '0') && text.charAt(1) == '-';
+    }
+
+    /** @return the SAN text of a legal move, see {@link #append} */
+    public static String format(Position position, int move) {
+        int[] legal = new int[2 * Position.MAX_MOVES];
+        StringBuilder text = new StringBuilder(8);
+        append(text, position, move, legal, position.generateLegal(legal, 0));
+        return text.toString();
+    }
+
+    /** Writes the SAN text of a legal move, disambiguating it against the other legal moves and marking check or mate
+     *
+     * @param text     where to write the move
+     * @param position the position the move is played in, left as it was found
+     * @param move     the packed move
+     * @param legal    the position's legal moves, with room for {@link Position#MAX_MOVES} more after them
+     * @param count    how many legal moves there are
+     */
+    public static void append(StringBuilder text, Position position, int move, int[] legal, int count) {
+        int piece = Position.piece(move), type = Position.type(piece);
+        int from = Position.from(move), to = Position.to(move);
+        boolean capture = Position.captured(move) != 0;
+        if (type == Position.PAWN) {
+            if (capture) { text.append((char) ('a' + (from & 7))); }
+        } else {
+            text.append(PIECES.charAt(type));
+            boolean ambiguous = false, sameFile = false, sameRank = false;
+            for (int i = 0; i < count; i++) {
+                int other = legal[i];
+                if (other == move || Position.to(other) != to || Position.piece(other) != piece) { continue; }
+                ambiguous = true;
+                sameFile |= (Position.from(other) & 7) == (from & 7);
+                sameRank |= (Position.from(other) >> 3) == (from >> 3);
+            }
+            if (ambiguous && (!sameFile || sameRank)) { text.append((char) ('a' + (from & 7))); }
+            if (ambiguous && sameFile) { text.append((char) ('1' + (from >> 3))); }
+        }
+        if (capture) { text.append('x'); }
+        text.append((char) ('a' + (to & 7))).append((char) ('1' + (to >> 3)));
+        if (Position.promotion(move) != 0) { text.append('=').append(PIECES.charAt(Position.promotion(move))); }
+        position.make(move);
+        if (position.inCheck()) { text.append(position.hasLegalMove(legal, count) ? '+' : '#'); }
+        position.unmake(move);
+    }
+
+    /** Finds the legal move a piece of SAN text names
+     *
+     * @param position the position the move is played in
+     * @param text     the move text
+     * @param scratch  a buffer with room for {@link Position#MAX_MOVES} moves
+     * @return the packed move, or 0 if the text names no legal move or more than one
+     */
+    public static int parse(Position position, CharSequence text, int[] scratch) {
+        return match(text, scratch, position.generate(scratch, 0, false), position);
+    }
+
+    /** Finds the move a piece of SAN text names among moves already known to be legal
+     *
+     * @param text  the move text
+     * @param legal the position's legal moves
+     * @param count how many legal moves there are
+     * @return the packed move, or 0 if the text names none of them or more than one
+     */
+    public static int parse(CharSequence text, int[] legal, int count) { return match(text, legal, count, null); }
+
+    /** Matches SAN text against a list of moves, checking each candidate for legality if a position is given */
+    private static int match(CharSequence text, int[] moves, int count, Position position) {
+        int end = text.length();
+        while (end > 0 && "+#!?".indexOf(text.charAt(end - 1)) >= 0) { end--; }
+        int promotion = 0;
+        if (end >= 3 && PIECES.indexOf(text.charAt(end - 1)) >= Position.KNIGHT && text.charAt(end - 1) != 'K') {
+            char before = text.charAt(end - 2);
+            if (before == '=' || (before >= '1' && before <= '8')) {
+                promotion = PIECES.indexOf(text.charAt(end - 1));
+                end -= before == '=' ? 2 : 1;
+            }
+        }
+        if (end < 2) { return 0; }
+        int toCol = text.charAt(end - 2) - 'a', toRow = text.charAt(end - 1) - '1';
+        if (toCol < 0 || toCol > 7 || toRow < 0 || toRow > 7) { return 0; }
+        int start = 0, type = Position.PAWN;
+        int pieceIndex = PIECES.indexOf(text.charAt(0));
+        if (pieceIndex >= Position.KNIGHT) { type = pieceIndex; start = 1; }
+        int fromCol = -1, fromRow = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') { fromCol = c - 'a'; }
+            else if (c >= '1' && c <= '8') { fromRow = c - '1'; }
+            else if (c != 'x' && c != ':' && c != '-') { return 0; }
+        }
+        int to = toRow * 8 + toCol;
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Position.from(move);
+            if (Position.to(move) != to || Position.type(Position.piece(move)) != type || Position.promotion(move) != promotion) { continue; }
+            if ((fromCol >= 0 && (from & 7) != fromCol) || (fromRow >= 0 && (from >> 3) != fromRow)) { continue; }
+            if (position != null) {
+                position.make(move);
+                boolean legal = position.wasLegal();
+                position.unmake(move);
+                if (!legal) { continue; }
+            }
+            if (found != 0) { return 0; } // ambiguous
+            found = move;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,111 @@
+package chess.puzzle;
+
+import chess.Position;
+import chess.notation.Fen;
+import chess.uci.UciMove;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Verifies a file of mate puzzles with {@link MateSolver}, solving one puzzle per core at a time.
+ * <p>
+ * Each line holds a FEN, the number of moves the mate should take and optionally the expected first move in UCI
+ * notation, separated by semicolons, such as {@code 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1; 1; a1a8}. Blank lines and
+ * lines starting with {@code #} are skipped. A puzzle is verified when the solver proves the mate and, if a first move
+ * is given, that move also mates in time. Results print in file order, followed by a summary.
+ * <p>
+ * Usage: {@code MateBatch <puzzle file> [seconds per puzzle] [threads] [hash megabytes per thread]}
+ */
+public class MateBatch {
+    private final long millis;
+    private final int tableMegabytes;
+    private final ThreadLocal<MateSolver> solvers;
+
+    /** A puzzle's line number and fields */
+    private record Puzzle(int line, String fen, int moves, String keyMove) {}
+
+    public MateBatch(long millis, int tableMegabytes) {
+        this.millis = millis;
+        this.tableMegabytes = tableMegabytes;
+        this.solvers = ThreadLocal.withInitial(() -> new MateSolver(this.tableMegabytes));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: MateBatch <puzzle file> [seconds per puzzle] [threads] [hash megabytes per thread]");
+            return;
+        }
+        long millis = args.length > 1 ? (long) (Double.parseDouble(args[1]) * 1000) : 10_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int megabytes = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        new MateBatch(millis, megabytes).run(Path.of(args[0]), threads);
+    }
+
+    /** Solves every puzzle in a file and prints the results */
+    public void run(Path file, int threads) throws IOException, InterruptedException, java.util.concurrent.ExecutionException {
+        List<Puzzle> puzzles = read(file);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<String>> results = new ArrayList<>();
+        for (Puzzle puzzle : puzzles) { results.add(executor.submit(() -> this.verify(puzzle))); }
+        int verified = 0;
+        for (int i = 0; i < results.size(); i++) {
+            String result = results.get(i).get();
+            if (result.startsWith("ok")) { verified++; }
+            System.out.printf("line %d: %s%n", puzzles.get(i).line(), result);
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d of %d puzzles verified in %.1f s on %d threads (%.1f puzzles/s)%n", verified, puzzles.size(), seconds, threads, puzzles.size() / seconds);
+    }
+
+    private static List<Puzzle> read(Path file) throws IOException {
+        List<Puzzle> puzzles = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) { continue; }
+            String[] fields = line.split(";");
+            if (fields.length < 2) { throw new IOException("Line " + (i + 1) + " needs a FEN and a number of moves"); }
+            try {
+                puzzles.add(new Puzzle(i + 1, fields[0].trim(), Integer.parseInt(fields[1].trim()), fields.length > 2 ? fields[2].trim() : ""));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + (i + 1) + " has a bad number of moves: " + fields[1].trim());
+            }
+        }
+        return puzzles;
+    }
+
+    /** @return a one-line result, starting with "ok" when the puzzle checks out */
+    private String verify(Puzzle puzzle) {
+        MateSolver solver = this.solvers.get();
+        solver.clear();
+        Position position;
+        try { position = Fen.parse(puzzle.fen()); }
+        catch (IllegalArgumentException e) { return "bad FEN: " + e.getMessage(); }
+        long start = System.nanoTime();
+        MateSolver.Solution solution = solver.solve(position, puzzle.moves(), Long.MAX_VALUE, this.millis);
+        String stats = String.format("%,d nodes in %.2f s", solution.nodes(), (System.nanoTime() - start) / 1e9);
+        if (solution.status() == MateSolver.Status.UNKNOWN) { return "unresolved within the time limit, " + stats; }
+        if (solution.status() == MateSolver.Status.NO_MATE) { return "no mate in " + puzzle.moves() + ", " + stats; }
+        if (solution.keyMove() == 0) { return "mate in " + puzzle.moves() + " proven but its first move not found within the time limit, " + stats; }
+        String found = UciMove.format(solution.keyMove());
+        if (!puzzle.keyMove().isEmpty() && !puzzle.keyMove().equals(found)) {
+            int expected = UciMove.parse(position, puzzle.keyMove());
+            if (expected == 0) { return "expected first move " + puzzle.keyMove() + " is illegal, " + stats; }
+            position.make(expected);
+            solver.clear();
+            MateSolver.Solution reply = solver.solveDefense(position, puzzle.moves(), Long.MAX_VALUE, this.millis);
+            position.unmake(expected);
+            if (reply.status() != MateSolver.Status.MATE) { return "expected first move " + puzzle.keyMove() + " does not mate in " + puzzle.moves() + " (" + found + " does), " + stats; }
+        }
+        return "ok, mate in " + puzzle.moves() + " starting " + found + ", " + stats;
+    }
+}
@@ -0,0 +1,236 @@
+package chess.puzzle;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Position;
+
+import java.util.SplittableRandom;
+
+/** Proves or refutes forced mates with depth-first proof-number search (df-pn).
+ * <p>
+ * The attacker is the side to move at the root. A node's proof number is how many more positions must be shown to be
+ * mates to prove it, and its disproof number how many must be shown to escape. The search always expands the most
+ * proving child, remembering both numbers for every position in its own hash table, and backs out of a subtree as
+ * soon as another one looks cheaper. Each position is stored with how many plies remain, which keeps the search
+ * bounded and means repeated positions need no special care: the same position with fewer plies left is a different
+ * entry. A solver reuses its buffers and table, so it must not be shared between threads.
+ * <p>
+ * The table has two slots per bucket. The first holds a proven or disproven position, or the root, and only gives
+ * way to another of those; the second takes whatever comes. So the work in progress churns through the second slots
+ * while the results it relies on stay put, and a proof's first move can still be read off the table afterwards.
+ */
+public class MateSolver {
+    public static final int MAX_MATE = 31;
+    private static final int INFINITY = 100_000_000;
+    private static final int MAX_PLY = 2 * MAX_MATE;
+    private static final long[] PLIES_LEFT_KEYS = new long[MAX_PLY + 1];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x4D415445L);
+        for (int i = 0; i < PLIES_LEFT_KEYS.length; i++) { PLIES_LEFT_KEYS[i] = random.nextLong(); }
+    }
+
+    private final long[] keys;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int mask;
+    private long root;
+    private final int[] moves = new int[(MAX_PLY + 1) * Position.MAX_MOVES];
+    private Position position;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+
+    /** The outcome of {@link #solve} */
+    public enum Status { MATE, NO_MATE, UNKNOWN }
+
+    /** What a solver found
+     *
+     * @param status  whether a mate was proven, refuted or neither within the limits
+     * @param moves   the most attacker moves the mate was proven within, or 0 when there is none
+     * @param keyMove the attacker's first move of the mate as a {@link Position} move, or 0
+     * @param nodes   how many positions were expanded
+     */
+    public record Solution(Status status, int moves, int keyMove, long nodes) {
+        public ChessMove firstMove() { return this.keyMove == 0 ? null : Position.decode(this.keyMove); }
+    }
+
+    /** @param tableMegabytes the size of the solver's hash table */
+    public MateSolver(int tableMegabytes) { this(tableMegabytes * (1L << 20) / 16); }
+
+    /** Makes a solver with room for a number of positions, rounded down to a power of two of at least one bucket */
+    MateSolver(long entries) {
+        entries = Long.highestOneBit(Math.max(2, Math.min(1 << 28, entries)));
+        this.keys = new long[(int) entries];
+        this.phis = new int[(int) entries];
+        this.deltas = new int[(int) entries];
+        this.mask = (int) entries - 1;
+    }
+
+    /** Forgets every position, such as before solving an unrelated puzzle */
+    public void clear() { java.util.Arrays.fill(this.keys, 0); }
+
+    /** Looks for a mate for the team whose turn it is in a game */
+    public Solution solve(ChessGame game, int maxMoves, long nodeLimit, long millis) {
+        return this.solve(new Position().load(game.getBoard(), game.getTeamTurn()), maxMoves, nodeLimit, millis);
+    }
+
+    /** Looks for a mate for the side to move within a number of moves
+     *
+     * @param position  the position to solve, which is restored before returning
+     * @param maxMoves  the most attacker moves the mate may take, up to {@value #MAX_MATE}
+     * @param nodeLimit how many positions may be expanded before giving up
+     * @param millis    how long to try before giving up
+     */
+    public Solution solve(Position position, int maxMoves, long nodeLimit, long millis) {
+        int plies = 2 * Math.max(1, Math.min(maxMoves, MAX_MATE)) - 1;
+        Status status = this.prove(position, plies, nodeLimit, millis);
+        return status == Status.MATE ? new Solution(status, maxMoves, this.keyMove(plies), this.nodes) : new Solution(status, 0, 0, this.nodes);
+    }
+
+    /** Looks for a mate against the side to move, such as to check an attacking move someone else chose
+     *
+     * @param maxMoves how many attacker moves the mate may take, counting the one just played
+     * @see #solve(Position, int, long, long)
+     */
+    public Solution solveDefense(Position position, int maxMoves, long nodeLimit, long millis) {
+        Status status = this.prove(position, 2 * Math.max(1, Math.min(maxMoves, MAX_MATE)) - 2, nodeLimit, millis);
+        return new Solution(status, status == Status.MATE ? maxMoves : 0, 0, this.nodes);
+    }
+
+    private Status prove(Position position, int plies, long nodeLimit, long millis) {
+        this.position = position;
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.deadline = System.nanoTime() + millis * 1_000_000L;
+        this.aborted = false;
+        this.root = position.hash() ^ PLIES_LEFT_KEYS[plies];
+        this.search(INFINITY, INFINITY, plies, 0);
+        int entry = this.find(this.root);
+        if (this.aborted || entry < 0) { return Status.UNKNOWN; }
+        boolean attacker = (plies & 1) == 1;
+        return (attacker ? this.phis[entry] : this.deltas[entry]) == 0 ? Status.MATE : Status.NO_MATE;
+    }
+
+    /** Finds a root move whose reply position is proven lost for the defender, proving the replies again if the
+     * table has lost every one of them
+     *
+     * @return the move, or 0 if the limits ran out first
+     */
+    private int keyMove(int plies) {
+        Position position = this.position;
+        int end = position.generateLegal(this.moves, 0);
+        for (int i = 0; i < end; i++) {
+            int entry = this.find(position.hashAfter(this.moves[i]) ^ PLIES_LEFT_KEYS[plies - 1]);
+            if (entry >= 0 && this.deltas[entry] == 0) { return this.moves[i]; }
+        }
+        for (int i = 0; i < end && !this.aborted; i++) {
+            int move = this.moves[i];
+            position.make(move);
+            this.search(INFINITY, INFINITY, plies - 1, 1);
+            int entry = this.find(position.hash() ^ PLIES_LEFT_KEYS[plies - 1]);
+            position.unmake(move);
+            if (!this.aborted && entry >= 0 && this.deltas[entry] == 0) { return move; }
+        }
+        return 0;
+    }
+
+    /** Expands a node until its numbers reach either threshold, in the phi/delta form where phi is the proof number
+     * for the side to move and delta its disproof number, so that a node's phi is the smallest delta of its children
+     * and its delta the sum of their phis.
+     *
+     * @param pliesLeft plies left before the defender must be mated; the attacker moves when it is odd
+     */
+    private void search(int phiThreshold, int deltaThreshold, int pliesLeft, int ply) {
+        if ((++this.nodes & 1023) == 0 && System.nanoTime() > this.deadline) { this.aborted = true; }
+        if (this.nodes >= this.nodeLimit) { this.aborted = true; }
+        if (this.aborted) { return; }
+        Position position = this.position;
+        long key = position.hash() ^ PLIES_LEFT_KEYS[pliesLeft];
+        boolean attacker = (pliesLeft & 1) == 1;
+        int offset = ply * Position.MAX_MOVES;
+        int end = position.generateLegal(this.moves, offset);
+        if (end == offset) { // the side to move loses only when mated, and the attacker always fails when stuck
+            boolean sideToMoveWins = !attacker && !position.inCheck();
+            this.store(key, sideToMoveWins ? 0 : INFINITY, sideToMoveWins ? INFINITY : 0);
+            return;
+        }
+        if (pliesLeft == 0) { // the defender can still move after the attacker's last move
+            this.store(key, 0, INFINITY);
+            return;
+        }
+        if (attacker) { this.seedReplies(offset, end, pliesLeft - 1, ply + 1); }
+        while (true) {
+            int phi = INFINITY, delta = 0, best = -1, secondDelta = INFINITY, bestPhi = 0;
+            for (int i = offset; i < end; i++) {
+                int entry = this.find(position.hashAfter(this.moves[i]) ^ PLIES_LEFT_KEYS[pliesLeft - 1]);
+                int childPhi = entry < 0 ? 1 : this.phis[entry], childDelta = entry < 0 ? 1 : this.deltas[entry];
+                delta = childPhi == INFINITY || delta == INFINITY ? INFINITY : Math.min(INFINITY - 1, delta + childPhi); // only a real proof or refutation is infinite
+                if (childDelta < phi) {
+                    secondDelta = phi;
+                    phi = childDelta;
+                    best = i;
+                    bestPhi = childPhi;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+            if (phi >= phiThreshold || delta >= deltaThreshold) {
+                this.store(key, phi, delta);
+                return;
+            }
+            int childPhiThreshold = deltaThreshold - delta + bestPhi;
+            int childDeltaThreshold = (int) Math.min(phiThreshold, secondDelta + secondDelta / 4L + 1); // a little slack so the search switches subtrees less often
+            int move = this.moves[best];
+            position.make(move);
+            this.search(childPhiThreshold, childDeltaThreshold, pliesLeft - 1, ply + 1);
+            position.unmake(move);
+            if (this.aborted) { return; }
+        }
+    }
+
+    /** Gives each new position after an attacker move a proof number equal to the defender's number of legal replies,
+     * since positions with fewer replies tend to be quicker to prove, and settles the ones that are already mate,
+     * stalemate or out of plies
+     */
+    private void seedReplies(int offset, int end, int pliesLeft, int ply) {
+        Position position = this.position;
+        for (int i = offset; i < end; i++) {
+            long key = position.hashAfter(this.moves[i]) ^ PLIES_LEFT_KEYS[pliesLeft];
+            if (this.find(key) >= 0) { continue; }
+            position.make(this.moves[i]);
+            int replies = position.generateLegal(this.moves, ply * Position.MAX_MOVES) - ply * Position.MAX_MOVES;
+            if (replies == 0 && position.inCheck()) { this.store(key, INFINITY, 0); }
+            else if (replies == 0 || pliesLeft == 0) { this.store(key, 0, INFINITY); }
+            else { this.store(key, 1, replies); }
+            position.unmake(this.moves[i]);
+        }
+    }
+
+    /** @return the table slot holding a key, or -1 */
+    private int find(long key) {
+        int bucket = (int) key & this.mask & ~1;
+        if (this.keys[bucket] == key) { return bucket; }
+        return this.keys[bucket + 1] == key ? bucket + 1 : -1;
+    }
+
+    private void store(long key, int phi, int delta) {
+        int bucket = (int) key & this.mask & ~1;
+        boolean keep = phi == 0 || delta == 0 || key == this.root;
+        int slot;
+        if (this.keys[bucket] == key) { slot = bucket; }
+        else if (keep && !this.keeps(bucket)) {
+            slot = bucket;
+            if (this.keys[bucket + 1] == key) { this.keys[bucket + 1] = 0; } // settled, so it moves to the first slot
+        } else { slot = bucket + 1; }
+        this.keys[slot] = key;
+        this.phis[slot] = phi;
+        this.deltas[slot] = delta;
+    }
+
+    /** @return true if a first slot holds a result or the root, which only another of those may replace */
+    private boolean keeps(int slot) {
+        return this.keys[slot] != 0 && (this.phis[slot] == 0 || this.deltas[slot] == 0 || this.keys[slot] == this.root);
+    }
+}
@@ -0,0 +1,107 @@
+package chess.search;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Analyzes a game's position by iterative deepening, keeping several candidate lines (MultiPV) and streaming
+ * progress to a listener as each line completes at each depth.
+ * <p>
+ * An analysis runs on whatever thread calls {@link #run()}, typically one from the server's executor, and either
+ * stops at a maximum depth or runs until {@link #stop()} is called, such as when the client that asked for it
+ * disconnects. {@link #stop()} may be called from any thread.
+ */
+public class Analysis implements Runnable {
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+    private final Position position;
+    private final int lineCount;
+    private final int maxDepth;
+    private final AnalysisListener listener;
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final Searcher searcher;
+    private final List<AnalysisLine> lines = new ArrayList<>();
+    private long startNanos;
+    private long lastProgressNanos;
+    private int completedDepth;
+
+    /** Prepares an analysis of a game's current position
+     *
+     * @param game      the game to analyze, which is copied so it may keep changing
+     * @param lineCount how many candidate lines to keep (MultiPV)
+     * @param maxDepth  the depth in plies to stop at, or 0 to keep going until stopped
+     * @param table     the transposition table to search with, which may be shared with other analyses
+     * @param listener  receives progress as the analysis runs
+     */
+    public Analysis(ChessGame game, int lineCount, int maxDepth, TranspositionTable table, AnalysisListener listener) {
+        this.position = new Position().load(game.getBoard(), game.getTeamTurn());
+        this.lineCount = Math.max(1, lineCount);
+        this.maxDepth = maxDepth <= 0 ? Searcher.MAX_PLY - 1 : Math.min(maxDepth, Searcher.MAX_PLY - 1);
+        this.listener = listener;
+        this.searcher = new Searcher(table);
+        this.searcher.setStopFlag(this.stop);
+        this.searcher.setProgressCallback(() -> { if (this.progressDue()) { this.report(false); } });
+    }
+
+    /** Asks the analysis to stop; it sends its final progress and returns from {@link #run()} shortly after */
+    public void stop() { this.stop.set(true); }
+
+    /** @return true once the analysis has been asked to stop */
+    public boolean isStopped() { return this.stop.get(); }
+
+    @Override
+    public void run() {
+        this.startNanos = System.nanoTime();
+        this.lastProgressNanos = this.startNanos;
+        int[] excluded = new int[this.lineCount];
+        int[] legalMoves = new int[Position.MAX_MOVES];
+        int lineCount = Math.min(this.lineCount, this.position.generateLegal(legalMoves, 0));
+        for (int depth = 1; depth <= this.maxDepth && lineCount > 0 && !this.stop.get(); depth++) {
+            List<AnalysisLine> depthLines = new ArrayList<>();
+            for (int rank = 0; rank < lineCount; rank++) {
+                int score = this.searcher.searchRoot(this.position, depth, -Searcher.INFINITY, Searcher.INFINITY, excluded, rank);
+                if (this.searcher.aborted()) { break; }
+                excluded[rank] = this.searcher.bestMove();
+                depthLines.add(line(rank + 1, depth, score, this.searcher.principalVariation()));
+                this.merge(depthLines);
+                this.report(false);
+            }
+            if (this.searcher.aborted()) { break; }
+            this.completedDepth = depth;
+            this.report(false);
+        }
+        this.stop.set(true);
+        this.report(true);
+    }
+
+    /** Replaces the first lines of the last completed depth with the lines finished so far at the current depth */
+    private void merge(List<AnalysisLine> depthLines) {
+        List<AnalysisLine> merged = new ArrayList<>(depthLines);
+        for (int i = depthLines.size(); i < this.lines.size(); i++) { merged.add(this.lines.get(i)); }
+        this.lines.clear();
+        this.lines.addAll(merged);
+    }
+
+    private void report(boolean finished) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(1, now - this.startNanos);
+        this.lastProgressNanos = now;
+        long nodes = this.searcher.nodes();
+        this.listener.onProgress(new AnalysisProgress(this.completedDepth, List.copyOf(this.lines), nodes, nodes * 1_000_000_000L / elapsed, elapsed / 1_000_000, finished));
+    }
+
+    /** @return true if enough time has passed since the last progress report to send another */
+    private boolean progressDue() { return System.nanoTime() - this.lastProgressNanos > PROGRESS_INTERVAL_NANOS; }
+
+    private static AnalysisLine line(int rank, int depth, int score, int[] pv) {
+        List<ChessMove> moves = new ArrayList<>(pv.length);
+        for (int move : pv) { moves.add(Position.decode(move)); }
+        int mateIn = 0;
+        if (score > Searcher.MATE_BOUND) { mateIn = (Searcher.MATE - score + 1) / 2; }
+        else if (score < -Searcher.MATE_BOUND) { mateIn = -(Searcher.MATE + score) / 2; }
+        return new AnalysisLine(rank, depth, score, mateIn, moves);
+    }
+}
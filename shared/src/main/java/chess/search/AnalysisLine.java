@@ -0,0 +1,15 @@
+package chess.search;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/** One candidate line of an analysis
+ *
+ * @param rank   1 for the best line, 2 for the second best, and so on
+ * @param depth  the depth in plies the line was searched to
+ * @param score  the score in centipawns from the point of view of the team to move
+ * @param mateIn moves until mate if the line forces one, negative if the team to move is the one mated, or 0
+ * @param moves  the principal variation, starting with the candidate move
+ */
+public record AnalysisLine(int rank, int depth, int score, int mateIn, List<ChessMove> moves) {}
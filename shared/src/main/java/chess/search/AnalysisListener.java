@@ -0,0 +1,9 @@
+package chess.search;
+
+/** Receives the progress of an {@link Analysis} as it runs */
+public interface AnalysisListener {
+    /** Called on the analysis thread each time a line is completed at a new depth, and once more when the analysis ends
+     * @param progress the current state of the analysis
+     */
+    void onProgress(AnalysisProgress progress);
+}
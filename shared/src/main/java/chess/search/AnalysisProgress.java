@@ -0,0 +1,14 @@
+package chess.search;
+
+import java.util.List;
+
+/** A snapshot of a running analysis
+ *
+ * @param depth          the deepest depth completed for every line
+ * @param lines          the best lines found so far, best first
+ * @param nodes          how many positions have been searched
+ * @param nodesPerSecond the search speed so far
+ * @param elapsedMillis  how long the analysis has been running
+ * @param finished       true for the last snapshot an analysis sends
+ */
+public record AnalysisProgress(int depth, List<AnalysisLine> lines, long nodes, long nodesPerSecond, long elapsedMillis, boolean finished) {}
@@ -0,0 +1,83 @@
+package chess.search;
+
+import chess.Position;
+import chess.eval.Evaluator;
+
+/** Resolves the pending captures of a position with a capture-only (quiescence) search.
+ * <p>
+ * At every node the side to move may "stand pat" on the static evaluation instead of capturing, so the result is the
+ * evaluation once no profitable capture remains. Unless given another {@link Evaluator}, it evaluates material alone. Captures that lose material by static exchange are
+ * skipped. All move buffers are allocated once per resolver, so a resolver must not be shared between threads.
+ */
+public class CaptureResolver {
+    public static final int MAX_PLY = 32;
+    private final int[] moves = new int[MAX_PLY * Position.MAX_MOVES];
+    private final int[] scores = new int[MAX_PLY * Position.MAX_MOVES];
+    private final Evaluator evaluator;
+    private long nodes;
+
+    public CaptureResolver() { this(Evaluator.MATERIAL); }
+
+    public CaptureResolver(Evaluator evaluator) { this.evaluator = evaluator; }
+
+    /** Resolves captures from the side to move's point of view
+     *
+     * @param position the position to resolve, which is restored before returning
+     * @return the resolved score in centipawns, positive when the side to move is ahead
+     */
+    public int resolve(Position position) {
+        this.nodes = 0;
+        return this.search(position, -Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+    }
+
+    /** @return how many positions the last call to {@link #resolve} visited */
+    public long nodes() { return this.nodes; }
+
+    /** Runs the capture-only search below a node of a larger search
+     *
+     * @param position the position to resolve, which is restored before returning
+     * @param alpha    the score the side to move is already guaranteed
+     * @param beta     the score the opponent is already guaranteed
+     * @param ply      how many plies below the root this node is, used to pick a move buffer
+     * @return the resolved score from the side to move's point of view
+     */
+    public int search(Position position, int alpha, int beta, int ply) {
+        this.nodes++;
+        int standPat = this.evaluate(position);
+        if (standPat >= beta || ply >= MAX_PLY) { return standPat; }
+        if (standPat > alpha) { alpha = standPat; }
+        int offset = ply * Position.MAX_MOVES;
+        int end = position.generate(this.moves, offset, true);
+        for (int i = offset; i < end; i++) {
+            int move = this.moves[i];
+            this.scores[i] = Position.VALUE[Position.type(Position.captured(move))] * 16 - Position.type(Position.piece(move)); // most valuable victim, least valuable attacker
+        }
+        for (int i = offset; i < end; i++) {
+            this.selectBest(i, end);
+            int move = this.moves[i];
+            if (Position.type(Position.captured(move)) == Position.KING) { return Position.VALUE[Position.KING]; }
+            if (position.staticExchange(move) < 0) { continue; }
+            position.make(move);
+            if (!position.wasLegal()) { position.unmake(move); continue; }
+            int score = -this.search(position, -beta, -alpha, ply + 1);
+            position.unmake(move);
+            if (score >= beta) { return score; }
+            if (score > alpha) { alpha = score; }
+        }
+        return alpha;
+    }
+
+    /** @return the static score of a position from the side to move's point of view */
+    protected int evaluate(Position position) { return this.evaluator.evaluate(position); }
+
+    private void selectBest(int first, int end) {
+        int best = first;
+        for (int i = first + 1; i < end; i++) { if (this.scores[i] > this.scores[best]) { best = i; } }
+        if (best == first) { return; }
+        int move = this.moves[first], score = this.scores[first];
+        this.moves[first] = this.moves[best];
+        this.scores[first] = this.scores[best];
+        this.moves[best] = move;
+        this.scores[best] = score;
+    }
+}
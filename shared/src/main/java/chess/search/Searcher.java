@@ -0,0 +1,208 @@
+package chess.search;
+
+import chess.Position;
+import chess.eval.Evaluator;
+import chess.eval.LinearEvaluator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** A single-threaded alpha-beta searcher over {@link Position}.
+ * <p>
+ * It uses principal variation search with a transposition table, null-move pruning, check extensions, killer and
+ * history move ordering, and resolves the horizon with a {@link CaptureResolver}. Unless given another
+ * {@link Evaluator}, it scores positions with the tuned weights built into the jar. Several searchers may share one
+ * transposition table and one stop flag to search the same position on several threads. Every buffer is allocated
+ * once per searcher, so searching allocates nothing.
+ */
+public class Searcher {
+    public static final int MAX_PLY = 64;
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    /** Scores beyond this are mates */
+    public static final int MATE_BOUND = MATE - MAX_PLY * 2;
+    private static final int CHECK_NODES = 2047;
+
+    private final TranspositionTable table;
+    private final CaptureResolver captureResolver;
+    private final int[] moves = new int[MAX_PLY * Position.MAX_MOVES];
+    private final int[] scores = new int[MAX_PLY * Position.MAX_MOVES];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[16][64];
+    private final long[] pathHashes = new long[MAX_PLY + 1];
+    private Position position;
+    private AtomicBoolean stop = new AtomicBoolean();
+    private Runnable progressCallback = () -> {};
+    private long deadline = Long.MAX_VALUE;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long nodes;
+    private boolean aborted;
+
+    public Searcher(TranspositionTable table) { this(table, LinearEvaluator.builtIn()); }
+
+    public Searcher(TranspositionTable table, Evaluator evaluator) {
+        this.table = table;
+        this.captureResolver = new CaptureResolver(evaluator);
+    }
+
+    /** Shares a stop flag with whoever may need to end the search early; setting it ends the search within a few thousand nodes */
+    public void setStopFlag(AtomicBoolean stop) { this.stop = stop; }
+    /** @param progressCallback called every few thousand nodes from the searching thread, such as to report progress during a long search */
+    public void setProgressCallback(Runnable progressCallback) { this.progressCallback = progressCallback; }
+    /** @param deadline the {@link System#nanoTime()} after which the search stops, or Long.MAX_VALUE for none */
+    public void setDeadline(long deadline) { this.deadline = deadline; }
+    /** @param nodeLimit how many nodes the search may visit before stopping */
+    public void setNodeLimit(long nodeLimit) { this.nodeLimit = nodeLimit; }
+
+    /** @return nodes visited since the last {@link #resetNodes} */
+    public long nodes() { return this.nodes; }
+    public void resetNodes() { this.nodes = 0; }
+    /** @return true if the last search was cut short, in which case its result must not be used */
+    public boolean aborted() { return this.aborted; }
+    /** Forgets killer moves and history scores, such as before searching an unrelated position */
+    public void clearHistory() {
+        for (int[] killer : this.killers) { killer[0] = 0; killer[1] = 0; }
+        for (int[] scores : this.history) { java.util.Arrays.fill(scores, 0); }
+    }
+
+    /** Searches the root position to a fixed depth
+     *
+     * @param position      the position to search, which is restored before returning
+     * @param depth         the depth in plies
+     * @param alpha         the lower bound of the search window
+     * @param beta          the upper bound of the search window
+     * @param excluded      root moves not to consider, such as the best moves of earlier lines in a multi-line search
+     * @param excludedCount how many entries of excluded to use
+     * @return the score from the side to move's point of view, or 0 with {@link #aborted()} set if the search was stopped
+     */
+    public int searchRoot(Position position, int depth, int alpha, int beta, int[] excluded, int excludedCount) {
+        this.position = position;
+        this.aborted = false;
+        this.pvLength[0] = 0;
+        int score = this.search(depth, alpha, beta, 0, true, excluded, excludedCount);
+        return this.aborted ? 0 : score;
+    }
+
+    /** @return the principal variation of the last root search, whose first move is the best move */
+    public int[] principalVariation() { return java.util.Arrays.copyOf(this.pv[0], this.pvLength[0]); }
+
+    /** @return the best move of the last root search, or 0 if it found none */
+    public int bestMove() { return this.pvLength[0] > 0 ? this.pv[0][0] : 0; }
+
+    private int search(int depth, int alpha, int beta, int ply, boolean nullAllowed, int[] excluded, int excludedCount) {
+        this.pvLength[ply] = ply;
+        if ((++this.nodes & CHECK_NODES) == 0) {
+            if (this.stop.get() || System.nanoTime() > this.deadline) { this.aborted = true; }
+            this.progressCallback.run();
+        }
+        if (this.nodes >= this.nodeLimit) { this.aborted = true; }
+        if (this.aborted) { return 0; }
+        Position position = this.position;
+        this.pathHashes[ply] = position.hash();
+        if (ply > 0) {
+            for (int i = ply - 2; i >= 0; i -= 2) { if (this.pathHashes[i] == position.hash()) { return 0; } } // repeated within the search path
+        }
+        boolean inCheck = position.inCheck();
+        if (inCheck) { depth++; }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            long before = this.captureResolver.nodes();
+            int score = this.captureResolver.search(position, alpha, beta, 0);
+            this.nodes += this.captureResolver.nodes() - before;
+            return score;
+        }
+        boolean pvNode = beta - alpha > 1;
+        long entry = this.table.probe(position.hash());
+        int tableMove = TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && !pvNode && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.fromStored(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta) || (bound == TranspositionTable.UPPER && score <= alpha)) { return score; }
+        }
+        int us = position.sideToMove();
+        if (nullAllowed && !pvNode && !inCheck && depth >= 3 && ply > 0 && position.material(us) > Position.VALUE[Position.ROOK]) {
+            position.flipSideToMove();
+            int score = -this.search(depth - 3, -beta, -beta + 1, ply + 1, false, null, 0);
+            position.flipSideToMove();
+            if (this.aborted) { return 0; }
+            if (score >= beta && score < MATE_BOUND) { return beta; }
+        }
+
+        int offset = ply * Position.MAX_MOVES;
+        int end = position.generate(this.moves, offset, false);
+        this.scoreMoves(offset, end, tableMove, ply);
+        int bestScore = -INFINITY, bestMove = 0, legalMoves = 0;
+        int originalAlpha = alpha;
+        for (int i = offset; i < end; i++) {
+            this.selectBest(i, end);
+            int move = this.moves[i];
+            if (isExcluded(move, excluded, excludedCount)) { continue; }
+            position.make(move);
+            if (!position.wasLegal()) { position.unmake(move); continue; }
+            legalMoves++;
+            int score;
+            if (legalMoves == 1) { score = -this.search(depth - 1, -beta, -alpha, ply + 1, true, null, 0); }
+            else {
+                score = -this.search(depth - 1, -alpha - 1, -alpha, ply + 1, true, null, 0);
+                if (score > alpha && score < beta) { score = -this.search(depth - 1, -beta, -alpha, ply + 1, true, null, 0); }
+            }
+            position.unmake(move);
+            if (this.aborted) { return 0; }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    this.pv[ply][ply] = move;
+                    System.arraycopy(this.pv[ply + 1], ply + 1, this.pv[ply], ply + 1, this.pvLength[ply + 1] - ply - 1);
+                    this.pvLength[ply] = Math.max(ply + 1, this.pvLength[ply + 1]);
+                }
+            }
+            if (alpha >= beta) {
+                if (Position.captured(move) == 0) {
+                    if (this.killers[ply][0] != move) { this.killers[ply][1] = this.killers[ply][0]; this.killers[ply][0] = move; }
+                    this.history[Position.piece(move)][Position.to(move)] += depth * depth;
+                }
+                break;
+            }
+        }
+        if (legalMoves == 0) {
+            if (excludedCount > 0) { return -INFINITY; } // every root move is excluded
+            return inCheck ? -MATE + ply : 0;
+        }
+        int bound = bestScore >= beta ? TranspositionTable.LOWER : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        if (excludedCount == 0) { this.table.store(position.hash(), bestMove, TranspositionTable.toStored(bestScore, ply), depth, bound); }
+        return bestScore;
+    }
+
+    private static boolean isExcluded(int move, int[] excluded, int excludedCount) {
+        for (int i = 0; i < excludedCount; i++) { if (excluded[i] == move) { return true; } }
+        return false;
+    }
+
+    private void scoreMoves(int offset, int end, int tableMove, int ply) {
+        for (int i = offset; i < end; i++) {
+            int move = this.moves[i];
+            int score;
+            if (move == tableMove) { score = 1 << 30; }
+            else if (Position.captured(move) != 0 || Position.promotion(move) != 0) {
+                score = (1 << 28) + Position.VALUE[Position.type(Position.captured(move))] * 16 + Position.VALUE[Position.promotion(move)] - Position.type(Position.piece(move));
+            }
+            else if (move == this.killers[ply][0]) { score = (1 << 27) + 1; }
+            else if (move == this.killers[ply][1]) { score = 1 << 27; }
+            else { score = Math.min(this.history[Position.piece(move)][Position.to(move)], (1 << 27) - 1); }
+            this.scores[i] = score;
+        }
+    }
+
+    private void selectBest(int first, int end) {
+        int best = first;
+        for (int i = first + 1; i < end; i++) { if (this.scores[i] > this.scores[best]) { best = i; } }
+        if (best == first) { return; }
+        int move = this.moves[first], score = this.scores[first];
+        this.moves[first] = this.moves[best];
+        this.scores[first] = this.scores[best];
+        this.moves[best] = move;
+        this.scores[best] = score;
+    }
+}
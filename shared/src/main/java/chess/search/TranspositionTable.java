@@ -0,0 +1,65 @@
+package chess.search;
+
+/** A fixed-size hash table of search results shared by every search thread.
+ * <p>
+ * Each slot is two longs: the position's hash XORed with the packed data, and the data itself. A reader only trusts
+ * a slot whose two halves XOR back to its hash, so a slot torn by two threads writing at once is simply a miss and
+ * no locking is needed.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1, LOWER = 2, UPPER = 3;
+    private final long[] slots;
+    private final int mask;
+
+    /** @param megabytes roughly how much memory the table may use */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1024, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 28));
+        this.slots = new long[size * 2];
+        this.mask = size - 1;
+    }
+
+    /** Empties the table */
+    public void clear() { java.util.Arrays.fill(this.slots, 0); }
+
+    /** Stores a search result, replacing whatever was in its slot
+     *
+     * @param hash  the position's hash
+     * @param move  the best move found, or 0
+     * @param score the score, already adjusted with {@link #toStored}
+     * @param depth the depth searched
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        long data = (move & 0xFFFFFFL) | (long) (score + 32768) << 24 | (long) Math.max(0, Math.min(depth, 255)) << 40 | (long) bound << 48;
+        int slot = ((int) hash & this.mask) << 1;
+        this.slots[slot] = hash ^ data;
+        this.slots[slot + 1] = data;
+    }
+
+    /** @return the packed data stored for a hash, or 0 if there is none */
+    public long probe(long hash) {
+        int slot = ((int) hash & this.mask) << 1;
+        long data = this.slots[slot + 1];
+        return (this.slots[slot] ^ data) == hash ? data : 0;
+    }
+
+    public static int move(long data) { return (int) (data & 0xFFFFFF); }
+    public static int score(long data) { return (int) ((data >>> 24) & 0xFFFF) - 32768; }
+    public static int depth(long data) { return (int) ((data >>> 40) & 0xFF); }
+    public static int bound(long data) { return (int) ((data >>> 48) & 3); }
+
+    /** Converts a mate score relative to the root into one relative to the node at a ply, so it can be reused at any ply */
+    public static int toStored(int score, int ply) {
+        if (score > Searcher.MATE_BOUND) { return score + ply; }
+        if (score < -Searcher.MATE_BOUND) { return score - ply; }
+        return score;
+    }
+
+    /** Reverses {@link #toStored} for a node at a ply */
+    public static int fromStored(int score, int ply) {
+        if (score > Searcher.MATE_BOUND) { return score - ply; }
+        if (score < -Searcher.MATE_BOUND) { return score + ply; }
+        return score;
+    }
+}
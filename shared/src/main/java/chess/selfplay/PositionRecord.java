@@ -0,0 +1,43 @@
+package chess.selfplay;
+
+import chess.Position;
+
+import java.nio.ByteBuffer;
+
+/** The fixed-size binary record self-play files hold for each position.
+ * <p>
+ * A record is {@value #SIZE} bytes: the 64 squares as 4-bit piece codes (two squares per byte, lower square in the
+ * low nibble), the side to move, the game result from white's point of view ({@link #WHITE_LOSS}, {@link #DRAW} or
+ * {@link #WHITE_WIN}) and the search score from white's point of view as a 16-bit value.
+ */
+public final class PositionRecord {
+    public static final int SIZE = 36;
+    public static final int WHITE_LOSS = 0, DRAW = 1, WHITE_WIN = 2;
+
+    private PositionRecord() {}
+
+    /** Appends a record to a buffer, which must have {@value #SIZE} bytes free */
+    public static void write(ByteBuffer buffer, Position position, int result, int whiteScore) {
+        for (int sq = 0; sq < 64; sq += 2) { buffer.put((byte) (position.pieceAt(sq) | position.pieceAt(sq + 1) << 4)); }
+        buffer.put((byte) position.sideToMove());
+        buffer.put((byte) result);
+        buffer.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, whiteScore)));
+    }
+
+    /** Reads the record at an absolute offset into a position, leaving the buffer's own position alone
+     * @return the game result stored with it
+     */
+    public static int read(ByteBuffer buffer, int offset, Position position) {
+        position.clear();
+        for (int i = 0; i < 32; i++) {
+            int packed = buffer.get(offset + i);
+            if ((packed & 15) != 0) { position.put(2 * i, packed & 15); }
+            if ((packed >>> 4 & 15) != 0) { position.put(2 * i + 1, packed >>> 4 & 15); }
+        }
+        if (buffer.get(offset + 32) != Position.WHITE) { position.flipSideToMove(); }
+        return buffer.get(offset + 33);
+    }
+
+    /** @return the search score stored in the record at an absolute offset */
+    public static int score(ByteBuffer buffer, int offset) { return buffer.getShort(offset + 34); }
+}
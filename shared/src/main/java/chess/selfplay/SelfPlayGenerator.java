@@ -0,0 +1,165 @@
+package chess.selfplay;
+
+import chess.Position;
+import chess.notation.Fen;
+import chess.search.Searcher;
+import chess.search.TranspositionTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Plays independent self-play games on a work-stealing pool and streams their positions, labeled with each game's
+ * result, into a file of {@link PositionRecord}s for tuning the evaluation.
+ * <p>
+ * Each worker thread keeps its own searcher and transposition table, so games share nothing but the output file.
+ * A game's records are buffered until it ends and its result is known, then written with a single channel write.
+ * Positions in check and the random opening moves are left out.
+ * <p>
+ * Usage: {@code SelfPlayGenerator <output file> <games> [nodes per move] [threads]}
+ */
+public class SelfPlayGenerator {
+    private static final int RANDOM_PLIES = 8;
+    private static final int MAX_PLIES = 300;
+    private static final int ADJUDICATE_SCORE = 1500, ADJUDICATE_PLIES = 8;
+    private static final int GAMES_PER_TASK = 4;
+    private final FileChannel output;
+    private final long nodesPerMove;
+    private final long seed;
+    private final AtomicLong positions = new AtomicLong();
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /** What one pool thread needs to play games, reused from game to game */
+    private final class Worker {
+        final Searcher searcher = new Searcher(new TranspositionTable(4));
+        final Position position = new Position();
+        final int[] moves = new int[Position.MAX_MOVES];
+        final ByteBuffer records = ByteBuffer.allocate(MAX_PLIES * PositionRecord.SIZE);
+        final long[] hashes = new long[MAX_PLIES + 1];
+        int score;
+    }
+
+    public SelfPlayGenerator(FileChannel output, long nodesPerMove, long seed) {
+        this.output = output;
+        this.nodesPerMove = nodesPerMove;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SelfPlayGenerator <output file> <games> [nodes per move] [threads]");
+            return;
+        }
+        int games = Integer.parseInt(args[1]);
+        long nodes = args.length > 2 ? Long.parseLong(args[2]) : 5000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        try (FileChannel output = FileChannel.open(Path.of(args[0]), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            SelfPlayGenerator generator = new SelfPlayGenerator(output, nodes, System.nanoTime());
+            long start = System.nanoTime();
+            generator.generate(pool, games);
+            pool.shutdown();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%,d games, %,d positions in %.1f s on %d threads: %.1f games/s, %,.0f positions/s%n",
+                    games, generator.positions(), seconds, threads, games / seconds, generator.positions() / seconds);
+        }
+    }
+
+    /** Plays a number of games on a pool, returning once all of them are written */
+    public void generate(ForkJoinPool pool, int games) { pool.invoke(new Games(0, games)); }
+
+    /** @return how many positions have been written so far */
+    public long positions() { return this.positions.get(); }
+
+    /** A range of games, split in half until it is small enough to play directly */
+    private final class Games extends RecursiveAction {
+        private final int first, end;
+
+        Games(int first, int end) { this.first = first; this.end = end; }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.first > GAMES_PER_TASK) {
+                int middle = (this.first + this.end) >>> 1;
+                invokeAll(new Games(this.first, middle), new Games(middle, this.end));
+                return;
+            }
+            for (int game = this.first; game < this.end; game++) {
+                try { SelfPlayGenerator.this.playGame(game); } catch (IOException e) { throw new java.io.UncheckedIOException(e); }
+            }
+        }
+    }
+
+    private void playGame(int game) throws IOException {
+        Worker worker = this.workers.get();
+        Position position = worker.position.copyFrom(Fen.parse(Fen.START));
+        SplittableRandom random = new SplittableRandom(this.seed ^ game * 0x9E3779B97F4A7C15L);
+        ByteBuffer records = worker.records;
+        records.clear();
+        int recorded = 0, decisivePlies = 0, result = PositionRecord.DRAW;
+        worker.searcher.clearHistory();
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            worker.hashes[ply] = position.hash();
+            int count = position.generateLegal(worker.moves, 0);
+            if (count == 0) {
+                if (position.inCheck()) { result = position.sideToMove() == Position.WHITE ? PositionRecord.WHITE_LOSS : PositionRecord.WHITE_WIN; }
+                break;
+            }
+            if (repeated(worker.hashes, ply)) { break; }
+            int move;
+            if (ply < RANDOM_PLIES) { move = worker.moves[random.nextInt(count)]; }
+            else {
+                move = this.search(worker, position);
+                if (move == 0) { move = worker.moves[0]; }
+                int score = worker.score;
+                int whiteScore = position.sideToMove() == Position.WHITE ? score : -score;
+                if (!position.inCheck() && Math.abs(score) < Searcher.MATE_BOUND) {
+                    PositionRecord.write(records, position, PositionRecord.DRAW, whiteScore);
+                    recorded++;
+                }
+                decisivePlies = Math.abs(score) >= ADJUDICATE_SCORE ? decisivePlies + 1 : 0;
+                if (decisivePlies >= ADJUDICATE_PLIES) {
+                    result = whiteScore > 0 ? PositionRecord.WHITE_WIN : PositionRecord.WHITE_LOSS;
+                    break;
+                }
+            }
+            position.make(move);
+        }
+        for (int i = 0; i < recorded; i++) { records.put(i * PositionRecord.SIZE + 33, (byte) result); } // the result was unknown when each record was written
+        records.flip();
+        while (records.hasRemaining()) { this.output.write(records); }
+        this.positions.addAndGet(recorded);
+    }
+
+    /** Searches by iterative deepening until the node budget runs out, leaving the score in the worker
+     * @return the best move of the deepest completed search, or 0 if not even the first depth completed
+     */
+    private int search(Worker worker, Position position) {
+        Searcher searcher = worker.searcher;
+        searcher.resetNodes();
+        searcher.setNodeLimit(this.nodesPerMove);
+        int bestMove = 0;
+        worker.score = 0;
+        for (int depth = 1; depth < Searcher.MAX_PLY; depth++) {
+            int score = searcher.searchRoot(position, depth, -Searcher.INFINITY, Searcher.INFINITY, null, 0);
+            if (searcher.aborted()) { break; }
+            worker.score = score;
+            bestMove = searcher.bestMove();
+            if (Math.abs(score) > Searcher.MATE_BOUND) { break; }
+        }
+        return bestMove;
+    }
+
+    /** @return true if the position at a ply has occurred twice before in the game */
+    private static boolean repeated(long[] hashes, int ply) {
+        int count = 0;
+        for (int i = ply - 2; i >= 0; i -= 2) { if (hashes[i] == hashes[ply] && ++count >= 2) { return true; } }
+        return false;
+    }
+}
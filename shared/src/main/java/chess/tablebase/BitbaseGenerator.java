@@ -0,0 +1,240 @@
+package chess.tablebase;
+
+import chess.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Builds win/draw/loss bitbases for small endings by retrograde analysis, writing the files {@link Tablebases} reads.
+ * <p>
+ * Every index of a signature is first classified as illegal, mate, stalemate or unresolved. Each following pass
+ * resolves the positions that are won or lost in exactly one more ply, looking only at results settled in earlier
+ * passes, so passes can be split across a fork/join pool without locking and still give the same answer. Positions
+ * still unresolved once a pass settles nothing are draws. Moves that capture or promote lead into smaller tables,
+ * which are generated first.
+ * <p>
+ * Usage: {@code BitbaseGenerator <output directory> <signature>...}, for example {@code tables KQvK KRvK KPvK}.
+ */
+public class BitbaseGenerator {
+    private static final byte UNKNOWN = 0, LOSS = 1, DRAW = 2, WIN = 3, ILLEGAL = 4;
+    private static final int CHUNK = 1 << 15;
+    private final ForkJoinPool pool;
+    private final Map<String, Table> tables = new HashMap<>();
+
+    /** A generated table: the outcome of every index, with the plies to mate of decided ones above its low three bits.
+     * Outcome and distance share one short so that a thread never sees one without the other.
+     */
+    private record Table(Material material, short[] states) {}
+
+    public BitbaseGenerator(ForkJoinPool pool) { this.pool = pool; }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BitbaseGenerator <output directory> <signature>...");
+            return;
+        }
+        Path directory = Path.of(args[0]);
+        Files.createDirectories(directory);
+        BitbaseGenerator generator = new BitbaseGenerator(ForkJoinPool.commonPool());
+        for (int i = 1; i < args.length; i++) {
+            long start = System.nanoTime();
+            Material material = Material.parse(args[i]);
+            generator.generate(material);
+            long bytes = generator.write(material, directory);
+            System.out.printf("%s: %,d positions in %.1f s, %,d bytes on disk%n", material.name(), material.size(), (System.nanoTime() - start) / 1e9, bytes);
+        }
+    }
+
+    /** Generates a signature's table, and the tables of every smaller signature it can reach, keeping them in memory */
+    public void generate(Material material) {
+        if (this.tables.containsKey(material.name()) || material.pieceCount() <= 2) { return; }
+        for (Material smaller : this.successors(material)) { this.generate(smaller); }
+        long size = material.size();
+        if (size > Integer.MAX_VALUE) { throw new IllegalArgumentException("Too many pieces to generate: " + material.name()); }
+        Table table = new Table(material, new short[(int) size]);
+        int maxSuccessorDistance = 0;
+        for (Material smaller : this.successors(material)) {
+            Table successor = this.tables.get(smaller.name());
+            if (successor != null) { for (short state : successor.states()) { maxSuccessorDistance = Math.max(maxSuccessorDistance, state >>> 3); } }
+        }
+        this.pool.invoke(new Pass(table, 0, 0, (int) size));
+        for (int ply = 1; ply < 255; ply++) {
+            int resolved = this.pool.invoke(new Pass(table, ply, 0, (int) size));
+            if (resolved == 0 && ply > maxSuccessorDistance + 1) { break; }
+        }
+        this.tables.put(material.name(), table);
+    }
+
+    /** @return every signature reachable from this one by a single capture or promotion */
+    private Iterable<Material> successors(Material material) {
+        Map<String, Material> successors = new HashMap<>();
+        int n = material.pieceCount();
+        for (int slot = 0; slot < n; slot++) {
+            int piece = material.piece(slot);
+            if (Position.type(piece) == Position.KING) { continue; }
+            int[] captured = new int[n - 1];
+            for (int i = 0, j = 0; i < n; i++) { if (i != slot) { captured[j++] = material.piece(i); } }
+            add(successors, captured);
+            if (Position.type(piece) == Position.PAWN) {
+                for (int promotion = Position.KNIGHT; promotion <= Position.QUEEN; promotion++) {
+                    int[] promoted = new int[n];
+                    for (int i = 0; i < n; i++) { promoted[i] = i == slot ? promotion | (piece & Position.BLACK_BIT) : material.piece(i); }
+                    add(successors, promoted);
+                    for (int other = 0; other < n; other++) { // promoting with a capture
+                        if (other == slot || Position.type(material.piece(other)) == Position.KING || Position.color(material.piece(other)) == Position.color(piece)) { continue; }
+                        int[] both = new int[n - 1];
+                        for (int i = 0, j = 0; i < n; i++) { if (i != other) { both[j++] = promoted[i]; } }
+                        add(successors, both);
+                    }
+                }
+            }
+        }
+        return successors.values();
+    }
+
+    private static void add(Map<String, Material> successors, int[] pieces) {
+        Position position = new Position();
+        int sq = 0;
+        for (int piece : pieces) { position.put(sq++, piece); }
+        Material material = Material.of(position);
+        successors.put(material.name(), material);
+    }
+
+    /** Writes a generated table as a WDL file and a DTM file
+     * @return the total size of the files written
+     */
+    public long write(Material material, Path directory) throws IOException {
+        Table table = this.tables.get(material.name());
+        short[] states = table.states();
+        byte[] packed = new byte[(states.length + 3) / 4];
+        byte[] distances = new byte[states.length];
+        for (int i = 0; i < states.length; i++) {
+            distances[i] = (byte) (states[i] >>> 3);
+            int code = switch (states[i] & 7) {
+                case ILLEGAL -> 0;
+                case LOSS -> 1;
+                case WIN -> 3;
+                default -> 2;
+            };
+            packed[i >>> 2] |= (byte) (code << ((i & 3) * 2));
+        }
+        return writeFile(directory.resolve(material.name() + ".wdl"), material, TablebaseFile.WDL, packed)
+                + writeFile(directory.resolve(material.name() + ".dtm"), material, TablebaseFile.DTM, distances);
+    }
+
+    private static long writeFile(Path file, Material material, int kind, byte[] entries) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(TablebaseFile.HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(TablebaseFile.MAGIC).put((byte) TablebaseFile.VERSION).put((byte) kind).put((byte) material.pieceCount());
+        for (int i = 0; i < material.pieceCount(); i++) { header.put((byte) material.piece(i)); }
+        header.position(TablebaseFile.HEADER_SIZE).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) { channel.write(header); }
+            ByteBuffer body = ByteBuffer.wrap(entries);
+            while (body.hasRemaining()) { channel.write(body); }
+            return channel.size();
+        }
+    }
+
+    /** One pass over a range of indexes, split in half until it is small enough to run directly
+     * <p>
+     * Pass 0 classifies every index; pass n resolves the positions decided in exactly n plies. Returns how many were resolved.
+     */
+    private final class Pass extends RecursiveTask<Integer> {
+        private final Table table;
+        private final int ply, start, end;
+
+        Pass(Table table, int ply, int start, int end) {
+            this.table = table;
+            this.ply = ply;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (this.end - this.start > CHUNK) {
+                int middle = (this.start + this.end) >>> 1;
+                Pass low = new Pass(this.table, this.ply, this.start, middle);
+                low.fork();
+                int high = new Pass(this.table, this.ply, middle, this.end).compute();
+                return high + low.join();
+            }
+            Material material = this.table.material();
+            short[] states = this.table.states();
+            Position position = new Position();
+            int[] squares = new int[material.pieceCount()];
+            int[] moved = new int[material.pieceCount()];
+            int[] moves = new int[Position.MAX_MOVES];
+            int resolved = 0;
+            for (int index = this.start; index < this.end; index++) {
+                if (this.ply == 0) {
+                    if (!material.setup(position, squares, index)) { states[index] = ILLEGAL; continue; }
+                    if (!position.hasLegalMove(moves, 0)) { states[index] = position.inCheck() ? LOSS : DRAW; resolved++; }
+                    continue;
+                }
+                if (states[index] != UNKNOWN) { continue; }
+                material.setup(position, squares, index);
+                int outcome = this.resolve(position, squares, moved, moves);
+                if (outcome != UNKNOWN) {
+                    states[index] = (short) (outcome | this.ply << 3);
+                    resolved++;
+                }
+            }
+            return resolved;
+        }
+
+        /** @return WIN or LOSS if the position is decided in exactly this pass's number of plies, otherwise UNKNOWN */
+        private int resolve(Position position, int[] squares, int[] moved, int[] moves) {
+            boolean allLost = true;
+            int longest = 0;
+            int end = position.generate(moves, 0, false);
+            for (int i = 0; i < end; i++) {
+                int move = moves[i];
+                position.make(move);
+                if (!position.wasLegal()) { position.unmake(move); continue; }
+                int child = this.child(position, squares, moved, move);
+                position.unmake(move);
+                int outcome = child & 7, distance = child >>> 3;
+                if (outcome == LOSS && distance == this.ply - 1) { return WIN; }
+                if (outcome == WIN && distance < this.ply) { longest = Math.max(longest, distance); }
+                else { allLost = false; }
+            }
+            return allLost && longest == this.ply - 1 ? LOSS : UNKNOWN;
+        }
+
+        /** @return the settled outcome of the position after a move, with its distance above the low three bits */
+        private int child(Position position, int[] squares, int[] moved, int move) {
+            Table table = this.table;
+            long index;
+            if (Position.captured(move) == 0 && Position.promotion(move) == 0) {
+                Material material = table.material();
+                System.arraycopy(squares, 0, moved, 0, squares.length);
+                int from = Position.from(move), to = Position.to(move);
+                for (int slot = 0; slot < moved.length; slot++) { if (moved[slot] == from) { moved[slot] = to; break; } }
+                for (int slot = 1; slot < moved.length; slot++) { // keep equal pieces in ascending order
+                    for (int j = slot; j > 0 && material.piece(j - 1) == material.piece(j) && moved[j - 1] > moved[j]; j--) {
+                        int swap = moved[j]; moved[j] = moved[j - 1]; moved[j - 1] = swap;
+                    }
+                }
+                index = material.index(moved, position.sideToMove());
+            } else {
+                Material material = Material.of(position);
+                if (material.pieceCount() <= 2) { return DRAW; }
+                table = BitbaseGenerator.this.tables.get(material.name());
+                index = material.index(position, Material.mirrored(position));
+            }
+            int state = table.states()[(int) index];
+            if (table == this.table && state >>> 3 >= this.ply) { return UNKNOWN; } // settled during this pass, so not yet visible to it
+            return state;
+        }
+    }
+}
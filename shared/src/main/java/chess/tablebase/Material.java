@@ -0,0 +1,151 @@
+package chess.tablebase;
+
+import chess.Position;
+
+import java.util.Arrays;
+
+/** A material signature such as KQvK, and the indexing scheme tablebase files for it use.
+ * <p>
+ * Signatures are canonical: the stronger side is always white, and a position where black is stronger is looked up
+ * with its colors swapped and the board flipped. Each piece of the signature gets a square from 0 to 63, and a
+ * position's index is those squares read as base-64 digits, with the side to move as the highest digit. Several
+ * pieces of the same kind take their squares in ascending order, so every index has exactly one meaning.
+ */
+public final class Material {
+    private static final char[] LETTERS = { ' ', 'P', 'N', 'B', 'R', 'Q', 'K' };
+    private final int[] pieces;
+    private final String name;
+
+    /** @param pieces the piece codes in the signature, white's then black's, each side's ordered king first then by value */
+    public Material(int[] pieces) {
+        this.pieces = pieces.clone();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < pieces.length; i++) {
+            if (i > 0 && Position.color(pieces[i]) != Position.color(pieces[i - 1])) { name.append('v'); }
+            name.append(LETTERS[Position.type(pieces[i])]);
+        }
+        this.name = name.toString();
+    }
+
+    /** Parses a signature name such as "KRPvKR"
+     * @throws IllegalArgumentException if the name is not a valid signature
+     */
+    public static Material parse(String name) {
+        String[] sides = name.toUpperCase().split("V");
+        if (sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K")) { throw new IllegalArgumentException("Not a material signature: " + name); }
+        int[] pieces = new int[sides[0].length() + sides[1].length()];
+        int n = 0;
+        for (int color = 0; color < 2; color++) {
+            for (char letter : sides[color].toCharArray()) {
+                int type = new String(LETTERS).indexOf(letter);
+                if (type <= 0) { throw new IllegalArgumentException("Not a material signature: " + name); }
+                pieces[n++] = type | (color == Position.WHITE ? 0 : Position.BLACK_BIT);
+            }
+        }
+        return new Material(sorted(pieces));
+    }
+
+    /** @return the canonical signature of a position's pieces */
+    public static Material of(Position position) {
+        int[] pieces = new int[32];
+        int n = 0;
+        boolean mirrored = mirrored(position);
+        for (int sq = 0; sq < 64 && n < pieces.length; sq++) {
+            int piece = position.pieceAt(sq);
+            if (piece != 0) { pieces[n++] = mirrored ? piece ^ Position.BLACK_BIT : piece; }
+        }
+        return new Material(sorted(Arrays.copyOf(pieces, n)));
+    }
+
+    /** @return true if a position has to have its colors swapped to match its canonical signature */
+    public static boolean mirrored(Position position) {
+        int[] strength = new int[2];
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = position.pieceAt(sq);
+            if (piece != 0) { strength[Position.color(piece)] += Position.VALUE[Position.type(piece)] * 16 + 1; }
+        }
+        return strength[Position.BLACK] > strength[Position.WHITE];
+    }
+
+    private static int[] sorted(int[] pieces) {
+        for (int i = 1; i < pieces.length; i++) {
+            int piece = pieces[i], j = i - 1;
+            for (; j >= 0 && before(piece, pieces[j]); j--) { pieces[j + 1] = pieces[j]; }
+            pieces[j + 1] = piece;
+        }
+        return pieces;
+    }
+
+    private static boolean before(int a, int b) {
+        if (Position.color(a) != Position.color(b)) { return Position.color(a) < Position.color(b); }
+        return Position.VALUE[Position.type(a)] > Position.VALUE[Position.type(b)];
+    }
+
+    public String name() { return this.name; }
+    public int pieceCount() { return this.pieces.length; }
+    public int piece(int i) { return this.pieces[i]; }
+
+    /** @return the number of indexes, including ones that do not describe a legal position */
+    public long size() { return 2L << (6 * this.pieces.length); }
+
+    /** Indexes a position with this signature
+     *
+     * @param position the position, which must have exactly this signature's pieces
+     * @param mirrored whether to swap colors and flip the board first, as returned by {@link #mirrored}
+     * @return the position's index
+     */
+    public long index(Position position, boolean mirrored) {
+        int filled = 0; // bit i is set once piece i has a square
+        int[] squares = new int[this.pieces.length];
+        for (int i = 0; i < 64; i++) {
+            int sq = mirrored ? i ^ 56 : i; // walk the flipped board in ascending order so equal pieces still get ascending squares
+            int piece = position.pieceAt(sq);
+            if (piece == 0) { continue; }
+            if (mirrored) { piece ^= Position.BLACK_BIT; }
+            for (int slot = 0; slot < this.pieces.length; slot++) {
+                if ((filled & (1 << slot)) == 0 && this.pieces[slot] == piece) { squares[slot] = i; filled |= 1 << slot; break; }
+            }
+        }
+        int sideToMove = mirrored ? position.sideToMove() ^ 1 : position.sideToMove();
+        return this.index(squares, sideToMove);
+    }
+
+    /** Composes an index from the square of each piece of this signature, in signature order */
+    public long index(int[] squares, int sideToMove) {
+        long index = sideToMove;
+        for (int slot = 0; slot < this.pieces.length; slot++) { index = index << 6 | squares[slot]; }
+        return index;
+    }
+
+    /** Splits an index into the square of each piece of this signature, in signature order
+     * @return the side to move
+     */
+    public int squares(long index, int[] squares) {
+        for (int slot = this.pieces.length - 1; slot >= 0; slot--) {
+            squares[slot] = (int) (index & 63);
+            index >>>= 6;
+        }
+        return (int) index;
+    }
+
+    /** Sets up the position an index describes
+     *
+     * @param position the position to overwrite
+     * @param squares  receives the square of each piece
+     * @param index    the index to decode
+     * @return false if the index does not describe a legal position, in which case the position's contents are undefined
+     */
+    public boolean setup(Position position, int[] squares, long index) {
+        position.clear();
+        int sideToMove = this.squares(index, squares);
+        for (int slot = 0; slot < this.pieces.length; slot++) {
+            int sq = squares[slot], piece = this.pieces[slot];
+            if (position.pieceAt(sq) != 0) { return false; }
+            if (Position.type(piece) == Position.PAWN && (sq < 8 || sq >= 56)) { return false; }
+            if (slot > 0 && this.pieces[slot - 1] == piece && squares[slot - 1] >= sq) { return false; } // equal pieces must be in ascending order
+            position.put(sq, piece);
+        }
+        if (sideToMove != Position.WHITE) { position.flipSideToMove(); }
+        return position.wasLegal();
+    }
+}
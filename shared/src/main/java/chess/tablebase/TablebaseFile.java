@@ -0,0 +1,64 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** One memory-mapped tablebase file.
+ * <p>
+ * A file starts with a {@value #HEADER_SIZE}-byte header: the magic number, a format version, the kind of table,
+ * the number of pieces and the piece codes of its signature. The entries follow, indexed as {@link Material} describes:
+ * a {@link #WDL} table packs four 2-bit outcomes per byte (0 for an illegal index, then loss, draw and win) and a
+ * {@link #DTM} table holds one byte per index with the plies to mate, or 0 for draws and illegal indexes.
+ * Only absolute reads are made, so a file can be probed from any number of threads.
+ */
+final class TablebaseFile {
+    static final int MAGIC = 0x43484242; // "CHBB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int WDL = 0, DTM = 1;
+    private static final int SEGMENT_BITS = 30;
+    private final MappedByteBuffer[] segments;
+    private final Material material;
+    private final int kind;
+
+    TablebaseFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {}
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.get() != VERSION) { throw new IOException("Not a tablebase file: " + file); }
+            this.kind = header.get();
+            int[] pieces = new int[header.get()];
+            for (int i = 0; i < pieces.length; i++) { pieces[i] = header.get(); }
+            this.material = new Material(pieces);
+            long length = channel.size() - HEADER_SIZE;
+            long expected = this.kind == WDL ? (this.material.size() + 3) / 4 : this.material.size();
+            if (length != expected) { throw new IOException("Truncated tablebase file: " + file); }
+            this.segments = new MappedByteBuffer[(int) ((length + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start, Math.min(1L << SEGMENT_BITS, length - start));
+            }
+        }
+    }
+
+    Material material() { return this.material; }
+    int kind() { return this.kind; }
+
+    /** @return the 2-bit outcome code stored for an index in a WDL table */
+    int wdl(long index) {
+        int packed = this.get(index >>> 2);
+        return (packed >>> ((int) (index & 3) * 2)) & 3;
+    }
+
+    /** @return the plies to mate stored for an index in a DTM table */
+    int dtm(long index) { return this.get(index); }
+
+    private int get(long offset) {
+        return Byte.toUnsignedInt(this.segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & ((1L << SEGMENT_BITS) - 1))));
+    }
+}
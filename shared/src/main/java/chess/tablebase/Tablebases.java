@@ -0,0 +1,107 @@
+package chess.tablebase;
+
+import chess.ChessGame;
+import chess.Position;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Probes the endgame tablebase files found in a local directory.
+ * <p>
+ * Every {@code .wdl} and {@code .dtm} file in the directory is memory-mapped when the tablebases are opened, after
+ * which the set of tables never changes, so one instance can be probed from every server thread at once. Callers that
+ * want checkmate and stalemate answered from the tables hold an instance and ask it instead of the game.
+ */
+public class Tablebases {
+    private final Map<String, TablebaseFile> wdlTables = new HashMap<>();
+    private final Map<String, TablebaseFile> dtmTables = new HashMap<>();
+    private int maxPieces;
+
+    /** Maps every tablebase file in a directory
+     *
+     * @param directory the directory holding the files, such as {@code KQvK.wdl} and {@code KQvK.dtm}
+     * @throws IOException if the directory or one of its tablebase files cannot be read
+     */
+    public Tablebases(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{wdl,dtm}")) {
+            for (Path file : files) {
+                TablebaseFile table = new TablebaseFile(file);
+                (table.kind() == TablebaseFile.WDL ? this.wdlTables : this.dtmTables).put(table.material().name(), table);
+                this.maxPieces = Math.max(this.maxPieces, table.material().pieceCount());
+            }
+        }
+    }
+
+    /** @return the most pieces any loaded table covers */
+    public int maxPieces() { return this.maxPieces; }
+
+    /** Looks up the theoretical outcome of a position
+     *
+     * @param position the position to probe
+     * @return the outcome for the side to move, or null if no loaded table covers the position
+     */
+    public Wdl probeWdl(Position position) {
+        if (!this.covers(position)) { return null; }
+        Material material = Material.of(position);
+        TablebaseFile table = this.wdlTables.get(material.name());
+        if (table == null) { return null; }
+        int code = table.wdl(material.index(position, Material.mirrored(position)));
+        return code == 0 ? null : Wdl.values()[code - 1];
+    }
+
+    /** Looks up how far a position is from mate
+     *
+     * @param position the position to probe
+     * @return plies to mate with perfect play, 0 for a draw or a side already mated, or -1 if no loaded table covers the position
+     */
+    public int probeDtm(Position position) {
+        if (!this.covers(position)) { return -1; }
+        Material material = Material.of(position);
+        TablebaseFile table = this.dtmTables.get(material.name());
+        return table == null ? -1 : table.dtm(material.index(position, Material.mirrored(position)));
+    }
+
+    /** @return true if a position has few enough pieces that a loaded table might cover it */
+    private boolean covers(Position position) {
+        int pieces = 0;
+        for (int sq = 0; sq < 64; sq++) { if (position.pieceAt(sq) != 0 && ++pieces > this.maxPieces) { return false; } }
+        return position.kingSquare(Position.WHITE) >= 0 && position.kingSquare(Position.BLACK) >= 0;
+    }
+
+    /** Answers {@link ChessGame#isInCheckmate} from the tables when they cover the position, so most covered
+     * positions are ruled out without generating moves
+     *
+     * @param game      the game to look at
+     * @param teamColor which team to check for checkmate
+     * @return true if the team is in checkmate
+     */
+    public boolean isInCheckmate(ChessGame game, ChessGame.TeamColor teamColor) {
+        Position position = new Position().load(game.getBoard(), teamColor);
+        Wdl outcome = this.probeWdl(position);
+        if (outcome != null && (outcome != Wdl.LOSS || this.probeDtm(position) > 0)) { return false; } // only a side with mate in 0 against it is mated
+        return game.isInCheckmate(teamColor);
+    }
+
+    /** Answers {@link ChessGame#isInStalemate} from the tables when they cover the position
+     *
+     * @param game      the game to look at
+     * @param teamColor which team to check for stalemate
+     * @return true if the team is in stalemate
+     */
+    public boolean isInStalemate(ChessGame game, ChessGame.TeamColor teamColor) {
+        Wdl outcome = this.probeWdl(new Position().load(game.getBoard(), teamColor));
+        if (outcome == Wdl.WIN || outcome == Wdl.LOSS) { return false; }
+        return game.isInStalemate(teamColor);
+    }
+
+    /** Looks up the theoretical outcome of a game for the team whose turn it is, such as to adjudicate a game early
+     * @return the outcome, or null if the game has too many pieces or no loaded table covers it
+     */
+    public Wdl probeWdl(ChessGame game) {
+        return this.probeWdl(new Position().load(game.getBoard(), game.getTeamTurn()));
+    }
+}
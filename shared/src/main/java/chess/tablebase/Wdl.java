@@ -0,0 +1,9 @@
+package chess.tablebase;
+
+/** The theoretical outcome of a position with perfect play, from the side to move's point of view */
+public enum Wdl {
+    LOSS, DRAW, WIN;
+
+    /** @return the same outcome from the other side's point of view */
+    public Wdl negate() { return this == WIN ? LOSS : this == LOSS ? WIN : DRAW; }
+}
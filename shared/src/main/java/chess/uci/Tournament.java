@@ -0,0 +1,193 @@
+package chess.uci;
+
+import chess.Position;
+import chess.notation.Fen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Plays two UCI engine builds against each other and reports the Elo difference and each engine's speed.
+ * <p>
+ * Games run in parallel, each between its own pair of engine processes. Games are played in pairs from the same
+ * randomized opening with colors swapped. A game ends in checkmate, stalemate, a threefold repetition or a draw
+ * after {@value #MAX_PLIES} plies.
+ * <p>
+ * Usage: {@code Tournament "<engine A command>" "<engine B command>" [games] [parallel games] [movetime ms]}, for
+ * example {@code Tournament "java -cp new.jar chess.uci.UciEngine" "java -cp old.jar chess.uci.UciEngine" 200 4 100}.
+ */
+public class Tournament {
+    private static final int MAX_PLIES = 300;
+    private static final int RANDOM_OPENING_PLIES = 4;
+    private final String[] commands;
+    private final long moveTime;
+    private final AtomicLong[] nodes = { new AtomicLong(), new AtomicLong() };
+    private final AtomicLong[] searchNanos = { new AtomicLong(), new AtomicLong() };
+
+    public Tournament(String commandA, String commandB, long moveTime) {
+        this.commands = new String[] { commandA, commandB };
+        this.moveTime = moveTime;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: Tournament \"<engine A command>\" \"<engine B command>\" [games] [parallel games] [movetime ms]");
+            return;
+        }
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int parallel = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        long moveTime = args.length > 4 ? Long.parseLong(args[4]) : 100;
+        new Tournament(args[0], args[1], moveTime).play(games, parallel, System.out);
+    }
+
+    /** Plays a match and prints the result
+     *
+     * @param games    how many games to play, rounded up to an even number
+     * @param parallel how many games to play at once
+     * @param report   where to print progress and the final result
+     */
+    public void play(int games, int parallel, PrintStream report) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(parallel);
+        List<Future<Double>> results = new ArrayList<>();
+        for (int pair = 0; pair < (games + 1) / 2; pair++) {
+            long seed = pair;
+            results.add(executor.submit(() -> this.playGame(seed, 0)));
+            results.add(executor.submit(() -> this.playGame(seed, 1)));
+        }
+        double score = 0;
+        int wins = 0, draws = 0, losses = 0;
+        for (Future<Double> result : results) {
+            double points = result.get();
+            score += points;
+            if (points == 1) { wins++; } else if (points == 0) { losses++; } else { draws++; }
+        }
+        executor.shutdown();
+        int played = results.size();
+        double fraction = score / played;
+        report.printf("Games: %d  A wins: %d  draws: %d  A losses: %d  score: %.1f%%%n", played, wins, draws, losses, fraction * 100);
+        report.printf("Elo difference (A - B): %s%n", eloText(wins, draws, losses));
+        for (int engine = 0; engine < 2; engine++) {
+            long nanos = Math.max(1, this.searchNanos[engine].get());
+            report.printf("Engine %s average speed: %,d nodes per second%n", engine == 0 ? "A" : "B", this.nodes[engine].get() * 1_000_000_000L / nanos);
+        }
+    }
+
+    /** @return the Elo difference implied by a result, with its 95% confidence margin */
+    static String eloText(int wins, int draws, int losses) {
+        int games = wins + draws + losses;
+        double score = (wins + draws / 2.0) / games;
+        if (score <= 0 || score >= 1) { return score <= 0 ? "-inf" : "+inf"; }
+        double deviation = Math.sqrt((wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / games / games);
+        double elo = elo(score);
+        double margin = (elo(Math.min(0.999, score + 1.96 * deviation)) - elo(Math.max(0.001, score - 1.96 * deviation))) / 2;
+        return String.format("%+.1f +/- %.1f", elo, margin);
+    }
+
+    private static double elo(double score) { return -400 * Math.log10(1 / score - 1); }
+
+    /** Plays one game between fresh engine processes
+     *
+     * @param seed       picks the random opening, so both games of a pair share it
+     * @param whiteIndex 0 if engine A has white, 1 if engine B does
+     * @return engine A's points: 1, 0.5 or 0
+     */
+    private double playGame(long seed, int whiteIndex) throws IOException, InterruptedException {
+        Engine[] engines = { new Engine(this.commands[0]), new Engine(this.commands[1]) };
+        try {
+            Position position = Fen.parse(Fen.START);
+            StringBuilder moves = new StringBuilder();
+            Map<Long, Integer> seen = new HashMap<>();
+            Random random = new Random(seed);
+            int[] legal = new int[Position.MAX_MOVES];
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                int count = position.generateLegal(legal, 0);
+                if (count == 0) {
+                    if (!position.inCheck()) { return 0.5; }
+                    int loser = position.sideToMove() == Position.WHITE ? whiteIndex : 1 - whiteIndex;
+                    return loser == 0 ? 0 : 1;
+                }
+                if (seen.merge(position.hash(), 1, Integer::sum) >= 3) { return 0.5; }
+                int move;
+                if (ply < RANDOM_OPENING_PLIES) { move = legal[random.nextInt(count)]; }
+                else {
+                    int engine = position.sideToMove() == Position.WHITE ? whiteIndex : 1 - whiteIndex;
+                    String text = engines[engine].bestMove("position startpos moves" + moves, this.moveTime, this.nodes[engine], this.searchNanos[engine]);
+                    move = UciMove.parse(position, text);
+                    if (move == 0) { return engine == 0 ? 0 : 1; } // an illegal move forfeits
+                }
+                moves.append(' ').append(UciMove.format(move));
+                position.make(move);
+            }
+            return 0.5;
+        } finally {
+            engines[0].close();
+            engines[1].close();
+        }
+    }
+
+    /** A running engine process */
+    private static final class Engine implements AutoCloseable {
+        private final Process process;
+        private final BufferedReader out;
+        private final PrintStream in;
+
+        Engine(String command) throws IOException {
+            this.process = new ProcessBuilder(command.split("\\s+")).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            this.out = new BufferedReader(new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8));
+            this.in = new PrintStream(this.process.getOutputStream(), true, StandardCharsets.UTF_8);
+            this.send("uci");
+            this.await("uciok");
+            this.send("isready");
+            this.await("readyok");
+        }
+
+        /** Asks for a move, adding the engine's reported node count and search time to the totals */
+        String bestMove(String position, long moveTime, AtomicLong nodes, AtomicLong nanos) throws IOException {
+            this.send(position);
+            long start = System.nanoTime();
+            this.send("go movetime " + moveTime);
+            long lastNodes = 0;
+            String line;
+            while ((line = this.out.readLine()) != null) {
+                String[] words = line.split("\\s+");
+                if (words[0].equals("bestmove")) {
+                    nanos.addAndGet(System.nanoTime() - start);
+                    nodes.addAndGet(lastNodes);
+                    return words.length > 1 ? words[1] : "0000";
+                }
+                for (int i = 0; i < words.length - 1; i++) { if (words[i].equals("nodes")) { lastNodes = Long.parseLong(words[i + 1]); } }
+            }
+            throw new IOException("Engine exited without a move");
+        }
+
+        private void send(String command) { this.in.println(command); }
+
+        private void await(String answer) throws IOException {
+            String line;
+            while ((line = this.out.readLine()) != null) { if (line.trim().equals(answer)) { return; } }
+            throw new IOException("Engine exited before " + answer);
+        }
+
+        @Override
+        public void close() {
+            this.send("quit");
+            try {
+                if (!this.process.waitFor(2, java.util.concurrent.TimeUnit.SECONDS)) { this.process.destroyForcibly(); }
+            } catch (InterruptedException e) {
+                this.process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
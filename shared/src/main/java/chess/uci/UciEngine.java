@@ -0,0 +1,205 @@
+package chess.uci;
+
+import chess.Position;
+import chess.notation.Fen;
+import chess.search.Searcher;
+import chess.search.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** A UCI chess engine over stdin/stdout built on {@link Searcher}, for benchmarking search builds against each other.
+ * <p>
+ * Supports {@code uci}, {@code isready}, {@code ucinewgame}, {@code position}, {@code go} (depth, nodes, movetime,
+ * clock times and infinite), {@code stop}, {@code quit} and {@code setoption} for Hash (megabytes) and Threads.
+ * Extra threads search the same position with a shared transposition table ("lazy SMP").
+ */
+public class UciEngine {
+    private static final String NAME = "240 Chess";
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private TranspositionTable table = new TranspositionTable(16);
+    private int threads = 1;
+    private Position position = Fen.parse(Fen.START);
+    private Thread searchThread;
+
+    public UciEngine(InputStream in, PrintStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        new UciEngine(System.in, new PrintStream(System.out, true, StandardCharsets.UTF_8)).run();
+    }
+
+    /** Reads and answers commands until {@code quit} or the end of input */
+    public void run() throws IOException {
+        String line;
+        while ((line = this.in.readLine()) != null) {
+            String[] words = line.trim().split("\\s+");
+            switch (words[0]) {
+                case "uci" -> {
+                    this.out.println("id name " + NAME);
+                    this.out.println("id author BYU CS 240");
+                    this.out.println("option name Hash type spin default 16 min 1 max 4096");
+                    this.out.println("option name Threads type spin default 1 min 1 max 256");
+                    this.out.println("uciok");
+                }
+                case "isready" -> this.out.println("readyok");
+                case "ucinewgame" -> { this.awaitSearch(); this.table.clear(); }
+                case "setoption" -> this.setOption(words);
+                case "position" -> { this.awaitSearch(); this.setPosition(words); }
+                case "go" -> this.go(words);
+                case "stop" -> this.awaitSearch();
+                case "quit" -> { this.awaitSearch(); return; }
+                default -> {}
+            }
+        }
+        this.awaitSearch();
+    }
+
+    private void setOption(String[] words) {
+        String name = "", value = "";
+        for (int i = 1; i < words.length - 1; i++) {
+            if (words[i].equals("name")) { name = words[i + 1]; }
+            if (words[i].equals("value")) { value = words[i + 1]; }
+        }
+        this.awaitSearch();
+        try {
+            if (name.equalsIgnoreCase("Hash")) { this.table = new TranspositionTable(Math.max(1, Integer.parseInt(value))); }
+            if (name.equalsIgnoreCase("Threads")) { this.threads = Math.max(1, Integer.parseInt(value)); }
+        } catch (NumberFormatException e) {
+            this.out.println("info string invalid value for " + name + ": " + value);
+        }
+    }
+
+    private void setPosition(String[] words) {
+        int index = 1;
+        if (words.length > 1 && words[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (index = 2; index < words.length && !words[index].equals("moves"); index++) { fen.append(words[index]).append(' '); }
+            try {
+                this.position = Fen.parse(fen.toString());
+            } catch (IllegalArgumentException e) { // keep the last position rather than searching half a board
+                this.out.println("info string invalid fen " + fen.toString().trim());
+                return;
+            }
+        } else {
+            this.position = Fen.parse(Fen.START);
+            index = 2;
+        }
+        if (index < words.length && words[index].equals("moves")) {
+            for (int i = index + 1; i < words.length; i++) {
+                int move = UciMove.parse(this.position, words[i]);
+                if (move == 0) {
+                    this.out.println("info string illegal move " + words[i]);
+                    return;
+                }
+                this.position.make(move);
+            }
+        }
+    }
+
+    private void go(String[] words) {
+        this.awaitSearch();
+        int depth = Searcher.MAX_PLY - 1;
+        long nodes = Long.MAX_VALUE, moveTime = -1, time = -1, increment = 0;
+        int movesToGo = 30;
+        boolean infinite = false;
+        boolean white = this.position.sideToMove() == Position.WHITE;
+        for (int i = 1; i < words.length; i++) {
+            String value = i + 1 < words.length ? words[i + 1] : "0";
+            try {
+                switch (words[i]) {
+                    case "depth" -> depth = Math.min(Integer.parseInt(value), Searcher.MAX_PLY - 1);
+                    case "nodes" -> nodes = Long.parseLong(value);
+                    case "movetime" -> moveTime = Long.parseLong(value);
+                    case "wtime" -> { if (white) { time = Long.parseLong(value); } }
+                    case "btime" -> { if (!white) { time = Long.parseLong(value); } }
+                    case "winc" -> { if (white) { increment = Long.parseLong(value); } }
+                    case "binc" -> { if (!white) { increment = Long.parseLong(value); } }
+                    case "movestogo" -> movesToGo = Math.max(1, Integer.parseInt(value));
+                    case "infinite" -> infinite = true;
+                    default -> {}
+                }
+            } catch (NumberFormatException e) { // search without the limit, since the GUI still waits for a bestmove
+                this.out.println("info string invalid value for " + words[i] + ": " + value);
+            }
+        }
+        if (moveTime < 0 && time >= 0) { moveTime = Math.max(10, Math.min(time / 2, time / movesToGo + increment / 2)); }
+        long deadline = moveTime < 0 || infinite ? Long.MAX_VALUE : System.nanoTime() + moveTime * 1_000_000L;
+        Position root = new Position().copyFrom(this.position);
+        int maxDepth = depth;
+        long nodeLimit = nodes;
+        boolean waitForStop = infinite;
+        this.stop.set(false);
+        this.searchThread = new Thread(() -> this.think(root, maxDepth, nodeLimit, deadline, waitForStop), "uci-search");
+        this.searchThread.start();
+    }
+
+    /** Searches on the calling thread plus helper threads, then prints the best move */
+    private void think(Position root, int maxDepth, long nodeLimit, long deadline, boolean waitForStop) {
+        long start = System.nanoTime();
+        List<Searcher> searchers = new ArrayList<>();
+        List<Thread> helpers = new ArrayList<>();
+        for (int i = 0; i < this.threads; i++) {
+            Searcher searcher = new Searcher(this.table);
+            searcher.setStopFlag(this.stop);
+            searcher.setDeadline(deadline);
+            searchers.add(searcher);
+            if (i > 0) {
+                Position helperRoot = new Position().copyFrom(root);
+                int offset = i & 1; // half the helpers start a ply deeper so threads spread over depths
+                Thread helper = new Thread(() -> { for (int d = 1 + offset; d <= maxDepth && !this.stop.get(); d++) { searcher.searchRoot(helperRoot, d, -Searcher.INFINITY, Searcher.INFINITY, null, 0); } }, "uci-helper-" + i);
+                helpers.add(helper);
+                helper.start();
+            }
+        }
+        Searcher main = searchers.get(0);
+        main.setNodeLimit(nodeLimit);
+        int bestMove = 0;
+        for (int depth = 1; depth <= maxDepth && !this.stop.get(); depth++) {
+            int score = main.searchRoot(root, depth, -Searcher.INFINITY, Searcher.INFINITY, null, 0);
+            if (main.aborted()) { break; }
+            bestMove = main.bestMove();
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            long nodes = 0;
+            for (Searcher searcher : searchers) { nodes += searcher.nodes(); }
+            StringBuilder info = new StringBuilder("info depth ").append(depth).append(" score ");
+            if (Math.abs(score) > Searcher.MATE_BOUND) { info.append("mate ").append(score > 0 ? (Searcher.MATE - score + 1) / 2 : -(Searcher.MATE + score) / 2); }
+            else { info.append("cp ").append(score); }
+            info.append(" nodes ").append(nodes).append(" nps ").append(nodes * 1_000_000_000L / elapsed).append(" time ").append(elapsed / 1_000_000).append(" pv");
+            for (int move : main.principalVariation()) { info.append(' ').append(UciMove.format(move)); }
+            this.out.println(info);
+            if (Math.abs(score) > Searcher.MATE_BOUND && !waitForStop) { break; }
+        }
+        while (waitForStop && !this.stop.get()) { // "go infinite" may only answer once told to stop
+            try { Thread.sleep(5); } catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
+        }
+        this.stop.set(true);
+        for (Thread helper : helpers) {
+            try { helper.join(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        if (bestMove == 0) {
+            int[] moves = new int[Position.MAX_MOVES];
+            if (root.generateLegal(moves, 0) > 0) { bestMove = moves[0]; }
+        }
+        this.out.println(bestMove == 0 ? "bestmove 0000" : "bestmove " + UciMove.format(bestMove));
+    }
+
+    /** Stops any running search and waits for it to print its best move */
+    private void awaitSearch() {
+        if (this.searchThread == null) { return; }
+        this.stop.set(true);
+        try { this.searchThread.join(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        this.searchThread = null;
+    }
+}
@@ -0,0 +1,64 @@
+package chess.uci;
+
+import chess.ChessMove;
+import chess.Position;
+
+/** Converts moves to and from UCI's long algebraic notation, such as "e2e4" or "e7e8q" */
+public final class UciMove {
+    private static final String PROMOTIONS = "  nbrq";
+
+    private UciMove() {}
+
+    /** @return the UCI text of a packed move */
+    public static String format(int move) {
+        StringBuilder text = new StringBuilder(5);
+        appendSquare(text, Position.from(move));
+        appendSquare(text, Position.to(move));
+        if (Position.promotion(move) != 0) { text.append(PROMOTIONS.charAt(Position.promotion(move))); }
+        return text.toString();
+    }
+
+    /** @return the UCI text of a move */
+    public static String format(ChessMove move) {
+        int promotion = move.getPromotionPiece() == null ? 0 : Position.code(move.getPromotionPiece());
+        return format(Position.move(Position.square(move.getStartPosition()), Position.square(move.getEndPosition()), 0, 0, promotion));
+    }
+
+    /** Reads UCI text as a move without checking that it is legal anywhere
+     *
+     * @param text the move, such as "e7e8q"
+     * @return the move it names
+     * @throws IllegalArgumentException if the text does not name two squares and an optional promotion
+     */
+    public static ChessMove toMove(String text) {
+        int from = text.length() < 4 ? -1 : square(text, 0), to = text.length() < 4 ? -1 : square(text, 2);
+        int promotion = text.length() == 5 ? PROMOTIONS.indexOf(Character.toLowerCase(text.charAt(4))) : 0;
+        if (from < 0 || to < 0 || text.length() > 5 || (text.length() == 5 && promotion < 2)) { throw new IllegalArgumentException("Invalid UCI move: " + text); }
+        return new ChessMove(Position.position(from), Position.position(to), promotion == 0 ? null : Position.pieceType(promotion));
+    }
+
+    /** Finds the legal move a piece of UCI text names
+     *
+     * @param position the position the move is played in
+     * @param text     the move, such as "g1f3"
+     * @return the packed move, or 0 if it is not legal in the position
+     */
+    public static int parse(Position position, String text) {
+        if (text.length() < 4) { return 0; }
+        int from = square(text, 0), to = square(text, 2);
+        int promotion = text.length() > 4 ? PROMOTIONS.indexOf(Character.toLowerCase(text.charAt(4))) : 0;
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateLegal(moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (Position.from(moves[i]) == from && Position.to(moves[i]) == to && Position.promotion(moves[i]) == Math.max(promotion, 0)) { return moves[i]; }
+        }
+        return 0;
+    }
+
+    static void appendSquare(StringBuilder text, int sq) { text.append((char) ('a' + (sq & 7))).append((char) ('1' + (sq >> 3))); }
+
+    private static int square(String text, int index) {
+        int col = text.charAt(index) - 'a', row = text.charAt(index + 1) - '1';
+        return col < 0 || col > 7 || row < 0 || row > 7 ? -1 : row * 8 + col;
+    }
+}
@@ -0,0 +1,4 @@
+package model;
+
+/** An authorization token and the user it was issued to */
+public record AuthData(String authToken, String username) {}
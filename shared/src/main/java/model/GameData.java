@@ -0,0 +1,20 @@
+package model;
+
+import chess.ChessGame;
+
+/** A game and the players in it, either of whom may be null while the seat is open */
+public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+
+    /** @return this game with a player in one seat */
+    public GameData withPlayer(ChessGame.TeamColor color, String username) {
+        return color == ChessGame.TeamColor.WHITE
+                ? new GameData(this.gameID, username, this.blackUsername, this.gameName, this.game)
+                : new GameData(this.gameID, this.whiteUsername, username, this.gameName, this.game);
+    }
+
+    /** @return the player in one seat, or null if it is open */
+    public String player(ChessGame.TeamColor color) { return color == ChessGame.TeamColor.WHITE ? this.whiteUsername : this.blackUsername; }
+
+    /** @return this game with a new state */
+    public GameData withGame(ChessGame game) { return new GameData(this.gameID, this.whiteUsername, this.blackUsername, this.gameName, game); }
+}
@@ -0,0 +1,4 @@
+package model;
+
+/** A registered user. The password is whatever the server stores for it, normally a hash. */
+public record UserData(String username, String password, String email) {}
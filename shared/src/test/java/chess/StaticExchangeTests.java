@@ -0,0 +1,64 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class StaticExchangeTests {
+
+    @Test
+    @DisplayName("Capture Backed By X-Ray Rook")
+    public void xRayRecapture() {
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | |r| | | |
+                | | | | |p| | | |
+                | | | | | | | | |
+                | | | | |R| | | |
+                | | | | |R| | | |
+                | | | | |K| | | |
+                """));
+        var move = new ChessMove(new ChessPosition(3, 5), new ChessPosition(5, 5), null);
+        Assertions.assertEquals(100, game.staticExchange(move), "Doubled rooks should win the pawn");
+    }
+
+    @Test
+    @DisplayName("Queen Takes Defended Pawn")
+    public void losingCapture() {
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | |p| | | | |
+                | | | | |p| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |Q| | | |
+                | | | | |K| | | |
+                """));
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(6, 5), null);
+        Assertions.assertEquals(-800, game.staticExchange(move), "Queen for pawn should lose 800");
+        Assertions.assertEquals(700, game.resolveCaptures(), "White should stand pat instead of taking");
+    }
+
+    @Test
+    @DisplayName("Pawn Takes Undefended Knight")
+    public void winningCapture() {
+        var game = new ChessGame();
+        game.setBoard(loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |n| | | |
+                | | | |P| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """));
+        var move = new ChessMove(new ChessPosition(4, 4), new ChessPosition(5, 5), null);
+        Assertions.assertEquals(320, game.staticExchange(move));
+        Assertions.assertEquals(100, game.resolveCaptures(), "White should win the knight for nothing");
+    }
+}
@@ -0,0 +1,112 @@
+package chess.archive;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PositionIndexTests {
+
+    private static List<ChessMove> moves(String san) throws InvalidMoveException {
+        ChessGame game = Fen.toGame(Fen.START);
+        List<ChessMove> moves = new ArrayList<>();
+        for (String text : san.split(" ")) {
+            ChessMove move = game.parseSan(text);
+            moves.add(move);
+            game.makeMove(move);
+        }
+        return moves;
+    }
+
+    /** @return the board after some moves from the start */
+    private static ChessGame after(String san) throws InvalidMoveException {
+        ChessGame game = Fen.toGame(Fen.START);
+        for (ChessMove move : moves(san)) { game.makeMove(move); }
+        return game;
+    }
+
+    @Test
+    @DisplayName("Find Games Through A Board")
+    public void find(@TempDir Path directory) throws Exception {
+        try (PositionIndex index = new PositionIndex(directory, 1000)) {
+            index.add(7, moves("e4 e5 Nf3 Nc6"));
+            index.add(3, moves("Nf3 Nc6 e4 e5"));
+            index.add(12, moves("d4 d5"));
+            Assertions.assertArrayEquals(new int[] { 3, 7 }, index.find(after("e4 e5 Nf3 Nc6").getBoard()), "Both move orders reach the same board");
+            Assertions.assertArrayEquals(new int[] { 3, 7, 12 }, index.find(new ChessGame().getBoard()));
+            Assertions.assertArrayEquals(new int[] { 7 }, index.find(after("e4").getBoard()));
+            Assertions.assertArrayEquals(new int[0], index.find(after("a3").getBoard()));
+            Assertions.assertThrows(InvalidMoveException.class, () -> index.add(13, List.of(new ChessMove(new ChessPosition(2, 5), new ChessPosition(5, 5), null))));
+        }
+        try (PositionIndex index = new PositionIndex(directory, 1000)) {
+            Assertions.assertArrayEquals(new int[] { 7 }, index.find(after("e4").getBoard()), "Closing should have written the games out");
+        }
+    }
+
+    @Test
+    @DisplayName("Segments Are Merged")
+    public void compaction(@TempDir Path directory) throws Exception {
+        try (PositionIndex index = new PositionIndex(directory, 4)) {
+            for (int id = 0; id < 40; id++) { index.add(id, moves(id % 2 == 0 ? "e4 e5" : "d4 d5")); }
+            Assertions.assertTrue(index.segmentCount() <= 8, "Expected merged segments but found " + index.segmentCount());
+            Assertions.assertEquals(40, index.find(new ChessGame().getBoard()).length);
+            Assertions.assertEquals(20, index.find(after("d4").getBoard()).length);
+            index.compact();
+            Assertions.assertEquals(1, index.segmentCount());
+            Assertions.assertEquals(40, index.find(new ChessGame().getBoard()).length);
+        }
+    }
+
+    @Test
+    @DisplayName("Merging Rewrites Each Posting A Few Times")
+    public void mergeCost() {
+        int flushes = 10_000;
+        List<Long> sizes = new ArrayList<>();
+        long written = 0;
+        int most = 0;
+        for (int i = 0; i < flushes; i++) { // every flush the same size, the worst case for merging everything at once
+            sizes.add(1L);
+            written++;
+            int run = PositionIndex.mergeRun(sizes.stream().mapToLong(Long::longValue).toArray());
+            if (run > 1) {
+                List<Long> merged = sizes.subList(sizes.size() - run, sizes.size());
+                long size = merged.stream().mapToLong(Long::longValue).sum();
+                merged.clear();
+                sizes.add(size);
+                written += size;
+            }
+            most = Math.max(most, sizes.size());
+        }
+        Assertions.assertTrue(written < flushes * 20L, "Each posting was written " + written / (double) flushes + " times on average");
+        Assertions.assertTrue(most <= 16, "There were up to " + most + " segments");
+    }
+
+    @Test
+    @DisplayName("Unfinished Segments Never Take A Segment's Name")
+    public void unfinished(@TempDir Path directory) throws Exception {
+        try (Segment.Writer writer = new Segment.Writer(directory.resolve("positions-0.seg"))) {
+            writer.add(1, new int[] { 4 }, 1); // then fails before finishing
+        }
+        try (var files = Files.list(directory)) {
+            Assertions.assertEquals(List.of(), files.toList(), "An abandoned writer should clean up after itself");
+        }
+        Files.write(directory.resolve("positions-3.seg" + Segment.TEMPORARY), new byte[] { 1, 2, 3 }); // as a crash leaves
+        Files.write(directory.resolve("positions-3.seg.dir"), new byte[] { 1, 2, 3 });
+        try (PositionIndex index = new PositionIndex(directory, 1000)) {
+            index.add(7, moves("e4 e5"));
+            index.flush();
+            Assertions.assertArrayEquals(new int[] { 7 }, index.find(after("e4").getBoard()));
+        }
+        try (var files = Files.list(directory)) {
+            Assertions.assertEquals(List.of("positions-0.seg"), files.map(file -> file.getFileName().toString()).toList());
+        }
+    }
+}
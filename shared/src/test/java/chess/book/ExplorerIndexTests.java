@@ -0,0 +1,47 @@
+package chess.book;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ExplorerIndexTests {
+
+    @Test
+    @DisplayName("Count Results Per Move")
+    public void counts(@TempDir Path directory) throws Exception {
+        Path pgn = directory.resolve("games.pgn");
+        Files.writeString(pgn, """
+                [Event "A"]
+
+                1. e4 e5 2. Nf3 1-0
+
+                [Event "B"]
+
+                1. e4 c5 1/2-1/2
+
+                [Event "C"]
+
+                1. d4 d5 0-1
+
+                [Event "D"]
+
+                1. e4 e5 *
+                """);
+        Path file = directory.resolve("explorer.bin");
+        ExplorerIndexBuilder builder = new ExplorerIndexBuilder(2, 2, directory);
+        Assertions.assertEquals(4, builder.add(pgn));
+        Assertions.assertEquals(5, builder.write(file), "Expected e4 and d4 from the start, then e5, c5 and d5");
+        try (ExplorerIndex index = new ExplorerIndex(file)) {
+            var moves = index.lookup(Fen.parse(Fen.START));
+            Assertions.assertEquals(2, moves.size());
+            Assertions.assertEquals(new ExplorerMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null), 1, 1, 0), moves.get(0), "The game without a result should not count");
+            Assertions.assertEquals(new ExplorerMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null), 0, 0, 1), moves.get(1));
+            Assertions.assertTrue(index.lookup(Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1")).isEmpty());
+        }
+    }
+}
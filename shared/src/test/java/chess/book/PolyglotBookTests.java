@@ -0,0 +1,70 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class PolyglotBookTests {
+    private static final String AFTER_E4 = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1";
+
+    @Test
+    @DisplayName("Keys Match The Polyglot Specification")
+    public void keys() {
+        Assertions.assertEquals(0x463b96181691fc9cL, PolyglotKey.of(Fen.parse(Fen.START)));
+        Assertions.assertEquals(0x823c9b50fd114196L, PolyglotKey.of(Fen.parse(AFTER_E4)));
+        Assertions.assertEquals(0x0756b94461c50fb0L, PolyglotKey.of(Fen.parse("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w - - 0 2")));
+        Assertions.assertEquals(0x662fafb965db29d4L, PolyglotKey.of(Fen.parse("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b - - 0 2")));
+        Assertions.assertEquals(0x652a607ca3f242c1L, PolyglotKey.of(Fen.parse("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b - - 0 3")),
+                "Expected castling rights to be dropped once the king has left its square");
+    }
+
+    @Test
+    @DisplayName("Look Up Book Moves")
+    public void lookup(@TempDir Path directory) throws Exception {
+        long start = PolyglotKey.of(Fen.parse(Fen.START)), afterE4 = PolyglotKey.of(Fen.parse(AFTER_E4));
+        long[][] entries = {
+                { start, move(12, 28), 3 },  // e2e4
+                { start, move(11, 27), 1 },  // d2d4
+                { start, move(12, 36), 5 },  // e2e5, illegal and left out
+                { afterE4, move(50, 34), 7 }, // c7c5
+                { 0x0123456789abcdefL, move(6, 21), 9 },
+        };
+        Arrays.sort(entries, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        Path file = directory.resolve("book.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            for (long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeShort((int) entry[1]);
+                out.writeShort((int) entry[2]);
+                out.writeInt(0);
+            }
+        }
+
+        try (PolyglotBook book = new PolyglotBook(file)) {
+            Assertions.assertEquals(5, book.size());
+            List<BookMove> moves = book.lookup(new ChessGame());
+            Assertions.assertEquals(2, moves.size(), moves.toString());
+            Assertions.assertTrue(moves.contains(new BookMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null), 3)));
+            Assertions.assertTrue(moves.contains(new BookMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null), 1)));
+
+            ChessGame game = Fen.toGame(AFTER_E4);
+            Assertions.assertEquals(List.of(new BookMove(new ChessMove(new ChessPosition(7, 3), new ChessPosition(5, 3), null), 7)), book.lookup(game));
+            Assertions.assertEquals(7, book.pick(game, new Random(1)).weight());
+            Assertions.assertTrue(book.lookup(Fen.toGame("4k3/8/8/8/8/8/8/4K3 w - - 0 1")).isEmpty());
+            Assertions.assertNull(book.pick(Fen.toGame("4k3/8/8/8/8/8/8/4K3 w - - 0 1"), new Random(1)));
+        }
+    }
+
+    /** @return a Polyglot move field for a move without promotion */
+    private static long move(int from, int to) { return (long) from << 6 | to; }
+}
@@ -0,0 +1,70 @@
+package chess.codec;
+
+import chess.ChessMove;
+import chess.notation.Fen;
+import chess.notation.PgnGame;
+import chess.notation.PgnReader;
+import com.google.gson.Gson;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Measures how small {@link GameCodec} makes the games of a PGN file, against the games' move lists as JSON and as
+ * plain SAN text, and how fast it encodes and decodes them. Every game is decoded and checked against the original.
+ * <p>
+ * Usage: {@code GameCodecBenchmark <pgn file> [rounds]}. Games that start from a FEN tag or that {@link PgnReader}
+ * skips are left out.
+ */
+public class GameCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: GameCodecBenchmark <pgn file> [rounds]");
+            return;
+        }
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<List<ChessMove>> games = readGames(Path.of(args[0]));
+        GameCodec codec = new GameCodec();
+        Gson gson = new Gson();
+        long moves = 0, json = 0, encoded = 0;
+        List<byte[]> data = new ArrayList<>();
+        for (List<ChessMove> game : games) {
+            byte[] bytes = codec.encode(game);
+            if (!codec.decodeMoves(Fen.parse(Fen.START), bytes).equals(game)) { throw new IllegalStateException("Game " + data.size() + " did not survive a round trip"); }
+            data.add(bytes);
+            moves += game.size();
+            encoded += bytes.length;
+            json += gson.toJson(game).length();
+        }
+        System.out.printf("%,d games, %,d moves: %.2f bits/move, %.1f bytes/game, %.0fx smaller than JSON (%.1f bytes/move)%n",
+                games.size(), moves, encoded * 8.0 / moves, (double) encoded / games.size(), (double) json / encoded, (double) json / moves);
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (List<ChessMove> game : games) { codec.encode(game); }
+            long middle = System.nanoTime();
+            for (byte[] bytes : data) { codec.decodeMoves(Fen.parse(Fen.START), bytes); }
+            long end = System.nanoTime();
+            System.out.printf("round %d: encode %,.0f moves/s, decode %,.0f moves/s%n", round + 1, moves / ((middle - start) / 1e9), moves / ((end - middle) / 1e9));
+        }
+        long start = System.nanoTime();
+        for (byte[] bytes : data) { codec.decode(bytes); }
+        System.out.printf("decode and replay through ChessGame: %,.0f moves/s%n", moves / ((System.nanoTime() - start) / 1e9));
+    }
+
+    private static List<List<ChessMove>> readGames(Path file) throws IOException {
+        List<List<ChessMove>> games = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            PgnReader reader = new PgnReader(in);
+            PgnGame game;
+            while ((game = reader.next()) != null) {
+                if (!game.skipped() && game.tag("FEN") == null) { games.add(game.moves()); }
+            }
+        }
+        return games;
+    }
+}
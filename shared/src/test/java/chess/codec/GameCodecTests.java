@@ -0,0 +1,69 @@
+package chess.codec;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GameCodecTests {
+
+    /** @return the moves of a game written in SAN, played from a FEN */
+    private static List<ChessMove> moves(String fen, String san) throws InvalidMoveException {
+        ChessGame game = Fen.toGame(fen);
+        List<ChessMove> moves = new ArrayList<>();
+        for (String text : san.split(" ")) {
+            ChessMove move = game.parseSan(text);
+            moves.add(move);
+            game.makeMove(move);
+        }
+        return moves;
+    }
+
+    @Test
+    @DisplayName("Round Trip A Game")
+    public void roundTrip() throws InvalidMoveException {
+        var moves = moves(Fen.START, "e4 e5 Nf3 Nc6 Bb5 a6 Ba4 Nf6 d3 b5 Bb3 d6 c3 Be7 Nbd2 Bg4 h3 Bh5 Nf1 d5 Qe2 dxe4 dxe4 Qd6 Ng3 Bg6 Nh4 Rd8 Nxg6 hxg6 Be3 Na5 Bc2 Nc4");
+        var codec = new GameCodec();
+        byte[] data = codec.encode(moves);
+        Assertions.assertTrue(data.length < moves.size(), "Expected under a byte a move but got " + data.length + " bytes for " + moves.size() + " moves");
+        Assertions.assertEquals(moves, codec.decodeMoves(Fen.parse(Fen.START), data));
+        ChessGame replayed = codec.decode(data);
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, replayed.getTeamTurn());
+        Assertions.assertNotNull(replayed.getBoard().getPiece(new chess.ChessPosition(4, 3)), "The last move should have been replayed");
+    }
+
+    @Test
+    @DisplayName("Games From A Position And Empty Games")
+    public void otherStarts() throws InvalidMoveException {
+        String fen = "7k/1P6/8/8/8/8/6r1/K7 w - - 0 1";
+        var moves = moves(fen, "b8=N Rg1+ Kb2 Rg2+");
+        var codec = new GameCodec();
+        Assertions.assertEquals(moves, codec.decodeMoves(Fen.parse(fen), codec.encode(Fen.parse(fen), moves)));
+        Assertions.assertEquals(List.of(), codec.decodeMoves(Fen.parse(Fen.START), codec.encode(List.of())));
+    }
+
+    @Test
+    @DisplayName("Illegal Moves And Corrupt Data Are Rejected")
+    public void rejected() {
+        var codec = new GameCodec();
+        var illegal = List.of(new ChessMove(new chess.ChessPosition(2, 5), new chess.ChessPosition(5, 5), null));
+        Assertions.assertThrows(InvalidMoveException.class, () -> codec.encode(illegal));
+        Assertions.assertThrows(InvalidMoveException.class, () -> codec.decodeMoves(Fen.parse(Fen.START), new byte[] { GameCodec.VERSION, 40, -1, -1, -1, -1, -1, -1, -1, -1 }));
+        Assertions.assertThrows(InvalidMoveException.class, () -> codec.decodeMoves(Fen.parse(Fen.START), new byte[] { GameCodec.VERSION + 1, 0 }), "Unknown versions should be refused");
+    }
+
+    @Test
+    @DisplayName("The Stored Format Does Not Change")
+    public void frozenFormat() throws InvalidMoveException {
+        // Written by version 1. If this fails, stored games no longer decode: keep the old ordering for old versions.
+        byte[] stored = { 1, 8, -91, 70, -77, -62 };
+        var moves = moves(Fen.START, "e4 e5 Nf3 Nc6 Bb5 a6 Ba4 Nf6");
+        var codec = new GameCodec();
+        Assertions.assertArrayEquals(stored, codec.encode(moves));
+        Assertions.assertEquals(moves, codec.decodeMoves(Fen.parse(Fen.START), stored));
+    }
+}
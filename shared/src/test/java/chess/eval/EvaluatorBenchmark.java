@@ -0,0 +1,67 @@
+package chess.eval;
+
+import chess.Position;
+import chess.notation.Fen;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/** Measures evaluations per second of the handcrafted evaluation against an NNUE network, with scalar and (when the
+ * JVM runs with {@code --add-modules jdk.incubator.vector}) vector kernels. Each evaluation follows a move along
+ * random games, as in a search, so the NNUE figures include keeping the accumulator up to date.
+ * <p>
+ * Usage: {@code EvaluatorBenchmark [network file]}, converting the built-in weights to a 256-unit network without one.
+ */
+public class EvaluatorBenchmark {
+    private static final int GAMES = 200, PLIES = 100, ROUNDS = 50;
+
+    public static void main(String[] args) throws IOException {
+        Network network = args.length > 0 ? Network.load(Path.of(args[0])) : Network.fromWeights(Weights.builtIn(), 256);
+        int[][] games = randomGames();
+        System.out.printf("Hidden layer: %d units, vector module %s%n", network.hidden(), Kernels.BEST instanceof ScalarKernels ? "absent" : "present");
+        for (int trial = 0; trial < 2; trial++) { // the first trial warms up the JIT
+            report("handcrafted", games, LinearEvaluator.builtIn(), trial);
+            report("nnue scalar", games, new NnueEvaluator(network, new ScalarKernels()), trial);
+            if (!(Kernels.BEST instanceof ScalarKernels)) { report("nnue vector", games, new NnueEvaluator(network, Kernels.BEST), trial); }
+        }
+    }
+
+    private static void report(String name, int[][] games, Evaluator evaluator, int trial) {
+        Position position = new Position();
+        long evaluations = 0, checksum = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int[] game : games) {
+                position.copyFrom(Fen.parse(Fen.START));
+                for (int move : game) {
+                    position.make(move);
+                    checksum += evaluator.evaluate(position);
+                    evaluations++;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (trial > 0) { System.out.printf("%-12s %,12.0f evaluations/s (checksum %d)%n", name, evaluations / seconds, checksum); }
+    }
+
+    /** @return the moves of random games from the starting position */
+    private static int[][] randomGames() {
+        Random random = new Random(240);
+        int[][] games = new int[GAMES][];
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int g = 0; g < GAMES; g++) {
+            Position position = Fen.parse(Fen.START);
+            int[] game = new int[PLIES];
+            int length = 0;
+            while (length < PLIES) {
+                int count = position.generateLegal(moves, 0);
+                if (count == 0) { break; }
+                game[length] = moves[random.nextInt(count)];
+                position.make(game[length++]);
+            }
+            games[g] = java.util.Arrays.copyOf(game, length);
+        }
+        return games;
+    }
+}
@@ -0,0 +1,66 @@
+package chess.eval;
+
+import chess.Position;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+public class NnueEvaluatorTests {
+
+    /** The built-in weights without mobility, which a converted network cannot express */
+    private static Weights squareTables() {
+        int[] values = Weights.builtIn().values();
+        for (int type = Position.KNIGHT; type <= Position.KING; type++) { values[Weights.mobility(type)] = 0; }
+        return new Weights(values);
+    }
+
+    @Test
+    @DisplayName("Incremental Updates Match A Fresh Accumulator")
+    public void incrementalMatchesRefresh() {
+        Network network = Network.fromWeights(squareTables(), 64);
+        NnueEvaluator incremental = new NnueEvaluator(network);
+        NnueEvaluator fresh = new NnueEvaluator(network);
+        Position position = Fen.parse(Fen.START);
+        Position copy = new Position();
+        Random random = new Random(240);
+        int[] moves = new int[Position.MAX_MOVES];
+        int[] played = new int[80];
+        incremental.evaluate(position);
+        int count = 0;
+        for (; count < played.length; count++) {
+            int legal = position.generateLegal(moves, 0);
+            if (legal == 0) { break; }
+            played[count] = moves[random.nextInt(legal)];
+            position.make(played[count]);
+            Assertions.assertEquals(fresh.evaluate(copy.copyFrom(position)), incremental.evaluate(position), "Score after move " + (count + 1));
+        }
+        while (count > 0) {
+            position.unmake(played[--count]);
+            Assertions.assertEquals(fresh.evaluate(copy.copyFrom(position)), incremental.evaluate(position), "Score after taking back move " + (count + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Converted Network Matches Square Tables")
+    public void convertedNetwork() {
+        Weights weights = squareTables();
+        NnueEvaluator network = new NnueEvaluator(Network.fromWeights(weights, 64));
+        LinearEvaluator linear = new LinearEvaluator(weights);
+        Position position = Fen.parse("r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/3P1N2/PPP2PPP/RNBQK2R b - - 0 1");
+        Assertions.assertEquals(linear.evaluate(position), network.evaluate(position), 2 * 32, "Every piece's value is rounded to 4 centipawns");
+        Assertions.assertEquals(0, network.evaluate(Fen.parse(Fen.START)), "The starting position is balanced");
+    }
+
+    @Test
+    @DisplayName("Vector Kernels Match Scalar Kernels")
+    public void vectorKernels() {
+        Assumptions.assumeFalse(Kernels.BEST instanceof ScalarKernels, "Only built and run by the vector profile");
+        Network network = Network.fromWeights(squareTables(), 64);
+        NnueEvaluator vector = new NnueEvaluator(network, Kernels.BEST), scalar = new NnueEvaluator(network, new ScalarKernels());
+        Assertions.assertTrue(vector.vectorized());
+        for (String fen : new String[]{ Fen.START, "r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/3P1N2/PPP2PPP/RNBQK2R b - - 0 1", "8/8/4k3/8/2P5/8/5K2/8 w - - 0 1" }) {
+            Assertions.assertEquals(scalar.evaluate(Fen.parse(fen)), vector.evaluate(Fen.parse(fen)), fen);
+        }
+    }
+}
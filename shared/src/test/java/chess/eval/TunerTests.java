@@ -0,0 +1,90 @@
+package chess.eval;
+
+import chess.Position;
+import chess.selfplay.PositionRecord;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class TunerTests {
+
+    private static Weights read(String text) throws IOException {
+        return Weights.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Weights Round Trip Through Text")
+    public void weights() throws IOException {
+        int[] values = Weights.builtIn().values();
+        for (int i = 0; i < values.length; i++) { values[i] += i % 7 - 3; }
+        Weights weights = new Weights(values);
+        StringWriter text = new StringWriter();
+        weights.write(text);
+        Assertions.assertArrayEquals(values, read(text.toString()).values());
+        Assertions.assertArrayEquals(values, read("# a comment\n\n" + text).values(), "Comments and blank lines are skipped");
+
+        StringWriter builtIn = new StringWriter();
+        Weights.builtIn().write(builtIn);
+        Assertions.assertArrayEquals(Weights.builtIn().values(), read(builtIn.toString()).values());
+    }
+
+    @Test
+    @DisplayName("Bad Weights Are Refused")
+    public void badWeights() throws IOException {
+        StringWriter text = new StringWriter();
+        Weights.builtIn().write(text);
+        String good = text.toString();
+        Assertions.assertThrows(IOException.class, () -> read(good.replaceFirst("material (\\d+)", "material")), "A weight short");
+        Assertions.assertThrows(IOException.class, () -> read(good + " 7"), "A weight over");
+        Assertions.assertThrows(IOException.class, () -> read(good.replaceFirst("material (\\d+)", "material x")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Weights(new int[Weights.COUNT - 1]));
+    }
+
+    @Test
+    @DisplayName("A Tuning Step Lowers The Error")
+    public void step(@TempDir Path directory) throws IOException {
+        // A toy set where the side with an extra knight always loses, so the knight should lose value
+        int[] squares = { 18, 27, 36, 45, 22, 24, 39, 41 };
+        ByteBuffer records = ByteBuffer.allocate(squares.length * 4 * PositionRecord.SIZE);
+        for (int square : squares) {
+            for (int side = Position.WHITE; side <= Position.BLACK; side++) {
+                PositionRecord.write(records, knightUp(Position.WHITE, square, side), PositionRecord.WHITE_LOSS, 0);
+                PositionRecord.write(records, knightUp(Position.BLACK, square ^ 56, side), PositionRecord.WHITE_WIN, 0);
+            }
+        }
+        Path file = directory.resolve("toy.bin");
+        Files.write(file, records.array());
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Tuner tuner = new Tuner(file, pool);
+            Weights start = Weights.builtIn();
+            Weights tuned = tuner.tune(start, 1, new PrintStream(OutputStream.nullOutputStream()));
+            Assertions.assertTrue(tuner.error(tuned) < tuner.error(start), "One step should lower the error");
+            Assertions.assertTrue(tuned.get(Weights.material(Position.KNIGHT)) < start.get(Weights.material(Position.KNIGHT)));
+            Assertions.assertEquals(start.get(Weights.material(Position.QUEEN)), tuned.get(Weights.material(Position.QUEEN)), "No queen was seen");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** @return kings on e1 and e8 and one side's knight on a square, with a side to move */
+    private static Position knightUp(int color, int square, int sideToMove) {
+        Position position = new Position();
+        position.put(4, Position.KING);
+        position.put(60, Position.KING | Position.BLACK_BIT);
+        position.put(square, Position.KNIGHT | (color == Position.BLACK ? Position.BLACK_BIT : 0));
+        if (sideToMove != Position.WHITE) { position.flipSideToMove(); }
+        return position;
+    }
+}
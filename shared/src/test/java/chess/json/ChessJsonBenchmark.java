@@ -0,0 +1,78 @@
+package chess.json;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Compares {@link ChessJson} with reflective Gson on LOAD_GAME messages: bytes per message, and time to write and
+ * read one. The games are random legal playouts of up to 60 plies, and every message read back is checked against
+ * the game that was written.
+ * <p>
+ * Usage: {@code ChessJsonBenchmark [games] [rounds]}.
+ */
+public class ChessJsonBenchmark {
+
+    /** The shape of the server's LOAD_GAME message */
+    private record LoadGame(String serverMessageType, ChessGame game) {}
+
+    public static void main(String[] args) throws InvalidMoveException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<LoadGame> messages = new ArrayList<>();
+        Random random = new Random(240);
+        for (int i = 0; i < count; i++) { messages.add(new LoadGame("LOAD_GAME", playout(random, random.nextInt(61)))); }
+
+        for (String name : new String[]{ "reflective", "adapters" }) {
+            Gson gson = name.equals("reflective") ? new Gson() : ChessJson.gson();
+            List<String> json = new ArrayList<>();
+            long bytes = 0;
+            for (LoadGame message : messages) {
+                String text = gson.toJson(message);
+                LoadGame read = gson.fromJson(text, LoadGame.class);
+                if (!read.game().getBoard().equals(message.game().getBoard()) || read.game().getTeamTurn() != message.game().getTeamTurn()) {
+                    throw new IllegalStateException(name + " changed game " + json.size() + " in a round trip");
+                }
+                json.add(text);
+                bytes += text.getBytes(StandardCharsets.UTF_8).length;
+            }
+            double write = 0, read = 0;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                for (LoadGame message : messages) { gson.toJson(message); }
+                long middle = System.nanoTime();
+                for (String text : json) { gson.fromJson(text, LoadGame.class); }
+                long end = System.nanoTime();
+                if (round > 0 || rounds == 1) { // the first round warms up
+                    write = (double) (middle - start) / count;
+                    read = (double) (end - middle) / count;
+                }
+            }
+            System.out.printf("%-10s %,6.0f bytes/message  write %,8.0f ns  read %,8.0f ns%n", name, (double) bytes / count, write, read);
+        }
+    }
+
+    /** @return a game after a number of random legal moves, or fewer if it ends first */
+    private static ChessGame playout(Random random, int plies) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int ply = 0; ply < plies; ply++) {
+            List<ChessMove> moves = new ArrayList<>();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPosition square = new ChessPosition(row, col);
+                    var piece = game.getBoard().getPiece(square);
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) { moves.addAll(game.validMoves(square)); }
+                }
+            }
+            if (moves.isEmpty()) { break; }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        return game;
+    }
+}
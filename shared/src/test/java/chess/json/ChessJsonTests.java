@@ -0,0 +1,72 @@
+package chess.json;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.notation.Fen;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+public class ChessJsonTests {
+    private static final String MIDDLEGAME = "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N2N2/PP2BPPP/R2QKB1R b KQ - 3 9";
+
+    private final Gson gson = ChessJson.gson();
+
+    @Test
+    @DisplayName("Games Are Written As FEN")
+    public void compact() {
+        String json = this.gson.toJson(new ChessGame());
+        Assertions.assertEquals("{\"teamTurn\":\"WHITE\",\"board\":\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR\"}", json);
+        Assertions.assertTrue(json.length() * 10 < new Gson().toJson(new ChessGame()).length());
+    }
+
+    @Test
+    @DisplayName("Round Trip A Game")
+    public void roundTrip() {
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        ChessGame read = this.gson.fromJson(this.gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, read.getTeamTurn());
+        Assertions.assertEquals(game.getBoard(), read.getBoard());
+        Assertions.assertNull(this.gson.fromJson("null", ChessGame.class));
+        Assertions.assertEquals("null", this.gson.toJson(null, ChessGame.class));
+    }
+
+    @Test
+    @DisplayName("Moves Are Written As UCI")
+    public void moves() {
+        List<ChessMove> moves = List.of(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT),
+                new ChessMove(new ChessPosition(2, 8), new ChessPosition(1, 8), ChessPiece.PieceType.QUEEN));
+        String json = this.gson.toJson(moves);
+        Assertions.assertEquals("[\"e2e4\",\"a7a8n\",\"h2h1q\"]", json);
+        Assertions.assertEquals(moves, this.gson.fromJson(json, new TypeToken<List<ChessMove>>() {}.getType()));
+    }
+
+    @Test
+    @DisplayName("Reflective JSON Still Reads")
+    public void legacy() {
+        Gson reflective = new Gson();
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        ChessGame read = this.gson.fromJson(reflective.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.getBoard(), read.getBoard());
+        Assertions.assertEquals(game.getTeamTurn(), read.getTeamTurn());
+
+        ChessMove move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.ROOK);
+        Assertions.assertEquals(move, this.gson.fromJson(reflective.toJson(move), ChessMove.class));
+    }
+
+    @Test
+    @DisplayName("Bad Text Is Refused")
+    public void invalid() {
+        Assertions.assertThrows(JsonParseException.class, () -> this.gson.fromJson("\"e2e9\"", ChessMove.class));
+        Assertions.assertThrows(JsonParseException.class, () -> this.gson.fromJson("\"e7e8k\"", ChessMove.class));
+        Assertions.assertThrows(JsonParseException.class, () -> this.gson.fromJson("{\"board\":\"rnbqkbnr/ppppxppp\"}", ChessGame.class));
+        Assertions.assertThrows(JsonParseException.class, () -> this.gson.fromJson("{\"teamTurn\":\"GREEN\"}", ChessGame.class));
+    }
+}
@@ -0,0 +1,66 @@
+package chess.notation;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Position;
+import org.junit.jupiter.api.*;
+
+public class FenTests {
+
+    @Test
+    @DisplayName("Parse And Format Round Trip")
+    public void roundTrip() {
+        String[] fens = {
+                Fen.START,
+                "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w - - 0 1",
+                "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N2N2/PP2BPPP/R2QKB1R b - - 0 1",
+                "8/8/4k3/8/2P5/8/5K2/8 w - - 0 1",
+                "4k3/P7/8/8/8/8/8/4K3 b - - 0 1",
+        };
+        for (String fen : fens) { Assertions.assertEquals(fen, Fen.format(Fen.parse(fen))); }
+        Assertions.assertEquals(Fen.START, Fen.of(new ChessGame()));
+        Assertions.assertEquals(fens[2], Fen.of(Fen.toGame(fens[2])));
+    }
+
+    @Test
+    @DisplayName("Unused Fields Are Ignored")
+    public void ignoredFields() {
+        Assertions.assertEquals(Fen.START, Fen.format(Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1")));
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1",
+                Fen.format(Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")));
+        Assertions.assertEquals(Position.WHITE, Fen.parse("8/8/8/8/8/8/8/K6k").sideToMove(), "White moves when the field is missing");
+    }
+
+    @Test
+    @DisplayName("Boards And Placement")
+    public void boards() {
+        var board = Fen.toBoard("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        ChessPiece rook = board.getPiece(new ChessPosition(1, 1)), king = board.getPiece(new ChessPosition(8, 5));
+        Assertions.assertEquals(ChessPiece.PieceType.ROOK, rook.getPieceType());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, rook.getTeamColor());
+        Assertions.assertEquals(ChessPiece.PieceType.KING, king.getPieceType());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, king.getTeamColor());
+        Assertions.assertNull(board.getPiece(new ChessPosition(4, 4)));
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/R3K3", Fen.placement(board));
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, Fen.toGame("4k3/8/8/8/8/8/8/R3K3 b - - 0 1").getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Bad Placements Are Refused")
+    public void invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w - - 0 1"), "Only seven ranks");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1"), "Nine pawns in a rank");
+    }
+
+    @Test
+    @DisplayName("Pawns On The Far Rank Do Not Move")
+    public void farRankPawns() {
+        int[] moves = new int[Position.MAX_MOVES];
+        Position white = Fen.parse("Pr5k/8/8/8/8/8/8/K5Rp w - - 0 1");
+        Assertions.assertEquals(1 + 13, white.generateLegal(moves, 0), "Only the king and the rook should move");
+        Position black = Fen.parse("Pr5k/8/8/8/8/8/8/K5Rp b - - 0 1");
+        Assertions.assertEquals(1 + 13, black.generateLegal(moves, 0), "Only the king and the rook should move");
+    }
+}
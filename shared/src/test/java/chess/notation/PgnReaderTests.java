@@ -0,0 +1,56 @@
+package chess.notation;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class PgnReaderTests {
+
+    private static PgnReader reader(String pgn) { return new PgnReader(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8))); }
+
+    @Test
+    @DisplayName("Tags, Comments, Variations And Result")
+    public void annotatedGame() throws IOException {
+        var reader = reader("""
+                [Event "Casual \\"Blitz\\""]
+                [White "Müller"]
+
+                1. e4 {best by test} e5 (1... c5 2. Nf3 (2. c3) d6) 2. Nf3 $1 Nc6
+                ; a comment to the end of the line 1-0
+                3.Bb5 a6 1/2-1/2
+                """);
+        var game = reader.next();
+        Assertions.assertNotNull(game);
+        Assertions.assertFalse(game.skipped(), "The game should be read in full");
+        Assertions.assertEquals("Casual \"Blitz\"", game.tag("Event"));
+        Assertions.assertEquals("Müller", game.tag("White"));
+        Assertions.assertEquals("1/2-1/2", game.result());
+        Assertions.assertEquals(6, game.moves().size(), "Variations should not be part of the main line");
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 6), new ChessPosition(5, 2), null), game.moves().get(4));
+        Assertions.assertNull(reader.next(), "There is only one game");
+    }
+
+    @Test
+    @DisplayName("Games That Castle Are Skipped")
+    public void castling() throws IOException {
+        var reader = reader("""
+                [Event "One"]
+
+                1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 1-0
+
+                [Event "Two"]
+
+                1. d4 d5 0-1
+                """);
+        var first = reader.next();
+        Assertions.assertEquals("castling", first.skipReason());
+        Assertions.assertEquals("1-0", first.result(), "The rest of a skipped game should still be read");
+        var second = reader.next();
+        Assertions.assertFalse(second.skipped());
+        Assertions.assertEquals(2, second.moves().size());
+    }
+}
@@ -0,0 +1,39 @@
+package chess.notation;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.*;
+
+public class SanTests {
+
+    @Test
+    @DisplayName("Disambiguate By File, Rank Or Both")
+    public void disambiguation() throws InvalidMoveException {
+        var game = Fen.toGame("4k3/8/8/R7/8/5Q1Q/8/RN1NK2Q w - - 0 1");
+        Assertions.assertEquals("Nbc3", game.toSan(new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null)));
+        Assertions.assertEquals("R1a3", game.toSan(new ChessMove(new ChessPosition(1, 1), new ChessPosition(3, 1), null)));
+        Assertions.assertEquals("Qh3g2", game.toSan(new ChessMove(new ChessPosition(3, 8), new ChessPosition(2, 7), null)));
+        Assertions.assertEquals("Ke2", game.toSan(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null)));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 4), new ChessPosition(3, 3), null), game.parseSan("Ndc3"));
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.parseSan("Nc3"), "Nc3 could be either knight");
+    }
+
+    @Test
+    @DisplayName("Check, Mate And Promotion")
+    public void suffixes() throws InvalidMoveException {
+        var mate = Fen.toGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        Assertions.assertEquals("Ra8#", mate.toSan(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null)));
+        var promotion = Fen.toGame("7k/1P6/8/8/8/8/8/K7 w - - 0 1");
+        Assertions.assertEquals("b8=Q+", promotion.toSan(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), chess.ChessPiece.PieceType.QUEEN)));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), chess.ChessPiece.PieceType.KNIGHT), promotion.parseSan("b8=N"));
+    }
+
+    @Test
+    @DisplayName("Illegal Moves Are Rejected")
+    public void illegal() {
+        var game = Fen.toGame(Fen.START);
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.toSan(new ChessMove(new ChessPosition(2, 5), new ChessPosition(5, 5), null)));
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.parseSan("O-O"));
+    }
+}
@@ -0,0 +1,44 @@
+package chess.puzzle;
+
+import chess.Position;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+
+public class MateSolverTests {
+
+    @Test
+    @DisplayName("Back Rank Mate In One")
+    public void mateInOne() {
+        var solution = new MateSolver(4).solve(Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), 1, Long.MAX_VALUE, 10_000);
+        Assertions.assertEquals(MateSolver.Status.MATE, solution.status(), "Ra8 is mate");
+        Assertions.assertEquals(Position.square(new chess.ChessPosition(8, 1)), Position.to(solution.keyMove()), "The rook should go to a8");
+    }
+
+    @Test
+    @DisplayName("Mate In Three With Black")
+    public void mateInThree() {
+        var position = Fen.parse("8/5ppk/p6p/1p6/2pN4/2P5/PP2rq2/R1K4R b - - 0 1");
+        var solver = new MateSolver(16);
+        Assertions.assertEquals(MateSolver.Status.MATE, solver.solve(position, 3, Long.MAX_VALUE, 10_000).status(), "Black mates in 3");
+        solver.clear();
+        Assertions.assertEquals(MateSolver.Status.NO_MATE, solver.solve(position, 1, Long.MAX_VALUE, 10_000).status(), "There is no mate in 1");
+    }
+
+    @Test
+    @DisplayName("No Mate From The Start")
+    public void noMate() {
+        var solution = new MateSolver(16).solve(Fen.parse(Fen.START), 2, Long.MAX_VALUE, 10_000);
+        Assertions.assertEquals(MateSolver.Status.NO_MATE, solution.status(), "Nobody can be mated in 2 from the starting position");
+    }
+
+    @Test
+    @DisplayName("A Tiny Table Keeps The Proof And Its Key Move")
+    public void tinyTable() {
+        var position = Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+        for (long entries : new long[] { 2, 8, 64 }) {
+            var solution = new MateSolver(entries).solve(position, 2, 1_000_000, 10_000);
+            Assertions.assertEquals(MateSolver.Status.MATE, solution.status(), "Rd8 mates, with " + entries + " entries");
+            Assertions.assertEquals(Position.square(new chess.ChessPosition(8, 4)), Position.to(solution.keyMove()), "The rook should go to d8, with " + entries + " entries");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package chess.search;
+
+import chess.ChessMove;
+import chess.Position;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class AnalysisTests {
+    /** White mates in 2 by cutting the king off with one rook and mating with the other; no rook check mates at once */
+    private static final String MATE_IN_TWO = "7k/8/8/8/8/8/R7/1R4K1 w - - 0 1";
+
+    /** Runs an analysis to a depth on this thread, keeping every progress report */
+    private static List<AnalysisProgress> analyze(String fen, int lines, int depth) {
+        List<AnalysisProgress> reports = new ArrayList<>();
+        new Analysis(Fen.toGame(fen), lines, depth, new TranspositionTable(4), reports::add).run();
+        return reports;
+    }
+
+    @Test
+    @DisplayName("Search Finds A Mate In Two")
+    public void mateInTwo() {
+        Searcher searcher = new Searcher(new TranspositionTable(4));
+        Position position = Fen.parse(MATE_IN_TWO);
+        int score = 0;
+        for (int depth = 1; depth <= 4; depth++) { score = searcher.searchRoot(position, depth, -Searcher.INFINITY, Searcher.INFINITY, null, 0); }
+        Assertions.assertEquals(Searcher.MATE - 3, score, "Mate on the third ply");
+        Assertions.assertEquals(6, Position.to(searcher.bestMove()) >> 3, "The first move should cut the king off on the seventh rank");
+
+        AnalysisProgress last = analyze(MATE_IN_TWO, 1, 4).getLast();
+        Assertions.assertTrue(last.finished());
+        Assertions.assertEquals(2, last.lines().get(0).mateIn());
+    }
+
+    @Test
+    @DisplayName("MultiPV Returns Distinct Lines In Order")
+    public void multiPv() {
+        List<AnalysisProgress> reports = analyze(Fen.START, 4, 3);
+        AnalysisProgress last = reports.getLast();
+        Assertions.assertTrue(last.finished());
+        Assertions.assertEquals(3, last.depth());
+        Assertions.assertEquals(4, last.lines().size());
+        Set<ChessMove> firstMoves = new HashSet<>();
+        for (int i = 0; i < last.lines().size(); i++) {
+            AnalysisLine line = last.lines().get(i);
+            Assertions.assertEquals(i + 1, line.rank());
+            Assertions.assertEquals(3, line.depth());
+            Assertions.assertFalse(line.moves().isEmpty());
+            Assertions.assertTrue(firstMoves.add(line.moves().get(0)), "Each line should start with a different move");
+            if (i > 0) { Assertions.assertTrue(line.score() <= last.lines().get(i - 1).score(), "Lines should be best first"); }
+        }
+        for (int i = 0; i < reports.size() - 1; i++) { Assertions.assertFalse(reports.get(i).finished()); }
+    }
+
+    @Test
+    @DisplayName("MultiPV Is Capped By The Legal Moves")
+    public void fewMoves() {
+        AnalysisProgress last = analyze("7k/8/8/8/8/8/8/K7 w - - 0 1", 10, 2).getLast();
+        Assertions.assertEquals(3, last.lines().size(), "The king in the corner has three moves");
+    }
+
+    @Test
+    @DisplayName("Infinite Analysis Stops When Asked")
+    public void stop() throws Exception {
+        List<AnalysisProgress> reports = new ArrayList<>();
+        Analysis analysis = new Analysis(Fen.toGame(Fen.START), 2, 0, new TranspositionTable(4), progress -> {
+            synchronized (reports) { reports.add(progress); }
+        });
+        Thread thread = new Thread(analysis);
+        thread.start();
+        Thread.sleep(50);
+        analysis.stop();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        Assertions.assertFalse(thread.isAlive());
+        Assertions.assertTrue(analysis.isStopped());
+        synchronized (reports) { Assertions.assertTrue(reports.getLast().finished()); }
+    }
+}
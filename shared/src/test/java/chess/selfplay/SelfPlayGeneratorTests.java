@@ -0,0 +1,62 @@
+package chess.selfplay;
+
+import chess.Position;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+public class SelfPlayGeneratorTests {
+
+    @Test
+    @DisplayName("Records Read Back As Written")
+    public void records() {
+        String fen = "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N2N2/PP2BPPP/R2QKB1R b - - 0 1";
+        ByteBuffer buffer = ByteBuffer.allocate(3 * PositionRecord.SIZE);
+        PositionRecord.write(buffer, Fen.parse(Fen.START), PositionRecord.DRAW, 25);
+        PositionRecord.write(buffer, Fen.parse(fen), PositionRecord.WHITE_LOSS, -140);
+        PositionRecord.write(buffer, Fen.parse(fen), PositionRecord.WHITE_WIN, 100_000);
+        Assertions.assertFalse(buffer.hasRemaining());
+
+        Position position = new Position();
+        Assertions.assertEquals(PositionRecord.DRAW, PositionRecord.read(buffer, 0, position));
+        Assertions.assertEquals(Fen.START, Fen.format(position));
+        Assertions.assertEquals(Fen.parse(Fen.START).hash(), position.hash());
+        Assertions.assertEquals(25, PositionRecord.score(buffer, 0));
+        Assertions.assertEquals(PositionRecord.WHITE_LOSS, PositionRecord.read(buffer, PositionRecord.SIZE, position));
+        Assertions.assertEquals(fen, Fen.format(position));
+        Assertions.assertEquals(-140, PositionRecord.score(buffer, PositionRecord.SIZE));
+        Assertions.assertEquals(Short.MAX_VALUE, PositionRecord.score(buffer, 2 * PositionRecord.SIZE), "Scores are clamped to 16 bits");
+    }
+
+    @Test
+    @DisplayName("Generated Games Are Written As Records")
+    public void generate(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("selfplay.bin");
+        SelfPlayGenerator generator;
+        try (FileChannel output = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            generator = new SelfPlayGenerator(output, 300, 240);
+            ForkJoinPool pool = new ForkJoinPool(2);
+            generator.generate(pool, 6);
+            pool.shutdown();
+        }
+        Assertions.assertTrue(generator.positions() > 0);
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        Assertions.assertEquals(generator.positions() * PositionRecord.SIZE, buffer.capacity());
+
+        Position position = new Position();
+        for (int offset = 0; offset < buffer.capacity(); offset += PositionRecord.SIZE) {
+            int result = PositionRecord.read(buffer, offset, position);
+            Assertions.assertTrue(result >= PositionRecord.WHITE_LOSS && result <= PositionRecord.WHITE_WIN, "Result " + result);
+            Assertions.assertTrue(position.kingSquare(Position.WHITE) >= 0 && position.kingSquare(Position.BLACK) >= 0, Fen.format(position));
+            Assertions.assertFalse(position.inCheck(), "Positions in check are left out: " + Fen.format(position));
+            Assertions.assertTrue(position.generateLegal(new int[Position.MAX_MOVES], 0) > 0, "Every recorded position had a move played from it");
+        }
+    }
+}
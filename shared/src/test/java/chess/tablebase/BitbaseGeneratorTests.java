@@ -0,0 +1,55 @@
+package chess.tablebase;
+
+import chess.Position;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class BitbaseGeneratorTests {
+
+    @Test
+    @DisplayName("Generate King And Queen Against King")
+    public void queen(@TempDir Path directory) throws Exception {
+        Material material = Material.parse("KQvK");
+        BitbaseGenerator generator = new BitbaseGenerator(ForkJoinPool.commonPool());
+        generator.generate(material);
+        long bytes = generator.write(material, directory);
+        Path wdlFile = directory.resolve("KQvK.wdl"), dtmFile = directory.resolve("KQvK.dtm");
+        Assertions.assertEquals(Files.size(wdlFile) + Files.size(dtmFile), bytes);
+        Assertions.assertEquals(TablebaseFile.HEADER_SIZE + material.size() / 4, Files.size(wdlFile), "Four outcomes per byte");
+        Assertions.assertEquals(TablebaseFile.HEADER_SIZE + material.size(), Files.size(dtmFile), "One distance per byte");
+
+        TablebaseFile wdl = new TablebaseFile(wdlFile), dtm = new TablebaseFile(dtmFile);
+        Assertions.assertEquals("KQvK", wdl.material().name());
+        Assertions.assertEquals(TablebaseFile.DTM, dtm.kind());
+        Position position = new Position();
+        int[] squares = new int[material.pieceCount()];
+        int[] longest = new int[2];
+        int legal = 0;
+        for (long index = 0; index < material.size(); index++) {
+            boolean isLegal = material.setup(position, squares, index);
+            Assertions.assertEquals(isLegal, wdl.wdl(index) != 0, "Only illegal indexes should have no outcome");
+            if (!isLegal) { continue; }
+            legal++;
+            longest[position.sideToMove()] = Math.max(longest[position.sideToMove()], dtm.dtm(index));
+            if (position.sideToMove() == Position.WHITE) {
+                Assertions.assertEquals(Wdl.WIN.ordinal() + 1, wdl.wdl(index), "White to move always wins, at " + Fen.format(position));
+                Assertions.assertTrue(dtm.dtm(index) % 2 == 1, "White mates on its own move");
+            }
+        }
+        Assertions.assertEquals(19, longest[Position.WHITE], "The longest win is mate in 10");
+        Assertions.assertEquals(20, longest[Position.BLACK], "Black's move, then mate in 10");
+        Assertions.assertTrue(legal > 0);
+
+        Tablebases tables = new Tablebases(directory);
+        Assertions.assertEquals(Wdl.WIN, tables.probeWdl(Fen.parse("8/8/8/3k4/8/8/8/KQ6 w - - 0 1")));
+        Assertions.assertEquals(Wdl.LOSS, tables.probeWdl(Fen.parse("8/8/8/3k4/8/8/8/KQ6 b - - 0 1")));
+        Assertions.assertEquals(Wdl.DRAW, tables.probeWdl(Fen.parse("8/8/8/8/8/8/1kQ5/7K b - - 0 1")), "Black takes the queen");
+        Assertions.assertEquals(1, tables.probeDtm(Fen.parse("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1")), "Qg8 mates");
+        Assertions.assertEquals(0, tables.probeDtm(Fen.parse("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")), "Already mated");
+    }
+}
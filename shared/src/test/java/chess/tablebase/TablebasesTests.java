@@ -0,0 +1,110 @@
+package chess.tablebase;
+
+import chess.ChessGame;
+import chess.Position;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class TablebasesTests {
+    private static Tablebases tables;
+
+    @BeforeAll
+    public static void generate(@TempDir Path directory) throws Exception {
+        BitbaseGenerator generator = new BitbaseGenerator(ForkJoinPool.commonPool());
+        for (String name : new String[]{ "KQvK", "KRvK" }) {
+            Material material = Material.parse(name);
+            generator.generate(material);
+            generator.write(material, directory);
+        }
+        tables = new Tablebases(directory);
+    }
+
+    private static Wdl wdl(String fen) { return tables.probeWdl(Fen.parse(fen)); }
+
+    private static int dtm(String fen) { return tables.probeDtm(Fen.parse(fen)); }
+
+    @Test
+    @DisplayName("Probe King And Queen Against King")
+    public void queen() {
+        Assertions.assertEquals(3, tables.maxPieces());
+        Assertions.assertEquals(Wdl.LOSS, wdl("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"));
+        Assertions.assertEquals(0, dtm("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"), "Already mated");
+        Assertions.assertEquals(Wdl.WIN, wdl("7k/8/6K1/8/8/8/8/5Q2 w - - 0 1"));
+        Assertions.assertEquals(1, dtm("7k/8/6K1/8/8/8/8/5Q2 w - - 0 1"), "Qf8 mates");
+        Assertions.assertEquals(Wdl.DRAW, wdl("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), "Stalemate");
+        Assertions.assertEquals(Wdl.DRAW, wdl("8/8/8/8/8/2k5/1Q6/7K b - - 0 1"), "The loose queen is taken");
+        Assertions.assertEquals(0, dtm("8/8/8/8/8/2k5/1Q6/7K b - - 0 1"));
+    }
+
+    @Test
+    @DisplayName("Probe King And Rook Against King")
+    public void rook() {
+        Assertions.assertEquals(Wdl.LOSS, wdl("R6k/8/6K1/8/8/8/8/8 b - - 0 1"));
+        Assertions.assertEquals(0, dtm("R6k/8/6K1/8/8/8/8/8 b - - 0 1"));
+        Assertions.assertEquals(Wdl.WIN, wdl("k7/8/1K6/8/8/8/8/7R w - - 0 1"));
+        Assertions.assertEquals(1, dtm("k7/8/1K6/8/8/8/8/7R w - - 0 1"), "Rh8 mates");
+        Assertions.assertEquals(Wdl.LOSS, wdl("7k/R7/6K1/8/8/8/8/8 b - - 0 1"));
+        Assertions.assertEquals(2, dtm("7k/R7/6K1/8/8/8/8/8 b - - 0 1"), "Kg8 is forced, then Ra8 mates");
+    }
+
+    @Test
+    @DisplayName("Black Material Is Probed Mirrored")
+    public void mirrored() {
+        Assertions.assertEquals(Wdl.LOSS, wdl("8/8/8/8/8/6k1/6q1/7K w - - 0 1"));
+        Assertions.assertEquals(0, dtm("8/8/8/8/8/6k1/6q1/7K w - - 0 1"));
+        Assertions.assertEquals(Wdl.DRAW, wdl("8/8/8/8/8/6k1/5q2/7K w - - 0 1"), "Stalemate");
+        Assertions.assertEquals(Wdl.WIN, wdl("7K/8/1k6/8/8/8/8/r7 b - - 0 1"));
+        Assertions.assertEquals(Wdl.LOSS, wdl("7K/8/1k6/8/8/8/8/r7 w - - 0 1"));
+        Assertions.assertEquals(Wdl.LOSS, Wdl.WIN.negate());
+        Assertions.assertEquals(Wdl.DRAW, Wdl.DRAW.negate());
+    }
+
+    @Test
+    @DisplayName("Uncovered Positions Are Not Answered")
+    public void uncovered() {
+        Assertions.assertNull(wdl(Fen.START));
+        Assertions.assertEquals(-1, dtm(Fen.START));
+        Assertions.assertNull(wdl("7k/8/6K1/8/8/8/8/5B2 w - - 0 1"), "No KBvK table was generated");
+        Assertions.assertEquals(-1, dtm("7k/8/6K1/8/8/8/8/5B2 w - - 0 1"));
+        Assertions.assertNull(tables.probeWdl(new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("Checkmate And Stalemate Agree With The Game")
+    public void gameRules() {
+        ChessGame mated = Fen.toGame("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1");
+        Assertions.assertTrue(tables.isInCheckmate(mated, ChessGame.TeamColor.BLACK));
+        Assertions.assertFalse(tables.isInStalemate(mated, ChessGame.TeamColor.BLACK));
+        ChessGame stalemated = Fen.toGame("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        Assertions.assertTrue(tables.isInStalemate(stalemated, ChessGame.TeamColor.BLACK));
+        Assertions.assertFalse(tables.isInCheckmate(stalemated, ChessGame.TeamColor.BLACK));
+        ChessGame check = Fen.toGame("7k/8/6K1/8/8/8/8/5Q2 w - - 0 1");
+        Assertions.assertFalse(tables.isInCheckmate(check, ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(tables.isInStalemate(check, ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(tables.isInCheckmate(new ChessGame(), ChessGame.TeamColor.WHITE), "Uncovered games are answered by the game");
+    }
+
+    @Test
+    @DisplayName("Material Signatures Index Positions")
+    public void material() {
+        Material material = Material.parse("KRvK");
+        Assertions.assertEquals("KRvK", material.name());
+        Assertions.assertEquals(3, material.pieceCount());
+        Assertions.assertEquals(2L << 18, material.size());
+        Assertions.assertEquals("KQvK", Material.of(Fen.parse("8/8/8/8/8/6k1/6q1/7K w - - 0 1")).name());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Material.parse("QvK"));
+
+        Position position = Fen.parse("7k/R7/6K1/8/8/8/8/8 b - - 0 1");
+        long index = material.index(position, false);
+        Position setUp = new Position();
+        int[] squares = new int[3];
+        Assertions.assertTrue(material.setup(setUp, squares, index));
+        Assertions.assertEquals(Fen.format(position), Fen.format(setUp));
+        Assertions.assertEquals(index, material.index(squares, setUp.sideToMove()));
+        Assertions.assertFalse(material.setup(setUp, squares, material.index(new int[]{ 0, 1, 2 }, Position.WHITE)), "Kings side by side");
+    }
+}
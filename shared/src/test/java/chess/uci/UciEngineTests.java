@@ -0,0 +1,141 @@
+package chess.uci;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Position;
+import chess.notation.Fen;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class UciEngineTests {
+    private PipedOutputStream input;
+    private ByteArrayOutputStream output;
+    private Thread engine;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.input = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(this.input);
+        this.output = new ByteArrayOutputStream();
+        UciEngine uci = new UciEngine(in, new PrintStream(this.output, true, StandardCharsets.UTF_8));
+        this.engine = new Thread(() -> {
+            try {
+                uci.run();
+            } catch (IOException e) {
+                // the test closed the pipe
+            }
+        }, "uci-test");
+        this.engine.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        this.send("quit");
+        this.engine.join(10_000);
+        this.input.close();
+    }
+
+    private void send(String command) throws IOException {
+        this.input.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+        this.input.flush();
+    }
+
+    /** @return every line printed so far, once one starting with the prefix has been printed */
+    private List<String> await(String prefix) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            List<String> lines = this.output.toString(StandardCharsets.UTF_8).lines().toList();
+            if (lines.stream().anyMatch(line -> line.startsWith(prefix))) { return lines; }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("No '" + prefix + "' in " + this.output.toString(StandardCharsets.UTF_8));
+    }
+
+    private static String bestMove(List<String> lines) {
+        return lines.stream().filter(line -> line.startsWith("bestmove ")).findFirst().orElseThrow().substring(9);
+    }
+
+    @Test
+    @DisplayName("Handshake")
+    public void handshake() throws Exception {
+        this.send("uci");
+        List<String> lines = this.await("uciok");
+        Assertions.assertTrue(lines.contains("id name 240 Chess"));
+        Assertions.assertTrue(lines.stream().anyMatch(line -> line.startsWith("option name Hash")));
+        this.send("isready");
+        this.await("readyok");
+    }
+
+    @Test
+    @DisplayName("Position With Moves Then Go Depth")
+    public void goDepth() throws Exception {
+        this.send("ucinewgame");
+        this.send("position startpos moves e2e4 e7e5 g1f3");
+        this.send("go depth 3");
+        List<String> lines = this.await("bestmove");
+        for (int depth = 1; depth <= 3; depth++) {
+            String prefix = "info depth " + depth + " score ";
+            Assertions.assertTrue(lines.stream().anyMatch(line -> line.startsWith(prefix)), "Expected a report for depth " + depth + " in " + lines);
+        }
+        Assertions.assertFalse(lines.stream().anyMatch(line -> line.startsWith("info depth 4 ")), "The search should stop at depth 3");
+        Position afterMoves = Fen.parse("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b - - 0 1");
+        Assertions.assertNotEquals(0, UciMove.parse(afterMoves, bestMove(lines)), "Black should move in the position after the moves");
+    }
+
+    @Test
+    @DisplayName("Position From FEN Finds A Mate")
+    public void fenMate() throws Exception {
+        this.send("position fen 7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+        this.send("go depth 5");
+        List<String> lines = this.await("bestmove");
+        Assertions.assertTrue(lines.stream().anyMatch(line -> line.contains(" score mate 2 ")), lines.toString());
+        Assertions.assertTrue(List.of("a2a7", "b1b7").contains(bestMove(lines)), "A rook should cut the king off first");
+    }
+
+    @Test
+    @DisplayName("Illegal Moves Are Reported")
+    public void illegal() throws Exception {
+        this.send("position startpos moves e2e5");
+        this.await("info string illegal move e2e5");
+    }
+
+    @Test
+    @DisplayName("Bad Numbers And FENs Are Reported")
+    public void badInput() throws Exception {
+        this.send("position startpos moves e2e4");
+        this.send("go wtime 100 btime x depth 2");
+        List<String> lines = this.await("bestmove");
+        Assertions.assertTrue(lines.contains("info string invalid value for btime: x"), lines.toString());
+        Assertions.assertFalse(lines.stream().anyMatch(line -> line.startsWith("info depth 3 ")), "The other limits should still apply");
+        this.send("position fen rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1");
+        this.await("info string invalid fen");
+        this.send("go depth 1");
+        this.send("stop");
+        this.send("isready");
+        lines = this.await("readyok");
+        String last = lines.stream().filter(line -> line.startsWith("bestmove ")).reduce((first, second) -> second).orElseThrow().substring(9);
+        Position afterE4 = Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1");
+        Assertions.assertNotEquals(0, UciMove.parse(afterE4, last), "The bad FEN should leave the last position");
+    }
+
+    @Test
+    @DisplayName("UCI Move Text")
+    public void moves() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 5), new ChessPosition(8, 5), ChessPiece.PieceType.QUEEN);
+        Assertions.assertEquals("e7e8q", UciMove.format(promotion));
+        Assertions.assertEquals(promotion, UciMove.toMove("e7e8q"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> UciMove.toMove("e7e8k"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> UciMove.toMove("e9e8"));
+        Position start = Fen.parse(Fen.START);
+        Assertions.assertEquals("g1f3", UciMove.format(UciMove.parse(start, "g1f3")));
+        Assertions.assertEquals(0, UciMove.parse(start, "g1g3"));
+    }
+}